@@ -0,0 +1,165 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.collections.PCollections;
+import org.sonar.java.collections.PLongIntMap;
+import org.sonar.java.collections.PMap;
+
+/**
+ * Operations on the AVL tree backing {@link PCollections#emptyMap()}, used for the program states of the symbolic execution,
+ * and the same puts and gets on the {@link PLongIntMap} which replaced it for the visited program points. Both maps are also
+ * run on keys shaped like {@code ProgramPoint#key()}: the id of a block in the high 32 bits, the index of an element of the
+ * block in the low ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AVLTreeBenchmark {
+
+  private static final int ELEMENTS_PER_BLOCK = 8;
+
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  private Integer[] keys;
+  private PMap<Integer, Integer> map;
+  private long[] programPointKeys;
+  private Long[] boxedProgramPointKeys;
+  private PMap<Long, Integer> programPointMap;
+  private PLongIntMap programPointLongIntMap;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(42);
+    keys = new Integer[size];
+    PMap<Integer, Integer> result = PCollections.emptyMap();
+    for (int i = 0; i < size; i++) {
+      keys[i] = random.nextInt();
+      result = result.put(keys[i], i);
+    }
+    map = result;
+
+    programPointKeys = new long[size];
+    boxedProgramPointKeys = new Long[size];
+    for (int i = 0; i < size; i++) {
+      programPointKeys[i] = ((long) (i / ELEMENTS_PER_BLOCK) << 32) | (i % ELEMENTS_PER_BLOCK);
+    }
+    // program points are not visited in the order of their keys
+    for (int i = size - 1; i > 0; i--) {
+      int j = random.nextInt(i + 1);
+      long key = programPointKeys[i];
+      programPointKeys[i] = programPointKeys[j];
+      programPointKeys[j] = key;
+    }
+    PMap<Long, Integer> boxedResult = PCollections.emptyMap();
+    PLongIntMap longIntResult = PCollections.emptyLongIntMap();
+    for (int i = 0; i < size; i++) {
+      boxedProgramPointKeys[i] = programPointKeys[i];
+      boxedResult = boxedResult.put(boxedProgramPointKeys[i], i);
+      longIntResult = longIntResult.put(programPointKeys[i], i);
+    }
+    programPointMap = boxedResult;
+    programPointLongIntMap = longIntResult;
+  }
+
+  @Benchmark
+  public PMap<Integer, Integer> put() {
+    PMap<Integer, Integer> result = PCollections.emptyMap();
+    for (int i = 0; i < keys.length; i++) {
+      result = result.put(keys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void get(Blackhole blackhole) {
+    for (Integer key : keys) {
+      blackhole.consume(map.get(key));
+    }
+  }
+
+  @Benchmark
+  public PMap<Integer, Integer> remove() {
+    PMap<Integer, Integer> result = map;
+    for (Integer key : keys) {
+      result = result.remove(key);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public int forEach() {
+    int[] sum = {0};
+    map.forEach((key, value) -> sum[0] += value);
+    return sum[0];
+  }
+
+  @Benchmark
+  public PMap<Long, Integer> putProgramPoints() {
+    PMap<Long, Integer> result = PCollections.emptyMap();
+    for (int i = 0; i < programPointKeys.length; i++) {
+      // boxed at each put, as the visited program points were
+      result = result.put(programPointKeys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void getProgramPoints(Blackhole blackhole) {
+    for (Long key : boxedProgramPointKeys) {
+      blackhole.consume(programPointMap.get(key));
+    }
+  }
+
+  @Benchmark
+  public PLongIntMap putProgramPointsLongInt() {
+    PLongIntMap result = PCollections.emptyLongIntMap();
+    for (int i = 0; i < programPointKeys.length; i++) {
+      result = result.put(programPointKeys[i], i);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void getProgramPointsLongInt(Blackhole blackhole) {
+    for (long key : programPointKeys) {
+      blackhole.consume(programPointLongIntMap.get(key, -1));
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.checks.verifier.FilesUtils;
+import org.sonar.java.checks.verifier.internal.InternalInputFile;
+import org.sonar.java.model.JParser;
+import org.sonar.java.model.JParserConfig;
+import org.sonar.java.model.JavaTree;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Fixed set of files of 'java-checks-test-sources' on which the benchmarks are run, so that results stay comparable
+ * between two versions of the analyzer. The location of 'java-checks-test-sources' can be changed with the
+ * {@value #CORPUS_PROPERTY} system property.
+ */
+public final class BenchmarkCorpus {
+
+  public static final String CORPUS_PROPERTY = "sonar.java.benchmarks.corpus";
+  public static final String JAVA_VERSION = JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION;
+
+  private static final String DEFAULT_CORPUS = "java-checks-test-sources";
+  private static final String MODULE_KEY = "benchmarks";
+
+  public static final List<String> CHECKS_FILES = Arrays.asList(
+    "checks/AssertionsCompletenessCheck.java",
+    "checks/CollectionInappropriateCallsCheck.java",
+    "checks/DeadStoreCheck.java",
+    "checks/regex/RedosCheck.java",
+    "checks/regex/RedundantRegexAlternativesCheck.java");
+
+  public static final List<String> SYMBOLIC_EXECUTION_FILES = Arrays.asList(
+    "symbolicexecution/checks/ParameterNullnessCheck.java",
+    "symbolicexecution/checks/S3959_StreamConsumedCheck.java",
+    "symbolicexecution/checks/UnreachableOrGratuitous.java");
+
+  public static final List<String> REGEX_FILES = Arrays.asList(
+    "checks/regex/RedosCheck.java",
+    "checks/regex/RedundantRegexAlternativesCheck.java");
+
+  private BenchmarkCorpus() {
+    // utility class
+  }
+
+  public static List<String> allFiles() {
+    List<String> files = new ArrayList<>(CHECKS_FILES);
+    files.addAll(SYMBOLIC_EXECUTION_FILES);
+    return files;
+  }
+
+  public static File file(String path) {
+    File file = new File(corpusDirectory(), "src/main/java/" + path);
+    if (!file.isFile()) {
+      throw new IllegalStateException("Missing benchmark file '" + file.getAbsolutePath() + "', set the '" + CORPUS_PROPERTY
+        + "' system property to the location of 'java-checks-test-sources'.");
+    }
+    return file;
+  }
+
+  public static List<File> files(List<String> paths) {
+    return paths.stream().map(BenchmarkCorpus::file).collect(Collectors.toList());
+  }
+
+  /**
+   * Binaries of the corpus and of its dependencies, when 'java-checks-test-sources' has been built.
+   */
+  public static List<File> classpath() {
+    File corpus = corpusDirectory();
+    List<File> classpath = new ArrayList<>();
+    File testJars = new File(corpus, "target/test-jars");
+    if (testJars.isDirectory()) {
+      classpath.addAll(FilesUtils.getFilesRecursively(testJars.toPath(), "jar", "zip"));
+    }
+    classpath.add(new File(corpus, "target/classes"));
+    return classpath;
+  }
+
+  public static String read(File file) {
+    try {
+      return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read file '" + file.getAbsolutePath() + "'", e);
+    }
+  }
+
+  public static InputFile inputFile(File file) {
+    return InternalInputFile.inputFile(MODULE_KEY, file);
+  }
+
+  public static JavaTree.CompilationUnitTreeImpl parse(File file, List<File> classpath) {
+    return JParser.parse(JParserConfig.Mode.FILE_BY_FILE.create(JAVA_VERSION, classpath).astParser(), JAVA_VERSION, file.getName(), read(file));
+  }
+
+  private static File corpusDirectory() {
+    return new File(System.getProperty(CORPUS_PROPERTY, DEFAULT_CORPUS));
+  }
+}
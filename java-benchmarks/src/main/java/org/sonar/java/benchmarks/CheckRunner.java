@@ -0,0 +1,110 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.checks.CheckList;
+import org.sonar.java.model.JavaTree;
+import org.sonar.java.se.SymbolicExecutionVisitor;
+import org.sonar.java.se.checks.SECheck;
+import org.sonar.java.testing.VisitorsBridgeForTests;
+import org.sonar.plugins.java.api.JavaCheck;
+
+/**
+ * Runs checks on parsed files, the way the sensor does, without reporting the issues to SonarQube.
+ */
+public final class CheckRunner {
+
+  private final List<InputFile> inputFiles = new ArrayList<>();
+  private final List<JavaTree.CompilationUnitTreeImpl> trees = new ArrayList<>();
+  private final Supplier<List<JavaCheck>> checksFactory;
+  private final List<File> classpath;
+  private VisitorsBridgeForTests visitorsBridge;
+
+  public CheckRunner(Supplier<List<JavaCheck>> checksFactory, List<String> paths) {
+    this.checksFactory = checksFactory;
+    this.classpath = BenchmarkCorpus.classpath();
+    for (File file : BenchmarkCorpus.files(paths)) {
+      inputFiles.add(BenchmarkCorpus.inputFile(file));
+      trees.add(BenchmarkCorpus.parse(file, classpath));
+    }
+    reset();
+  }
+
+  /**
+   * Starts again with new instances of the checks, so that the data they accumulate between files does not grow forever
+   */
+  public void reset() {
+    visitorsBridge = new VisitorsBridgeForTests(withSymbolicExecutionVisitor(checksFactory.get()), classpath, null);
+  }
+
+  public int scan() {
+    int issues = 0;
+    for (int i = 0; i < trees.size(); i++) {
+      visitorsBridge.setCurrentFile(inputFiles.get(i));
+      visitorsBridge.visitFile(trees.get(i));
+      issues += visitorsBridge.lastCreatedTestContext().getIssues().size();
+    }
+    return issues;
+  }
+
+  public List<JavaTree.CompilationUnitTreeImpl> trees() {
+    return trees;
+  }
+
+  public static List<JavaCheck> allJavaChecks() {
+    return CheckList.getJavaChecks().stream()
+      .map(CheckRunner::newInstance)
+      .collect(Collectors.toList());
+  }
+
+  public static List<JavaCheck> symbolicExecutionChecks() {
+    return allJavaChecks().stream()
+      .filter(SECheck.class::isInstance)
+      .collect(Collectors.toList());
+  }
+
+  public static JavaCheck newInstance(Class<? extends JavaCheck> checkClass) {
+    try {
+      return checkClass.getConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to instantiate " + checkClass.getName(), e);
+    }
+  }
+
+  private static List<JavaCheck> withSymbolicExecutionVisitor(List<JavaCheck> checks) {
+    List<SECheck> seChecks = checks.stream()
+      .filter(SECheck.class::isInstance)
+      .map(SECheck.class::cast)
+      .collect(Collectors.toList());
+    if (seChecks.isEmpty()) {
+      return checks;
+    }
+    List<JavaCheck> result = new ArrayList<>(checks);
+    // like the sensor, run the symbolic execution before the first SECheck
+    result.add(result.indexOf(seChecks.get(0)), new SymbolicExecutionVisitor(seChecks));
+    return result;
+  }
+}
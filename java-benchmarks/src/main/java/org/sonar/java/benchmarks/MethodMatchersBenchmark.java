@@ -0,0 +1,111 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.plugins.java.api.semantic.MethodMatchers;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.MethodInvocationTree;
+
+/**
+ * Matching of all the method invocations of the corpus against matchers built like the ones of the rules.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MethodMatchersBenchmark {
+
+  private static final MethodMatchers SINGLE_METHOD = MethodMatchers.create()
+    .ofTypes("java.lang.String")
+    .names("equals")
+    .addParametersMatcher("java.lang.Object")
+    .build();
+
+  private static final MethodMatchers SUBTYPES = MethodMatchers.create()
+    .ofSubTypes("java.util.Collection")
+    .names("add", "remove", "contains")
+    .withAnyParameters()
+    .build();
+
+  private static final MethodMatchers MANY = MethodMatchers.or(
+    SINGLE_METHOD,
+    SUBTYPES,
+    MethodMatchers.create().ofAnyType().names("toString", "hashCode").addWithoutParametersMatcher().build(),
+    MethodMatchers.create().ofTypes("java.util.regex.Pattern").names("compile", "matches").withAnyParameters().build(),
+    MethodMatchers.create().ofSubTypes("java.util.Map").anyName().withAnyParameters().build());
+
+  private final List<MethodInvocationTree> invocations = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    BaseTreeVisitor collector = new BaseTreeVisitor() {
+      @Override
+      public void visitMethodInvocation(MethodInvocationTree tree) {
+        invocations.add(tree);
+        super.visitMethodInvocation(tree);
+      }
+    };
+    List<File> classpath = BenchmarkCorpus.classpath();
+    BenchmarkCorpus.files(BenchmarkCorpus.allFiles())
+      .forEach(file -> BenchmarkCorpus.parse(file, classpath).accept(collector));
+  }
+
+  @Benchmark
+  public int singleMethod() {
+    return countMatches(SINGLE_METHOD);
+  }
+
+  @Benchmark
+  public int subTypes() {
+    return countMatches(SUBTYPES);
+  }
+
+  @Benchmark
+  public int many() {
+    return countMatches(MANY);
+  }
+
+  private int countMatches(MethodMatchers matchers) {
+    int matches = 0;
+    for (MethodInvocationTree invocation : invocations) {
+      if (matchers.matches(invocation)) {
+        matches++;
+      }
+    }
+    return matches;
+  }
+}
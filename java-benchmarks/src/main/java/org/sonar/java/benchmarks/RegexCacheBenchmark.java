@@ -0,0 +1,90 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.regex.RegexCache;
+import org.sonar.plugins.java.api.tree.BaseTreeVisitor;
+import org.sonar.plugins.java.api.tree.LiteralTree;
+import org.sonar.plugins.java.api.tree.Tree;
+import org.sonarsource.analyzer.commons.regex.ast.FlagSet;
+
+/**
+ * Parsing of all the string literals of the regex corpus files through a new {@link RegexCache} ({@code parse}), and
+ * lookups of the same literals once they have been parsed ({@code cached}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegexCacheBenchmark {
+
+  private final List<LiteralTree> literals = new ArrayList<>();
+  private RegexCache warmCache;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    BaseTreeVisitor collector = new BaseTreeVisitor() {
+      @Override
+      public void visitLiteral(LiteralTree tree) {
+        if (tree.is(Tree.Kind.STRING_LITERAL)) {
+          literals.add(tree);
+        }
+      }
+    };
+    List<File> classpath = BenchmarkCorpus.classpath();
+    BenchmarkCorpus.files(BenchmarkCorpus.REGEX_FILES)
+      .forEach(file -> BenchmarkCorpus.parse(file, classpath).accept(collector));
+    warmCache = new RegexCache();
+    literals.forEach(literal -> warmCache.getRegexForLiterals(new FlagSet(), literal));
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    RegexCache cache = new RegexCache();
+    for (LiteralTree literal : literals) {
+      blackhole.consume(cache.getRegexForLiterals(new FlagSet(), literal));
+    }
+  }
+
+  @Benchmark
+  public void cached(Blackhole blackhole) {
+    for (LiteralTree literal : literals) {
+      blackhole.consume(warmCache.getRegexForLiterals(new FlagSet(), literal));
+    }
+  }
+}
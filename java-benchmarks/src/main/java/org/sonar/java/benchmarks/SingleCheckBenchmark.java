@@ -0,0 +1,76 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.plugins.java.api.JavaCheck;
+
+/**
+ * Individual rules known to be among the most expensive ones, on the files of the corpus. Other rules can be given with
+ * the JMH option {@code -p check=<fully qualified class name>}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SingleCheckBenchmark {
+
+  @Param({
+    "org.sonar.java.checks.DeadStoreCheck",
+    "org.sonar.java.checks.CollectionInappropriateCallsCheck",
+    "org.sonar.java.checks.tests.AssertionsCompletenessCheck",
+    "org.sonar.java.checks.unused.UnusedPrivateMethodCheck",
+    "org.sonar.java.checks.regex.RedosCheck"
+  })
+  public String check;
+
+  private CheckRunner runner;
+
+  @Setup(Level.Trial)
+  public void setUp() throws ClassNotFoundException {
+    Class<? extends JavaCheck> checkClass = Class.forName(check).asSubclass(JavaCheck.class);
+    runner = new CheckRunner(() -> Collections.singletonList(CheckRunner.newInstance(checkClass)), BenchmarkCorpus.CHECKS_FILES);
+  }
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    runner.reset();
+  }
+
+  @Benchmark
+  public int visitFiles() {
+    return runner.scan();
+  }
+}
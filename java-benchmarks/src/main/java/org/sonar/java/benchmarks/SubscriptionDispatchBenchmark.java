@@ -0,0 +1,103 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.java.model.JavaTree;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.tree.Tree;
+
+/**
+ * Dispatch of the nodes of the corpus to subscription visitors which do nothing, subscribed to the same kinds of nodes as
+ * the subscription rules of {@link org.sonar.java.checks.CheckList}, so that the cost of the rules is not measured.
+ * <p>
+ * Meant to be run with the GC profiler ({@code -prof gc}): the allocation rate per node is the normalized allocation rate
+ * ({@code gc.alloc.rate.norm}) divided by the number of visited nodes, printed when the benchmark is set up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubscriptionDispatchBenchmark {
+
+  private CheckRunner runner;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    runner = new CheckRunner(SubscriptionDispatchBenchmark::emptyVisitors, BenchmarkCorpus.allFiles());
+    long visitedNodes = runner.trees().stream().mapToLong(SubscriptionDispatchBenchmark::visitedNodes).sum();
+    System.out.println("Visited nodes: " + visitedNodes);
+  }
+
+  @Benchmark
+  public int visitFiles() {
+    return runner.scan();
+  }
+
+  private static List<JavaCheck> emptyVisitors() {
+    return CheckRunner.allJavaChecks().stream()
+      .filter(IssuableSubscriptionVisitor.class::isInstance)
+      .map(check -> new EmptyVisitor(((IssuableSubscriptionVisitor) check).nodesToVisit()))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Nodes visited by the subscription visitors: each token, and each other node, once
+   */
+  private static long visitedNodes(Tree tree) {
+    JavaTree javaTree = (JavaTree) tree;
+    long visitedNodes = 1;
+    if (!javaTree.isLeaf()) {
+      for (Tree child : javaTree.getChildrenArray()) {
+        visitedNodes += visitedNodes(child);
+      }
+    }
+    return visitedNodes;
+  }
+
+  private static final class EmptyVisitor extends IssuableSubscriptionVisitor {
+    private final List<Tree.Kind> nodesToVisit;
+
+    private EmptyVisitor(List<Tree.Kind> nodesToVisit) {
+      this.nodesToVisit = nodesToVisit;
+    }
+
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return nodesToVisit;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.java.benchmarks.BenchmarkCorpus;
+
+/**
+ * Parsing of the corpus by ECJ followed by the conversion to our tree ({@code parse}), and the conversion alone ({@code convert}).
+ * In the same package as {@link JParser} to call its conversion directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JParserBenchmark {
+
+  private final List<String> unitNames = new ArrayList<>();
+  private final List<SourceBuffer> sources = new ArrayList<>();
+  private JParserConfig config;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    config = JParserConfig.Mode.FILE_BY_FILE.create(BenchmarkCorpus.JAVA_VERSION, BenchmarkCorpus.classpath());
+    for (File file : BenchmarkCorpus.files(BenchmarkCorpus.allFiles())) {
+      unitNames.add(file.getName());
+      sources.add(SourceBuffer.of(BenchmarkCorpus.read(file)));
+    }
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    for (int i = 0; i < sources.size(); i++) {
+      blackhole.consume(JParser.parse(config.astParser(), BenchmarkCorpus.JAVA_VERSION, unitNames.get(i), sources.get(i).text()));
+    }
+  }
+
+  @Benchmark
+  public void convert(EcjAsts ecjAsts, Blackhole blackhole) {
+    for (int i = 0; i < ecjAsts.astNodes.size(); i++) {
+      blackhole.consume(JParser.convert(BenchmarkCorpus.JAVA_VERSION, unitNames.get(i), sources.get(i), ecjAsts.astNodes.get(i)));
+    }
+  }
+
+  /**
+   * The conversion reads the ECJ AST: a new one is created before each call of {@link #convert(EcjAsts, Blackhole)}.
+   */
+  @State(Scope.Thread)
+  public static class EcjAsts {
+
+    private final List<CompilationUnit> astNodes = new ArrayList<>();
+
+    @Setup(Level.Invocation)
+    public void parseWithEcj(JParserBenchmark corpus) {
+      astNodes.clear();
+      for (int i = 0; i < corpus.sources.size(); i++) {
+        ASTParser astParser = corpus.config.astParser();
+        astParser.setUnitName(corpus.unitNames.get(i));
+        astParser.setSource(corpus.sources.get(i).chars());
+        astNodes.add((CompilationUnit) astParser.createAST(null));
+      }
+    }
+  }
+}
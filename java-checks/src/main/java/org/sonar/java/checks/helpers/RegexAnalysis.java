@@ -0,0 +1,91 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.checks.helpers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.sonar.java.regex.RegexScannerContext;
+import org.sonarsource.analyzer.commons.regex.RegexParseResult;
+import org.sonarsource.analyzer.commons.regex.ast.AutomatonState;
+
+/**
+ * Analysis results about one parsed regex, shared by all the regex checks visiting it. They are kept with the parse results,
+ * by the scanner context of the file.
+ */
+public final class RegexAnalysis {
+
+  private final RegexReachabilityChecker reachabilityChecker = new RegexReachabilityChecker(false);
+  private final Map<AutomataQuery, Boolean> automataResults = new HashMap<>();
+
+  RegexAnalysis() {
+  }
+
+  public static RegexAnalysis of(RegexScannerContext context, RegexParseResult regex) {
+    return context.regexAnalysis(regex, RegexAnalysis.class, r -> new RegexAnalysis());
+  }
+
+  public boolean canReach(AutomatonState start, AutomatonState goal) {
+    return reachabilityChecker.canReach(start, goal);
+  }
+
+  /**
+   * Same as {@link RegexTreeHelper#intersects(SubAutomaton, SubAutomaton, boolean)}, computed once per regex.
+   */
+  public boolean intersects(SubAutomaton auto1, SubAutomaton auto2, boolean defaultAnswer) {
+    return automataResults.computeIfAbsent(new AutomataQuery(false, auto1, auto2, defaultAnswer),
+      query -> RegexTreeHelper.intersects(auto1, auto2, defaultAnswer));
+  }
+
+  /**
+   * Same as {@link RegexTreeHelper#supersetOf(SubAutomaton, SubAutomaton, boolean)}, computed once per regex.
+   */
+  public boolean supersetOf(SubAutomaton auto1, SubAutomaton auto2, boolean defaultAnswer) {
+    return automataResults.computeIfAbsent(new AutomataQuery(true, auto1, auto2, defaultAnswer),
+      query -> RegexTreeHelper.supersetOf(auto1, auto2, defaultAnswer));
+  }
+
+  private static class AutomataQuery {
+    private final boolean superset;
+    private final SubAutomaton auto1;
+    private final SubAutomaton auto2;
+    private final boolean defaultAnswer;
+
+    AutomataQuery(boolean superset, SubAutomaton auto1, SubAutomaton auto2, boolean defaultAnswer) {
+      this.superset = superset;
+      this.auto1 = auto1;
+      this.auto2 = auto2;
+      this.defaultAnswer = defaultAnswer;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof AutomataQuery)) return false;
+      AutomataQuery that = (AutomataQuery) o;
+      return superset == that.superset && defaultAnswer == that.defaultAnswer && auto1.equals(that.auto1) && auto2.equals(that.auto2);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(superset, auto1, auto2, defaultAnswer);
+    }
+  }
+}
@@ -19,68 +19,60 @@
  */
 package org.sonar.java.checks.helpers;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 import org.sonarsource.analyzer.commons.regex.ast.AutomatonState;
 
 public class RegexReachabilityChecker {
   private static final int MAX_CACHE_SIZE = 5_000;
 
   private final boolean defaultAnswer;
-  private final Map<OrderedStatePair, Boolean> cache = new HashMap<>();
+  private final Map<AutomatonState, Set<AutomatonState>> reachableStates = new HashMap<>();
+  private int cacheSize = 0;
 
   public RegexReachabilityChecker(boolean defaultAnswer) {
     this.defaultAnswer = defaultAnswer;
   }
 
   public void clearCache() {
-    cache.clear();
+    reachableStates.clear();
+    cacheSize = 0;
   }
 
+  /**
+   * The states reachable from a given start are computed once, by a complete traversal of the automaton, so the answer
+   * does not depend on the order in which questions were asked. This makes it safe to share one checker between
+   * several checks analyzing the same regex.
+   */
   public boolean canReach(AutomatonState start, AutomatonState goal) {
     if (start == goal) {
       return true;
     }
-    OrderedStatePair pair = new OrderedStatePair(start, goal);
-    if (cache.containsKey(pair)) {
-      return cache.get(pair);
-    }
-    if (cache.size() >= MAX_CACHE_SIZE) {
-      return defaultAnswer;
-    }
-    cache.put(pair, false);
-    boolean result = false;
-    for (AutomatonState successor : start.successors()) {
-      if (canReach(successor, goal)) {
-        result = true;
-        break;
+    Set<AutomatonState> reachable = reachableStates.get(start);
+    if (reachable == null) {
+      if (cacheSize >= MAX_CACHE_SIZE) {
+        return defaultAnswer;
       }
+      reachable = computeReachableStates(start);
+      reachableStates.put(start, reachable);
+      cacheSize += reachable.size();
     }
-    cache.put(pair, result);
-    return result;
+    return reachable.contains(goal);
   }
 
-  private static class OrderedStatePair {
-    private final AutomatonState source;
-    private final AutomatonState target;
-
-    OrderedStatePair(AutomatonState source, AutomatonState target) {
-      this.source = source;
-      this.target = target;
-    }
-
-    @Override
-    public boolean equals(Object o) {
-      if (this == o) return true;
-      if (!(o instanceof OrderedStatePair)) return false;
-      OrderedStatePair that = (OrderedStatePair) o;
-      return source == that.source && target == that.target;
-    }
-
-    @Override
-    public int hashCode() {
-      return Objects.hash(source, target);
+  private static Set<AutomatonState> computeReachableStates(AutomatonState start) {
+    Set<AutomatonState> reachable = new HashSet<>();
+    Deque<AutomatonState> workList = new ArrayDeque<>(start.successors());
+    while (!workList.isEmpty()) {
+      AutomatonState state = workList.pop();
+      if (reachable.add(state)) {
+        workList.addAll(state.successors());
+      }
     }
+    return reachable;
   }
 }
@@ -30,6 +30,7 @@ import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.checks.helpers.RegexAnalysis;
 import org.sonar.java.model.ExpressionUtils;
 import org.sonar.java.model.JUtils;
 import org.sonar.java.regex.RegexCheck;
@@ -221,6 +222,13 @@ public abstract class AbstractRegexCheck extends IssuableSubscriptionVisitor imp
     return regexContext.regexForLiterals(flags, literals);
   }
 
+  /**
+   * @return the analysis of a regex of the current file, shared with the other regex checks
+   */
+  protected final RegexAnalysis regexAnalysis(RegexParseResult regex) {
+    return RegexAnalysis.of(regexContext, regex);
+  }
+
   @VisibleForTesting
   protected static Optional<LiteralTree[]> getLiterals(ExpressionTree expr) {
     switch (expr.kind()) {
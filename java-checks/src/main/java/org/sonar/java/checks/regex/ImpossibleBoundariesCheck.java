@@ -24,7 +24,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.sonar.check.Rule;
-import org.sonar.java.checks.helpers.RegexReachabilityChecker;
+import org.sonar.java.checks.helpers.RegexAnalysis;
 import org.sonar.java.checks.helpers.RegexTreeHelper;
 import org.sonarsource.analyzer.commons.regex.RegexParseResult;
 import org.sonarsource.analyzer.commons.regex.ast.AutomatonState;
@@ -44,7 +44,7 @@ public class ImpossibleBoundariesCheck extends AbstractRegexCheck {
   private static final String SOFT_MESSAGE =
     "Remove or replace this boundary that can only match if the previous part matched the empty string because it appears %s mandatory input.";
   private final Set<RegexTree> excluded = new HashSet<>();
-  private final RegexReachabilityChecker regexReachabilityChecker = new RegexReachabilityChecker(false);
+  private RegexAnalysis regexAnalysis;
 
   @Override
   public void checkRegex(RegexParseResult regexForLiterals, ExpressionTree methodInvocationOrAnnotation) {
@@ -58,7 +58,7 @@ public class ImpossibleBoundariesCheck extends AbstractRegexCheck {
 
     @Override
     public void visit(RegexParseResult regexParseResult) {
-      regexReachabilityChecker.clearCache();
+      regexAnalysis = regexAnalysis(regexParseResult);
       start = regexParseResult.getStartState();
       end = regexParseResult.getFinalState();
       super.visit(regexParseResult);
@@ -145,7 +145,7 @@ public class ImpossibleBoundariesCheck extends AbstractRegexCheck {
 
     for (AutomatonState successor : start.successors()) {
       AutomatonState.TransitionType transition = successor.incomingTransitionType();
-      if (((transition == CHARACTER) && regexReachabilityChecker.canReach(successor, goal))
+      if (((transition == CHARACTER) && regexAnalysis.canReach(successor, goal))
         || ((transition != CHARACTER) && canReachWithConsumingInput(successor, goal, visited))) {
         return true;
       }
@@ -21,7 +21,7 @@ package org.sonar.java.checks.regex;
 
 import java.util.Collections;
 import org.sonar.check.Rule;
-import org.sonar.java.checks.helpers.RegexTreeHelper;
+import org.sonar.java.checks.helpers.RegexAnalysis;
 import org.sonar.java.checks.helpers.SubAutomaton;
 import org.sonar.java.regex.RegexCheck;
 import org.sonarsource.analyzer.commons.regex.RegexParseResult;
@@ -40,14 +40,16 @@ public class PossessiveQuantifierContinuationCheck extends AbstractRegexCheck {
 
   @Override
   public void checkRegex(RegexParseResult regexForLiterals, ExpressionTree methodInvocationOrAnnotation) {
-    new Visitor(regexForLiterals.getFinalState()).visit(regexForLiterals);
+    new Visitor(regexAnalysis(regexForLiterals), regexForLiterals.getFinalState()).visit(regexForLiterals);
   }
 
   private class Visitor extends RegexBaseVisitor {
 
+    private final RegexAnalysis regexAnalysis;
     private final FinalState finalState;
 
-    public Visitor(FinalState finalState) {
+    public Visitor(RegexAnalysis regexAnalysis, FinalState finalState) {
+      this.regexAnalysis = regexAnalysis;
       this.finalState = finalState;
     }
 
@@ -71,7 +73,7 @@ public class PossessiveQuantifierContinuationCheck extends AbstractRegexCheck {
       }
       SubAutomaton potentialSuperset = new SubAutomaton(repetitionTree.getElement(), repetitionTree.continuation(), false);
       SubAutomaton potentialSubset = new SubAutomaton(repetitionTree.continuation(), finalState, true);
-      return RegexTreeHelper.supersetOf(potentialSuperset, potentialSubset, false);
+      return regexAnalysis.supersetOf(potentialSuperset, potentialSubset, false);
     }
   }
 
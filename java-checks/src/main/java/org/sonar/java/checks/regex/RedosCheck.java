@@ -31,7 +31,7 @@ import java.util.Optional;
 import javax.annotation.Nullable;
 import org.sonar.check.Rule;
 import org.sonar.java.checks.helpers.IntersectAutomataChecker;
-import org.sonar.java.checks.helpers.RegexReachabilityChecker;
+import org.sonar.java.checks.helpers.RegexAnalysis;
 import org.sonar.java.checks.helpers.SimplifiedRegexCharacterClass;
 import org.sonar.java.checks.helpers.SubAutomaton;
 import org.sonarsource.analyzer.commons.regex.RegexParseResult;
@@ -76,7 +76,7 @@ public class RedosCheck extends AbstractRegexCheckTrackingMatchType {
   private boolean regexContainsBackReference;
   private BacktrackingType foundBacktrackingType;
 
-  private final RegexReachabilityChecker reachabilityChecker = new RegexReachabilityChecker(false);
+  private RegexAnalysis regexAnalysis;
   private final IntersectAutomataChecker intersectionChecker = new IntersectAutomataChecker(false);
 
   // Java 9 introduced a loop optimization that's applied to greedy repetitions in regexes that don't use capturing groups.
@@ -128,7 +128,7 @@ public class RedosCheck extends AbstractRegexCheckTrackingMatchType {
     }
     regexContainsBackReference = false;
     foundBacktrackingType = BacktrackingType.NO_ISSUE;
-    reachabilityChecker.clearCache();
+    regexAnalysis = regexAnalysis(regexForLiterals);
     intersectionChecker.clearCache();
     boolean isUsedForFullMatch = matchType == MatchType.FULL || matchType == MatchType.BOTH;
     boolean isUsedForPartialMatch = matchType == MatchType.PARTIAL || matchType == MatchType.BOTH;
@@ -178,7 +178,7 @@ public class RedosCheck extends AbstractRegexCheckTrackingMatchType {
     private void checkForOverlappingRepetitions(RepetitionTree tree) {
       if (tree.getQuantifier().isOpenEnded() && canFail(tree)) {
         for (RepetitionTree repetition : nonPossessiveRepetitions) {
-          if (reachabilityChecker.canReach(repetition, tree)) {
+          if (regexAnalysis.canReach(repetition, tree)) {
             SubAutomaton repetitionAuto = new SubAutomaton(repetition.getElement(), repetition.continuation(), false);
             SubAutomaton continuationAuto = new SubAutomaton(repetition.continuation(), tree, false);
             SubAutomaton treeAuto = new SubAutomaton(tree.getElement(), tree.continuation(), false);
@@ -27,7 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.sonar.check.Rule;
-import org.sonar.java.checks.helpers.RegexTreeHelper;
+import org.sonar.java.checks.helpers.RegexAnalysis;
 import org.sonar.java.checks.helpers.SubAutomaton;
 import org.sonarsource.analyzer.commons.regex.RegexParseResult;
 import org.sonarsource.analyzer.commons.regex.ast.CapturingGroupTree;
@@ -41,7 +41,7 @@ public class RedundantRegexAlternativesCheck extends AbstractRegexCheck {
 
   @Override
   public void checkRegex(RegexParseResult regexForLiterals, ExpressionTree methodInvocationOrAnnotation) {
-    new DisjunctionVisitor().visit(regexForLiterals);
+    new DisjunctionVisitor(regexAnalysis(regexForLiterals)).visit(regexForLiterals);
   }
 
   private void reportRedundantIssue(RegexTree supersetAlternative, Set<RegexTree> redundantSubsetAlternatives) {
@@ -58,9 +58,15 @@ public class RedundantRegexAlternativesCheck extends AbstractRegexCheck {
 
   private class DisjunctionVisitor extends RegexBaseVisitor {
 
+    private final RegexAnalysis regexAnalysis;
+
+    DisjunctionVisitor(RegexAnalysis regexAnalysis) {
+      this.regexAnalysis = regexAnalysis;
+    }
+
     @Override
     public void visitDisjunction(DisjunctionTree tree) {
-      RedundantAlternativeCollector collector = new RedundantAlternativeCollector();
+      RedundantAlternativeCollector collector = new RedundantAlternativeCollector(regexAnalysis);
       List<RegexTree> alternatives = tree.getAlternatives();
       for (int i = 0; i + 1 < alternatives.size(); i++) {
         for (int j = i + 1; j < alternatives.size(); j++) {
@@ -77,6 +83,11 @@ public class RedundantRegexAlternativesCheck extends AbstractRegexCheck {
 
     private final Map<RegexTree, Set<RegexTree>> supersetSubsetListMap = new LinkedHashMap<>();
     private final Set<RegexTree> allSubsets = new HashSet<>();
+    private final RegexAnalysis regexAnalysis;
+
+    RedundantAlternativeCollector(RegexAnalysis regexAnalysis) {
+      this.regexAnalysis = regexAnalysis;
+    }
 
     private void evaluate(RegexTree prevAlternative, RegexTree nextAlternative) {
       if (supersetOf(prevAlternative, nextAlternative)) {
@@ -88,10 +99,10 @@ public class RedundantRegexAlternativesCheck extends AbstractRegexCheck {
       }
     }
 
-    private static boolean supersetOf(RegexTree alternative1, RegexTree alternative2) {
+    private boolean supersetOf(RegexTree alternative1, RegexTree alternative2) {
       SubAutomaton subAutomaton1 = new SubAutomaton(alternative1, alternative1.continuation(), false);
       SubAutomaton subAutomaton2 = new SubAutomaton(alternative2, alternative2.continuation(), false);
-      return RegexTreeHelper.supersetOf(subAutomaton1, subAutomaton2, false);
+      return regexAnalysis.supersetOf(subAutomaton1, subAutomaton2, false);
     }
 
     private void add(RegexTree superset, RegexTree subset) {
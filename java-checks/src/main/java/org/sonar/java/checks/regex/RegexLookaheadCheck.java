@@ -21,7 +21,7 @@ package org.sonar.java.checks.regex;
 
 import java.util.Collections;
 import org.sonar.check.Rule;
-import org.sonar.java.checks.helpers.RegexTreeHelper;
+import org.sonar.java.checks.helpers.RegexAnalysis;
 import org.sonar.java.checks.helpers.SubAutomaton;
 import org.sonarsource.analyzer.commons.regex.RegexParseResult;
 import org.sonarsource.analyzer.commons.regex.ast.FinalState;
@@ -37,16 +37,19 @@ public class RegexLookaheadCheck extends AbstractRegexCheckTrackingMatchType {
 
   @Override
   protected void checkRegex(RegexParseResult regex, ExpressionTree methodInvocationOrAnnotation, MatchType matchType) {
-    new LookaheadFinder(matchType, regex.getFinalState()).visit(regex);
+    new LookaheadFinder(regexAnalysis(regex), matchType, regex.getFinalState()).visit(regex);
   }
 
   private class LookaheadFinder extends RegexBaseVisitor {
 
+    private final RegexAnalysis regexAnalysis;
+
     private final MatchType matchType;
 
     private final FinalState finalState;
 
-    public LookaheadFinder(MatchType matchType, FinalState finalState) {
+    public LookaheadFinder(RegexAnalysis regexAnalysis, MatchType matchType, FinalState finalState) {
+      this.regexAnalysis = regexAnalysis;
       this.matchType = matchType;
       this.finalState = finalState;
     }
@@ -66,9 +69,9 @@ public class RegexLookaheadCheck extends AbstractRegexCheckTrackingMatchType {
       SubAutomaton continuationSubAutomaton = new SubAutomaton(lookAround.continuation(), finalState, true);
 
       if (lookAround.getPolarity() == LookAroundTree.Polarity.NEGATIVE) {
-        return RegexTreeHelper.supersetOf(lookAroundSubAutomaton, continuationSubAutomaton, false);
+        return regexAnalysis.supersetOf(lookAroundSubAutomaton, continuationSubAutomaton, false);
       }
-      return !RegexTreeHelper.intersects(lookAroundSubAutomaton, continuationSubAutomaton, true);
+      return !regexAnalysis.intersects(lookAroundSubAutomaton, continuationSubAutomaton, true);
     }
 
   }
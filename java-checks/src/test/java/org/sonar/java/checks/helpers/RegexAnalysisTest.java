@@ -0,0 +1,129 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.checks.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.java.regex.RegexCache;
+import org.sonar.java.regex.RegexScannerContext;
+import org.sonarsource.analyzer.commons.regex.RegexParseResult;
+import org.sonarsource.analyzer.commons.regex.ast.DisjunctionTree;
+import org.sonarsource.analyzer.commons.regex.ast.FlagSet;
+import org.sonarsource.analyzer.commons.regex.ast.GroupTree;
+import org.sonarsource.analyzer.commons.regex.ast.RegexTree;
+import org.sonarsource.analyzer.commons.regex.ast.RepetitionTree;
+import org.sonarsource.analyzer.commons.regex.ast.SequenceTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonar.java.checks.helpers.SimplifiedRegexCharacterClassTest.parseRegex;
+
+class RegexAnalysisTest {
+
+  @Test
+  void analysis_is_shared_per_regex_of_a_file() {
+    RegexParseResult regex1 = parseRegex("a|b", new FlagSet());
+    RegexParseResult regex2 = parseRegex("a|b", new FlagSet());
+    RegexScannerContext context = fileContext();
+
+    assertThat(RegexAnalysis.of(context, regex1))
+      .isSameAs(RegexAnalysis.of(context, regex1))
+      .isNotSameAs(RegexAnalysis.of(context, regex2))
+      .isNotSameAs(RegexAnalysis.of(fileContext(), regex1));
+  }
+
+  @Test
+  void can_reach_does_not_depend_on_the_order_of_the_queries_in_cycles() {
+    RegexParseResult regex = parseRegex("(ab|c)*d", new FlagSet());
+    SequenceTree sequence = (SequenceTree) regex.getResult();
+    RepetitionTree loop = (RepetitionTree) sequence.getItems().get(0);
+    DisjunctionTree disjunction = (DisjunctionTree) ((GroupTree) loop.getElement()).getElement();
+    SequenceTree ab = (SequenceTree) disjunction.getAlternatives().get(0);
+    RegexTree a = ab.getItems().get(0);
+    RegexTree b = ab.getItems().get(1);
+    RegexTree c = disjunction.getAlternatives().get(1);
+    RegexTree d = sequence.getItems().get(1);
+    // the states of the loop only reach "d" through the loop itself, which is being explored when looking for "d" from the loop
+    List<List<RegexTree>> queries = Arrays.asList(
+      Arrays.asList(loop, d),
+      Arrays.asList(a, d),
+      Arrays.asList(b, d),
+      Arrays.asList(c, d),
+      Arrays.asList(b, a),
+      Arrays.asList(a, c),
+      Arrays.asList(d, a));
+
+    List<Boolean> expected = Arrays.asList(true, true, true, true, true, true, false);
+    RegexAnalysis analysis = new RegexAnalysis();
+    assertThat(queries).extracting(query -> analysis.canReach(query.get(0), query.get(1))).isEqualTo(expected);
+    RegexAnalysis reversedAnalysis = new RegexAnalysis();
+    List<Boolean> reversedAnswers = new ArrayList<>();
+    for (int i = queries.size() - 1; i >= 0; i--) {
+      reversedAnswers.add(0, reversedAnalysis.canReach(queries.get(i).get(0), queries.get(i).get(1)));
+    }
+    assertThat(reversedAnswers).isEqualTo(expected);
+  }
+
+  private static RegexScannerContext fileContext() {
+    RegexCache regexCache = new RegexCache();
+    RegexScannerContext context = mock(RegexScannerContext.class);
+    when(context.regexAnalysis(any(), eq(RegexAnalysis.class), any()))
+      .thenAnswer(invocation -> regexCache.getAnalysis(invocation.getArgument(0), RegexAnalysis.class, invocation.getArgument(2)));
+    return context;
+  }
+
+  @Test
+  void can_reach() {
+    RegexParseResult regex = parseRegex("(a*)*b", new FlagSet());
+    RegexAnalysis analysis = new RegexAnalysis();
+    SequenceTree sequence = (SequenceTree) regex.getResult();
+    RepetitionTree outerLoop = (RepetitionTree) sequence.getItems().get(0);
+    RegexTree b = sequence.getItems().get(1);
+
+    assertThat(analysis.canReach(regex.getStartState(), regex.getFinalState())).isTrue();
+    assertThat(analysis.canReach(outerLoop.getElement(), outerLoop)).isTrue();
+    assertThat(analysis.canReach(outerLoop.getElement(), b)).isTrue();
+    assertThat(analysis.canReach(b, outerLoop)).isFalse();
+    assertThat(analysis.canReach(b, b)).isTrue();
+  }
+
+  @Test
+  void automata_results_are_the_same_as_the_helper() {
+    RegexParseResult regex = parseRegex("[a-z]+|abc", new FlagSet());
+    RegexAnalysis analysis = new RegexAnalysis();
+    RegexTree alternative1 = ((DisjunctionTree) regex.getResult()).getAlternatives().get(0);
+    RegexTree alternative2 = ((DisjunctionTree) regex.getResult()).getAlternatives().get(1);
+    SubAutomaton auto1 = new SubAutomaton(alternative1, alternative1.continuation(), false);
+    SubAutomaton auto2 = new SubAutomaton(alternative2, alternative2.continuation(), false);
+
+    assertThat(analysis.supersetOf(auto1, auto2, false)).isTrue();
+    assertThat(analysis.supersetOf(auto2, auto1, false)).isFalse();
+    assertThat(analysis.intersects(auto1, auto2, false)).isTrue();
+    // cached answers stay the same
+    assertThat(analysis.supersetOf(auto1, auto2, false)).isTrue();
+    assertThat(analysis.supersetOf(auto2, auto1, false)).isFalse();
+  }
+
+}
@@ -19,8 +19,16 @@
  */
 package org.eclipse.jdt.core.dom;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import javax.annotation.Nullable;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
 import org.eclipse.jdt.internal.compiler.env.IBinaryAnnotation;
 import org.eclipse.jdt.internal.compiler.env.IBinaryType;
 import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
@@ -29,6 +37,8 @@ import org.eclipse.jdt.internal.compiler.lookup.BinaryTypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.LookupEnvironment;
 import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
+import org.eclipse.jdt.internal.core.BasicCompilationUnit;
+import org.eclipse.jdt.internal.core.DefaultWorkingCopyOwner;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
@@ -45,6 +55,43 @@ public final class ASTUtils {
     ast.getBindingResolver().lookupEnvironment().mayTolerateMissingType = true;
   }
 
+  /**
+   * Same as {@link ASTParser#createAST} for a compilation unit with bindings and bindings recovery, but resolving types
+   * from the given classpath entries, instead of entries created for this compilation unit only from an environment.
+   */
+  public static CompilationUnit createAST(Map<String, String> compilerOptions, List<FileSystem.Classpath> classpath, String unitName, char[] source) {
+    Map<String, String> options = new HashMap<>(compilerOptions);
+    options.remove(JavaCore.COMPILER_TASK_TAGS);
+    BasicCompilationUnit sourceUnit = new BasicCompilationUnit(source, null, unitName, (IJavaElement) null);
+    int flags = org.eclipse.jdt.core.ICompilationUnit.ENABLE_BINDINGS_RECOVERY;
+    boolean needToResolveBindings = true;
+    CompilationUnitDeclaration compilationUnitDeclaration = null;
+    try {
+      try {
+        compilationUnitDeclaration = CompilationUnitResolver.resolve(sourceUnit, null, classpath, null, options, DefaultWorkingCopyOwner.PRIMARY, flags, null);
+      } catch (JavaModelException e) {
+        flags &= ~org.eclipse.jdt.core.ICompilationUnit.ENABLE_BINDINGS_RECOVERY;
+        compilationUnitDeclaration = CompilationUnitResolver.parse(sourceUnit, null, options, flags);
+        needToResolveBindings = false;
+      }
+      return CompilationUnitResolver.convert(
+        compilationUnitDeclaration,
+        sourceUnit.getContents(),
+        AST.JLS_Latest,
+        options,
+        needToResolveBindings,
+        DefaultWorkingCopyOwner.PRIMARY,
+        needToResolveBindings ? new DefaultBindingResolver.BindingTables() : null,
+        flags,
+        null,
+        false);
+    } finally {
+      if (compilationUnitDeclaration != null) {
+        compilationUnitDeclaration.cleanUp();
+      }
+    }
+  }
+
   public static void cleanupEnvironment(AST ast) {
     ast.getBindingResolver().lookupEnvironment().nameEnvironment.cleanup();
   }
@@ -88,6 +88,13 @@ public class DefaultJavaResourceLocator implements JavaResourceLocator {
     InputFile inputFile = context.getInputFile();
     JavaFilesCache javaFilesCache = new JavaFilesCache();
     javaFilesCache.scanFile(context);
-    javaFilesCache.getClassNames().forEach(className -> resourcesByClass.put(className, inputFile));
+    addClassNames(inputFile, javaFilesCache.getClassNames());
+  }
+
+  /**
+   * Registers the classes declared by a file which is not scanned, as its analysis is replayed from the analysis cache
+   */
+  public void addClassNames(InputFile inputFile, Collection<String> classNames) {
+    classNames.forEach(className -> resourcesByClass.put(className, inputFile));
   }
 }
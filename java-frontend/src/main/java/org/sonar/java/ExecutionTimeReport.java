@@ -23,11 +23,15 @@ import java.io.IOException;
 import java.time.Clock;
 import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.model.SourceBuffer;
 
 public class ExecutionTimeReport {
   private static final Logger LOG = Loggers.get(ExecutionTimeReport.class);
@@ -48,18 +52,28 @@ public class ExecutionTimeReport {
     }
   }
 
+  private static class CurrentFile {
+    private final InputFile inputFile;
+    private final long startTimeMS;
+
+    public CurrentFile(InputFile inputFile, long startTimeMS) {
+      this.inputFile = inputFile;
+      this.startTimeMS = startTimeMS;
+    }
+  }
+
   private static final Comparator<ExecutionTime> ORDER_BY_ANALYSIS_TIME_DESCENDING_AND_FILE_ASCENDING = (a, b) -> {
     int compare = Long.compare(b.analysisTime, a.analysisTime);
     return compare != 0 ? compare : a.file.compareTo(b.file);
   };
 
   private final LinkedList<ExecutionTime> recordedOrderedExecutionTime = new LinkedList<>();
-  private long minRecordedOrderedExecutionTime = MIN_REPORTED_ANALYSIS_TIME_MS;
+  private volatile long minRecordedOrderedExecutionTime = MIN_REPORTED_ANALYSIS_TIME_MS;
 
   private final Clock clock;
   private final long analysisStartTimeMS;
-  private InputFile currentFile;
-  private long currentFileStartTimeMS;
+  // files being analyzed, by analyzing thread, as several files can be analyzed at the same time in parallel mode
+  private final Map<Thread, CurrentFile> currentFiles = new ConcurrentHashMap<>();
 
   public ExecutionTimeReport() {
     this(Clock.systemUTC());
@@ -72,50 +86,75 @@ public class ExecutionTimeReport {
   }
 
   public void start(InputFile inputFile) {
-    this.currentFile = inputFile;
-    currentFileStartTimeMS = clock.millis();
+    currentFiles.put(Thread.currentThread(), new CurrentFile(inputFile, clock.millis()));
   }
 
   public void end() {
-    long currentAnalysisTime = clock.millis() - currentFileStartTimeMS;
+    end(null);
+  }
+
+  /**
+   * @param source content of the file, already decoded when parsing it, or null when not available
+   */
+  public void end(@Nullable SourceBuffer source) {
+    CurrentFile currentFile = currentFiles.remove(Thread.currentThread());
+    if (currentFile != null) {
+      end(currentFile, source);
+    }
+  }
+
+  private void end(CurrentFile currentFile, @Nullable SourceBuffer source) {
+    InputFile inputFile = currentFile.inputFile;
+    long currentAnalysisTime = clock.millis() - currentFile.startTimeMS;
     if (LOG.isTraceEnabled()) {
-      LOG.trace("Analysis time of " + currentFile + " (" + currentAnalysisTime + "ms)");
+      LOG.trace("Analysis time of " + inputFile + " (" + currentAnalysisTime + "ms)");
     } else if (currentAnalysisTime >= MIN_REPORTED_ANALYSIS_TIME_MS && LOG.isDebugEnabled()) {
-      LOG.debug("Analysis time of " + currentFile + " (" + currentAnalysisTime + "ms)");
+      LOG.debug("Analysis time of " + inputFile + " (" + currentAnalysisTime + "ms)");
     }
     if (currentAnalysisTime >= minRecordedOrderedExecutionTime) {
       long currentFileLengthInBytes;
       try {
-        currentFileLengthInBytes = currentFile.contents().length();
+        currentFileLengthInBytes = source != null ? source.length() : inputFile.contents().length();
       } catch (IOException ignored) {
         // Ignore and use the default size
         currentFileLengthInBytes = -1;
       }
-      recordedOrderedExecutionTime.add(new ExecutionTime(currentFile.toString(), currentAnalysisTime, currentFileLengthInBytes));
-      recordedOrderedExecutionTime.sort(ORDER_BY_ANALYSIS_TIME_DESCENDING_AND_FILE_ASCENDING);
-      if (recordedOrderedExecutionTime.size() > MAX_REPORTED_FILES) {
-        recordedOrderedExecutionTime.removeLast();
-        minRecordedOrderedExecutionTime = recordedOrderedExecutionTime.stream()
-          .mapToLong(e -> e.analysisTime)
-          .min()
-          .orElse(MIN_REPORTED_ANALYSIS_TIME_MS);
-      }
+      record(new ExecutionTime(inputFile.toString(), currentAnalysisTime, currentFileLengthInBytes));
+    }
+  }
+
+  private synchronized void record(ExecutionTime executionTime) {
+    if (executionTime.analysisTime < minRecordedOrderedExecutionTime) {
+      // another file has been recorded in the meantime
+      return;
+    }
+    recordedOrderedExecutionTime.add(executionTime);
+    recordedOrderedExecutionTime.sort(ORDER_BY_ANALYSIS_TIME_DESCENDING_AND_FILE_ASCENDING);
+    if (recordedOrderedExecutionTime.size() > MAX_REPORTED_FILES) {
+      recordedOrderedExecutionTime.removeLast();
+      minRecordedOrderedExecutionTime = recordedOrderedExecutionTime.stream()
+        .mapToLong(e -> e.analysisTime)
+        .min()
+        .orElse(MIN_REPORTED_ANALYSIS_TIME_MS);
     }
-    this.currentFile = null;
   }
 
   public void reportAsBatch() {
     report("Slowest analyzed files (batch mode enabled):");
   }
 
+  public void reportInParallel() {
+    report("Slowest analyzed files (parallel mode enabled):");
+  }
+
   public void report() {
     report("Slowest analyzed files:");
   }
 
   private void report(String message) {
-    if (currentFile != null) {
-      end();
-    }
+    // files which were still being analyzed when the analysis has been interrupted
+    currentFiles.values().forEach(currentFile -> end(currentFile, null));
+    currentFiles.clear();
     long analysisEndTimeMS = clock.millis() - analysisStartTimeMS;
     if (analysisEndTimeMS >= MIN_TOTAL_ANALYSIS_TIME_TO_REPORT_MS && !recordedOrderedExecutionTime.isEmpty()) {
       LOG.info(message + System.lineSeparator() + toString());
@@ -123,7 +162,7 @@ public class ExecutionTimeReport {
   }
 
   @Override
-  public String toString() {
+  public synchronized String toString() {
     return recordedOrderedExecutionTime.stream()
       .map(e -> "    " + e.file + " (" + e.analysisTime + "ms, " + e.lengthInBytes + "B)")
       .collect(Collectors.joining(System.lineSeparator()));
@@ -48,7 +48,10 @@ public class JavaFilesCache extends BaseTreeVisitor implements JavaFileScanner {
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
-    JavaTree.CompilationUnitTreeImpl tree = (JavaTree.CompilationUnitTreeImpl) context.getTree();
+    scanCompilationUnit((JavaTree.CompilationUnitTreeImpl) context.getTree());
+  }
+
+  public void scanCompilationUnit(JavaTree.CompilationUnitTreeImpl tree) {
     currentPackage = PackageDeclarationTreeImpl.packageNameAsString(tree.packageDeclaration()).replace('.', '/');
     currentClassKey.clear();
     parent.clear();
@@ -24,8 +24,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -37,14 +40,17 @@ import org.sonar.java.annotations.VisibleForTesting;
 import org.sonar.java.ast.JavaAstScanner;
 import org.sonar.java.ast.visitors.FileLinesVisitor;
 import org.sonar.java.ast.visitors.SyntaxHighlighterVisitor;
+import org.sonar.java.caching.AnalysisCache;
 import org.sonar.java.collections.CollectionUtils;
 import org.sonar.java.collections.ListUtils;
 import org.sonar.java.filters.SonarJavaIssueFilter;
 import org.sonar.java.model.JParserConfig;
 import org.sonar.java.model.VisitorsBridge;
+import org.sonar.java.model.WorkerVisitorsBridge;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonarsource.performance.measure.PerformanceMeasure;
 import org.sonarsource.performance.measure.PerformanceMeasure.Duration;
 
@@ -58,11 +64,27 @@ public class JavaFrontend {
   private final JavaAstScanner astScanner;
   private final JavaAstScanner astScannerForTests;
   private final JavaAstScanner astScannerForGeneratedFiles;
+  private final List<File> classpath;
+  private final List<JavaCheck> codeVisitors = new ArrayList<>();
+  private final Set<JavaCheck> mainChecks;
+  @Nullable
+  private final Measurer measurer;
+  private final JavaResourceLocator javaResourceLocator;
+  @Nullable
+  private final SonarJavaIssueFilter postAnalysisIssueFilter;
+  @Nullable
+  private Supplier<JavaCheck[]> parallelModeChecksFactory;
+  @Nullable
+  private final RuleCostReport ruleCostReport;
 
   public JavaFrontend(JavaVersion javaVersion, @Nullable SonarComponents sonarComponents, @Nullable Measurer measurer,
                      JavaResourceLocator javaResourceLocator, @Nullable SonarJavaIssueFilter postAnalysisIssueFilter, JavaCheck... visitors) {
     this.javaVersion = javaVersion;
     this.sonarComponents =sonarComponents;
+    this.mainChecks = new HashSet<>(Arrays.asList(visitors));
+    this.measurer = measurer;
+    this.javaResourceLocator = javaResourceLocator;
+    this.postAnalysisIssueFilter = postAnalysisIssueFilter;
     List<JavaCheck> commonVisitors = new ArrayList<>();
     commonVisitors.add(javaResourceLocator);
     if (postAnalysisIssueFilter != null) {
@@ -91,42 +113,76 @@ public class JavaFrontend {
       testCodeVisitors.addAll(sonarComponents.testChecks());
       jspCodeVisitors = sonarComponents.jspChecks();
     }
+    this.classpath = classpath;
+    // shared by the visitors bridges of all the files, including the ones of the workers of the parallel mode
+    this.ruleCostReport = sonarComponents != null && sonarComponents.isRuleCostReportEnabled() ? new RuleCostReport() : null;
+    codeVisitors.forEach(this.codeVisitors::add);
     globalClasspath = Stream.of(classpath, testClasspath, jspClasspath)
       .flatMap(Collection::stream).distinct().collect(Collectors.toList());
 
     //AstScanner for main files
     astScanner = new JavaAstScanner(sonarComponents);
-    astScanner.setVisitorBridge(createVisitorBridge(codeVisitors, classpath, javaVersion, sonarComponents));
+    astScanner.setVisitorBridge(createVisitorBridge(codeVisitors, classpath, javaVersion, sonarComponents, ruleCostReport));
 
     //AstScanner for test files
     astScannerForTests = new JavaAstScanner(sonarComponents);
-    astScannerForTests.setVisitorBridge(createVisitorBridge(testCodeVisitors, testClasspath, javaVersion, sonarComponents));
+    astScannerForTests.setVisitorBridge(createVisitorBridge(testCodeVisitors, testClasspath, javaVersion, sonarComponents, ruleCostReport));
 
     //AstScanner for generated files
     astScannerForGeneratedFiles = new JavaAstScanner(sonarComponents);
-    astScannerForGeneratedFiles.setVisitorBridge(createVisitorBridge(jspCodeVisitors, jspClasspath, javaVersion, sonarComponents));
+    astScannerForGeneratedFiles.setVisitorBridge(createVisitorBridge(jspCodeVisitors, jspClasspath, javaVersion, sonarComponents, ruleCostReport));
   }
 
-  private static VisitorsBridge createVisitorBridge(
-    Iterable<JavaCheck> codeVisitors, List<File> classpath, JavaVersion javaVersion, @Nullable SonarComponents sonarComponents) {
+  private static VisitorsBridge createVisitorBridge(Iterable<JavaCheck> codeVisitors, List<File> classpath, JavaVersion javaVersion,
+    @Nullable SonarComponents sonarComponents, @Nullable RuleCostReport ruleCostReport) {
     VisitorsBridge visitorsBridge = new VisitorsBridge(codeVisitors, classpath, sonarComponents);
     visitorsBridge.setJavaVersion(javaVersion);
+    visitorsBridge.setRuleCostReport(ruleCostReport);
     return visitorsBridge;
   }
 
+  /**
+   * In parallel mode, main files are analyzed concurrently by worker threads, each one using its own instances of the checks,
+   * created by the given factory. Checks having a state across files, as well as the other visitors, still see one file at a time.
+   */
+  public void setParallelModeChecksFactory(Supplier<JavaCheck[]> parallelModeChecksFactory) {
+    this.parallelModeChecksFactory = parallelModeChecksFactory;
+  }
+
   @VisibleForTesting
   boolean analysisCancelled() {
     return sonarComponents != null && sonarComponents.analysisCancelled();
   }
 
   public void scan(Iterable<InputFile> sourceFiles, Iterable<InputFile> testFiles, Iterable<? extends InputFile> generatedFiles) {
-    if (isBatchModeEnabled()) {
-      // generated files are intentionally ignored in batch mode
-      scanAsBatch(sourceFiles, testFiles);
-    } else {
-      scanAndMeasureTask(sourceFiles, astScanner::scan, "Main");
-      scanAndMeasureTask(testFiles, astScannerForTests::scan, "Test");
-      scanAndMeasureTask(generatedFiles, astScannerForGeneratedFiles::scan, "Generated");
+    try {
+      if (isBatchModeEnabled()) {
+        // generated files are intentionally ignored in batch mode
+        scanAsBatch(sourceFiles, testFiles);
+      } else {
+        if (isParallelModeEnabled()) {
+          scanAndMeasureTask(sourceFiles, this::scanInParallel, "Main");
+        } else if (isAnalysisCacheEnabled()) {
+          scanAndMeasureTask(sourceFiles, this::scanWithAnalysisCache, "Main");
+        } else {
+          scanAndMeasureTask(sourceFiles, astScanner::scan, "Main");
+        }
+        scanAndMeasureTask(testFiles, astScannerForTests::scan, "Test");
+        scanAndMeasureTask(generatedFiles, astScannerForGeneratedFiles::scan, "Generated");
+      }
+    } finally {
+      reportRuleCosts();
+    }
+  }
+
+  private void reportRuleCosts() {
+    if (ruleCostReport == null) {
+      return;
+    }
+    ruleCostReport.report();
+    File workDir = sonarComponents.workDir();
+    if (workDir != null) {
+      ruleCostReport.write(workDir.toPath().resolve(RuleCostReport.DESTINATION_FILE));
     }
   }
 
@@ -135,8 +191,7 @@ public class JavaFrontend {
       List<InputFile> allFiles = new ArrayList<>();
       Arrays.stream(sourceFiles).forEach(files -> files.forEach(allFiles::add));
       try {
-        JParserConfig.Mode.BATCH
-          .create(JParserConfig.effectiveJavaVersion(javaVersion), globalClasspath)
+        JParserConfig.batch(JParserConfig.effectiveJavaVersion(javaVersion), globalClasspath, sonarComponents.batchModePartitionSize())
           .parse(allFiles, this::analysisCancelled, this::scanAsBatchCallback);
       } finally {
         astScanner.endOfAnalysis();
@@ -167,6 +222,80 @@ public class JavaFrontend {
     return sonarComponents != null && sonarComponents.isBatchModeEnabled();
   }
 
+  private boolean isParallelModeEnabled() {
+    return sonarComponents != null && parallelModeChecksFactory != null && sonarComponents.isParallelModeEnabled();
+  }
+
+  private void scanInParallel(Iterable<InputFile> sourceFiles) {
+    List<WorkerVisitorsBridge> workers = new ArrayList<>();
+    for (int i = 0; i < sonarComponents.parallelModeThreads(); i++) {
+      List<JavaCheck> fileLevelChecks = Arrays.stream(parallelModeChecksFactory.get())
+        .filter(check -> !isProjectLevel(check))
+        .collect(Collectors.toList());
+      WorkerVisitorsBridge worker = new WorkerVisitorsBridge(fileLevelChecks, classpath, sonarComponents);
+      worker.setJavaVersion(javaVersion);
+      worker.setRuleCostReport(ruleCostReport);
+      workers.add(worker);
+    }
+    // checks replaced by the ones of the workers are not run by the main scanner
+    List<JavaCheck> projectLevelVisitors = codeVisitors.stream()
+      .filter(visitor -> !mainChecks.contains(visitor) || isProjectLevel(visitor))
+      .collect(Collectors.toList());
+    JavaAstScanner scanner = new JavaAstScanner(sonarComponents);
+    scanner.setVisitorBridge(createVisitorBridge(projectLevelVisitors, classpath, javaVersion, sonarComponents, ruleCostReport));
+    scanner.scanInParallel(sourceFiles, workers);
+  }
+
+  private boolean isAnalysisCacheEnabled() {
+    return sonarComponents != null && sonarComponents.isAnalysisCacheEnabled() && javaResourceLocator instanceof DefaultJavaResourceLocator;
+  }
+
+  private void scanWithAnalysisCache(Iterable<InputFile> sourceFiles) {
+    List<InputFile> files = new ArrayList<>();
+    sourceFiles.forEach(files::add);
+    List<JavaCheck> endOfAnalysisChecks = mainChecks.stream()
+      .filter(EndOfAnalysisCheck.class::isInstance)
+      .collect(Collectors.toList());
+    AnalysisCache analysisCache = new AnalysisCache(sonarComponents, JParserConfig.effectiveJavaVersion(javaVersion), measurer, postAnalysisIssueFilter,
+      (DefaultJavaResourceLocator) javaResourceLocator, endOfAnalysisChecks);
+    analysisCache.load(files);
+    astScanner.scan(files, analysisCache, replayedFilesScanner(endOfAnalysisChecks));
+    analysisCache.save();
+  }
+
+  /**
+   * Checks reporting issues at the end of the analysis still have to see the files replayed from the analysis cache
+   */
+  @Nullable
+  private JavaAstScanner replayedFilesScanner(List<JavaCheck> endOfAnalysisChecks) {
+    if (endOfAnalysisChecks.isEmpty()) {
+      return null;
+    }
+    List<JavaCheck> visitors = new ArrayList<>();
+    if (postAnalysisIssueFilter != null) {
+      visitors.add(postAnalysisIssueFilter);
+    }
+    visitors.addAll(endOfAnalysisChecks);
+    VisitorsBridge visitorsBridge = new VisitorsBridge(visitors, classpath, sonarComponents) {
+      @Override
+      protected void createSonarSymbolTable(CompilationUnitTree tree) {
+        // replayed from the analysis cache
+      }
+    };
+    visitorsBridge.setJavaVersion(javaVersion);
+    visitorsBridge.setRuleCostReport(ruleCostReport);
+    JavaAstScanner scanner = new JavaAstScanner(sonarComponents);
+    scanner.setVisitorBridge(visitorsBridge);
+    return scanner;
+  }
+
+  /**
+   * Checks reporting issues only once all the files have been scanned, or relying on parsing errors, need to see all the files
+   */
+  private static boolean isProjectLevel(JavaCheck check) {
+    return check instanceof EndOfAnalysisCheck || check instanceof ExceptionHandler;
+  }
+
   private static <T> void scanAndMeasureTask(Iterable<T> files, Consumer<Iterable<T>> action, String descriptor) {
     if (CollectionUtils.size(files) > 0) {
       Duration mainDuration = PerformanceMeasure.start(descriptor);
@@ -21,9 +21,17 @@ package org.sonar.java;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
@@ -32,27 +40,54 @@ import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.java.ast.visitors.CognitiveComplexityVisitor;
 import org.sonar.java.ast.visitors.CommentLinesVisitor;
-import org.sonar.java.ast.visitors.LinesOfCodeVisitor;
 import org.sonar.java.ast.visitors.StatementVisitor;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
+import org.sonar.java.caching.FileAnalysisRecorder;
+import org.sonar.java.model.InternalSyntaxToken;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.tree.ClassTree;
 import org.sonar.plugins.java.api.tree.NewClassTree;
+import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.Tree;
 
 public class Measurer extends SubscriptionVisitor {
 
+  /**
+   * Metrics saved on each file, which can be replayed from the analysis cache, by key
+   */
+  private static final Map<String, Metric<Integer>> REPLAYED_METRICS = Stream.of(
+    CoreMetrics.CLASSES,
+    CoreMetrics.FUNCTIONS,
+    CoreMetrics.COMPLEXITY,
+    CoreMetrics.COMMENT_LINES,
+    CoreMetrics.STATEMENTS,
+    CoreMetrics.NCLOC,
+    CoreMetrics.COGNITIVE_COMPLEXITY)
+    .collect(Collectors.toMap(Metric::key, Function.identity()));
+
   private final SensorContext sensorContext;
   private final NoSonarFilter noSonarFilter;
+  @Nullable
+  private final SonarComponents sonarComponents;
   private InputFile sonarFile;
   private int methods;
   private final Deque<ClassTree> classTrees = new LinkedList<>();
   private int classes;
+  private final CommentLinesVisitor commentLinesVisitor = new CommentLinesVisitor();
+  private final BitSet linesOfCode = new BitSet();
 
   public Measurer(SensorContext context, NoSonarFilter noSonarFilter) {
+    this(context, noSonarFilter, null);
+  }
+
+  /**
+   * When given, the sonar components are used to record the measures of the files in the analysis cache
+   */
+  public Measurer(SensorContext context, NoSonarFilter noSonarFilter, @Nullable SonarComponents sonarComponents) {
     this.sensorContext = context;
     this.noSonarFilter = noSonarFilter;
+    this.sonarComponents = sonarComponents;
   }
 
   public class TestFileMeasurer implements JavaFileScanner {
@@ -67,23 +102,28 @@ public class Measurer extends SubscriptionVisitor {
   public List<Tree.Kind> nodesToVisit() {
     return Arrays.asList(Tree.Kind.CLASS, Tree.Kind.INTERFACE, Tree.Kind.ENUM, Tree.Kind.ANNOTATION_TYPE, Tree.Kind.RECORD,
         Tree.Kind.NEW_CLASS, Tree.Kind.ENUM_CONSTANT,
-        Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR);
+        Tree.Kind.METHOD, Tree.Kind.CONSTRUCTOR,
+        Tree.Kind.TOKEN);
   }
 
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
     sonarFile = context.getInputFile();
-    CommentLinesVisitor commentLinesVisitor = createCommentLineVisitorAndFindNoSonar(context);
     if(isSonarLintContext()) {
       // No need to compute metrics on SonarLint side, but the no sonar filter is still required
+      createCommentLineVisitorAndFindNoSonar(context);
       return;
     }
     classTrees.clear();
     methods = 0;
     classes = 0;
+    linesOfCode.clear();
+    commentLinesVisitor.init();
     super.setContext(context);
+    // tokens are visited in the same pass as the nodes, to compute lines of code and comment lines
     scanTree(context.getTree());
+    findNoSonar(commentLinesVisitor);
     //leave file.
     int fileComplexity = context.getComplexityNodes(context.getTree()).size();
     saveMetricOnFile(CoreMetrics.CLASSES, classes);
@@ -91,7 +131,7 @@ public class Measurer extends SubscriptionVisitor {
     saveMetricOnFile(CoreMetrics.COMPLEXITY, fileComplexity);
     saveMetricOnFile(CoreMetrics.COMMENT_LINES, commentLinesVisitor.commentLinesMetric());
     saveMetricOnFile(CoreMetrics.STATEMENTS, new StatementVisitor().numberOfStatements(context.getTree()));
-    saveMetricOnFile(CoreMetrics.NCLOC, new LinesOfCodeVisitor().linesOfCode(context.getTree()));
+    saveMetricOnFile(CoreMetrics.NCLOC, linesOfCode.cardinality());
 
     saveMetricOnFile(CoreMetrics.COGNITIVE_COMPLEXITY, CognitiveComplexityVisitor.compilationUnitComplexity(context.getTree()));
   }
@@ -100,11 +140,41 @@ public class Measurer extends SubscriptionVisitor {
     return sensorContext.runtime().getProduct() == SonarProduct.SONARLINT;
   }
 
-  private CommentLinesVisitor createCommentLineVisitorAndFindNoSonar(JavaFileScannerContext context) {
-    CommentLinesVisitor commentLinesVisitor = new CommentLinesVisitor();
-    commentLinesVisitor.analyzeCommentLines(context.getTree());
-    noSonarFilter.noSonarInFile(sonarFile, commentLinesVisitor.noSonarLines());
-    return commentLinesVisitor;
+  private void createCommentLineVisitorAndFindNoSonar(JavaFileScannerContext context) {
+    CommentLinesVisitor visitor = new CommentLinesVisitor();
+    visitor.analyzeCommentLines(context.getTree());
+    findNoSonar(visitor);
+  }
+
+  private void findNoSonar(CommentLinesVisitor visitor) {
+    noSonarFilter.noSonarInFile(sonarFile, visitor.noSonarLines());
+    FileAnalysisRecorder analysisRecorder = analysisRecorder();
+    if (analysisRecorder != null) {
+      analysisRecorder.recordNoSonarLines(visitor.noSonarLines());
+    }
+  }
+
+  /**
+   * Saves the measures and the NOSONAR lines of a file replayed from the analysis cache
+   */
+  public void replay(InputFile inputFile, Map<String, Integer> measures, Set<Integer> noSonarLines) {
+    noSonarFilter.noSonarInFile(inputFile, noSonarLines);
+    measures.forEach((metricKey, value) -> {
+      Metric<Integer> metric = REPLAYED_METRICS.get(metricKey);
+      // metrics which are not saved anymore by the measurer are ignored
+      if (metric != null) {
+        sensorContext.<Integer>newMeasure()
+          .forMetric(metric)
+          .on(inputFile)
+          .withValue(value)
+          .save();
+      }
+    });
+  }
+
+  @CheckForNull
+  private FileAnalysisRecorder analysisRecorder() {
+    return sonarComponents != null ? sonarComponents.analysisRecorder() : null;
   }
 
   @Override
@@ -123,6 +193,14 @@ public class Measurer extends SubscriptionVisitor {
 
   }
 
+  @Override
+  public void visitToken(SyntaxToken syntaxToken) {
+    commentLinesVisitor.visitToken(syntaxToken);
+    if (!((InternalSyntaxToken) syntaxToken).isEOF()) {
+      linesOfCode.set(syntaxToken.line());
+    }
+  }
+
   @Override
   public void leaveNode(Tree tree) {
     if (isClassTree(tree)) {
@@ -136,5 +214,9 @@ public class Measurer extends SubscriptionVisitor {
 
   private <T extends Serializable> void saveMetricOnFile(Metric<T> metric, T value) {
     sensorContext.<T>newMeasure().forMetric(metric).on(sonarFile).withValue(value).save();
+    FileAnalysisRecorder analysisRecorder = analysisRecorder();
+    if (analysisRecorder != null) {
+      analysisRecorder.recordMeasure(metric.key(), value);
+    }
   }
 }
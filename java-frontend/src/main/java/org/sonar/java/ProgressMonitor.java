@@ -38,6 +38,8 @@ public class ProgressMonitor implements IProgressMonitor, Runnable {
   private int totalWork = 0;
   private boolean unknownTotalWork = false;
   private int processedWork = 0;
+  private int tasks = 1;
+  private int startedTasks = 0;
 
   @VisibleForTesting
   ProgressMonitor(BooleanSupplier isCanceled, Logger logger, long period) {
@@ -62,7 +64,8 @@ public class ProgressMonitor implements IProgressMonitor, Runnable {
         if (unknownTotalWork) {
           log(String.format("%d/UNKNOWN unit(s) analyzed", processedWork));
         } else {
-          double percentage = processedWork / (double) totalWork;
+          // each task is one partition of the batch, contributing equally to the overall progress
+          double percentage = (startedTasks - 1 + processedWork / (double) totalWork) / tasks;
           log(String.format("%d%% analyzed", (int) (percentage * 100)));
         }
       } catch (InterruptedException e) {
@@ -72,14 +75,26 @@ public class ProgressMonitor implements IProgressMonitor, Runnable {
     }
   }
 
+  /**
+   * ECJ begins a new task each time it is called to parse files. When source files are parsed in several partitions,
+   * the monitor expects as many tasks as partitions, and reports progress over all of them.
+   */
+  public void setTasks(int tasks) {
+    this.tasks = tasks;
+  }
+
   @Override
   public void beginTask(String name, int totalWork) {
     if (totalWork <= 0) {
       unknownTotalWork = true;
     }
     this.totalWork = totalWork;
-    log("Starting batch processing.");
-    thread.start();
+    this.processedWork = 0;
+    startedTasks++;
+    if (startedTasks == 1) {
+      log("Starting batch processing.");
+      thread.start();
+    }
   }
 
   @Override
@@ -117,7 +132,7 @@ public class ProgressMonitor implements IProgressMonitor, Runnable {
   @Override
   public void worked(int work) {
     processedWork += work;
-    if (processedWork == totalWork) {
+    if (processedWork == totalWork && startedTasks == tasks) {
       success = true;
     }
   }
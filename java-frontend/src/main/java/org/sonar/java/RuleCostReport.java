@@ -0,0 +1,332 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.annotations.VisibleForTesting;
+
+/**
+ * Cost of each rule over the whole analysis: CPU time spent in its visitor, number of invocations and allocated bytes, with the
+ * files on which it was the most expensive. Shared by all the visitors bridges, including the ones of the workers of the parallel mode.
+ * <p>
+ * Visitors which are not rules, like the measurer or the symbolic execution visitor, are reported under their class name.
+ * Invocations are counted exactly, but only some invocations of the subscription visitors are measured: the CPU time and the
+ * allocated bytes of the others are estimated from the measured invocations of the rule, and reported as such.
+ */
+public class RuleCostReport {
+  private static final Logger LOG = Loggers.get(RuleCostReport.class);
+
+  public static final String DESTINATION_FILE = "sonar.java.rules.cost.json";
+
+  private static final int MAX_REPORTED_RULES = 10;
+  private static final int MAX_REPORTED_FILES_PER_RULE = 5;
+  private static final long MIN_REPORTED_CPU_TIME_MS = 1000;
+
+  private static final Comparator<RuleCost> ORDER_BY_CPU_TIME_DESCENDING_AND_KEY_ASCENDING = (a, b) -> {
+    int compare = Long.compare(b.cpuTimeNanos(), a.cpuTimeNanos());
+    return compare != 0 ? compare : a.key.compareTo(b.key);
+  };
+
+  private static final Comparator<FileCostRecord> ORDER_BY_FILE_CPU_TIME_DESCENDING_AND_FILE_ASCENDING = (a, b) -> {
+    int compare = Long.compare(b.cpuTimeNanos, a.cpuTimeNanos);
+    return compare != 0 ? compare : a.file.compareTo(b.file);
+  };
+
+  private final LongSupplier cpuTime;
+  private final LongSupplier allocatedBytes;
+  private final boolean cpuTimeMeasured;
+  private final boolean allocatedBytesMeasured;
+  private final Map<String, RuleCost> costByRule = new ConcurrentHashMap<>();
+
+  public RuleCostReport() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    cpuTimeMeasured = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+    // fallback on the wall-clock time when the CPU time of the threads can not be measured
+    cpuTime = cpuTimeMeasured ? threadMXBean::getCurrentThreadCpuTime : System::nanoTime;
+    com.sun.management.ThreadMXBean allocationMXBean = threadMXBean instanceof com.sun.management.ThreadMXBean
+      ? (com.sun.management.ThreadMXBean) threadMXBean
+      : null;
+    allocatedBytesMeasured = allocationMXBean != null && allocationMXBean.isThreadAllocatedMemorySupported()
+      && allocationMXBean.isThreadAllocatedMemoryEnabled();
+    allocatedBytes = allocatedBytesMeasured ? () -> allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()) : () -> 0L;
+  }
+
+  @VisibleForTesting
+  RuleCostReport(LongSupplier cpuTime, LongSupplier allocatedBytes) {
+    this.cpuTime = cpuTime;
+    this.allocatedBytes = allocatedBytes;
+    this.cpuTimeMeasured = true;
+    this.allocatedBytesMeasured = true;
+  }
+
+  /**
+   * @return a new accumulator of the cost of the given rule, or visitor, on the file being scanned. It must only be used
+   * by the thread scanning the file.
+   */
+  public FileCost newFileCost(String key) {
+    return new FileCost(costByRule.computeIfAbsent(key, RuleCost::new));
+  }
+
+  public void report() {
+    List<RuleCost> slowestRules = sortedRules().stream()
+      .filter(ruleCost -> ruleCost.cpuTimeNanos() >= MIN_REPORTED_CPU_TIME_MS * 1_000_000)
+      .limit(MAX_REPORTED_RULES)
+      .collect(Collectors.toList());
+    if (!slowestRules.isEmpty()) {
+      LOG.info("Slowest rules:" + System.lineSeparator() + slowestRules.stream()
+        .map(this::toLogLine)
+        .collect(Collectors.joining(System.lineSeparator())));
+    }
+  }
+
+  private String toLogLine(RuleCost ruleCost) {
+    StringBuilder line = new StringBuilder()
+      .append("    ").append(ruleCost.key)
+      .append(" (").append(estimateMark(ruleCost.estimated())).append(ruleCost.cpuTimeNanos() / 1_000_000).append("ms");
+    if (allocatedBytesMeasured) {
+      line.append(", ").append(estimateMark(ruleCost.estimated())).append(ruleCost.allocatedBytes()).append("B allocated");
+    }
+    line.append(", ").append(ruleCost.invocations.sum()).append(" invocations)");
+    List<FileCostRecord> slowestFiles = ruleCost.slowestFiles();
+    if (!slowestFiles.isEmpty()) {
+      FileCostRecord slowestFile = slowestFiles.get(0);
+      line.append(", slowest on ").append(slowestFile.file)
+        .append(" (").append(estimateMark(slowestFile.estimated)).append(slowestFile.cpuTimeNanos / 1_000_000).append("ms)");
+    }
+    return line.toString();
+  }
+
+  private static String estimateMark(boolean estimated) {
+    return estimated ? "~" : "";
+  }
+
+  /**
+   * Writes the cost of all the rules, the slowest first
+   */
+  public void write(Path path) {
+    JsonArray jsonRules = new JsonArray();
+    sortedRules().forEach(ruleCost -> jsonRules.add(ruleCost.toJson(allocatedBytesMeasured)));
+    JsonObject json = new JsonObject();
+    json.addProperty("cpuTimeMeasured", cpuTimeMeasured);
+    json.addProperty("allocatedBytesMeasured", allocatedBytesMeasured);
+    json.add("rules", jsonRules);
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    try {
+      Files.createDirectories(path.toAbsolutePath().getParent());
+      try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+        gson.toJson(json, writer);
+      }
+    } catch (IOException e) {
+      LOG.warn(String.format("Unable to write the rule cost report in '%s'.", path), e);
+    }
+  }
+
+  private List<RuleCost> sortedRules() {
+    List<RuleCost> rules = new ArrayList<>(costByRule.values());
+    rules.sort(ORDER_BY_CPU_TIME_DESCENDING_AND_KEY_ASCENDING);
+    return rules;
+  }
+
+  @Override
+  public String toString() {
+    return sortedRules().stream()
+      .map(this::toLogLine)
+      .collect(Collectors.joining(System.lineSeparator()));
+  }
+
+  /**
+   * Cost of a rule on the file being scanned, accumulated without synchronization and recorded in the report once the file is scanned
+   */
+  public final class FileCost {
+    private final RuleCost ruleCost;
+    private long startCpuTime;
+    private long startAllocatedBytes;
+    private long invocations;
+    private long measuredInvocations;
+    private long cpuTimeNanos;
+    private long allocatedBytes;
+
+    private FileCost(RuleCost ruleCost) {
+      this.ruleCost = ruleCost;
+    }
+
+    public void start() {
+      startCpuTime = cpuTime.getAsLong();
+      startAllocatedBytes = RuleCostReport.this.allocatedBytes.getAsLong();
+    }
+
+    public void stop() {
+      long endAllocatedBytes = RuleCostReport.this.allocatedBytes.getAsLong();
+      long endCpuTime = cpuTime.getAsLong();
+      invocations++;
+      measuredInvocations++;
+      cpuTimeNanos += endCpuTime - startCpuTime;
+      allocatedBytes += endAllocatedBytes - startAllocatedBytes;
+    }
+
+    /**
+     * Counts an invocation which is not measured, its cost is estimated from the measured invocations of the rule
+     */
+    public void countUnmeasured() {
+      invocations++;
+    }
+
+    public void flush(String file) {
+      if (invocations > 0) {
+        ruleCost.record(file, invocations, measuredInvocations, cpuTimeNanos, allocatedBytes);
+        invocations = 0;
+        measuredInvocations = 0;
+        cpuTimeNanos = 0;
+        allocatedBytes = 0;
+      }
+    }
+  }
+
+  private static long estimate(long measuredCost, long invocations, long measuredInvocations) {
+    if (measuredInvocations == invocations) {
+      return measuredCost;
+    }
+    return measuredInvocations == 0 ? 0 : Math.round((double) measuredCost * invocations / measuredInvocations);
+  }
+
+  /**
+   * Cost of a rule over all the files. Its CPU time and allocated bytes are estimated from all its measured invocations, as a file on
+   * which none of the invocations of the rule are measured would otherwise count for nothing.
+   */
+  private static final class RuleCost {
+    private final String key;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder measuredInvocations = new LongAdder();
+    private final LongAdder measuredCpuTimeNanos = new LongAdder();
+    private final LongAdder measuredAllocatedBytes = new LongAdder();
+    private final LinkedList<FileCostRecord> slowestFiles = new LinkedList<>();
+    private volatile long minRecordedFileCpuTimeNanos = 0;
+
+    private RuleCost(String key) {
+      this.key = key;
+    }
+
+    private void record(String file, long fileInvocations, long fileMeasuredInvocations, long fileCpuTimeNanos, long fileAllocatedBytes) {
+      invocations.add(fileInvocations);
+      measuredInvocations.add(fileMeasuredInvocations);
+      measuredCpuTimeNanos.add(fileCpuTimeNanos);
+      measuredAllocatedBytes.add(fileAllocatedBytes);
+      long estimatedCpuTimeNanos = estimate(fileCpuTimeNanos, fileInvocations, fileMeasuredInvocations);
+      // only the files which can be among the slowest ones are kept, most of them are not
+      if (estimatedCpuTimeNanos >= minRecordedFileCpuTimeNanos) {
+        recordFile(new FileCostRecord(file, fileInvocations, estimatedCpuTimeNanos,
+          estimate(fileAllocatedBytes, fileInvocations, fileMeasuredInvocations), fileMeasuredInvocations < fileInvocations));
+      }
+    }
+
+    private long cpuTimeNanos() {
+      return estimate(measuredCpuTimeNanos.sum(), invocations.sum(), measuredInvocations.sum());
+    }
+
+    private long allocatedBytes() {
+      return estimate(measuredAllocatedBytes.sum(), invocations.sum(), measuredInvocations.sum());
+    }
+
+    private boolean estimated() {
+      return measuredInvocations.sum() < invocations.sum();
+    }
+
+    private synchronized void recordFile(FileCostRecord fileCost) {
+      if (fileCost.cpuTimeNanos < minRecordedFileCpuTimeNanos) {
+        // another file has been recorded in the meantime
+        return;
+      }
+      slowestFiles.add(fileCost);
+      slowestFiles.sort(ORDER_BY_FILE_CPU_TIME_DESCENDING_AND_FILE_ASCENDING);
+      if (slowestFiles.size() > MAX_REPORTED_FILES_PER_RULE) {
+        slowestFiles.removeLast();
+        minRecordedFileCpuTimeNanos = slowestFiles.getLast().cpuTimeNanos;
+      }
+    }
+
+    private synchronized List<FileCostRecord> slowestFiles() {
+      return new ArrayList<>(slowestFiles);
+    }
+
+    private JsonObject toJson(boolean withAllocatedBytes) {
+      JsonObject json = new JsonObject();
+      json.addProperty("key", key);
+      json.addProperty("invocations", invocations.sum());
+      json.addProperty("cpuTimeMs", cpuTimeNanos() / 1_000_000.0);
+      if (withAllocatedBytes) {
+        json.addProperty("allocatedBytes", allocatedBytes());
+      }
+      json.addProperty("estimated", estimated());
+      JsonArray jsonFiles = new JsonArray();
+      slowestFiles().forEach(fileCost -> jsonFiles.add(fileCost.toJson(withAllocatedBytes)));
+      json.add("slowestFiles", jsonFiles);
+      return json;
+    }
+  }
+
+  private static final class FileCostRecord {
+    private final String file;
+    private final long invocations;
+    private final long cpuTimeNanos;
+    private final long allocatedBytes;
+    private final boolean estimated;
+
+    private FileCostRecord(String file, long invocations, long cpuTimeNanos, long allocatedBytes, boolean estimated) {
+      this.file = file;
+      this.invocations = invocations;
+      this.cpuTimeNanos = cpuTimeNanos;
+      this.allocatedBytes = allocatedBytes;
+      this.estimated = estimated;
+    }
+
+    private JsonObject toJson(boolean withAllocatedBytes) {
+      JsonObject json = new JsonObject();
+      json.addProperty("file", file);
+      json.addProperty("invocations", invocations);
+      json.addProperty("cpuTimeMs", cpuTimeNanos / 1_000_000.0);
+      if (withAllocatedBytes) {
+        json.addProperty("allocatedBytes", allocatedBytes);
+      }
+      json.addProperty("estimated", estimated);
+      return json;
+    }
+  }
+}
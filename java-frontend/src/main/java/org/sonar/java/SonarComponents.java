@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -37,6 +38,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.SonarProduct;
 import org.sonar.api.batch.ScannerSide;
@@ -48,6 +50,7 @@ import org.sonar.api.batch.rule.CheckFactory;
 import org.sonar.api.batch.rule.Checks;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.issue.NewIssue;
 import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
 import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
@@ -56,6 +59,7 @@ import org.sonar.api.utils.Version;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.caching.FileAnalysisRecorder;
 import org.sonar.java.classpath.ClasspathForMain;
 import org.sonar.java.classpath.ClasspathForTest;
 import org.sonar.java.reporting.AnalyzerMessage;
@@ -75,6 +79,18 @@ public class SonarComponents {
 
   public static final String FAIL_ON_EXCEPTION_KEY = "sonar.internal.analysis.failFast";
   public static final String SONAR_BATCH_MODE_KEY = "sonar.java.internal.batchMode";
+  public static final String SONAR_BATCH_MODE_PARTITION_SIZE_KEY = "sonar.java.internal.batchMode.partitionSize";
+  public static final String SONAR_PARALLEL_MODE_KEY = "sonar.java.internal.parallelMode";
+  public static final String SONAR_PARALLEL_MODE_THREADS_KEY = "sonar.java.internal.parallelMode.threads";
+  public static final String SONAR_PIPELINE_MODE_KEY = "sonar.java.internal.pipelineMode";
+  public static final String SONAR_PIPELINE_MODE_THREADS_KEY = "sonar.java.internal.pipelineMode.threads";
+  public static final String SONAR_PIPELINE_MODE_QUEUE_SIZE_KEY = "sonar.java.internal.pipelineMode.queueSize";
+  public static final String SONAR_CROSS_FILE_BEHAVIORS_KEY = "sonar.java.internal.crossFileBehaviors";
+  public static final String SONAR_CROSS_FILE_BEHAVIORS_MAX_SIZE_KEY = "sonar.java.internal.crossFileBehaviors.maxSize";
+  public static final String SONAR_CROSS_FILE_BEHAVIORS_PERSIST_KEY = "sonar.java.internal.crossFileBehaviors.persist";
+  public static final String SONAR_ANALYSIS_CACHE_KEY = "sonar.java.internal.analysisCache";
+  public static final String SONAR_RULE_COST_REPORT_KEY = "sonar.java.internal.ruleCostReport";
+  public static final String PERFORMANCE_MEASURE_ACTIVATION_KEY = "sonar.java.performance.measure";
 
   private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("\r\n|[\n\r]");
   private static final Version SONARLINT_6_3 = Version.parse("6.3");
@@ -93,7 +109,10 @@ public class SonarComponents {
   private final List<JavaCheck> testChecks;
   private final List<JavaCheck> jspChecks;
   private final List<Checks<JavaCheck>> allChecks;
+  private final Map<String, List<Class<? extends JavaCheck>>> mainCheckClassesByRepository;
   private SensorContext context;
+  @Nullable
+  private FileAnalysisRecorder analysisRecorder;
 
   public SonarComponents(FileLinesContextFactory fileLinesContextFactory, FileSystem fs,
                          ClasspathForMain javaClasspath, ClasspathForTest javaTestClasspath,
@@ -135,6 +154,7 @@ public class SonarComponents {
     this.testChecks = new ArrayList<>();
     this.jspChecks = new ArrayList<>();
     this.allChecks = new ArrayList<>();
+    this.mainCheckClassesByRepository = new LinkedHashMap<>();
     if (checkRegistrars != null) {
       CheckRegistrar.RegistrarContext registrarContext = new CheckRegistrar.RegistrarContext();
       for (CheckRegistrar checkClassesRegister : checkRegistrars) {
@@ -158,16 +178,36 @@ public class SonarComponents {
   }
 
   public FileLinesContext fileLinesContextFor(InputFile inputFile) {
-    return fileLinesContextFactory.createFor(inputFile);
+    FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
+    return analysisRecorder != null ? analysisRecorder.recordFileLines(fileLinesContext) : fileLinesContext;
   }
 
   public NewSymbolTable symbolizableFor(InputFile inputFile) {
-    return context.newSymbolTable().onFile(inputFile);
+    NewSymbolTable newSymbolTable = context.newSymbolTable().onFile(inputFile);
+    return analysisRecorder != null ? analysisRecorder.recordSymbolTable(newSymbolTable) : newSymbolTable;
   }
 
   public NewHighlighting highlightableFor(InputFile inputFile) {
     Objects.requireNonNull(context);
-    return context.newHighlighting().onFile(inputFile);
+    NewHighlighting newHighlighting = context.newHighlighting().onFile(inputFile);
+    return analysisRecorder != null ? analysisRecorder.recordHighlighting(newHighlighting) : newHighlighting;
+  }
+
+  public NewIssue newIssue() {
+    NewIssue newIssue = context.newIssue();
+    return analysisRecorder != null ? analysisRecorder.recordIssue(newIssue) : newIssue;
+  }
+
+  /**
+   * While set, what is saved for the file being analyzed is recorded in the analysis cache
+   */
+  public void setAnalysisRecorder(@Nullable FileAnalysisRecorder analysisRecorder) {
+    this.analysisRecorder = analysisRecorder;
+  }
+
+  @CheckForNull
+  public FileAnalysisRecorder analysisRecorder() {
+    return analysisRecorder;
   }
 
   public List<File> getJavaClasspath() {
@@ -203,6 +243,8 @@ public class SonarComponents {
 
   public void registerMainCheckClasses(String repositoryKey, Iterable<Class<? extends JavaCheck>> checkClasses) {
     registerCheckClasses(mainChecks, repositoryKey, checkClasses);
+    List<Class<? extends JavaCheck>> registeredClasses = mainCheckClassesByRepository.computeIfAbsent(repositoryKey, key -> new ArrayList<>());
+    checkClasses.forEach(registeredClasses::add);
   }
 
   public void registerTestCheckClasses(String repositoryKey, Iterable<Class<? extends JavaCheck>> checkClasses) {
@@ -210,6 +252,12 @@ public class SonarComponents {
   }
 
   private void registerCheckClasses(List<JavaCheck> destinationList, String repositoryKey, Iterable<Class<? extends JavaCheck>> checkClasses) {
+    List<JavaCheck> orderedChecks = createChecks(repositoryKey, checkClasses);
+    destinationList.addAll(orderedChecks);
+    jspChecks.addAll(orderedChecks.stream().filter(JspCodeVisitor.class::isInstance).collect(Collectors.toList()));
+  }
+
+  private List<JavaCheck> createChecks(String repositoryKey, Iterable<Class<? extends JavaCheck>> checkClasses) {
     Checks<JavaCheck> createdChecks = checkFactory.<JavaCheck>create(repositoryKey).addAnnotatedChecks(checkClasses);
     allChecks.add(createdChecks);
     Map<Class<? extends JavaCheck>, Integer> classIndexes = new HashMap<>();
@@ -218,11 +266,19 @@ public class SonarComponents {
       classIndexes.put(checkClass, i);
       i++;
     }
-    List<? extends JavaCheck> orderedChecks = createdChecks.all().stream()
+    return createdChecks.all().stream()
       .sorted(Comparator.comparing(check -> classIndexes.getOrDefault(check.getClass(), Integer.MAX_VALUE)))
       .collect(Collectors.toList());
-    destinationList.addAll(orderedChecks);
-    jspChecks.addAll(orderedChecks.stream().filter(JspCodeVisitor.class::isInstance).collect(Collectors.toList()));
+  }
+
+  /**
+   * Creates new instances of the registered main checks, configured the same way as the ones from {@link #mainChecks()}.
+   * In parallel mode, each worker thread uses its own instances, as checks keep a state while scanning a file.
+   */
+  public List<JavaCheck> createMainChecks() {
+    List<JavaCheck> checks = new ArrayList<>();
+    mainCheckClassesByRepository.forEach((repositoryKey, checkClasses) -> checks.addAll(createChecks(repositoryKey, checkClasses)));
+    return checks;
   }
 
   public List<JavaCheck> mainChecks() {
@@ -265,7 +321,7 @@ public class SonarComponents {
   @VisibleForTesting
   void reportIssue(AnalyzerMessage analyzerMessage, RuleKey key, InputComponent fileOrProject, @Nullable Double cost) {
     Objects.requireNonNull(context);
-    JavaIssue issue = JavaIssue.create(context, key, cost);
+    JavaIssue issue = new JavaIssue(newIssue().forRule(key).gap(cost));
     AnalyzerMessage.TextSpan textSpan = analyzerMessage.primaryLocation();
     if (textSpan == null) {
       // either an issue at file or project level
@@ -335,6 +391,82 @@ public class SonarComponents {
     return context.config().getBoolean(SONAR_BATCH_MODE_KEY).orElse(false);
   }
 
+  /**
+   * @return the maximum number of files parsed together in batch mode, 0 when all the files are parsed together
+   */
+  public int batchModePartitionSize() {
+    return context.config().getInt(SONAR_BATCH_MODE_PARTITION_SIZE_KEY)
+      .filter(size -> size > 0)
+      .orElse(0);
+  }
+
+  public boolean isParallelModeEnabled() {
+    return context.config().getBoolean(SONAR_PARALLEL_MODE_KEY).orElse(false);
+  }
+
+  public int parallelModeThreads() {
+    return context.config().getInt(SONAR_PARALLEL_MODE_THREADS_KEY)
+      .filter(threads -> threads > 0)
+      .orElseGet(() -> Runtime.getRuntime().availableProcessors());
+  }
+
+  public boolean isPipelineModeEnabled() {
+    return context.config().getBoolean(SONAR_PIPELINE_MODE_KEY).orElse(false);
+  }
+
+  /**
+   * @return the number of threads parsing files ahead of their analysis in pipeline mode
+   */
+  public int pipelineModeThreads() {
+    return context.config().getInt(SONAR_PIPELINE_MODE_THREADS_KEY)
+      .filter(threads -> threads > 0)
+      .orElse(1);
+  }
+
+  /**
+   * @return the maximum number of files parsed ahead of their analysis in pipeline mode
+   */
+  public int pipelineModeQueueSize() {
+    return context.config().getInt(SONAR_PIPELINE_MODE_QUEUE_SIZE_KEY)
+      .filter(size -> size > 0)
+      .orElseGet(() -> 2 * pipelineModeThreads());
+  }
+
+  /**
+   * When enabled, method behaviors computed by the symbolic execution in a file are reused by the files analyzed afterwards
+   */
+  public boolean isCrossFileBehaviorsEnabled() {
+    return context.config().getBoolean(SONAR_CROSS_FILE_BEHAVIORS_KEY).orElse(false);
+  }
+
+  /**
+   * @return the maximum number of method behaviors kept for the files analyzed afterwards
+   */
+  public int crossFileBehaviorsMaxSize() {
+    return context.config().getInt(SONAR_CROSS_FILE_BEHAVIORS_MAX_SIZE_KEY)
+      .filter(size -> size > 0)
+      .orElse(10_000);
+  }
+
+  /**
+   * When enabled with the cross file behaviors, method behaviors are persisted under the working directory for the next analysis
+   */
+  public boolean isCrossFileBehaviorsPersistenceEnabled() {
+    return !isSonarLintContext() && isCrossFileBehaviorsEnabled() && context.config().getBoolean(SONAR_CROSS_FILE_BEHAVIORS_PERSIST_KEY).orElse(false);
+  }
+
+  public boolean isAnalysisCacheEnabled() {
+    return !isSonarLintContext() && context.config().getBoolean(SONAR_ANALYSIS_CACHE_KEY).orElse(false);
+  }
+
+  public boolean isRuleCostReportEnabled() {
+    return !isSonarLintContext() && context.config().getBoolean(SONAR_RULE_COST_REPORT_KEY).orElse(true);
+  }
+
+  public boolean isPerformanceMeasureEnabled() {
+    return context.config().get(PERFORMANCE_MEASURE_ACTIVATION_KEY).filter("true"::equals).isPresent();
+  }
+
   public File workDir() {
     ProjectDefinition current = projectDefinition;
     if(current == null) {
@@ -22,9 +22,13 @@ package org.sonar.java.ast;
 import com.sonar.sslr.api.RecognitionException;
 import java.io.InterruptedIOException;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -36,10 +40,13 @@ import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.AnalysisException;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.caching.AnalysisCache;
+import org.sonar.java.caching.FileAnalysisRecorder;
 import org.sonar.java.model.JParserConfig;
 import org.sonar.java.model.JavaTree;
 import org.sonar.java.model.JavaVersionImpl;
 import org.sonar.java.model.VisitorsBridge;
+import org.sonar.java.model.WorkerVisitorsBridge;
 import org.sonar.plugins.java.api.JavaVersion;
 
 public class JavaAstScanner {
@@ -60,8 +67,137 @@ public class JavaAstScanner {
   }
 
   public void scan(Iterable<? extends InputFile> inputFiles) {
+    List<InputFile> filesNames = filterModuleInfoFiles(inputFiles, visitor.getJavaVersion());
+
+    try {
+      parse(filesNames, (i, r) -> simpleScan(i, r, JavaAstScanner::cleanUpAst));
+    } finally {
+      endOfAnalysis();
+    }
+  }
+
+  /**
+   * Only parses and scans the files whose analysis can not be replayed from the analysis cache: the files which changed, then
+   * the files depending on types they declare. The analysis of the other files is replayed, and they are only scanned by the
+   * visitors of the given scanner, if any.
+   */
+  public void scan(Iterable<? extends InputFile> inputFiles, AnalysisCache analysisCache, @Nullable JavaAstScanner replayedFilesScanner) {
+    List<InputFile> filesNames = filterModuleInfoFiles(inputFiles, visitor.getJavaVersion());
+
+    try {
+      List<InputFile> changedFiles = analysisCache.changedFiles(filesNames);
+      scanAndRecord(changedFiles, analysisCache);
+
+      Set<InputFile> changed = new HashSet<>(changedFiles);
+      List<InputFile> unchangedFiles = filesNames.stream().filter(file -> !changed.contains(file)).collect(Collectors.toList());
+      List<InputFile> impactedFiles = analysisCache.impactedFiles(unchangedFiles);
+      scanAndRecord(impactedFiles, analysisCache);
+
+      Set<InputFile> impacted = new HashSet<>(impactedFiles);
+      List<InputFile> replayedFiles = unchangedFiles.stream().filter(file -> !impacted.contains(file)).collect(Collectors.toList());
+      replay(replayedFiles, analysisCache, replayedFilesScanner);
+      LOG.info(String.format("%d/%d source files have been replayed from the analysis cache, %d changed and %d depend on changed types.",
+        replayedFiles.size(), filesNames.size(), changedFiles.size(), impactedFiles.size()));
+    } finally {
+      endOfAnalysis();
+    }
+  }
+
+  private void scanAndRecord(List<InputFile> inputFiles, AnalysisCache analysisCache) {
+    if (inputFiles.isEmpty()) {
+      return;
+    }
+    parse(inputFiles, (inputFile, result) -> {
+      FileAnalysisRecorder recorder = analysisCache.startRecording(inputFile);
+      try {
+        simpleScan(inputFile, result, ast -> {
+          recorder.recordDependencies(ast);
+          cleanUpAst(ast);
+        });
+      } finally {
+        analysisCache.stopRecording(recorder);
+      }
+    });
+  }
+
+  private void replay(List<InputFile> inputFiles, AnalysisCache analysisCache, @Nullable JavaAstScanner replayedFilesScanner) {
+    for (InputFile inputFile : inputFiles) {
+      if (analysisCancelled()) {
+        return;
+      }
+      analysisCache.replay(inputFile);
+    }
+    if (replayedFilesScanner != null && !inputFiles.isEmpty()) {
+      replayedFilesScanner.parse(inputFiles, (i, r) -> replayedFilesScanner.simpleScan(i, r, JavaAstScanner::cleanUpAst));
+    }
+  }
+
+  private void parse(List<InputFile> inputFiles, BiConsumer<InputFile, JParserConfig.Result> action) {
+    String javaVersion = JParserConfig.effectiveJavaVersion(visitor.getJavaVersion());
+    JParserConfig parserConfig;
+    if (sonarComponents != null && sonarComponents.isPipelineModeEnabled()) {
+      // files are still scanned one by one on this thread, while the next ones are being parsed
+      parserConfig = JParserConfig.pipelined(javaVersion, visitor.getClasspath(), sonarComponents.pipelineModeThreads(), sonarComponents.pipelineModeQueueSize());
+    } else {
+      parserConfig = JParserConfig.Mode.FILE_BY_FILE.create(javaVersion, visitor.getClasspath());
+    }
+    parserConfig.parse(inputFiles, this::analysisCancelled, action);
+  }
+
+  /**
+   * Parses and scans files concurrently, each worker owning the visitors which only depend on the file being scanned.
+   * Visitors of this scanner see the files one at a time, once a worker is done with a file, and are followed by the
+   * issues the worker reported on it.
+   */
+  public void scanInParallel(Iterable<? extends InputFile> inputFiles, List<WorkerVisitorsBridge> workers) {
     JavaVersion javaVersion = visitor.getJavaVersion();
-    List<InputFile> filesNames = StreamSupport.stream(inputFiles.spliterator(), false)
+    List<InputFile> filesNames = filterModuleInfoFiles(inputFiles, javaVersion);
+    BlockingQueue<WorkerVisitorsBridge> availableWorkers = new ArrayBlockingQueue<>(workers.size(), false, workers);
+
+    try {
+      JParserConfig.parallel(JParserConfig.effectiveJavaVersion(javaVersion), visitor.getClasspath(), workers.size())
+        .parse(filesNames,
+          this::analysisCancelled,
+          (i, r) -> scanWithWorker(availableWorkers, i, r));
+    } finally {
+      endOfAnalysis();
+    }
+  }
+
+  private void scanWithWorker(BlockingQueue<WorkerVisitorsBridge> availableWorkers, InputFile inputFile, JParserConfig.Result result) {
+    WorkerVisitorsBridge worker = takeWorker(availableWorkers);
+    try {
+      try {
+        worker.visitFile(inputFile, result);
+      } catch (AnalysisException e) {
+        throw e;
+      } catch (Exception e) {
+        checkInterrupted(e);
+        interruptIfFailFast(e, inputFile);
+      }
+      synchronized (this) {
+        simpleScan(inputFile, result, ast -> {
+          // cleaned up once the issues of the worker have been saved
+        });
+        worker.flushIssues();
+        cleanUpAst(result);
+      }
+    } finally {
+      availableWorkers.add(worker);
+    }
+  }
+
+  private static WorkerVisitorsBridge takeWorker(BlockingQueue<WorkerVisitorsBridge> availableWorkers) {
+    try {
+      return availableWorkers.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Analysis cancelled", e);
+    }
+  }
+
+  private List<InputFile> filterModuleInfoFiles(Iterable<? extends InputFile> inputFiles, JavaVersion javaVersion) {
+    return StreamSupport.stream(inputFiles.spliterator(), false)
       .filter(file -> {
         if (("module-info.java".equals(file.filename())) && !javaVersion.isNotSet() && javaVersion.asInt() <= 8) {
           // When the java version is not set, we use the maximum version supported, able to parse module info.
@@ -70,16 +206,6 @@ public class JavaAstScanner {
         }
         return true;
       }).collect(Collectors.toList());
-
-    try {
-      JParserConfig.Mode.FILE_BY_FILE
-        .create(JParserConfig.effectiveJavaVersion(javaVersion), visitor.getClasspath())
-        .parse(filesNames,
-          this::analysisCancelled,
-          (i, r) -> simpleScan(i, r, JavaAstScanner::cleanUpAst));
-    } finally {
-      endOfAnalysis();
-    }
   }
 
   public void endOfAnalysis() {
@@ -126,6 +252,14 @@ public class JavaAstScanner {
     ast.sema.cleanupEnvironment();
   }
 
+  private static void cleanUpAst(JParserConfig.Result result) {
+    try {
+      cleanUpAst(result.get());
+    } catch (Exception e) {
+      // nothing to clean up when the file could not be parsed
+    }
+  }
+
   private void collectUndefinedTypes(Set<String> undefinedTypes) {
     if (sonarComponents != null) {
       sonarComponents.collectUndefinedTypes(undefinedTypes);
@@ -19,6 +19,7 @@
  */
 package org.sonar.java.ast.visitors;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -30,7 +31,7 @@ import org.sonar.plugins.java.api.tree.Tree;
 
 public class CommentLinesVisitor extends SubscriptionVisitor {
 
-  private Set<Integer> comments = new HashSet<>();
+  private final BitSet comments = new BitSet();
   private Set<Integer> noSonarLines = new HashSet<>();
   private boolean seenFirstToken;
 
@@ -40,10 +41,19 @@ public class CommentLinesVisitor extends SubscriptionVisitor {
   }
 
   public void analyzeCommentLines(CompilationUnitTree tree) {
+    init();
+    scanTree(tree);
+  }
+
+  /**
+   * Resets the collected lines, for callers feeding the tokens of a file through {@link #visitToken(SyntaxToken)}
+   * from their own traversal.
+   */
+  public void init() {
     comments.clear();
-    noSonarLines.clear();
+    // the previous set has been handed over to the no sonar filter
+    noSonarLines = new HashSet<>();
     seenFirstToken = false;
-    scanTree(tree);
   }
 
   @Override
@@ -65,7 +75,7 @@ public class CommentLinesVisitor extends SubscriptionVisitor {
       if(commentLine.contains("NOSONAR")) {
         noSonarLines.add(line);
       } else if (!isBlank(commentLine)) {
-        comments.add(line);
+        comments.set(line);
       }
       line++;
     }
@@ -76,7 +86,7 @@ public class CommentLinesVisitor extends SubscriptionVisitor {
   }
 
   public int commentLinesMetric() {
-    return comments.size();
+    return comments.cardinality();
   }
 
   private static boolean isBlank(String line) {
@@ -20,10 +20,9 @@
 package org.sonar.java.ast.visitors;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.FileLinesContext;
@@ -72,8 +71,8 @@ import static org.sonar.plugins.java.api.tree.Tree.Kind.WHILE_STATEMENT;
 public class FileLinesVisitor extends SubscriptionVisitor {
 
   private final SonarComponents sonarComponents;
-  private final Set<Integer> linesOfCode = new HashSet<>();
-  private final Set<Integer> executableLines = new HashSet<>();
+  private final BitSet linesOfCode = new BitSet();
+  private final BitSet executableLines = new BitSet();
 
   public FileLinesVisitor(SonarComponents sonarComponents) {
     this.sonarComponents = sonarComponents;
@@ -96,8 +95,8 @@ public class FileLinesVisitor extends SubscriptionVisitor {
     InputFile currentFile = context.getInputFile();
     FileLinesContext fileLinesContext = sonarComponents.fileLinesContextFor(currentFile);
     for (int line = 1; line <= currentFile.lines(); line++) {
-      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, linesOfCode.contains(line) ? 1 : 0);
-      fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, executableLines.contains(line) ? 1 : 0);
+      fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, linesOfCode.get(line) ? 1 : 0);
+      fileLinesContext.setIntValue(CoreMetrics.EXECUTABLE_LINES_DATA_KEY, line, executableLines.get(line) ? 1 : 0);
     }
     fileLinesContext.save();
 
@@ -127,7 +126,7 @@ public class FileLinesVisitor extends SubscriptionVisitor {
       case FOR_EACH_STATEMENT:
       case WHILE_STATEMENT:
       case DO_STATEMENT:
-        executableLines.add(tree.lastToken().line());
+        executableLines.set(tree.lastToken().line());
         break;
       default:
         // Do nothing particular
@@ -161,7 +160,7 @@ public class FileLinesVisitor extends SubscriptionVisitor {
       // get the last
       TypeTree returnType = tree.returnType();
       if(returnType == null || "void".equals(returnType.firstToken().text())) {
-        executableLines.add(methodBody.closeBraceToken().line());
+        executableLines.set(methodBody.closeBraceToken().line());
       }
       return methodBody.body();
     }
@@ -182,12 +181,12 @@ public class FileLinesVisitor extends SubscriptionVisitor {
           if (t.is(NEW_CLASS)) {
             NewClassTree newClassTree = (NewClassTree) t;
             new ExecutableLinesTokenVisitor().scanTree(newClassTree.identifier());
-            executableLines.add(newClassTree.newKeyword().line());
+            executableLines.set(newClassTree.newKeyword().line());
           } else if (t.is(TRY_STATEMENT)) {
             // add last token of try statements
-            executableLines.add(t.lastToken().line());
+            executableLines.set(t.lastToken().line());
           } else {
-            executableLines.add(t.firstToken().line());
+            executableLines.set(t.firstToken().line());
           }
         }
       );
@@ -195,7 +194,7 @@ public class FileLinesVisitor extends SubscriptionVisitor {
 
   @Override
   public void visitToken(SyntaxToken syntaxToken) {
-    linesOfCode.add(syntaxToken.line());
+    linesOfCode.set(syntaxToken.line());
   }
 
   private static boolean isConstant(VariableTree variableTree) {
@@ -218,7 +217,7 @@ public class FileLinesVisitor extends SubscriptionVisitor {
 
     @Override
     public void visitToken(SyntaxToken syntaxToken) {
-      executableLines.add(syntaxToken.line());
+      executableLines.set(syntaxToken.line());
     }
   }
 }
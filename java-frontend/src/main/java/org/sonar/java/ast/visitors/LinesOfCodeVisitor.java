@@ -23,19 +23,18 @@ import org.sonar.java.model.InternalSyntaxToken;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.Tree;
 
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class LinesOfCodeVisitor extends SubscriptionVisitor{
 
-  private Set<Integer> lines = new HashSet<>();
+  private final BitSet lines = new BitSet();
 
   public int linesOfCode(Tree tree) {
     lines.clear();
     scanTree(tree);
-    return lines.size();
+    return lines.cardinality();
   }
 
   @Override
@@ -46,7 +45,7 @@ public class LinesOfCodeVisitor extends SubscriptionVisitor{
   @Override
   public void visitToken(SyntaxToken syntaxToken) {
     if (!((InternalSyntaxToken) syntaxToken).isEOF()) {
-      lines.add(syntaxToken.line());
+      lines.set(syntaxToken.line());
     }
   }
 }
@@ -120,10 +120,8 @@ public abstract class SubscriptionVisitor implements JavaFileScanner {
   private void visitChildren(Tree tree) {
     JavaTree javaTree = (JavaTree) tree;
     if (!javaTree.isLeaf()) {
-      for (Tree next : javaTree.getChildren()) {
-        if (next != null) {
-          visit(next);
-        }
+      for (Tree next : javaTree.getChildrenArray()) {
+        visit(next);
       }
     }
   }
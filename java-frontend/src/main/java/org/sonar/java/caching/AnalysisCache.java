@@ -0,0 +1,324 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.rule.ActiveRule;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.AnalysisException;
+import org.sonar.java.DefaultJavaResourceLocator;
+import org.sonar.java.Measurer;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.filters.SonarJavaIssueFilter;
+import org.sonar.plugins.java.api.JavaCheck;
+
+/**
+ * Analysis results of the main files, persisted under the working directory from one analysis to the next one.
+ * <p>
+ * The results of a file are replayed, without parsing the file, when its content did not change and when none of the types
+ * its analysis depends on is declared by a file which changed. The whole cache is discarded as soon as the configuration of
+ * the analysis changes: active rules and their parameters, java version, or the content of the libraries.
+ * <p>
+ * Checks reporting issues at the end of the analysis still have to scan the replayed files: the issues they report while
+ * scanning a file are not recorded.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+
+  private static final int FORMAT_VERSION = 1;
+  static final String CACHE_DIRECTORY = "java-analysis-cache";
+
+  private final SonarComponents sonarComponents;
+  private final String javaVersion;
+  @Nullable
+  private final Measurer measurer;
+  @Nullable
+  private final SonarJavaIssueFilter issueFilter;
+  private final DefaultJavaResourceLocator resourceLocator;
+  private final Set<RuleKey> projectLevelRules;
+  private final File cacheFile;
+
+  private final Map<String, FileAnalysis> previousAnalyses = new HashMap<>();
+  private final Map<String, FileAnalysis> analyses = new HashMap<>();
+  private final Map<String, String> contentHashes = new HashMap<>();
+  private final Set<String> changedTypes = new HashSet<>();
+  private String configurationHash = "";
+
+  public AnalysisCache(SonarComponents sonarComponents, String javaVersion, @Nullable Measurer measurer, @Nullable SonarJavaIssueFilter issueFilter,
+    DefaultJavaResourceLocator resourceLocator, Collection<JavaCheck> projectLevelChecks) {
+    this.sonarComponents = sonarComponents;
+    this.javaVersion = javaVersion;
+    this.measurer = measurer;
+    this.issueFilter = issueFilter;
+    this.resourceLocator = resourceLocator;
+    this.projectLevelRules = projectLevelChecks.stream()
+      .map(sonarComponents::getRuleKey)
+      .flatMap(ruleKey -> ruleKey.map(Stream::of).orElseGet(Stream::empty))
+      .collect(Collectors.toSet());
+    String baseDir = sonarComponents.context().fileSystem().baseDir().getAbsolutePath();
+    this.cacheFile = new File(new File(sonarComponents.workDir(), CACHE_DIRECTORY), Integer.toHexString(baseDir.hashCode()) + ".bin");
+  }
+
+  /**
+   * Loads the results of the previous analysis, provided it was done with the same configuration.
+   */
+  public void load(List<InputFile> inputFiles) {
+    configurationHash = configurationHash(inputFiles);
+    if (!cacheFile.isFile()) {
+      LOG.info("No analysis cache found, all the source files will be analyzed.");
+      return;
+    }
+    try (CacheInput in = new CacheInput(new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+      if (in.readInt() != FORMAT_VERSION || !configurationHash.equals(in.readString())) {
+        LOG.info("The analysis configuration changed, all the source files will be analyzed.");
+        return;
+      }
+      int size = in.readInt();
+      for (int i = 0; i < size; i++) {
+        previousAnalyses.put(in.readString(), FileAnalysis.read(in));
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warn(String.format("Unable to read the analysis cache '%s', all the source files will be analyzed.", cacheFile), e);
+      previousAnalyses.clear();
+    }
+  }
+
+  /**
+   * Saves the results of the current analysis: files analyzed with success as well as replayed files.
+   */
+  public void save() {
+    Path cacheDirectory = cacheFile.getParentFile().toPath();
+    try {
+      Files.createDirectories(cacheDirectory);
+      try (CacheOutput out = new CacheOutput(new BufferedOutputStream(Files.newOutputStream(cacheFile.toPath())))) {
+        out.writeInt(FORMAT_VERSION);
+        out.writeString(configurationHash);
+        out.writeInt(analyses.size());
+        for (Map.Entry<String, FileAnalysis> entry : analyses.entrySet()) {
+          out.writeString(entry.getKey());
+          entry.getValue().write(out);
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn(String.format("Unable to save the analysis cache '%s'.", cacheFile), e);
+    }
+  }
+
+  /**
+   * @return the files which are new or whose content changed since the previous analysis
+   */
+  public List<InputFile> changedFiles(List<InputFile> inputFiles) {
+    List<InputFile> result = new ArrayList<>();
+    Set<String> keys = new HashSet<>();
+    for (InputFile inputFile : inputFiles) {
+      keys.add(inputFile.key());
+      String contentHash = contentHash(inputFile);
+      contentHashes.put(inputFile.key(), contentHash);
+      FileAnalysis previousAnalysis = previousAnalyses.get(inputFile.key());
+      if (previousAnalysis == null || !previousAnalysis.contentHash.equals(contentHash)) {
+        result.add(inputFile);
+        if (previousAnalysis != null) {
+          changedTypes.addAll(previousAnalysis.declaredTypes);
+        }
+      }
+    }
+    // types declared by deleted files
+    previousAnalyses.entrySet().stream()
+      .filter(entry -> !keys.contains(entry.getKey()))
+      .forEach(entry -> changedTypes.addAll(entry.getValue().declaredTypes));
+    return result;
+  }
+
+  /**
+   * To be called once the changed files have been analyzed, as the types they now declare are only known at that point.
+   *
+   * @return the unchanged files whose analysis depends on types declared by changed files
+   */
+  public List<InputFile> impactedFiles(List<InputFile> unchangedFiles) {
+    return unchangedFiles.stream()
+      .filter(inputFile -> !Collections.disjoint(previousAnalyses.get(inputFile.key()).referencedTypes, changedTypes))
+      .collect(Collectors.toList());
+  }
+
+  public FileAnalysisRecorder startRecording(InputFile inputFile) {
+    String contentHash = contentHashes.computeIfAbsent(inputFile.key(), key -> contentHash(inputFile));
+    FileAnalysisRecorder recorder = new FileAnalysisRecorder(inputFile, sonarComponents.project(), contentHash, projectLevelRules, issueFilter);
+    sonarComponents.setAnalysisRecorder(recorder);
+    return recorder;
+  }
+
+  public void stopRecording(FileAnalysisRecorder recorder) {
+    sonarComponents.setAnalysisRecorder(null);
+    changedTypes.addAll(recorder.declaredTypes());
+    FileAnalysis analysis = recorder.result();
+    if (analysis != null) {
+      analyses.put(recorder.inputFile().key(), analysis);
+    }
+  }
+
+  /**
+   * Saves again the results of the previous analysis of an unchanged file
+   */
+  public void replay(InputFile inputFile) {
+    FileAnalysis analysis = Objects.requireNonNull(previousAnalyses.get(inputFile.key()));
+    analysis.replay(inputFile, sonarComponents, measurer);
+    resourceLocator.addClassNames(inputFile, analysis.declaredTypes);
+    analyses.put(inputFile.key(), analysis);
+  }
+
+  private String configurationHash(List<InputFile> inputFiles) {
+    MessageDigest digest = sha256();
+    update(digest, Integer.toString(FORMAT_VERSION));
+    update(digest, String.valueOf(AnalysisCache.class.getPackage().getImplementationVersion()));
+    update(digest, System.getProperty("java.version"));
+    update(digest, javaVersion);
+    update(digest, sonarComponents.context().fileSystem().baseDir().getAbsolutePath());
+    sonarComponents.context().activeRules().findAll().stream()
+      .sorted(Comparator.comparing(activeRule -> activeRule.ruleKey().toString()))
+      .forEach(activeRule -> update(digest, activeRule));
+    updateWithClasspath(digest, sonarComponents.getJavaClasspath(), inputFiles);
+    return Base64.getEncoder().encodeToString(digest.digest());
+  }
+
+  /**
+   * Updates the given digest with the content of the libraries: size and date of the jars, and content of the class files of the
+   * directories except the ones of the given source files.
+   */
+  public static void updateWithClasspath(MessageDigest digest, List<File> classpath, Iterable<InputFile> sourceFiles) {
+    Set<String> sourceTypes = sourceTypes(sourceFiles);
+    for (File file : classpath) {
+      update(digest, file.getAbsolutePath());
+      if (file.isFile()) {
+        update(digest, file.length() + ":" + file.lastModified());
+      } else if (file.isDirectory()) {
+        updateWithClassFiles(digest, file.toPath(), sourceTypes);
+      }
+    }
+  }
+
+  private static void update(MessageDigest digest, ActiveRule activeRule) {
+    update(digest, activeRule.ruleKey().toString());
+    update(digest, String.valueOf(activeRule.severity()));
+    update(digest, String.valueOf(activeRule.templateRuleKey()));
+    new TreeMap<>(activeRule.params()).forEach((key, value) -> update(digest, key + "=" + value));
+  }
+
+  /**
+   * Class files of the analyzed sources are ignored, changes of the sources being tracked file by file.
+   */
+  private static void updateWithClassFiles(MessageDigest digest, Path directory, Set<String> sourceTypes) {
+    try (Stream<Path> files = Files.walk(directory)) {
+      List<Path> classFiles = files
+        .filter(path -> path.toString().endsWith(".class"))
+        .sorted()
+        .collect(Collectors.toList());
+      for (Path classFile : classFiles) {
+        String relativePath = directory.relativize(classFile).toString().replace(File.separatorChar, '/');
+        if (!sourceTypes.contains(topLevelType(relativePath))) {
+          CRC32 crc = new CRC32();
+          crc.update(Files.readAllBytes(classFile));
+          update(digest, relativePath + ":" + crc.getValue());
+        }
+      }
+    } catch (IOException e) {
+      throw new AnalysisException(String.format("Unable to read the class files of '%s'", directory), e);
+    }
+  }
+
+  private static String topLevelType(String classFilePath) {
+    String type = classFilePath.substring(0, classFilePath.length() - ".class".length());
+    int nested = type.indexOf('$', type.lastIndexOf('/') + 1);
+    return nested < 0 ? type : type.substring(0, nested);
+  }
+
+  /**
+   * @return all the possible qualified names, using '/' as separator, of the types named after the given source files
+   */
+  private static Set<String> sourceTypes(Iterable<InputFile> inputFiles) {
+    Set<String> result = new HashSet<>();
+    for (InputFile inputFile : inputFiles) {
+      String path = new File(inputFile.uri()).getAbsolutePath().replace(File.separatorChar, '/');
+      if (path.endsWith(".java")) {
+        path = path.substring(0, path.length() - ".java".length());
+      }
+      result.add(path);
+      for (int i = path.indexOf('/'); i >= 0; i = path.indexOf('/', i + 1)) {
+        result.add(path.substring(i + 1));
+      }
+    }
+    return result;
+  }
+
+  private static String contentHash(InputFile inputFile) {
+    MessageDigest digest = sha256();
+    byte[] buffer = new byte[8192];
+    try (InputStream in = inputFile.inputStream()) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    } catch (IOException e) {
+      throw new AnalysisException(String.format("Unable to read file '%s'", inputFile), e);
+    }
+    return Base64.getEncoder().encodeToString(digest.digest());
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
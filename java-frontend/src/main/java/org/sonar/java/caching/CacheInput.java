@@ -0,0 +1,86 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+
+/**
+ * Binary input of the analysis cache, reading what {@link CacheOutput} wrote.
+ */
+class CacheInput implements AutoCloseable {
+
+  private final DataInputStream in;
+  private final List<String> strings = new ArrayList<>();
+
+  CacheInput(InputStream in) {
+    this.in = new DataInputStream(in);
+  }
+
+  int readInt() throws IOException {
+    return in.readInt();
+  }
+
+  boolean readBoolean() throws IOException {
+    return in.readBoolean();
+  }
+
+  double readDouble() throws IOException {
+    return in.readDouble();
+  }
+
+  String readString() throws IOException {
+    int index = in.readInt();
+    if (index == -1) {
+      String value = in.readUTF();
+      strings.add(value);
+      return value;
+    }
+    if (index < 0 || index >= strings.size()) {
+      throw new IOException("Invalid string index: " + index);
+    }
+    return strings.get(index);
+  }
+
+  @CheckForNull
+  String readNullableString() throws IOException {
+    return in.readBoolean() ? readString() : null;
+  }
+
+  <T extends Collection<String>> T readStrings(Supplier<T> collectionFactory) throws IOException {
+    int size = in.readInt();
+    T result = collectionFactory.get();
+    for (int i = 0; i < size; i++) {
+      result.add(readString());
+    }
+    return result;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
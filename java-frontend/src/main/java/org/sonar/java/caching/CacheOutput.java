@@ -0,0 +1,83 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Binary output of the analysis cache. Each string is written once, later occurrences only refer to its index.
+ */
+class CacheOutput implements AutoCloseable {
+
+  private final DataOutputStream out;
+  private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+  CacheOutput(OutputStream out) {
+    this.out = new DataOutputStream(out);
+  }
+
+  void writeInt(int value) throws IOException {
+    out.writeInt(value);
+  }
+
+  void writeBoolean(boolean value) throws IOException {
+    out.writeBoolean(value);
+  }
+
+  void writeDouble(double value) throws IOException {
+    out.writeDouble(value);
+  }
+
+  void writeString(String value) throws IOException {
+    Integer index = stringIndexes.get(value);
+    if (index != null) {
+      out.writeInt(index);
+    } else {
+      out.writeInt(-1);
+      out.writeUTF(value);
+      stringIndexes.put(value, stringIndexes.size());
+    }
+  }
+
+  void writeNullableString(@Nullable String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(value);
+    }
+  }
+
+  void writeStrings(Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      writeString(value);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,396 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.rule.Severity;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.batch.sensor.symbol.NewSymbol;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.Measurer;
+import org.sonar.java.SonarComponents;
+
+/**
+ * Everything the analysis of a file saved, along with what is needed to know whether it can be replayed in a later analysis:
+ * the hash of the content of the file, the types it declares and the types its analysis depends on.
+ */
+class FileAnalysis {
+
+  final String contentHash;
+  final Set<String> declaredTypes = new HashSet<>();
+  final Set<String> referencedTypes = new HashSet<>();
+  final Map<String, Integer> measures = new LinkedHashMap<>();
+  final Set<Integer> noSonarLines = new HashSet<>();
+  final List<LineValue> lineValues = new ArrayList<>();
+  final List<Highlighting> highlightings = new ArrayList<>();
+  final List<Symbol> symbols = new ArrayList<>();
+  final List<Issue> issues = new ArrayList<>();
+
+  FileAnalysis(String contentHash) {
+    this.contentHash = contentHash;
+  }
+
+  void replay(InputFile inputFile, SonarComponents sonarComponents, @Nullable Measurer measurer) {
+    if (measurer != null) {
+      measurer.replay(inputFile, measures, noSonarLines);
+    }
+    if (!lineValues.isEmpty()) {
+      FileLinesContext fileLinesContext = sonarComponents.fileLinesContextFor(inputFile);
+      lineValues.forEach(lineValue -> lineValue.replay(fileLinesContext));
+      fileLinesContext.save();
+    }
+    if (!highlightings.isEmpty()) {
+      NewHighlighting newHighlighting = sonarComponents.highlightableFor(inputFile);
+      highlightings.forEach(highlighting -> highlighting.range.replay(newHighlighting, highlighting.typeOfText));
+      newHighlighting.save();
+    }
+    if (!symbols.isEmpty()) {
+      NewSymbolTable newSymbolTable = sonarComponents.symbolizableFor(inputFile);
+      symbols.forEach(symbol -> symbol.replay(newSymbolTable));
+      newSymbolTable.save();
+    }
+    InputComponent project = sonarComponents.project();
+    issues.forEach(issue -> issue.replay(sonarComponents.newIssue(), inputFile, project));
+  }
+
+  void write(CacheOutput out) throws IOException {
+    out.writeString(contentHash);
+    out.writeStrings(declaredTypes);
+    out.writeStrings(referencedTypes);
+    out.writeInt(measures.size());
+    for (Map.Entry<String, Integer> measure : measures.entrySet()) {
+      out.writeString(measure.getKey());
+      out.writeInt(measure.getValue());
+    }
+    out.writeInt(noSonarLines.size());
+    for (Integer line : noSonarLines) {
+      out.writeInt(line);
+    }
+    out.writeInt(lineValues.size());
+    for (LineValue lineValue : lineValues) {
+      lineValue.write(out);
+    }
+    out.writeInt(highlightings.size());
+    for (Highlighting highlighting : highlightings) {
+      highlighting.range.write(out);
+      out.writeInt(highlighting.typeOfText.ordinal());
+    }
+    out.writeInt(symbols.size());
+    for (Symbol symbol : symbols) {
+      symbol.declaration.write(out);
+      out.writeInt(symbol.references.size());
+      for (Range reference : symbol.references) {
+        reference.write(out);
+      }
+    }
+    out.writeInt(issues.size());
+    for (Issue issue : issues) {
+      issue.write(out);
+    }
+  }
+
+  static FileAnalysis read(CacheInput in) throws IOException {
+    FileAnalysis result = new FileAnalysis(in.readString());
+    result.declaredTypes.addAll(in.readStrings(ArrayList::new));
+    result.referencedTypes.addAll(in.readStrings(ArrayList::new));
+    int measures = in.readInt();
+    for (int i = 0; i < measures; i++) {
+      result.measures.put(in.readString(), in.readInt());
+    }
+    int noSonarLines = in.readInt();
+    for (int i = 0; i < noSonarLines; i++) {
+      result.noSonarLines.add(in.readInt());
+    }
+    int lineValues = in.readInt();
+    for (int i = 0; i < lineValues; i++) {
+      result.lineValues.add(LineValue.read(in));
+    }
+    int highlightings = in.readInt();
+    TypeOfText[] typesOfText = TypeOfText.values();
+    for (int i = 0; i < highlightings; i++) {
+      Range range = Range.read(in);
+      int typeOfText = in.readInt();
+      if (typeOfText < 0 || typeOfText >= typesOfText.length) {
+        throw new IOException("Invalid type of text: " + typeOfText);
+      }
+      result.highlightings.add(new Highlighting(range, typesOfText[typeOfText]));
+    }
+    int symbols = in.readInt();
+    for (int i = 0; i < symbols; i++) {
+      Symbol symbol = new Symbol(Range.read(in));
+      int references = in.readInt();
+      for (int j = 0; j < references; j++) {
+        symbol.references.add(Range.read(in));
+      }
+      result.symbols.add(symbol);
+    }
+    int issues = in.readInt();
+    for (int i = 0; i < issues; i++) {
+      result.issues.add(Issue.read(in));
+    }
+    return result;
+  }
+
+  static class Range {
+    final int startLine;
+    final int startOffset;
+    final int endLine;
+    final int endOffset;
+
+    Range(int startLine, int startOffset, int endLine, int endOffset) {
+      this.startLine = startLine;
+      this.startOffset = startOffset;
+      this.endLine = endLine;
+      this.endOffset = endOffset;
+    }
+
+    static Range of(TextRange textRange) {
+      return new Range(textRange.start().line(), textRange.start().lineOffset(), textRange.end().line(), textRange.end().lineOffset());
+    }
+
+    TextRange toTextRange(InputFile inputFile) {
+      return inputFile.newRange(startLine, startOffset, endLine, endOffset);
+    }
+
+    void replay(NewHighlighting newHighlighting, TypeOfText typeOfText) {
+      newHighlighting.highlight(startLine, startOffset, endLine, endOffset, typeOfText);
+    }
+
+    void write(CacheOutput out) throws IOException {
+      out.writeInt(startLine);
+      out.writeInt(startOffset);
+      out.writeInt(endLine);
+      out.writeInt(endOffset);
+    }
+
+    static Range read(CacheInput in) throws IOException {
+      return new Range(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    }
+  }
+
+  static class LineValue {
+    final String metricKey;
+    final int line;
+    @Nullable
+    final Integer intValue;
+    @Nullable
+    final String stringValue;
+
+    LineValue(String metricKey, int line, @Nullable Integer intValue, @Nullable String stringValue) {
+      this.metricKey = metricKey;
+      this.line = line;
+      this.intValue = intValue;
+      this.stringValue = stringValue;
+    }
+
+    void replay(FileLinesContext fileLinesContext) {
+      if (intValue != null) {
+        fileLinesContext.setIntValue(metricKey, line, intValue);
+      } else {
+        fileLinesContext.setStringValue(metricKey, line, stringValue);
+      }
+    }
+
+    void write(CacheOutput out) throws IOException {
+      out.writeString(metricKey);
+      out.writeInt(line);
+      out.writeBoolean(intValue != null);
+      if (intValue != null) {
+        out.writeInt(intValue);
+      } else {
+        out.writeNullableString(stringValue);
+      }
+    }
+
+    static LineValue read(CacheInput in) throws IOException {
+      String metricKey = in.readString();
+      int line = in.readInt();
+      if (in.readBoolean()) {
+        return new LineValue(metricKey, line, in.readInt(), null);
+      }
+      return new LineValue(metricKey, line, null, in.readNullableString());
+    }
+  }
+
+  static class Highlighting {
+    final Range range;
+    final TypeOfText typeOfText;
+
+    Highlighting(Range range, TypeOfText typeOfText) {
+      this.range = range;
+      this.typeOfText = typeOfText;
+    }
+  }
+
+  static class Symbol {
+    final Range declaration;
+    final List<Range> references = new ArrayList<>();
+
+    Symbol(Range declaration) {
+      this.declaration = declaration;
+    }
+
+    void replay(NewSymbolTable newSymbolTable) {
+      NewSymbol newSymbol = newSymbolTable.newSymbol(declaration.startLine, declaration.startOffset, declaration.endLine, declaration.endOffset);
+      references.forEach(reference -> newSymbol.newReference(reference.startLine, reference.startOffset, reference.endLine, reference.endOffset));
+    }
+  }
+
+  /**
+   * Location of an issue, either on the analyzed file or on the project
+   */
+  static class Location {
+    boolean onProject = false;
+    @Nullable
+    Range range;
+    @Nullable
+    String message;
+
+    NewIssueLocation replay(NewIssue newIssue, InputFile inputFile, InputComponent project) {
+      NewIssueLocation location = newIssue.newLocation().on(onProject ? project : inputFile);
+      if (range != null) {
+        location.at(range.toTextRange(inputFile));
+      }
+      if (message != null) {
+        location.message(message);
+      }
+      return location;
+    }
+
+    void write(CacheOutput out) throws IOException {
+      out.writeBoolean(onProject);
+      out.writeBoolean(range != null);
+      if (range != null) {
+        range.write(out);
+      }
+      out.writeNullableString(message);
+    }
+
+    static Location read(CacheInput in) throws IOException {
+      Location location = new Location();
+      location.onProject = in.readBoolean();
+      if (in.readBoolean()) {
+        location.range = Range.read(in);
+      }
+      location.message = in.readNullableString();
+      return location;
+    }
+  }
+
+  static class Issue {
+    @Nullable
+    RuleKey ruleKey;
+    @Nullable
+    Double gap;
+    @Nullable
+    Severity severity;
+    @Nullable
+    Location primaryLocation;
+    final List<Location> secondaryLocations = new ArrayList<>();
+    final List<List<Location>> flows = new ArrayList<>();
+
+    void replay(NewIssue newIssue, InputFile inputFile, InputComponent project) {
+      if (ruleKey != null) {
+        newIssue.forRule(ruleKey);
+      }
+      newIssue.gap(gap);
+      if (severity != null) {
+        newIssue.overrideSeverity(severity);
+      }
+      if (primaryLocation != null) {
+        newIssue.at(primaryLocation.replay(newIssue, inputFile, project));
+      }
+      secondaryLocations.forEach(location -> newIssue.addLocation(location.replay(newIssue, inputFile, project)));
+      for (List<Location> flow : flows) {
+        List<NewIssueLocation> newFlow = new ArrayList<>(flow.size());
+        flow.forEach(location -> newFlow.add(location.replay(newIssue, inputFile, project)));
+        newIssue.addFlow(newFlow);
+      }
+      newIssue.save();
+    }
+
+    void write(CacheOutput out) throws IOException {
+      out.writeNullableString(ruleKey != null ? ruleKey.toString() : null);
+      out.writeBoolean(gap != null);
+      if (gap != null) {
+        out.writeDouble(gap);
+      }
+      out.writeNullableString(severity != null ? severity.name() : null);
+      out.writeBoolean(primaryLocation != null);
+      if (primaryLocation != null) {
+        primaryLocation.write(out);
+      }
+      writeLocations(out, secondaryLocations);
+      out.writeInt(flows.size());
+      for (List<Location> flow : flows) {
+        writeLocations(out, flow);
+      }
+    }
+
+    private static void writeLocations(CacheOutput out, List<Location> locations) throws IOException {
+      out.writeInt(locations.size());
+      for (Location location : locations) {
+        location.write(out);
+      }
+    }
+
+    static Issue read(CacheInput in) throws IOException {
+      Issue issue = new Issue();
+      String ruleKey = in.readNullableString();
+      issue.ruleKey = ruleKey != null ? RuleKey.parse(ruleKey) : null;
+      issue.gap = in.readBoolean() ? in.readDouble() : null;
+      String severity = in.readNullableString();
+      issue.severity = severity != null ? Severity.valueOf(severity) : null;
+      if (in.readBoolean()) {
+        issue.primaryLocation = Location.read(in);
+      }
+      issue.secondaryLocations.addAll(readLocations(in));
+      int flows = in.readInt();
+      for (int i = 0; i < flows; i++) {
+        issue.flows.add(readLocations(in));
+      }
+      return issue;
+    }
+
+    private static List<Location> readLocations(CacheInput in) throws IOException {
+      int size = in.readInt();
+      List<Location> locations = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        locations.add(Location.read(in));
+      }
+      return locations;
+    }
+  }
+}
@@ -0,0 +1,450 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputComponent;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
+import org.sonar.api.batch.rule.Severity;
+import org.sonar.api.batch.sensor.highlighting.NewHighlighting;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.issue.NewIssue;
+import org.sonar.api.batch.sensor.issue.NewIssueLocation;
+import org.sonar.api.batch.sensor.symbol.NewSymbol;
+import org.sonar.api.batch.sensor.symbol.NewSymbolTable;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.java.JavaFilesCache;
+import org.sonar.java.caching.FileAnalysis.Location;
+import org.sonar.java.caching.FileAnalysis.Range;
+import org.sonar.java.filters.SonarJavaIssueFilter;
+import org.sonar.java.model.JavaTree;
+
+/**
+ * Records what the analysis of a file saves, by decorating the objects the file is saved through.
+ * The recorded analysis can only be replayed when everything has been recorded and when it does not depend on types
+ * which could not be resolved.
+ */
+public class FileAnalysisRecorder {
+
+  private final InputFile inputFile;
+  private final InputComponent project;
+  private final Set<RuleKey> ignoredRules;
+  @Nullable
+  private final SonarJavaIssueFilter issueFilter;
+  private final FileAnalysis analysis;
+  private final Set<String> declaredTypes = new HashSet<>();
+  private boolean replayable = true;
+  private boolean dependenciesRecorded = false;
+
+  FileAnalysisRecorder(InputFile inputFile, InputComponent project, String contentHash, Set<RuleKey> ignoredRules, @Nullable SonarJavaIssueFilter issueFilter) {
+    this.inputFile = inputFile;
+    this.project = project;
+    this.ignoredRules = ignoredRules;
+    this.issueFilter = issueFilter;
+    this.analysis = new FileAnalysis(contentHash);
+  }
+
+  public NewIssue recordIssue(NewIssue newIssue) {
+    return new RecordingIssue(newIssue);
+  }
+
+  public NewHighlighting recordHighlighting(NewHighlighting newHighlighting) {
+    return new RecordingHighlighting(newHighlighting);
+  }
+
+  public NewSymbolTable recordSymbolTable(NewSymbolTable newSymbolTable) {
+    return new RecordingSymbolTable(newSymbolTable);
+  }
+
+  public FileLinesContext recordFileLines(FileLinesContext fileLinesContext) {
+    return new RecordingFileLinesContext(fileLinesContext);
+  }
+
+  public void recordMeasure(String metricKey, Serializable value) {
+    if (value instanceof Integer) {
+      analysis.measures.put(metricKey, (Integer) value);
+    } else {
+      replayable = false;
+    }
+  }
+
+  public void recordNoSonarLines(Set<Integer> noSonarLines) {
+    analysis.noSonarLines.addAll(noSonarLines);
+  }
+
+  public void recordDependencies(JavaTree.CompilationUnitTreeImpl ast) {
+    JavaFilesCache javaFilesCache = new JavaFilesCache();
+    javaFilesCache.scanCompilationUnit(ast);
+    declaredTypes.addAll(javaFilesCache.getClassNames());
+    // types which are not resolved may be declared later on, changing the result of the analysis of the file
+    replayable &= ast.sema.undefinedTypes().isEmpty();
+    analysis.referencedTypes.addAll(ast.sema.referencedTypes());
+    dependenciesRecorded = true;
+  }
+
+  InputFile inputFile() {
+    return inputFile;
+  }
+
+  Set<String> declaredTypes() {
+    return Collections.unmodifiableSet(declaredTypes);
+  }
+
+  /**
+   * @return the recorded analysis, or null if it can not be replayed
+   */
+  @CheckForNull
+  FileAnalysis result() {
+    if (!replayable || !dependenciesRecorded) {
+      return null;
+    }
+    analysis.declaredTypes.addAll(declaredTypes);
+    return analysis;
+  }
+
+  private class RecordingIssue implements NewIssue {
+    private final NewIssue delegate;
+    private final FileAnalysis.Issue issue = new FileAnalysis.Issue();
+
+    RecordingIssue(NewIssue delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public NewIssue forRule(RuleKey ruleKey) {
+      issue.ruleKey = ruleKey;
+      delegate.forRule(ruleKey);
+      return this;
+    }
+
+    @Override
+    public NewIssue gap(@Nullable Double gap) {
+      issue.gap = gap;
+      delegate.gap(gap);
+      return this;
+    }
+
+    @Override
+    public NewIssue overrideSeverity(@Nullable Severity severity) {
+      issue.severity = severity;
+      delegate.overrideSeverity(severity);
+      return this;
+    }
+
+    @Override
+    public NewIssue at(NewIssueLocation primaryLocation) {
+      issue.primaryLocation = location(primaryLocation);
+      delegate.at(unwrap(primaryLocation));
+      return this;
+    }
+
+    @Override
+    public NewIssue addLocation(NewIssueLocation secondaryLocation) {
+      issue.secondaryLocations.add(location(secondaryLocation));
+      delegate.addLocation(unwrap(secondaryLocation));
+      return this;
+    }
+
+    @Override
+    public NewIssue addFlow(Iterable<NewIssueLocation> flowLocations) {
+      List<Location> flow = new ArrayList<>();
+      List<NewIssueLocation> delegateFlow = new ArrayList<>();
+      for (NewIssueLocation flowLocation : flowLocations) {
+        flow.add(location(flowLocation));
+        delegateFlow.add(unwrap(flowLocation));
+      }
+      issue.flows.add(flow);
+      delegate.addFlow(delegateFlow);
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation newLocation() {
+      return new RecordingLocation(delegate.newLocation());
+    }
+
+    @Override
+    public void save() {
+      if (!ignoredRules.contains(issue.ruleKey) && isAccepted()) {
+        analysis.issues.add(issue);
+      }
+      delegate.save();
+    }
+
+    /**
+     * Issues are filtered according to the file they are reported on while it is being scanned, replayed issues have to be
+     * filtered upfront.
+     */
+    @SuppressWarnings("deprecation")
+    private boolean isAccepted() {
+      return issueFilter == null || issueFilter.accept(new RecordedIssue(issue), filterableIssue -> true);
+    }
+
+    private Location location(NewIssueLocation newIssueLocation) {
+      if (newIssueLocation instanceof RecordingLocation) {
+        return ((RecordingLocation) newIssueLocation).location;
+      }
+      replayable = false;
+      return new Location();
+    }
+
+    private NewIssueLocation unwrap(NewIssueLocation newIssueLocation) {
+      return newIssueLocation instanceof RecordingLocation ? ((RecordingLocation) newIssueLocation).delegate : newIssueLocation;
+    }
+  }
+
+  private class RecordingLocation implements NewIssueLocation {
+    private final NewIssueLocation delegate;
+    private final Location location = new Location();
+
+    RecordingLocation(NewIssueLocation delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public NewIssueLocation on(InputComponent component) {
+      if (!component.isFile()) {
+        location.onProject = true;
+      } else if (!component.key().equals(inputFile.key())) {
+        // locations on other files are not replayed
+        replayable = false;
+      }
+      delegate.on(component);
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation at(TextRange textRange) {
+      location.range = Range.of(textRange);
+      delegate.at(textRange);
+      return this;
+    }
+
+    @Override
+    public NewIssueLocation message(String message) {
+      location.message = message;
+      delegate.message(message);
+      return this;
+    }
+  }
+
+  /**
+   * Issue filters only accept the deprecated FilterableIssue
+   */
+  @SuppressWarnings("deprecation")
+  private class RecordedIssue implements org.sonar.api.scan.issue.filter.FilterableIssue {
+    private final FileAnalysis.Issue issue;
+
+    RecordedIssue(FileAnalysis.Issue issue) {
+      this.issue = issue;
+    }
+
+    @Override
+    public String componentKey() {
+      return isOnProject() ? project.key() : inputFile.key();
+    }
+
+    @Override
+    public RuleKey ruleKey() {
+      return issue.ruleKey;
+    }
+
+    @Override
+    public String severity() {
+      return issue.severity != null ? issue.severity.name() : null;
+    }
+
+    @Override
+    public String message() {
+      return issue.primaryLocation != null ? issue.primaryLocation.message : null;
+    }
+
+    @Override
+    public Integer line() {
+      TextRange textRange = textRange();
+      return textRange != null ? textRange.start().line() : null;
+    }
+
+    @Override
+    public TextRange textRange() {
+      Range range = issue.primaryLocation != null ? issue.primaryLocation.range : null;
+      return range != null && !isOnProject() ? range.toTextRange(inputFile) : null;
+    }
+
+    @Override
+    public Double gap() {
+      return issue.gap;
+    }
+
+    @Override
+    public String projectKey() {
+      return project.key();
+    }
+
+    private boolean isOnProject() {
+      return issue.primaryLocation != null && issue.primaryLocation.onProject;
+    }
+  }
+
+  private class RecordingHighlighting implements NewHighlighting {
+    private final NewHighlighting delegate;
+
+    RecordingHighlighting(NewHighlighting delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public NewHighlighting onFile(InputFile inputFile) {
+      delegate.onFile(inputFile);
+      return this;
+    }
+
+    @Deprecated
+    @Override
+    public NewHighlighting highlight(int startOffset, int endOffset, TypeOfText typeOfText) {
+      // offsets in the whole file are not recorded
+      replayable = false;
+      delegate.highlight(startOffset, endOffset, typeOfText);
+      return this;
+    }
+
+    @Override
+    public NewHighlighting highlight(TextRange range, TypeOfText typeOfText) {
+      analysis.highlightings.add(new FileAnalysis.Highlighting(Range.of(range), typeOfText));
+      delegate.highlight(range, typeOfText);
+      return this;
+    }
+
+    @Override
+    public NewHighlighting highlight(int startLine, int startLineOffset, int endLine, int endLineOffset, TypeOfText typeOfText) {
+      analysis.highlightings.add(new FileAnalysis.Highlighting(new Range(startLine, startLineOffset, endLine, endLineOffset), typeOfText));
+      delegate.highlight(startLine, startLineOffset, endLine, endLineOffset, typeOfText);
+      return this;
+    }
+
+    @Override
+    public void save() {
+      delegate.save();
+    }
+  }
+
+  private class RecordingSymbolTable implements NewSymbolTable {
+    private final NewSymbolTable delegate;
+
+    RecordingSymbolTable(NewSymbolTable delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public NewSymbolTable onFile(InputFile inputFile) {
+      delegate.onFile(inputFile);
+      return this;
+    }
+
+    @Deprecated
+    @Override
+    public NewSymbol newSymbol(int startOffset, int endOffset) {
+      replayable = false;
+      return delegate.newSymbol(startOffset, endOffset);
+    }
+
+    @Override
+    public NewSymbol newSymbol(TextRange range) {
+      return new RecordingSymbol(delegate.newSymbol(range), Range.of(range));
+    }
+
+    @Override
+    public NewSymbol newSymbol(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+      return new RecordingSymbol(delegate.newSymbol(startLine, startLineOffset, endLine, endLineOffset), new Range(startLine, startLineOffset, endLine, endLineOffset));
+    }
+
+    @Override
+    public void save() {
+      delegate.save();
+    }
+  }
+
+  private class RecordingSymbol implements NewSymbol {
+    private final NewSymbol delegate;
+    private final FileAnalysis.Symbol symbol;
+
+    RecordingSymbol(NewSymbol delegate, Range declaration) {
+      this.delegate = delegate;
+      this.symbol = new FileAnalysis.Symbol(declaration);
+      analysis.symbols.add(symbol);
+    }
+
+    @Deprecated
+    @Override
+    public NewSymbol newReference(int startOffset, int endOffset) {
+      replayable = false;
+      delegate.newReference(startOffset, endOffset);
+      return this;
+    }
+
+    @Override
+    public NewSymbol newReference(TextRange range) {
+      symbol.references.add(Range.of(range));
+      delegate.newReference(range);
+      return this;
+    }
+
+    @Override
+    public NewSymbol newReference(int startLine, int startLineOffset, int endLine, int endLineOffset) {
+      symbol.references.add(new Range(startLine, startLineOffset, endLine, endLineOffset));
+      delegate.newReference(startLine, startLineOffset, endLine, endLineOffset);
+      return this;
+    }
+  }
+
+  private class RecordingFileLinesContext implements FileLinesContext {
+    private final FileLinesContext delegate;
+
+    RecordingFileLinesContext(FileLinesContext delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void setIntValue(String metricKey, int line, int value) {
+      analysis.lineValues.add(new FileAnalysis.LineValue(metricKey, line, value, null));
+      delegate.setIntValue(metricKey, line, value);
+    }
+
+    @Override
+    public void setStringValue(String metricKey, int line, String value) {
+      analysis.lineValues.add(new FileAnalysis.LineValue(metricKey, line, null, value));
+      delegate.setStringValue(metricKey, line, value);
+    }
+
+    @Override
+    public void save() {
+      delegate.save();
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+/**
+ * Hash array mapped trie of long keys and int values. Each node consumes 5 bits of the hash of the keys, and stores in arrays
+ * the entries and the sub-tries of its populated slots, so that an update only copies the nodes on the path to the key.
+ * Keys are spread by a bijective hash: distinct keys never collide, and a trie is at most 13 levels deep.
+ */
+final class LongIntHamt implements PLongIntMap {
+
+  static final LongIntHamt EMPTY = new LongIntHamt(0, 0, new long[0], new int[0], new LongIntHamt[0]);
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  /**
+   * slots holding an entry
+   */
+  private final int dataMap;
+  /**
+   * slots holding a sub-trie
+   */
+  private final int nodeMap;
+  /**
+   * keys and values of the entries, in the order of their slots
+   */
+  private final long[] keys;
+  private final int[] values;
+  private final LongIntHamt[] nodes;
+
+  private LongIntHamt(int dataMap, int nodeMap, long[] keys, int[] values, LongIntHamt[] nodes) {
+    this.dataMap = dataMap;
+    this.nodeMap = nodeMap;
+    this.keys = keys;
+    this.values = values;
+    this.nodes = nodes;
+  }
+
+  @Override
+  public PLongIntMap put(long key, int value) {
+    return put(key, hash(key), value, 0);
+  }
+
+  @Override
+  public PLongIntMap remove(long key) {
+    return remove(key, hash(key), 0);
+  }
+
+  @Override
+  public int get(long key, int defaultValue) {
+    long hash = hash(key);
+    LongIntHamt node = this;
+    for (int shift = 0; ; shift += BITS) {
+      int bit = bit(hash, shift);
+      if ((node.dataMap & bit) != 0) {
+        int i = index(node.dataMap, bit);
+        return node.keys[i] == key ? node.values[i] : defaultValue;
+      }
+      if ((node.nodeMap & bit) == 0) {
+        return defaultValue;
+      }
+      node = node.nodes[index(node.nodeMap, bit)];
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return dataMap == 0 && nodeMap == 0;
+  }
+
+  private LongIntHamt put(long key, long hash, int value, int shift) {
+    int bit = bit(hash, shift);
+    if ((dataMap & bit) != 0) {
+      int i = index(dataMap, bit);
+      long existingKey = keys[i];
+      if (existingKey == key) {
+        if (values[i] == value) {
+          return this;
+        }
+        int[] newValues = values.clone();
+        newValues[i] = value;
+        return new LongIntHamt(dataMap, nodeMap, keys, newValues, nodes);
+      }
+      // both entries move to a new sub-trie
+      LongIntHamt node = pair(existingKey, hash(existingKey), values[i], key, hash, value, shift + BITS);
+      return new LongIntHamt(dataMap ^ bit, nodeMap | bit, removeKey(keys, i), removeValue(values, i), insertNode(nodes, index(nodeMap, bit), node));
+    }
+    if ((nodeMap & bit) != 0) {
+      int j = index(nodeMap, bit);
+      LongIntHamt node = nodes[j];
+      LongIntHamt newNode = node.put(key, hash, value, shift + BITS);
+      if (newNode == node) {
+        return this;
+      }
+      LongIntHamt[] newNodes = nodes.clone();
+      newNodes[j] = newNode;
+      return new LongIntHamt(dataMap, nodeMap, keys, values, newNodes);
+    }
+    int i = index(dataMap, bit);
+    return new LongIntHamt(dataMap | bit, nodeMap, insertKey(keys, i, key), insertValue(values, i, value), nodes);
+  }
+
+  private LongIntHamt remove(long key, long hash, int shift) {
+    int bit = bit(hash, shift);
+    if ((dataMap & bit) != 0) {
+      int i = index(dataMap, bit);
+      if (keys[i] != key) {
+        return this;
+      }
+      if (dataMap == bit && nodeMap == 0) {
+        return EMPTY;
+      }
+      return new LongIntHamt(dataMap ^ bit, nodeMap, removeKey(keys, i), removeValue(values, i), nodes);
+    }
+    if ((nodeMap & bit) != 0) {
+      int j = index(nodeMap, bit);
+      LongIntHamt node = nodes[j];
+      LongIntHamt newNode = node.remove(key, hash, shift + BITS);
+      if (newNode == node) {
+        return this;
+      }
+      if (newNode.nodeMap == 0 && Integer.bitCount(newNode.dataMap) == 1) {
+        // a sub-trie with a single entry is inlined, so that the shape of the trie only depends on its content
+        int i = index(dataMap, bit);
+        return new LongIntHamt(dataMap | bit, nodeMap ^ bit, insertKey(keys, i, newNode.keys[0]), insertValue(values, i, newNode.values[0]),
+          removeNode(nodes, j));
+      }
+      LongIntHamt[] newNodes = nodes.clone();
+      newNodes[j] = newNode;
+      return new LongIntHamt(dataMap, nodeMap, keys, values, newNodes);
+    }
+    return this;
+  }
+
+  private static LongIntHamt pair(long key1, long hash1, int value1, long key2, long hash2, int value2, int shift) {
+    int bit1 = bit(hash1, shift);
+    int bit2 = bit(hash2, shift);
+    if (bit1 == bit2) {
+      return new LongIntHamt(0, bit1, new long[0], new int[0], new LongIntHamt[] {pair(key1, hash1, value1, key2, hash2, value2, shift + BITS)});
+    }
+    return Integer.compareUnsigned(bit1, bit2) < 0
+      ? new LongIntHamt(bit1 | bit2, 0, new long[] {key1, key2}, new int[] {value1, value2}, new LongIntHamt[0])
+      : new LongIntHamt(bit1 | bit2, 0, new long[] {key2, key1}, new int[] {value2, value1}, new LongIntHamt[0]);
+  }
+
+  /**
+   * Finalization step of the 64 bits MurmurHash3: a bijection spreading all the bits of the key
+   */
+  private static long hash(long key) {
+    long h = key;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * The last level only consumes the 4 remaining bits of the hash, which is enough to tell apart two distinct hashes
+   */
+  private static int bit(long hash, int shift) {
+    return 1 << ((int) (hash >>> shift) & MASK);
+  }
+
+  private static int index(int bitmap, int bit) {
+    return Integer.bitCount(bitmap & (bit - 1));
+  }
+
+  private static long[] insertKey(long[] keys, int i, long key) {
+    long[] result = new long[keys.length + 1];
+    System.arraycopy(keys, 0, result, 0, i);
+    result[i] = key;
+    System.arraycopy(keys, i, result, i + 1, keys.length - i);
+    return result;
+  }
+
+  private static int[] insertValue(int[] values, int i, int value) {
+    int[] result = new int[values.length + 1];
+    System.arraycopy(values, 0, result, 0, i);
+    result[i] = value;
+    System.arraycopy(values, i, result, i + 1, values.length - i);
+    return result;
+  }
+
+  private static long[] removeKey(long[] keys, int i) {
+    long[] result = new long[keys.length - 1];
+    System.arraycopy(keys, 0, result, 0, i);
+    System.arraycopy(keys, i + 1, result, i, keys.length - i - 1);
+    return result;
+  }
+
+  private static int[] removeValue(int[] values, int i) {
+    int[] result = new int[values.length - 1];
+    System.arraycopy(values, 0, result, 0, i);
+    System.arraycopy(values, i + 1, result, i, values.length - i - 1);
+    return result;
+  }
+
+  private static LongIntHamt[] insertNode(LongIntHamt[] nodes, int j, LongIntHamt node) {
+    LongIntHamt[] result = new LongIntHamt[nodes.length + 1];
+    System.arraycopy(nodes, 0, result, 0, j);
+    result[j] = node;
+    System.arraycopy(nodes, j, result, j + 1, nodes.length - j);
+    return result;
+  }
+
+  private static LongIntHamt[] removeNode(LongIntHamt[] nodes, int j) {
+    LongIntHamt[] result = new LongIntHamt[nodes.length - 1];
+    System.arraycopy(nodes, 0, result, 0, j);
+    System.arraycopy(nodes, j + 1, result, j, nodes.length - j - 1);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    appendTo(sb);
+    if (sb.length() > 1) {
+      sb.setLength(sb.length() - 2);
+    }
+    return sb.append('}').toString();
+  }
+
+  private void appendTo(StringBuilder sb) {
+    for (int i = 0; i < keys.length; i++) {
+      sb.append(keys[i]).append('=').append(values[i]).append(", ");
+    }
+    for (LongIntHamt node : nodes) {
+      node.appendTo(sb);
+    }
+  }
+}
@@ -32,6 +32,10 @@ public final class PCollections {
     return AVLTree.create();
   }
 
+  public static PLongIntMap emptyLongIntMap() {
+    return LongIntHamt.EMPTY;
+  }
+
   public static <E> PStack<E> emptyStack() {
     return SinglyLinkedList.EMPTY;
   }
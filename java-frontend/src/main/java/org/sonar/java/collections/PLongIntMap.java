@@ -0,0 +1,57 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+/**
+ * Persistent (functional) Map from long keys to int values, without boxing.
+ *
+ * @see PMap
+ */
+public interface PLongIntMap {
+
+  /**
+   * @return new map with added key-value pair, or this if map already contains given key-value pair
+   */
+  PLongIntMap put(long key, int value);
+
+  /**
+   * @return new map with removed key, or this if map does not contain given key
+   */
+  PLongIntMap remove(long key);
+
+  /**
+   * @return value associated with given key, or defaultValue if not found
+   */
+  int get(long key, int defaultValue);
+
+  /**
+   * @return true if this map contains no elements
+   */
+  boolean isEmpty();
+
+  /**
+   * The string representation consists of a list of key-value mappings in an arbitrary, but stable, order.
+   *
+   * @return a string representation of this map
+   */
+  @Override
+  String toString();
+
+}
@@ -0,0 +1,236 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import javax.annotation.Nullable;
+import org.eclipse.jdt.internal.compiler.batch.ClasspathJar;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFormatException;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+import org.eclipse.jdt.internal.compiler.util.Util;
+
+/**
+ * Classpath entries shared by all the files parsed one by one with the same classpath.
+ * <p>
+ * Without it, ECJ opens every jar of the classpath, lists its entries and reads the class files it needs, for each file.
+ * Here, jars are opened and listed once, and class files are read once as long as they stay in a cache of bounded size,
+ * shared by all the jars, from which the least recently used class files are evicted.
+ * Directories and the JDK runtime are still given to ECJ as new entries for each file, like ECJ does.
+ * <p>
+ * Entries are thread-safe, the same index can be used to parse files concurrently.
+ */
+final class ClasspathIndex implements AutoCloseable {
+
+  static final long MAX_CACHED_CLASS_FILES_BYTES = 64L * 1024 * 1024;
+
+  private final List<String> classpath;
+  private final boolean includeRunningVMBootclasspath;
+  private final Map<String, SharedJar> jars = new HashMap<>();
+  private final ClassFileCache classFiles = new ClassFileCache(MAX_CACHED_CLASS_FILES_BYTES);
+
+  ClasspathIndex(List<File> classpath, boolean includeRunningVMBootclasspath) {
+    this.includeRunningVMBootclasspath = includeRunningVMBootclasspath;
+    this.classpath = new ArrayList<>();
+    for (File file : classpath) {
+      String path = file.getAbsolutePath();
+      this.classpath.add(path);
+      FileSystem.Classpath entry = FileSystem.getClasspath(path, null, null);
+      if (entry != null && entry.getClass() == ClasspathJar.class && file.isFile()) {
+        jars.computeIfAbsent(path, key -> new SharedJar(file, classFiles));
+      }
+    }
+  }
+
+  /**
+   * @return classpath entries to use to parse one file, in the order ECJ would use them
+   */
+  List<FileSystem.Classpath> entries() {
+    List<FileSystem.Classpath> entries = new ArrayList<>();
+    if (includeRunningVMBootclasspath) {
+      Util.collectRunningVMBootclasspath(entries);
+    }
+    for (String path : classpath) {
+      FileSystem.Classpath entry = jars.get(path);
+      if (entry == null) {
+        entry = FileSystem.getClasspath(path, null, null);
+      }
+      if (entry != null) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  int indexedJars() {
+    return jars.size();
+  }
+
+  @Override
+  public void close() {
+    jars.values().forEach(SharedJar::close);
+    classFiles.clear();
+  }
+
+  /**
+   * Content of class files, by jar and name, evicting the least recently used ones once the given size is exceeded
+   */
+  static final class ClassFileCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> contents = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    ClassFileCache(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    @Nullable
+    synchronized byte[] get(String key) {
+      return contents.get(key);
+    }
+
+    synchronized void put(String key, byte[] content) {
+      byte[] previous = contents.put(key, content);
+      if (previous != null) {
+        bytes -= weight(key, previous);
+      }
+      bytes += weight(key, content);
+      Iterator<Map.Entry<String, byte[]>> leastRecentlyUsed = contents.entrySet().iterator();
+      while (bytes > maxBytes && leastRecentlyUsed.hasNext()) {
+        Map.Entry<String, byte[]> entry = leastRecentlyUsed.next();
+        bytes -= weight(entry.getKey(), entry.getValue());
+        leastRecentlyUsed.remove();
+      }
+    }
+
+    /**
+     * Keys are counted as well, so that class files missing from a jar, cached without content, are bounded too
+     */
+    private static long weight(String key, byte[] content) {
+      return 2L * key.length() + content.length;
+    }
+
+    synchronized int size() {
+      return contents.size();
+    }
+
+    synchronized long bytes() {
+      return bytes;
+    }
+
+    synchronized void clear() {
+      contents.clear();
+      bytes = 0;
+    }
+  }
+
+  static final class SharedJar extends ClasspathJar {
+
+    private static final byte[] MISSING_CLASS_FILE = new byte[0];
+
+    private final ClassFileCache classFiles;
+    private final String path;
+
+    SharedJar(File file) {
+      this(file, new ClassFileCache(MAX_CACHED_CLASS_FILES_BYTES));
+    }
+
+    SharedJar(File file, ClassFileCache classFiles) {
+      super(file, false, null, null);
+      this.classFiles = classFiles;
+      this.path = file.getAbsolutePath();
+    }
+
+    @Override
+    public synchronized void initialize() throws IOException {
+      super.initialize();
+    }
+
+    @Override
+    public synchronized boolean isPackage(String qualifiedPackageName, @Nullable String moduleName) {
+      return super.isPackage(qualifiedPackageName, moduleName);
+    }
+
+    @Override
+    public NameEnvironmentAnswer findClass(char[] typeName, String qualifiedPackageName, @Nullable String moduleName, String qualifiedBinaryFileName,
+      boolean asBinaryOnly) {
+      if (!isPackage(qualifiedPackageName, moduleName)) {
+        return null;
+      }
+      String key = path + '!' + qualifiedBinaryFileName;
+      byte[] content = classFiles.get(key);
+      if (content == null) {
+        // read outside of the lock of the cache: a class file can be read twice by concurrent lookups, but lookups of other
+        // class files are not blocked
+        content = readClassFile(qualifiedBinaryFileName);
+        classFiles.put(key, content);
+      }
+      if (content == MISSING_CLASS_FILE) {
+        return null;
+      }
+      try {
+        // a new reader for each lookup, as readers are completed lazily by ECJ while resolving bindings
+        ClassFileReader reader = new ClassFileReader(content, qualifiedBinaryFileName.toCharArray());
+        if (reader.moduleName == null && getModule() != null) {
+          reader.moduleName = getModule().name();
+        }
+        return new NameEnvironmentAnswer(reader, fetchAccessRestriction(qualifiedBinaryFileName), reader.moduleName);
+      } catch (ClassFormatException e) {
+        // treat as if class file is missing
+        return null;
+      }
+    }
+
+    private byte[] readClassFile(String qualifiedBinaryFileName) {
+      ZipEntry entry = zipFile.getEntry(qualifiedBinaryFileName);
+      if (entry == null) {
+        return MISSING_CLASS_FILE;
+      }
+      try {
+        return Util.getZipEntryByteContent(entry, zipFile);
+      } catch (IOException e) {
+        return MISSING_CLASS_FILE;
+      }
+    }
+
+    /**
+     * Called by ECJ when an environment is cleaned up. The jar is kept open and indexed for next files.
+     */
+    @Override
+    public void reset() {
+      // see close()
+    }
+
+    synchronized void close() {
+      closeZipFileAtEnd = true;
+      super.reset();
+    }
+  }
+}
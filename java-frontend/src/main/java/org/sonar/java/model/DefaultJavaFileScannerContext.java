@@ -162,6 +162,11 @@ public class DefaultJavaFileScannerContext implements JavaFileScannerContext, Re
     return regexCache.getRegexForLiterals(initialFlags, stringLiterals);
   }
 
+  @Override
+  public <T> T regexAnalysis(RegexParseResult regex, Class<T> analysisType, Function<RegexParseResult, T> factory) {
+    return regexCache.getAnalysis(regex, analysisType, factory);
+  }
+
   @Override
   public void reportIssue(JavaCheck javaCheck, Tree syntaxNode, String message, List<Location> secondary, @Nullable Integer cost) {
     List<List<Location>> flows = secondary.stream().map(Collections::singletonList).collect(Collectors.toList());
@@ -191,7 +196,7 @@ public class DefaultJavaFileScannerContext implements JavaFileScannerContext, Re
   @Override
   public List<String> getFileLines() {
     if (lines == null) {
-      lines = Collections.unmodifiableList(sonarComponents.fileLines(inputFile));
+      lines = Collections.unmodifiableList(tree.source != null ? tree.source.lines() : sonarComponents.fileLines(inputFile));
     }
     return lines;
   }
@@ -199,7 +204,7 @@ public class DefaultJavaFileScannerContext implements JavaFileScannerContext, Re
   @Override
   public String getFileContent() {
     if (content == null) {
-      content = sonarComponents.inputFileContents(inputFile);
+      content = tree.source != null ? tree.source.text() : sonarComponents.inputFileContents(inputFile);
     }
     return content;
   }
@@ -24,7 +24,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +31,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -137,6 +137,8 @@ public class JParser {
 
   private static final Logger LOG = Loggers.get(JParser.class);
 
+  private static final Tree[] NO_CHILDREN = new Tree[0];
+
   private static final Predicate<IProblem> IS_SYNTAX_ERROR = error -> (error.getID() & IProblem.Syntax) != 0;
   private static final Predicate<IProblem> IS_UNDEFINED_TYPE_ERROR = error -> (error.getID() & IProblem.UndefinedType) != 0;
 
@@ -145,12 +147,16 @@ public class JParser {
    * @throws RecognitionException in case of syntax errors
    */
   public static JavaTree.CompilationUnitTreeImpl parse(ASTParser astParser, String version, String unitName, String source) {
+    SourceBuffer sourceBuffer = SourceBuffer.of(source);
     astParser.setUnitName(unitName);
-    astParser.setSource(source.toCharArray());
+    astParser.setSource(sourceBuffer.chars());
+    return parse(() -> (CompilationUnit) astParser.createAST(null), version, unitName, sourceBuffer);
+  }
 
+  static JavaTree.CompilationUnitTreeImpl parse(Supplier<CompilationUnit> astCreator, String version, String unitName, SourceBuffer source) {
     CompilationUnit astNode;
     try {
-      astNode = (CompilationUnit) astParser.createAST(null);
+      astNode = astCreator.get();
     } catch (Exception e) {
       LOG.error("ECJ: Unable to parse file", e);
       throw new RecognitionException(-1, "ECJ: Unable to parse file.", e);
@@ -159,7 +165,7 @@ public class JParser {
     return convert(version, unitName, source, astNode);
   }
 
-  static JavaTree.CompilationUnitTreeImpl convert(String version, String unitName, String source, CompilationUnit astNode) {
+  static JavaTree.CompilationUnitTreeImpl convert(String version, String unitName, SourceBuffer source, CompilationUnit astNode) {
     List<IProblem> errors = Stream.of(astNode.getProblems()).filter(IProblem::isError).collect(Collectors.toList());
     Optional<IProblem> possibleSyntaxError = errors.stream().filter(IS_SYNTAX_ERROR).findFirst();
     if (possibleSyntaxError.isPresent()) {
@@ -180,10 +186,11 @@ public class JParser {
     converter.sema = new JSema(astNode.getAST());
     converter.sema.undefinedTypes.addAll(undefinedTypes);
     converter.compilationUnit = astNode;
-    converter.tokenManager = new TokenManager(lex(version, unitName, source.toCharArray()), source, new DefaultCodeFormatterOptions(new HashMap<>()));
+    converter.tokenManager = new TokenManager(lex(version, unitName, source.chars()), source.text(), new DefaultCodeFormatterOptions(new HashMap<>()));
 
     JavaTree.CompilationUnitTreeImpl tree = converter.convertCompilationUnit(astNode);
     tree.sema = converter.sema;
+    tree.source = source;
     JWarning.Mapper.warningsFor(astNode).mappedInto(tree);
 
     ASTUtils.mayTolerateMissingType(astNode.getAST());
@@ -193,20 +200,18 @@ public class JParser {
   }
 
   private static void setParents(Tree node) {
-    Iterator<Tree> childrenIterator = iteratorFor(node);
-    while (childrenIterator.hasNext()) {
-      Tree child = childrenIterator.next();
+    for (Tree child : childrenOf(node)) {
       ((JavaTree) child).setParent(node);
       setParents(child);
     }
   }
 
-  private static Iterator<Tree> iteratorFor(Tree node) {
+  private static Tree[] childrenOf(Tree node) {
     if (node.kind() == Tree.Kind.INFERED_TYPE || node.kind() == Tree.Kind.TOKEN) {
-      // getChildren throws exception in this case
-      return Collections.emptyIterator();
+      // getChildrenArray throws exception in this case
+      return NO_CHILDREN;
     }
-    return ((JavaTree) node).getChildren().iterator();
+    return ((JavaTree) node).getChildrenArray();
   }
 
   private static List<Token> lex(String version, String unitName, char[] sourceChars) {
@@ -19,31 +19,55 @@
  */
 package org.sonar.java.model;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTUtils;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.FileASTRequestor;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.AnalysisException;
 import org.sonar.java.ExecutionTimeReport;
 import org.sonar.java.ProgressMonitor;
+import org.sonar.java.annotations.VisibleForTesting;
 import org.sonar.plugins.java.api.JavaVersion;
 import org.sonarsource.analyzer.commons.ProgressReport;
 import org.sonarsource.performance.measure.PerformanceMeasure;
@@ -56,6 +80,10 @@ public abstract class JParserConfig {
 
   private static final String MAXIMUM_ECJ_WARNINGS = "42000";
   private static final Set<String> JRE_JARS = new HashSet<>(Arrays.asList("rt.jar", "jrt-fs.jar", "android.jar"));
+  private static final Pattern PACKAGE_DECLARATION = Pattern.compile("^\\s*+package\\s++([\\w.\\s]++);", Pattern.MULTILINE);
+  private static final Pattern END_OF_HEADER = Pattern.compile(
+    "^\\s*+(import|public|protected|private|abstract|final|static|strictfp|sealed|class|interface|enum|record)\\b");
+  private static final int MAX_HEADER_LENGTH = 64 * 1024;
 
   final String javaVersion;
   final List<File> classpath;
@@ -82,6 +110,29 @@ public abstract class JParserConfig {
     }
   }
 
+  /**
+   * Parses files as a batch, giving at most {@code partitionSize} files at once to ECJ, to bound the memory used by
+   * the shared environment. A partition size lower than 1 means that all the files are parsed at once.
+   */
+  public static JParserConfig batch(String javaVersion, List<File> classpath, int partitionSize) {
+    return new Batch(javaVersion, classpath, partitionSize);
+  }
+
+  /**
+   * Parses files on the given number of threads. The action is called concurrently, from the thread which parsed the file.
+   */
+  public static JParserConfig parallel(String javaVersion, List<File> classpath, int threads) {
+    return new Parallel(javaVersion, classpath, threads);
+  }
+
+  /**
+   * Parses files one by one on the given number of threads, at most {@code queueSize} files ahead of their analysis. The action
+   * is called from the calling thread, in the order of the files, while the next files are being parsed.
+   */
+  public static JParserConfig pipelined(String javaVersion, List<File> classpath, int parserThreads, int queueSize) {
+    return new Pipelined(javaVersion, classpath, parserThreads, queueSize);
+  }
+
   public static class Result {
     private final Exception e;
     private final JavaTree.CompilationUnitTreeImpl t;
@@ -105,7 +156,43 @@ public abstract class JParserConfig {
   }
 
   public ASTParser astParser() {
+    return astParser(Collections.emptyMap());
+  }
+
+  /**
+   * @param sourcepath source directories, with their encoding, in which types not part of the parsed files are looked up
+   */
+  ASTParser astParser(Map<String, String> sourcepath) {
     ASTParser astParser = ASTParser.newParser(AST.JLS_Latest);
+    astParser.setCompilerOptions(compilerOptions());
+
+    astParser.setEnvironment(classpath.stream()
+      .map(File::getAbsolutePath)
+      .toArray(String[]::new),
+      sourcepath.keySet().toArray(new String[0]),
+      sourcepath.values().toArray(new String[0]),
+      includeRunningVMBootclasspath());
+
+    astParser.setResolveBindings(true);
+    astParser.setBindingsRecovery(true);
+
+    return astParser;
+  }
+
+  /**
+   * Classpath entries to reuse for all the files parsed one by one, instead of setting up a new environment for each file
+   */
+  ClasspathIndex classpathIndex() {
+    return new ClasspathIndex(classpath, includeRunningVMBootclasspath());
+  }
+
+  JavaTree.CompilationUnitTreeImpl parse(ClasspathIndex classpathIndex, InputFile inputFile, SourceBuffer source) {
+    String unitName = inputFile.filename();
+    Map<String, String> options = compilerOptions();
+    return JParser.parse(() -> ASTUtils.createAST(options, classpathIndex.entries(), unitName, source.chars()), javaVersion, unitName, source);
+  }
+
+  private Map<String, String> compilerOptions() {
     Map<String, String> options = new HashMap<>();
     options.put(JavaCore.COMPILER_COMPLIANCE, javaVersion);
     options.put(JavaCore.COMPILER_SOURCE, javaVersion);
@@ -116,32 +203,136 @@ public abstract class JParserConfig {
     // enabling all supported compiler warnings
     JWarning.Type.compilerOptions()
       .forEach(option -> options.put(option, "warning"));
+    return options;
+  }
 
-    astParser.setCompilerOptions(options);
-
-    boolean includeRunningVMBootclasspath = classpath.stream()
+  private boolean includeRunningVMBootclasspath() {
+    return classpath.stream()
       .noneMatch(f -> JRE_JARS.contains(f.getName()));
+  }
 
-    astParser.setEnvironment(classpath.stream()
-      .map(File::getAbsolutePath)
-      .toArray(String[]::new), new String[] {}, new String[] {}, includeRunningVMBootclasspath);
-
-    astParser.setResolveBindings(true);
-    astParser.setBindingsRecovery(true);
+  /**
+   * @return the directory in which the package of the file starts, or null if the file is not stored according to its package
+   */
+  @VisibleForTesting
+  @Nullable
+  static File sourceDirectory(InputFile inputFile) {
+    URI uri = inputFile.uri();
+    if (uri == null || !"file".equals(uri.getScheme())) {
+      return null;
+    }
+    String header;
+    try {
+      header = header(inputFile);
+    } catch (IOException e) {
+      return null;
+    }
+    Matcher matcher = PACKAGE_DECLARATION.matcher(header);
+    File directory = new File(uri).getParentFile();
+    if (matcher.find()) {
+      String[] packageNames = matcher.group(1).replaceAll("\\s", "").split("\\.");
+      for (int i = packageNames.length - 1; i >= 0 && directory != null; i--) {
+        if (!packageNames[i].equals(directory.getName())) {
+          return null;
+        }
+        directory = directory.getParentFile();
+      }
+    }
+    return directory;
+  }
 
-    return astParser;
+  /**
+   * @return the beginning of the file, up to its package declaration, or up to its first import or type declaration when it has
+   * none, so that the whole file is not read and decoded again before being parsed
+   */
+  private static String header(InputFile inputFile) throws IOException {
+    StringBuilder header = new StringBuilder();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputFile.inputStream(), inputFile.charset()))) {
+      String line;
+      while ((line = reader.readLine()) != null && header.length() < MAX_HEADER_LENGTH && !END_OF_HEADER.matcher(line).find()) {
+        header.append(line).append('\n');
+        if (line.indexOf(';') >= 0 && PACKAGE_DECLARATION.matcher(header).find()) {
+          break;
+        }
+      }
+    }
+    return header.toString();
   }
 
   private static class Batch extends JParserConfig {
 
+    /**
+     * Maximum number of files given to ECJ at once, 0 meaning that all the files are parsed together.
+     */
+    private final int partitionSize;
+
     private Batch(String javaVersion, List<File> classpath) {
+      this(javaVersion, classpath, 0);
+    }
+
+    private Batch(String javaVersion, List<File> classpath, int partitionSize) {
       super(javaVersion, classpath);
+      this.partitionSize = partitionSize;
     }
 
     @Override
     public void parse(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action) {
-      LOG.info("Using ECJ batch to parse source files.");
+      List<List<InputFile>> partitions = partition(inputFiles);
+      if (partitions.size() > 1) {
+        LOG.info(String.format("Using ECJ batch to parse source files, in %d partitions of at most %d files.", partitions.size(), partitionSize));
+      } else {
+        LOG.info("Using ECJ batch to parse source files.");
+      }
 
+      PerformanceMeasure.Duration batchPerformance = PerformanceMeasure.start("ParseAsBatch");
+      ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
+      ProgressMonitor monitor = new ProgressMonitor(isCanceled);
+      monitor.setTasks(partitions.size());
+
+      try {
+        // types declared in other partitions are resolved from their sources
+        Map<String, String> sourcepath = partitions.size() > 1 ? sourceDirectories(partitions) : Collections.emptyMap();
+        for (List<InputFile> partition : partitions) {
+          parsePartition(partition, sourcepath, monitor, executionTimeReport, action);
+        }
+      } finally {
+        // ExecutionTimeReport will not include the parsing time by file when using batch mode.
+        executionTimeReport.reportAsBatch();
+        batchPerformance.stop();
+        monitor.done();
+      }
+    }
+
+    /**
+     * Files of a same package, then of neighbour packages, are kept in the same partition,
+     * as they are the most likely to depend on each other and so to share bindings.
+     */
+    private List<List<InputFile>> partition(Iterable<? extends InputFile> inputFiles) {
+      List<InputFile> files = StreamSupport.stream(inputFiles.spliterator(), false).collect(Collectors.toList());
+      if (partitionSize <= 0 || files.size() <= partitionSize) {
+        return Collections.singletonList(files);
+      }
+      files.sort(Comparator.comparing(InputFile::uri));
+      List<List<InputFile>> partitions = new ArrayList<>();
+      for (int i = 0; i < files.size(); i += partitionSize) {
+        partitions.add(files.subList(i, Math.min(i + partitionSize, files.size())));
+      }
+      return partitions;
+    }
+
+    private static Map<String, String> sourceDirectories(List<List<InputFile>> partitions) {
+      Map<String, String> sourceDirectories = new LinkedHashMap<>();
+      partitions.stream().flatMap(List::stream).forEach(inputFile -> {
+        File sourceDirectory = sourceDirectory(inputFile);
+        if (sourceDirectory != null) {
+          sourceDirectories.putIfAbsent(sourceDirectory.getAbsolutePath(), inputFile.charset().name());
+        }
+      });
+      return sourceDirectories;
+    }
+
+    private void parsePartition(List<InputFile> inputFiles, Map<String, String> sourcepath, ProgressMonitor monitor,
+      ExecutionTimeReport executionTimeReport, BiConsumer<InputFile, Result> action) {
       List<String> sourceFilePaths = new ArrayList<>();
       List<String> encodings = new ArrayList<>();
       Map<File, InputFile> inputs = new HashMap<>();
@@ -152,12 +343,11 @@ public abstract class JParserConfig {
         encodings.add(inputFile.charset().name());
       }
 
-      PerformanceMeasure.Duration batchPerformance = PerformanceMeasure.start("ParseAsBatch");
-      ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
-      ProgressMonitor monitor = new ProgressMonitor(isCanceled);
-
+      // the environment used for semantic resolution is shared by all the files of the partition: one semantic model is enough
+      // to clean it up, without keeping the trees of the partition reachable once they have been analyzed
+      JSema[] partitionSema = new JSema[1];
       try {
-        astParser().createASTs(sourceFilePaths.toArray(new String[0]), encodings.toArray(new String[0]), new String[0], new FileASTRequestor() {
+        astParser(sourcepath).createASTs(sourceFilePaths.toArray(new String[0]), encodings.toArray(new String[0]), new String[0], new FileASTRequestor() {
           @Override
           public void acceptAST(String sourceFilePath, CompilationUnit ast) {
             PerformanceMeasure.Duration convertDuration = PerformanceMeasure.start("Convert");
@@ -165,8 +355,14 @@ public abstract class JParserConfig {
             InputFile inputFile = inputs.get(new File(sourceFilePath));
             executionTimeReport.start(inputFile);
             Result result;
+            SourceBuffer source = null;
             try {
-              result = new Result(JParser.convert(javaVersion, inputFile.filename(), inputFile.contents(), ast));
+              source = SourceBuffer.of(inputFile);
+              JavaTree.CompilationUnitTreeImpl tree = JParser.convert(javaVersion, inputFile.filename(), source, ast);
+              if (partitionSema[0] == null) {
+                partitionSema[0] = tree.sema;
+              }
+              result = new Result(tree);
             } catch (Exception e) {
               result = new Result(e);
             }
@@ -174,15 +370,14 @@ public abstract class JParserConfig {
             PerformanceMeasure.Duration analyzeDuration = PerformanceMeasure.start("Analyze");
             action.accept(inputFile, result);
 
-            executionTimeReport.end();
+            executionTimeReport.end(source);
             analyzeDuration.stop();
           }
         }, monitor);
       } finally {
-        // ExecutionTimeReport will not include the parsing time by file when using batch mode.
-        executionTimeReport.reportAsBatch();
-        batchPerformance.stop();
-        monitor.done();
+        if (partitionSema[0] != null) {
+          partitionSema[0].cleanupEnvironment();
+        }
       }
     }
   }
@@ -204,6 +399,7 @@ public abstract class JParserConfig {
         .map(InputFile::toString)
         .collect(Collectors.toList());
       progressReport.start(filesNames);
+      ClasspathIndex classpathIndex = classpathIndex();
       try {
         for (InputFile inputFile : inputFiles) {
           if (isCanceled.getAsBoolean()) {
@@ -213,9 +409,11 @@ public abstract class JParserConfig {
           executionTimeReport.start(inputFile);
 
           Result result;
+          SourceBuffer source = null;
           PerformanceMeasure.Duration parseDuration = PerformanceMeasure.start("JParser");
           try {
-            result = new Result(JParser.parse(astParser(), javaVersion, inputFile.filename(), inputFile.contents()));
+            source = SourceBuffer.of(inputFile);
+            result = new Result(parse(classpathIndex, inputFile, source));
           } catch (Exception e) {
             result = new Result(e);
           } finally {
@@ -224,11 +422,12 @@ public abstract class JParserConfig {
 
           action.accept(inputFile, result);
 
-          executionTimeReport.end();
+          executionTimeReport.end(source);
           progressReport.nextFile();
         }
         successfullyCompleted = !cancelled;
       } finally {
+        classpathIndex.close();
         if (successfullyCompleted) {
           progressReport.stop();
         } else {
@@ -239,6 +438,226 @@ public abstract class JParserConfig {
     }
   }
 
+  private static class Parallel extends JParserConfig {
+
+    private final int threads;
+
+    private Parallel(String javaVersion, List<File> classpath, int threads) {
+      super(javaVersion, classpath);
+      this.threads = threads;
+    }
+
+    @Override
+    public void parse(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action) {
+      LOG.info(String.format("Using %d threads to analyze source files.", threads));
+      boolean successfullyCompleted = false;
+      AtomicBoolean cancelled = new AtomicBoolean(false);
+
+      ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
+      ProgressReport progressReport = new ProgressReport("Report about progress of Java AST analyzer", TimeUnit.SECONDS.toMillis(10));
+      List<InputFile> files = StreamSupport.stream(inputFiles.spliterator(), false).collect(Collectors.toList());
+      progressReport.start(files.stream().map(InputFile::toString).collect(Collectors.toList()));
+
+      ClasspathIndex classpathIndex = classpathIndex();
+      ExecutorService executor = Executors.newFixedThreadPool(threads, new WorkerThreadFactory("Java AST analyzer worker "));
+      try {
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+        for (InputFile inputFile : files) {
+          completionService.submit(() -> {
+            if (cancelled.get() || isCanceled.getAsBoolean()) {
+              cancelled.set(true);
+              return null;
+            }
+            executionTimeReport.start(inputFile);
+
+            Result result;
+            SourceBuffer source = null;
+            try {
+              source = SourceBuffer.of(inputFile);
+              result = new Result(parse(classpathIndex, inputFile, source));
+            } catch (Exception e) {
+              result = new Result(e);
+            }
+
+            action.accept(inputFile, result);
+
+            executionTimeReport.end(source);
+            synchronized (progressReport) {
+              progressReport.nextFile();
+            }
+            return null;
+          });
+        }
+        for (int i = 0; i < files.size(); i++) {
+          waitFor(completionService);
+        }
+        successfullyCompleted = !cancelled.get();
+      } finally {
+        shutdown(executor);
+        classpathIndex.close();
+        if (successfullyCompleted) {
+          progressReport.stop();
+        } else {
+          progressReport.cancel();
+        }
+        executionTimeReport.reportInParallel();
+      }
+    }
+
+    private static void waitFor(CompletionService<Void> completionService) {
+      try {
+        completionService.take().get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AnalysisException("Analysis cancelled", e);
+      } catch (ExecutionException e) {
+        throw rethrow(e);
+      }
+    }
+  }
+
+  private static class Pipelined extends JParserConfig {
+
+    private final int parserThreads;
+    private final int queueSize;
+
+    private Pipelined(String javaVersion, List<File> classpath, int parserThreads, int queueSize) {
+      super(javaVersion, classpath);
+      this.parserThreads = parserThreads;
+      this.queueSize = queueSize;
+    }
+
+    @Override
+    public void parse(Iterable<? extends InputFile> inputFiles, BooleanSupplier isCanceled, BiConsumer<InputFile, Result> action) {
+      LOG.info(String.format("Using %d threads to parse source files, at most %d files ahead of their analysis.", parserThreads, queueSize));
+      boolean successfullyCompleted = false;
+      boolean cancelled = false;
+
+      ExecutionTimeReport executionTimeReport = new ExecutionTimeReport();
+      ProgressReport progressReport = new ProgressReport("Report about progress of Java AST analyzer", TimeUnit.SECONDS.toMillis(10));
+      List<InputFile> files = StreamSupport.stream(inputFiles.spliterator(), false).collect(Collectors.toList());
+      progressReport.start(files.stream().map(InputFile::toString).collect(Collectors.toList()));
+
+      ClasspathIndex classpathIndex = classpathIndex();
+      ExecutorService executor = Executors.newFixedThreadPool(parserThreads, new WorkerThreadFactory("Java AST parser worker "));
+      // files being parsed, or parsed and waiting for their analysis: bounds the number of trees kept in memory
+      Deque<Future<ParsedFile>> parsedFiles = new ArrayDeque<>(queueSize);
+      Iterator<InputFile> filesToParse = files.iterator();
+      try {
+        fill(parsedFiles, filesToParse, executor, classpathIndex);
+        while (!parsedFiles.isEmpty()) {
+          if (isCanceled.getAsBoolean()) {
+            cancelled = true;
+            break;
+          }
+          ParsedFile parsedFile = waitFor(parsedFiles.poll());
+          fill(parsedFiles, filesToParse, executor, classpathIndex);
+
+          executionTimeReport.start(parsedFile.inputFile);
+          action.accept(parsedFile.inputFile, parsedFile.result);
+          executionTimeReport.end(parsedFile.source);
+          progressReport.nextFile();
+        }
+        successfullyCompleted = !cancelled;
+      } finally {
+        shutdown(executor);
+        classpathIndex.close();
+        if (successfullyCompleted) {
+          progressReport.stop();
+        } else {
+          progressReport.cancel();
+        }
+        executionTimeReport.report();
+      }
+    }
+
+    private void fill(Deque<Future<ParsedFile>> parsedFiles, Iterator<InputFile> filesToParse, ExecutorService executor, ClasspathIndex classpathIndex) {
+      while (parsedFiles.size() < queueSize && filesToParse.hasNext()) {
+        InputFile inputFile = filesToParse.next();
+        parsedFiles.add(executor.submit(() -> parseFile(classpathIndex, inputFile)));
+      }
+    }
+
+    private ParsedFile parseFile(ClasspathIndex classpathIndex, InputFile inputFile) {
+      SourceBuffer source = null;
+      Result result;
+      try {
+        source = SourceBuffer.of(inputFile);
+        result = new Result(parse(classpathIndex, inputFile, source));
+      } catch (Exception e) {
+        result = new Result(e);
+      }
+      return new ParsedFile(inputFile, source, result);
+    }
+
+    private static ParsedFile waitFor(Future<ParsedFile> parsedFile) {
+      try {
+        return parsedFile.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AnalysisException("Analysis cancelled", e);
+      } catch (ExecutionException e) {
+        throw rethrow(e);
+      }
+    }
+
+    private static class ParsedFile {
+      private final InputFile inputFile;
+      @Nullable
+      private final SourceBuffer source;
+      private final Result result;
+
+      private ParsedFile(InputFile inputFile, @Nullable SourceBuffer source, Result result) {
+        this.inputFile = inputFile;
+        this.source = source;
+        this.result = result;
+      }
+    }
+  }
+
+  /**
+   * @return what would have been thrown when parsing and analyzing files one by one on the calling thread
+   */
+  private static RuntimeException rethrow(ExecutionException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new AnalysisException("Unable to analyze source files", cause);
+  }
+
+  private static void shutdown(ExecutorService executor) {
+    executor.shutdownNow();
+    try {
+      // workers still running must not report anything once the analysis is over
+      while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+        LOG.debug("Waiting for analysis of source files to be interrupted.");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static class WorkerThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final AtomicInteger count = new AtomicInteger();
+
+    private WorkerThreadFactory(String namePrefix) {
+      this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable);
+      thread.setName(namePrefix + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
   public static String effectiveJavaVersion(@Nullable JavaVersion javaVersion) {
     if (javaVersion == null || javaVersion.isNotSet()) {
       return JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION;
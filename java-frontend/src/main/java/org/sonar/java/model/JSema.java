@@ -153,4 +153,58 @@ public final class JSema implements Sema {
   public Set<String> undefinedTypes() {
     return Collections.unmodifiableSet(undefinedTypes);
   }
+
+  /**
+   * @return binary names, using '/' as package separator, of the types declared or used by the compilation unit,
+   * along with their supertypes
+   */
+  public Set<String> referencedTypes() {
+    Set<String> result = new HashSet<>();
+    Set<ITypeBinding> visited = new HashSet<>();
+    declarations.keySet().forEach(binding -> collectReferencedTypes(binding, visited, result));
+    usages.keySet().forEach(binding -> collectReferencedTypes(binding, visited, result));
+    return result;
+  }
+
+  private static void collectReferencedTypes(IBinding binding, Set<ITypeBinding> visited, Set<String> result) {
+    switch (binding.getKind()) {
+      case IBinding.TYPE:
+        collectReferencedTypes((ITypeBinding) binding, visited, result);
+        break;
+      case IBinding.METHOD:
+        IMethodBinding methodBinding = (IMethodBinding) binding;
+        collectReferencedTypes(methodBinding.getDeclaringClass(), visited, result);
+        collectReferencedTypes(methodBinding.getReturnType(), visited, result);
+        for (ITypeBinding parameterType : methodBinding.getParameterTypes()) {
+          collectReferencedTypes(parameterType, visited, result);
+        }
+        break;
+      case IBinding.VARIABLE:
+        IVariableBinding variableBinding = (IVariableBinding) binding;
+        collectReferencedTypes(variableBinding.getDeclaringClass(), visited, result);
+        collectReferencedTypes(variableBinding.getType(), visited, result);
+        break;
+      default:
+        // packages, modules and annotations do not depend on types
+        break;
+    }
+  }
+
+  private static void collectReferencedTypes(@Nullable ITypeBinding typeBinding, Set<ITypeBinding> visited, Set<String> result) {
+    if (typeBinding == null) {
+      return;
+    }
+    ITypeBinding erasure = typeBinding.isArray() ? typeBinding.getElementType().getErasure() : typeBinding.getErasure();
+    if (erasure.isPrimitive() || erasure.isNullType() || erasure.isRecovered() || !visited.add(erasure)) {
+      return;
+    }
+    String binaryName = erasure.getBinaryName();
+    if (binaryName != null) {
+      result.add(binaryName.replace('.', '/'));
+    }
+    collectReferencedTypes(erasure.getSuperclass(), visited, result);
+    for (ITypeBinding superInterface : erasure.getInterfaces()) {
+      collectReferencedTypes(superInterface, visited, result);
+    }
+  }
 }
@@ -29,7 +29,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.IMethodBinding;
@@ -71,13 +70,15 @@ public abstract class JavaTree implements Tree {
   @Nullable
   private Tree parent;
 
-  private List<Tree> children;
+  private static final Tree[] NO_CHILDREN = new Tree[0];
 
+  @Nullable
+  private Tree[] children;
 
   @Override
   @Nullable
   public SyntaxToken firstToken() {
-    for (Tree child : getChildren()) {
+    for (Tree child : getChildrenArray()) {
       SyntaxToken first = child.firstToken();
       if (first != null) {
         return first;
@@ -89,9 +90,9 @@ public abstract class JavaTree implements Tree {
   @Override
   @Nullable
   public SyntaxToken lastToken() {
-    List<Tree> trees = getChildren();
-    for (int index = trees.size() - 1; index >= 0; index--) {
-      SyntaxToken last = trees.get(index).lastToken();
+    Tree[] trees = getChildrenArray();
+    for (int index = trees.length - 1; index >= 0; index--) {
+      SyntaxToken last = trees[index].lastToken();
       if (last != null) {
         return last;
       }
@@ -137,10 +138,31 @@ public abstract class JavaTree implements Tree {
   protected abstract List<Tree> children();
 
   public List<Tree> getChildren() {
-    if(children == null) {
-      children = children().stream()
-        .filter(Objects::nonNull)
-        .collect(Collectors.toList());
+    return Arrays.asList(getChildrenArray());
+  }
+
+  /**
+   * Children of this node, without {@code null} elements, computed once and kept as an array rather than as a list.
+   * The returned array is shared and must not be modified.
+   *
+   * @throws java.lang.UnsupportedOperationException if {@link #isLeaf()} returns {@code true}
+   */
+  public Tree[] getChildrenArray() {
+    if (children == null) {
+      List<Tree> trees = children();
+      Tree[] nonNullTrees = new Tree[trees.size()];
+      int size = 0;
+      for (Tree tree : trees) {
+        if (tree != null) {
+          nonNullTrees[size] = tree;
+          size++;
+        }
+      }
+      if (size == 0) {
+        children = NO_CHILDREN;
+      } else {
+        children = size == nonNullTrees.length ? nonNullTrees : Arrays.copyOf(nonNullTrees, size);
+      }
     }
     return children;
   }
@@ -158,6 +180,8 @@ public abstract class JavaTree implements Tree {
     private final ModuleDeclarationTree moduleDeclaration;
     private final SyntaxToken eofToken;
     public JSema sema;
+    @Nullable
+    public SourceBuffer source;
 
     private final Map<JWarning.Type, Set<JWarning>> warnings = new EnumMap<>(JWarning.Type.class);
 
@@ -0,0 +1,142 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+
+/**
+ * Content of a source file, decoded once into a single array of characters given as is to the parser and the lexer.
+ * Large files are decoded straight from a memory-mapped view of the file into this array, instead of being read in memory
+ * and decoded into a string first.
+ * <p>
+ * The text of the file, needed by the token manager and the checks reading the file, is built once from these characters,
+ * unless the file was already read as a string.
+ */
+public final class SourceBuffer {
+
+  static final long MAPPED_FILE_MIN_SIZE = 1024L * 1024L;
+
+  private static final Pattern LINE_BREAK_PATTERN = Pattern.compile("\r\n|[\n\r]");
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  private final char[] chars;
+  @Nullable
+  private String text;
+
+  private SourceBuffer(char[] chars, @Nullable String text) {
+    this.chars = chars;
+    this.text = text;
+  }
+
+  public static SourceBuffer of(String text) {
+    return new SourceBuffer(text.toCharArray(), text);
+  }
+
+  public static SourceBuffer of(InputFile inputFile) throws IOException {
+    Path path = localPath(inputFile);
+    if (path != null && Files.size(path) >= MAPPED_FILE_MIN_SIZE) {
+      return new SourceBuffer(decodeMapped(path, inputFile.charset()), null);
+    }
+    return of(inputFile.contents());
+  }
+
+  /**
+   * @return the characters of the source, shared by the parser and the lexer, which must not modify them
+   */
+  public char[] chars() {
+    return chars;
+  }
+
+  public String text() {
+    if (text == null) {
+      text = new String(chars);
+    }
+    return text;
+  }
+
+  public int length() {
+    return chars.length;
+  }
+
+  /**
+   * Lines of the source, split the way the file was split by {@link Scanner} when it was read again for each check.
+   * As when reading the input stream of an input file, the byte order mark is not part of the first line.
+   */
+  public List<String> lines() {
+    List<String> lines = new ArrayList<>();
+    try (Scanner scanner = new Scanner(text())) {
+      scanner.useDelimiter(LINE_BREAK_PATTERN);
+      while (scanner.hasNext()) {
+        lines.add(scanner.next());
+      }
+    }
+    return lines;
+  }
+
+  @CheckForNull
+  private static Path localPath(InputFile inputFile) {
+    URI uri = inputFile.uri();
+    if (uri == null || !"file".equals(uri.getScheme())) {
+      return null;
+    }
+    Path path = Paths.get(uri);
+    return Files.isRegularFile(path) ? path : null;
+  }
+
+  private static char[] decodeMapped(Path path, Charset charset) throws IOException {
+    CharBuffer decoded;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      decoded = charset.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        .decode(bytes);
+    }
+    int start = decoded.position();
+    if (decoded.hasRemaining() && decoded.get(start) == BYTE_ORDER_MARK) {
+      // as for the contents of input files, the byte order mark is not part of the source
+      start++;
+    }
+    char[] decodedChars = decoded.array();
+    if (start == 0 && decoded.limit() == decodedChars.length) {
+      return decodedChars;
+    }
+    // the decoder sizes its buffer from an estimate of the number of characters
+    return Arrays.copyOfRange(decodedChars, start, decoded.limit());
+  }
+}
@@ -19,7 +19,6 @@
  */
 package org.sonar.java.model;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.BiPredicate;
@@ -116,16 +115,17 @@ public final class SyntacticEquivalence {
     } else if (leftNode.isLeaf()) {
       return areLeafsEquivalent(leftNode, rightNode);
     }
-    Iterator<Tree> iteratorA = leftNode.getChildren().iterator();
-    Iterator<Tree> iteratorB = rightNode.getChildren().iterator();
-
-    while (iteratorA.hasNext() && iteratorB.hasNext()) {
-      if (!areEquivalent(iteratorA.next(), iteratorB.next(), overWriteEquivalence, equivalenceValue)) {
+    Tree[] childrenA = leftNode.getChildrenArray();
+    Tree[] childrenB = rightNode.getChildrenArray();
+    if (childrenA.length != childrenB.length) {
+      return false;
+    }
+    for (int i = 0; i < childrenA.length; i++) {
+      if (!areEquivalent(childrenA[i], childrenB[i], overWriteEquivalence, equivalenceValue)) {
         return false;
       }
     }
-
-    return !iteratorA.hasNext() && !iteratorB.hasNext();
+    return true;
   }
 
   /**
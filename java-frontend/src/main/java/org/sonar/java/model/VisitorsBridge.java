@@ -23,10 +23,12 @@ import com.sonar.sslr.api.RecognitionException;
 import java.io.File;
 import java.io.InterruptedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.EnumMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
@@ -41,6 +43,7 @@ import org.sonar.java.EndOfAnalysisCheck;
 import org.sonar.java.ExceptionHandler;
 import org.sonar.java.IllegalRuleParameterException;
 import org.sonar.java.JavaVersionAwareVisitor;
+import org.sonar.java.RuleCostReport;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.annotations.VisibleForTesting;
 import org.sonar.java.ast.visitors.SonarSymbolTableVisitor;
@@ -53,20 +56,37 @@ import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaVersion;
 import org.sonar.plugins.java.api.tree.CompilationUnitTree;
 import org.sonar.plugins.java.api.tree.SyntaxToken;
+import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
-import org.sonar.plugins.java.api.tree.Tree.Kind;
 import org.sonarsource.performance.measure.PerformanceMeasure;
 
 public class VisitorsBridge {
 
   private static final Logger LOG = Loggers.get(VisitorsBridge.class);
 
+  /**
+   * Subscription visitors are only measured on one visited node out of this period, and on one of their setContext and leaveFile
+   * calls out of this period, as starting a measure for each call would cost more than most of the visits. Sampling is disabled
+   * when the performance measure is activated ("sonar.java.performance.measure"), as its durations are not scaled and would
+   * otherwise be this period times too low.
+   */
+  private static final int MEASURED_NODES_SAMPLING_PERIOD = 1024;
+  private static final SubscriptionVisitor[] NO_VISITORS = new SubscriptionVisitor[0];
+  private static final RuleCostReport.FileCost[] NO_VISITOR_COSTS = new RuleCostReport.FileCost[0];
+  private static final int TOKEN_ORDINAL = Tree.Kind.TOKEN.ordinal();
+  private static final int TRIVIA_ORDINAL = Tree.Kind.TRIVIA.ordinal();
+
   private final Iterable<? extends JavaCheck> visitors;
   private final List<JavaFileScanner> scanners;
   private final SonarComponents sonarComponents;
+  private final int measuredNodesSamplingPeriod;
   protected InputFile currentFile;
   protected JavaVersion javaVersion;
   private final List<File> classpath;
+  @Nullable
+  private RuleCostReport ruleCostReport;
+  // cost of the scanners on the current file, by scanner, empty when the rule cost report is disabled
+  private final Map<JavaFileScanner, RuleCostReport.FileCost> scannerCosts = new IdentityHashMap<>();
 
   @VisibleForTesting
   public VisitorsBridge(JavaFileScanner visitor) {
@@ -78,11 +98,13 @@ public class VisitorsBridge {
     this.scanners = new ArrayList<>();
     this.classpath = projectClasspath;
     this.sonarComponents = sonarComponents;
+    this.measuredNodesSamplingPeriod = sonarComponents != null && sonarComponents.isPerformanceMeasureEnabled() ? 1 : MEASURED_NODES_SAMPLING_PERIOD;
     updateScanners();
   }
 
   private void updateScanners() {
     scanners.clear();
+    scannerCosts.clear();
     IssuableSubscriptionVisitorsRunner subscriptionVisitorsRunner = null;
     for (Object visitor : visitors) {
       if (javaVersion != null && visitor instanceof JavaVersionAwareVisitor && !((JavaVersionAwareVisitor) visitor).isCompatibleWithJavaVersion(javaVersion)) {
@@ -94,7 +116,11 @@ public class VisitorsBridge {
         }
         subscriptionVisitorsRunner.add((IssuableSubscriptionVisitor) visitor);
       } else if (visitor instanceof JavaFileScanner) {
-        scanners.add((JavaFileScanner) visitor);
+        JavaFileScanner scanner = (JavaFileScanner) visitor;
+        scanners.add(scanner);
+        if (ruleCostReport != null) {
+          scannerCosts.put(scanner, ruleCostReport.newFileCost(costKey(scanner)));
+        }
       }
     }
   }
@@ -112,6 +138,14 @@ public class VisitorsBridge {
     updateScanners();
   }
 
+  /**
+   * @param ruleCostReport report in which the cost of each visitor is recorded, or null to not measure it
+   */
+  public void setRuleCostReport(@Nullable RuleCostReport ruleCostReport) {
+    this.ruleCostReport = ruleCostReport;
+    updateScanners();
+  }
+
   public void visitFile(@Nullable Tree parsedTree) {
     PerformanceMeasure.Duration compilationUnitDuration = PerformanceMeasure.start("CompilationUnit");
     JavaTree.CompilationUnitTreeImpl tree = new JavaTree.CompilationUnitTreeImpl(null, new ArrayList<>(), new ArrayList<>(), null, null);
@@ -130,11 +164,19 @@ public class VisitorsBridge {
     PerformanceMeasure.Duration scannersDuration = PerformanceMeasure.start("Scanners");
     for (JavaFileScanner scanner : scanners) {
       PerformanceMeasure.Duration scannerDuration = PerformanceMeasure.start(scanner);
+      RuleCostReport.FileCost scannerCost = scannerCosts.get(scanner);
+      if (scannerCost != null) {
+        scannerCost.start();
+      }
       try {
         runScanner(javaFileScannerContext, scanner);
       } catch (CheckFailureException e) {
         interruptIfFailFast(e);
       } finally {
+        if (scannerCost != null) {
+          scannerCost.stop();
+          scannerCost.flush(String.valueOf(currentFile));
+        }
         scannerDuration.stop();
       }
     }
@@ -154,26 +196,31 @@ public class VisitorsBridge {
   private void runScanner(Runnable action, JavaFileScanner scanner) throws CheckFailureException {
     try {
       action.run();
-    } catch (IllegalRuleParameterException e) {
+    } catch (RuntimeException e) {
+      throw checkFailure(e, scanner);
+    }
+  }
+
+  private CheckFailureException checkFailure(RuntimeException e, JavaFileScanner scanner) {
+    if (e instanceof IllegalRuleParameterException) {
       // bad configuration of a rule parameter, we want to fail analysis fast.
       throw new AnalysisException("Bad configuration of rule parameter", e);
-    } catch (Exception e) {
-      Throwable rootCause = ThrowableUtils.getRootCause(e);
-      if (rootCause instanceof InterruptedIOException
-        || rootCause instanceof InterruptedException
-        || rootCause instanceof CancellationException
-        || analysisCancelled()) {
-        throw e;
-      }
+    }
+    Throwable rootCause = ThrowableUtils.getRootCause(e);
+    if (rootCause instanceof InterruptedIOException
+      || rootCause instanceof InterruptedException
+      || rootCause instanceof CancellationException
+      || analysisCancelled()) {
+      throw e;
+    }
 
-      String message = String.format(
-        "Unable to run check %s - %s on file '%s', To help improve the SonarSource Java Analyzer, please report this problem to SonarSource: see https://community.sonarsource.com/",
-        scanner.getClass(), ruleKey(scanner), currentFile);
+    String message = String.format(
+      "Unable to run check %s - %s on file '%s', To help improve the SonarSource Java Analyzer, please report this problem to SonarSource: see https://community.sonarsource.com/",
+      scanner.getClass(), ruleKey(scanner), currentFile);
 
-      LOG.error(message, e);
+    LOG.error(message, e);
 
-      throw new CheckFailureException(message, e);
-    }
+    return new CheckFailureException(message, e);
   }
 
   private boolean analysisCancelled() {
@@ -188,6 +235,14 @@ public class VisitorsBridge {
     return "";
   }
 
+  /**
+   * Key under which the cost of a visitor is reported: its rule key, or its class name for visitors which are not rules
+   */
+  private static String costKey(JavaFileScanner scanner) {
+    String ruleKey = ruleKey(scanner);
+    return ruleKey.isEmpty() ? scanner.getClass().getName() : ruleKey;
+  }
+
   protected JavaFileScannerContext createScannerContext(
     CompilationUnitTree tree, @Nullable Sema semanticModel, SonarComponents sonarComponents, boolean fileParsed) {
     return new DefaultJavaFileScannerContext(
@@ -199,7 +254,7 @@ public class VisitorsBridge {
       fileParsed);
   }
 
-  private void createSonarSymbolTable(CompilationUnitTree tree) {
+  protected void createSonarSymbolTable(CompilationUnitTree tree) {
     if (sonarComponents != null
       && !sonarComponents.isSonarLintContext()
       // don't provide semantic data (symbol highlighting) to SQ for generated files (jsp)
@@ -230,18 +285,47 @@ public class VisitorsBridge {
   }
 
   private class IssuableSubscriptionVisitorsRunner implements JavaFileScanner, EndOfAnalysisCheck {
-    private EnumMap<Tree.Kind, List<SubscriptionVisitor>> checks;
-    private List<SubscriptionVisitor> subscriptionVisitors;
+    private final SubscriptionVisitor[][] visitorsByKind;
+    private final List<SubscriptionVisitor> subscriptionVisitors;
+    // cost of the subscription visitors on the current file, by visitor, empty when the rule cost report is disabled
+    private final Map<SubscriptionVisitor, RuleCostReport.FileCost> visitorCosts = new IdentityHashMap<>();
+    // same costs, in the order of visitorsByKind, so that they are counted on each node without lookup, null when the report is disabled
+    @Nullable
+    private final RuleCostReport.FileCost[][] visitorCostsByKind;
+    private int visitedNodes;
+    private int fileCalls;
 
     IssuableSubscriptionVisitorsRunner() {
-      checks = new EnumMap<>(Tree.Kind.class);
+      visitorsByKind = new SubscriptionVisitor[Tree.Kind.values().length][];
+      Arrays.fill(visitorsByKind, NO_VISITORS);
       this.subscriptionVisitors = new ArrayList<>();
+      if (ruleCostReport != null) {
+        visitorCostsByKind = new RuleCostReport.FileCost[Tree.Kind.values().length][];
+        Arrays.fill(visitorCostsByKind, NO_VISITOR_COSTS);
+      } else {
+        visitorCostsByKind = null;
+      }
     }
 
     private void add(SubscriptionVisitor subscriptionVisitor) {
       this.subscriptionVisitors.add(subscriptionVisitor);
-      subscriptionVisitor.nodesToVisit()
-        .forEach(k -> checks.computeIfAbsent(k, key -> new ArrayList<>()).add(subscriptionVisitor));
+      RuleCostReport.FileCost visitorCost = null;
+      if (ruleCostReport != null) {
+        visitorCost = ruleCostReport.newFileCost(costKey(subscriptionVisitor));
+        visitorCosts.put(subscriptionVisitor, visitorCost);
+      }
+      for (Tree.Kind kind : subscriptionVisitor.nodesToVisit()) {
+        SubscriptionVisitor[] subscribed = visitorsByKind[kind.ordinal()];
+        subscribed = Arrays.copyOf(subscribed, subscribed.length + 1);
+        subscribed[subscribed.length - 1] = subscriptionVisitor;
+        visitorsByKind[kind.ordinal()] = subscribed;
+        if (visitorCostsByKind != null) {
+          RuleCostReport.FileCost[] costs = visitorCostsByKind[kind.ordinal()];
+          costs = Arrays.copyOf(costs, costs.length + 1);
+          costs[costs.length - 1] = visitorCost;
+          visitorCostsByKind[kind.ordinal()] = costs;
+        }
+      }
     }
 
     @Override
@@ -254,6 +338,8 @@ public class VisitorsBridge {
       } catch (CheckFailureException e) {
         interruptIfFailFast(e);
       } finally {
+        String file = String.valueOf(currentFile);
+        visitorCosts.values().forEach(visitorCost -> visitorCost.flush(file));
         issuableSubscriptionVisitorsDuration.stop();
       }
     }
@@ -269,41 +355,107 @@ public class VisitorsBridge {
     private void visitChildren(Tree tree) throws CheckFailureException {
       JavaTree javaTree = (JavaTree) tree;
       if (!javaTree.isLeaf()) {
-        for (Tree next : javaTree.getChildren()) {
-          if (next != null) {
-            visit(next);
-          }
+        for (Tree next : javaTree.getChildrenArray()) {
+          visit(next);
         }
       }
     }
 
     private void visit(Tree tree) throws CheckFailureException {
-      Kind kind = tree.kind();
-      List<SubscriptionVisitor> subscribed = checks.getOrDefault(kind, Collections.emptyList());
-      Consumer<SubscriptionVisitor> callback;
-      boolean isToken = (kind == Tree.Kind.TOKEN);
-      if (isToken) {
-        callback = s -> s.visitToken((SyntaxToken) tree);
-      } else {
-        callback = s -> s.visitNode(tree);
-      }
-      forEach(subscribed, callback);
-      if (isToken) {
-        forEach(checks.getOrDefault(Tree.Kind.TRIVIA, Collections.emptyList()), s -> ((SyntaxToken) tree).trivias().forEach(s::visitTrivia));
+      int kind = tree.kind().ordinal();
+      boolean measured = (visitedNodes++ % measuredNodesSamplingPeriod) == 0;
+      if (kind == TOKEN_ORDINAL) {
+        call(kind, SubscriptionCallback.VISIT_TOKEN, tree, measured);
+        call(TRIVIA_ORDINAL, SubscriptionCallback.VISIT_TRIVIA, tree, measured);
       } else {
+        call(kind, SubscriptionCallback.VISIT_NODE, tree, measured);
         visitChildren(tree);
+        call(kind, SubscriptionCallback.LEAVE_NODE, tree, measured);
       }
-      if(!isToken) {
-        forEach(subscribed, s -> s.leaveNode(tree));
+    }
+
+    private void call(int kind, SubscriptionCallback callback, Tree tree, boolean measured) throws CheckFailureException {
+      SubscriptionVisitor[] visitors = visitorsByKind[kind];
+      RuleCostReport.FileCost[] costs = visitorCostsByKind != null ? visitorCostsByKind[kind] : null;
+      for (int i = 0; i < visitors.length; i++) {
+        SubscriptionVisitor visitor = visitors[i];
+        PerformanceMeasure.Duration visitorDuration = measured ? PerformanceMeasure.start(visitor) : null;
+        RuleCostReport.FileCost visitorCost = costs != null ? costs[i] : null;
+        if (visitorCost != null) {
+          if (measured) {
+            visitorCost.start();
+          } else {
+            // the cost of the calls on the nodes which are not measured is estimated from the measured ones
+            visitorCost.countUnmeasured();
+          }
+        }
+        try {
+          callback.call(visitor, tree);
+        } catch (RuntimeException e) {
+          throw checkFailure(e, visitor);
+        }
+        if (visitorCost != null && measured) {
+          visitorCost.stop();
+        }
+        if (visitorDuration != null) {
+          visitorDuration.stop();
+        }
       }
     }
 
-    private final void forEach(Collection<SubscriptionVisitor> visitors, Consumer<SubscriptionVisitor> callback) throws CheckFailureException {
+    private void forEach(Collection<SubscriptionVisitor> visitors, Consumer<SubscriptionVisitor> callback) throws CheckFailureException {
       for (SubscriptionVisitor visitor : visitors) {
         PerformanceMeasure.Duration visitorDuration = PerformanceMeasure.start(visitor);
+        RuleCostReport.FileCost visitorCost = visitorCosts.get(visitor);
+        boolean measured = (fileCalls++ % measuredNodesSamplingPeriod) == 0;
+        if (visitorCost != null) {
+          if (measured) {
+            visitorCost.start();
+          } else {
+            visitorCost.countUnmeasured();
+          }
+        }
         runScanner(() -> callback.accept(visitor), visitor);
+        if (visitorCost != null && measured) {
+          visitorCost.stop();
+        }
         visitorDuration.stop();
       }
     }
   }
+
+  /**
+   * Calls made on subscription visitors for each visited node, as constants so that no callback is created per node
+   */
+  private enum SubscriptionCallback {
+    VISIT_NODE {
+      @Override
+      void call(SubscriptionVisitor visitor, Tree tree) {
+        visitor.visitNode(tree);
+      }
+    },
+    LEAVE_NODE {
+      @Override
+      void call(SubscriptionVisitor visitor, Tree tree) {
+        visitor.leaveNode(tree);
+      }
+    },
+    VISIT_TOKEN {
+      @Override
+      void call(SubscriptionVisitor visitor, Tree tree) {
+        visitor.visitToken((SyntaxToken) tree);
+      }
+    },
+    VISIT_TRIVIA {
+      @Override
+      void call(SubscriptionVisitor visitor, Tree tree) {
+        List<SyntaxTrivia> trivias = ((SyntaxToken) tree).trivias();
+        for (int i = 0; i < trivias.size(); i++) {
+          visitor.visitTrivia(trivias.get(i));
+        }
+      }
+    };
+
+    abstract void call(SubscriptionVisitor visitor, Tree tree);
+  }
 }
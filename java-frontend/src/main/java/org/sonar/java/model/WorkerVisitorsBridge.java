@@ -0,0 +1,119 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.reporting.AnalyzerMessage;
+import org.sonar.java.reporting.InternalJavaIssueBuilder;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.JavaVersion;
+import org.sonar.plugins.java.api.tree.CompilationUnitTree;
+
+/**
+ * Visitors bridge owned by a worker thread in parallel mode, running visitors which only depend on the file being scanned.
+ * Issues are not saved while scanning, but kept until {@link #flushIssues()} is called: issue filters have to scan the same
+ * file before issues get saved, and the sensor context can not be used by several threads at the same time.
+ */
+public class WorkerVisitorsBridge extends VisitorsBridge {
+
+  private final SonarComponents sonarComponents;
+  private final List<Runnable> pendingIssues = new ArrayList<>();
+
+  public WorkerVisitorsBridge(Iterable<? extends JavaCheck> visitors, List<File> projectClasspath, SonarComponents sonarComponents) {
+    super(visitors, projectClasspath, sonarComponents);
+    this.sonarComponents = sonarComponents;
+  }
+
+  public void visitFile(InputFile inputFile, JParserConfig.Result result) {
+    setCurrentFile(inputFile);
+    JavaTree.CompilationUnitTreeImpl tree;
+    try {
+      tree = result.get();
+    } catch (RecognitionException e) {
+      // parsing errors are logged and reported by the scanner running the project-level visitors
+      if (!sonarComponents.isSonarLintContext()) {
+        visitFile(null);
+      }
+      return;
+    } catch (Exception e) {
+      return;
+    }
+    visitFile(tree);
+  }
+
+  public void flushIssues() {
+    pendingIssues.forEach(Runnable::run);
+    pendingIssues.clear();
+  }
+
+  @Override
+  protected void createSonarSymbolTable(CompilationUnitTree tree) {
+    // symbol table is saved by the scanner running the project-level visitors
+  }
+
+  @Override
+  protected JavaFileScannerContext createScannerContext(
+    CompilationUnitTree tree, @Nullable Sema semanticModel, SonarComponents sonarComponents, boolean fileParsed) {
+    return new DeferredIssuesContext(tree, currentFile, semanticModel, sonarComponents, javaVersion, fileParsed);
+  }
+
+  private class DeferredIssuesContext extends DefaultJavaFileScannerContext {
+
+    private final SonarComponents sonarComponents;
+
+    DeferredIssuesContext(CompilationUnitTree tree, InputFile inputFile, @Nullable Sema semanticModel, SonarComponents sonarComponents,
+      JavaVersion javaVersion, boolean fileParsed) {
+      super(tree, inputFile, semanticModel, sonarComponents, javaVersion, fileParsed);
+      this.sonarComponents = sonarComponents;
+    }
+
+    @Override
+    public void addIssueOnProject(JavaCheck check, String message) {
+      pendingIssues.add(() -> super.addIssueOnProject(check, message));
+    }
+
+    @Override
+    public void addIssue(int line, JavaCheck javaCheck, String message, @Nullable Integer cost) {
+      pendingIssues.add(() -> super.addIssue(line, javaCheck, message, cost));
+    }
+
+    @Override
+    public void reportIssue(AnalyzerMessage message) {
+      pendingIssues.add(() -> super.reportIssue(message));
+    }
+
+    @Override
+    public JavaIssueBuilder newIssue() {
+      return new InternalJavaIssueBuilder(getInputFile(), sonarComponents) {
+        @Override
+        public void report() {
+          pendingIssues.add(super::report);
+        }
+      };
+    }
+  }
+}
@@ -21,26 +21,73 @@ package org.sonar.java.regex;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import org.sonar.plugins.java.api.tree.LiteralTree;
 import org.sonarsource.analyzer.commons.regex.RegexParseResult;
 import org.sonarsource.analyzer.commons.regex.RegexParser;
 import org.sonarsource.analyzer.commons.regex.ast.FlagSet;
 import org.sonarsource.performance.measure.PerformanceMeasure;
 
+/**
+ * Parsed regexes of a file. Results are not shared between literals having the same text: the syntax elements of a result are bound
+ * to the source built from its literals, from which the locations of the issues are computed.
+ */
 public final class RegexCache {
-  private final Map<List<LiteralTree>, RegexParseResult> cache = new HashMap<>();
+  private final Map<Key, RegexParseResult> cache = new HashMap<>();
+  // results of analyzing the parsed regexes, by type of analysis, shared by the checks of the file
+  private final Map<RegexParseResult, Map<Class<?>, Object>> analyses = new IdentityHashMap<>();
 
   public RegexParseResult getRegexForLiterals(FlagSet initialFlags, LiteralTree... stringLiterals) {
     return cache.computeIfAbsent(
-      Arrays.asList(stringLiterals),
+      new Key(initialFlags.getMask(), Arrays.asList(stringLiterals)),
       k -> {
         PerformanceMeasure.Duration regexForLiteralsDuration = PerformanceMeasure.start("RegexParser");
-        RegexParseResult result = new RegexParser(new JavaAnalyzerRegexSource(k), initialFlags).parse();
+        RegexParseResult result = new RegexParser(new JavaAnalyzerRegexSource(k.literals), initialFlags).parse();
         regexForLiteralsDuration.stop();
         return result;
       });
   }
 
+  /**
+   * @return the analysis of the given type of a regex parsed for this file, created by the factory when it is first requested
+   */
+  public <T> T getAnalysis(RegexParseResult regex, Class<T> analysisType, Function<RegexParseResult, T> factory) {
+    Map<Class<?>, Object> analysesOfRegex = analyses.computeIfAbsent(regex, r -> new HashMap<>(4));
+    return analysisType.cast(analysesOfRegex.computeIfAbsent(analysisType, type -> factory.apply(regex)));
+  }
+
+  /**
+   * The flags are part of the key, as the same literals are parsed differently depending on them. They are copied, flag sets being mutable.
+   */
+  private static final class Key {
+    private final int flags;
+    private final List<LiteralTree> literals;
+
+    private Key(int flags, List<LiteralTree> literals) {
+      this.flags = flags;
+      this.literals = literals;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return flags == other.flags && literals.equals(other.literals);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(flags, literals);
+    }
+  }
+
 }
@@ -20,6 +20,7 @@
 package org.sonar.java.regex;
 
 import java.util.List;
+import java.util.function.Function;
 import javax.annotation.Nullable;
 import org.sonar.plugins.java.api.tree.LiteralTree;
 import org.sonar.plugins.java.api.tree.Tree;
@@ -35,4 +36,9 @@ public interface RegexScannerContext {
 
   RegexParseResult regexForLiterals(FlagSet initialFlags, LiteralTree... stringLiterals);
 
+  /**
+   * @return the analysis of a regex of the current file, computed once and shared by all the checks
+   */
+  <T> T regexAnalysis(RegexParseResult regex, Class<T> analysisType, Function<RegexParseResult, T> factory);
+
 }
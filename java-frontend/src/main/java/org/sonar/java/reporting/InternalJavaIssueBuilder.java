@@ -199,7 +199,7 @@ public class InternalJavaIssueBuilder implements JavaIssueBuilderExtended {
       return;
     }
 
-    NewIssue newIssue = sonarComponents.context().newIssue()
+    NewIssue newIssue = sonarComponents.newIssue()
       .forRule(ruleKey.get())
       .gap(cost == null ? 0 : cost.doubleValue());
 
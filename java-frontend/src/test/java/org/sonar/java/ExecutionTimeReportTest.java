@@ -182,6 +182,22 @@ class ExecutionTimeReportTest {
       "    f1 (50000ms, 52B)");
   }
 
+  @Test
+  void log_in_parallel() throws Exception {
+    InputFile f1 = mockEmptyInputFile("f1");
+    InputFile f2 = mockEmptyInputFile("f2");
+    report.start(f1);
+    Thread otherThread = new Thread(() -> report.start(f2));
+    otherThread.start();
+    otherThread.join();
+    clock.addMilliseconds(50_000);
+    report.end();
+    report.reportInParallel();
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Slowest analyzed files (parallel mode enabled):" + NL +
+      "    f1 (50000ms, 52B)" + NL +
+      "    f2 (50000ms, 52B)");
+  }
+
   @Test
   void log_debug_level() {
     logTester.setLevel(LoggerLevel.DEBUG);
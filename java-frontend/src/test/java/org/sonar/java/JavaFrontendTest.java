@@ -24,8 +24,13 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.eclipse.core.runtime.OperationCanceledException;
@@ -51,6 +56,7 @@ import org.sonar.java.classpath.ClasspathForMain;
 import org.sonar.java.classpath.ClasspathForTest;
 import org.sonar.java.filters.SonarJavaIssueFilter;
 import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaFileScanner;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.JavaResourceLocator;
@@ -80,6 +86,8 @@ class JavaFrontendTest {
   private TestIssueFilter mainCodeIssueScannerAndFilter = new TestIssueFilter();;
   private TestIssueFilter testCodeIssueScannerAndFilter = new TestIssueFilter();;
 
+  private Supplier<JavaCheck[]> parallelModeChecksFactory = null;
+
   private SonarComponents sonarComponents;
   private SensorContextTester sensorContext;
 
@@ -185,6 +193,21 @@ class JavaFrontendTest {
     assertThat(testCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(1);
   }
 
+  @Test
+  void test_as_batch_scan_in_partitions() throws IOException {
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.internal.batchMode", "true");
+    settings.setProperty("sonar.java.internal.batchMode.partitionSize", "2");
+    scan(settings, "class A {}", "class B { A a; }", "class C { B b; }");
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    String allLogs = String.join("\n", logTester.logs());
+    assertThat(allLogs)
+      .contains("Using ECJ batch to parse source files, in 2 partitions of at most 2 files.")
+      .doesNotContain("cannot be resolved to a type");
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(3);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
   @Test
   void test_end_of_analysis_should_be_called_once() throws IOException {
     scan("class A {}", "class B {}");
@@ -267,6 +290,91 @@ class JavaFrontendTest {
       .hasMessage("Batch Mode failed, analysis of Java Files stopped.");
   }
 
+  @Test
+  void test_parallel_scan() throws IOException {
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.internal.parallelMode", "true");
+    settings.setProperty("sonar.java.internal.parallelMode.threads", "2");
+    FileCounter fileCounter = new FileCounter();
+    List<JavaCheck> workerChecks = Collections.synchronizedList(new ArrayList<>());
+    parallelModeChecksFactory = () -> {
+      JavaCheck[] checks = {new TestIssueFilter(), fileCounter.newInstance()};
+      workerChecks.addAll(Arrays.asList(checks));
+      return checks;
+    };
+    scan(settings, "class A {}", "class B { A a; }", "class C {}", "class D {}");
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("Using 2 threads to analyze source files.");
+    assertThat(sensorContext.allAnalysisErrors()).isEmpty();
+    assertThat(fileCounter.scannedFiles).hasValue(4);
+    assertThat(fileCounter.instances).hasValue(2);
+    assertThat(fileCounter.threads).allMatch(name -> name.startsWith("Java AST analyzer worker "));
+    // checks having to see all the files are not run by workers
+    assertThat(workerChecks).filteredOn(TestIssueFilter.class::isInstance)
+      .extracting(check -> ((TestIssueFilter) check).scanFileInvocationCount)
+      .containsOnly(0);
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(4);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
+  @Test
+  void parallel_mode_requires_checks_factory() throws IOException {
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.internal.parallelMode", "true");
+    scan(settings, "class A {}", "class B { A a; }");
+    assertThat(logTester.logs(LoggerLevel.INFO)).noneMatch(log -> log.startsWith("Using"));
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(2);
+  }
+
+  @Test
+  void should_handle_analysis_cancellation_parallel_mode() throws IOException {
+    mainCodeIssueScannerAndFilter.isCancelled = true;
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.internal.parallelMode", "true");
+    settings.setProperty("sonar.java.internal.parallelMode.threads", "1");
+    FileCounter fileCounter = new FileCounter();
+    parallelModeChecksFactory = () -> new JavaCheck[] {fileCounter.newInstance()};
+    scan(settings, "class A {}", "class B { A a; }", "class C {}");
+    assertThat(fileCounter.scannedFiles).hasValue(1);
+    assertThat(mainCodeIssueScannerAndFilter.scanFileInvocationCount).isEqualTo(1);
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
+  @Test
+  void analysis_exception_should_interrupt_analysis_in_parallel_mode() throws IOException {
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.internal.parallelMode", "true");
+    mainCodeIssueScannerAndFilter.exceptionDuringScan = new IllegalRuleParameterException("Test AnalysisException", new NullPointerException());
+    FileCounter fileCounter = new FileCounter();
+    parallelModeChecksFactory = () -> new JavaCheck[] {fileCounter.newInstance()};
+    assertThatThrownBy(() -> scan(settings, "class A {}", "class B {}", "class C {}"))
+      .isInstanceOf(AnalysisException.class)
+      .hasMessage("Bad configuration of rule parameter");
+    assertThat(mainCodeIssueScannerAndFilter.endOfAnalysisInvocationCount).isEqualTo(1);
+  }
+
+  @Test
+  void rule_costs_should_be_written_in_work_dir() throws IOException {
+    File workDir = temp.newFolder();
+    sensorContext = SensorContextTester.create(temp.getRoot().getAbsoluteFile());
+    sensorContext.fileSystem().setWorkDir(workDir.toPath());
+    sensorContext.settings().setProperty(SonarComponents.SONAR_RULE_COST_REPORT_KEY, "true");
+    InputFile inputFile = addFile("class A {}", sensorContext);
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
+    sonarComponents = new SonarComponents(fileLinesContextFactory, sensorContext.fileSystem(), mock(ClasspathForMain.class),
+      mock(ClasspathForTest.class), mock(CheckFactory.class));
+    sonarComponents.setSensorContext(sensorContext);
+    JavaFrontend frontend = new JavaFrontend(new JavaVersionImpl(), sonarComponents, null, mock(JavaResourceLocator.class), null,
+      mainCodeIssueScannerAndFilter);
+    frontend.scan(Collections.singletonList(inputFile), Collections.emptyList(), Collections.emptyList());
+
+    File ruleCosts = new File(workDir, RuleCostReport.DESTINATION_FILE);
+    assertThat(ruleCosts).exists();
+    assertThat(Files.asCharSource(ruleCosts, StandardCharsets.UTF_8).read())
+      .contains("\"key\": \"" + TestIssueFilter.class.getName() + "\"")
+      .contains("\"file\": \"" + inputFile + "\"");
+  }
+
   private List<InputFile> scan(String... codeList) throws IOException {
     return scan(new MapSettings(), codeList);
   }
@@ -307,6 +415,9 @@ class JavaFrontendTest {
     sonarComponents.testChecks().add(testCodeIssueScannerAndFilter);
     JavaFrontend frontend = new JavaFrontend(new JavaVersionImpl(), sonarComponents, new Measurer(sensorContext, mock(NoSonarFilter.class)), mock(JavaResourceLocator.class),
       null, mainCodeIssueScannerAndFilter);
+    if (parallelModeChecksFactory != null) {
+      frontend.setParallelModeChecksFactory(parallelModeChecksFactory);
+    }
     frontend.scan(inputFiles, Collections.emptyList(), Collections.emptyList());
 
     return inputFiles;
@@ -358,4 +469,18 @@ class JavaFrontendTest {
       endOfAnalysisInvocationCount++;
     }
   }
+
+  private static class FileCounter {
+    final AtomicInteger instances = new AtomicInteger();
+    final AtomicInteger scannedFiles = new AtomicInteger();
+    final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+    JavaFileScanner newInstance() {
+      instances.incrementAndGet();
+      return context -> {
+        scannedFiles.incrementAndGet();
+        threads.add(Thread.currentThread().getName());
+      };
+    }
+  }
 }
@@ -20,7 +20,10 @@
 package org.sonar.java;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.sonar.api.batch.fs.InputFile;
@@ -32,6 +35,7 @@ import org.sonar.plugins.java.api.JavaCheck;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 class MeasurerTest {
 
@@ -86,13 +90,47 @@ class MeasurerTest {
     checkMetric("EmptyFile.java", "ncloc", 0);
   }
 
+  @Test
+  void line_metrics_are_computed_per_file() {
+    InputFile linesOfCode = addInputFile("LinesOfCode.java");
+    InputFile comments = addInputFile("Comments.java");
+    Measurer measurer = new Measurer(context, mock(NoSonarFilter.class));
+    JavaFrontend frontend = new JavaFrontend(new JavaVersionImpl(), null, measurer, null, null, new JavaCheck[0]);
+
+    frontend.scan(Arrays.asList(comments, linesOfCode), Collections.emptyList(), Collections.emptyList());
+
+    assertThat(context.measure(linesOfCode.key(), "ncloc").value()).isEqualTo(2);
+    assertThat(context.measure(comments.key(), "comment_lines").value()).isEqualTo(3);
+  }
+
+  @Test
+  void replayed_measures_with_unknown_metrics_are_ignored() {
+    InputFile inputFile = addInputFile("Methods.java");
+    NoSonarFilter noSonarFilter = mock(NoSonarFilter.class);
+    Measurer measurer = new Measurer(context, noSonarFilter);
+    Map<String, Integer> measures = new HashMap<>();
+    measures.put("ncloc", 12);
+    measures.put("removed_metric", 3);
+
+    measurer.replay(inputFile, measures, Collections.singleton(4));
+
+    assertThat(context.measures(inputFile.key())).hasSize(1);
+    assertThat(context.measure(inputFile.key(), "ncloc").value()).isEqualTo(12);
+    verify(noSonarFilter).noSonarInFile(inputFile, Collections.singleton(4));
+  }
+
+  private InputFile addInputFile(String filename) {
+    String relativePath = PathUtils.sanitize(new File(BASE_DIR, filename).getPath());
+    InputFile inputFile = TestUtils.inputFile(relativePath);
+    context.fileSystem().add(inputFile);
+    return inputFile;
+  }
+
   /**
    * Utility method to quickly get metric out of a file.
    */
   private void checkMetric(String filename, String metric, Number expectedValue) {
-    String relativePath = PathUtils.sanitize(new File(BASE_DIR, filename).getPath());
-    InputFile inputFile = TestUtils.inputFile(relativePath);
-    context.fileSystem().add(inputFile);
+    InputFile inputFile = addInputFile(filename);
 
     Measurer measurer = new Measurer(context, mock(NoSonarFilter.class));
     JavaFrontend frontend = new JavaFrontend(new JavaVersionImpl(), null, measurer, null, null, new JavaCheck[0]);
@@ -121,6 +121,37 @@ class ProgressMonitorTest {
     );
   }
 
+  @Timeout(3)
+  @Test
+  void test_report_progress_of_several_tasks() throws Exception {
+    Logger logger = mock(Logger.class);
+
+    ProgressMonitor report = new ProgressMonitor(() -> false, logger, TimeUnit.MILLISECONDS.toMillis(250));
+    report.setTasks(2);
+
+    report.beginTask("taskName", 100);
+    waitForMessage(logger);
+    report.worked(50);
+    waitForMessage(logger);
+    report.worked(50);
+    report.beginTask("taskName", 10);
+    waitForMessage(logger);
+    report.worked(10);
+    waitForMessage(logger);
+    report.done();
+
+    ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+    verify(logger, atLeast(6)).info(captor.capture());
+
+    List<String> messages = captor.getAllValues();
+    assertThat(messages).hasSizeGreaterThanOrEqualTo(6).containsOnlyOnce("Starting batch processing.").contains(
+      "25% analyzed",
+      "50% analyzed",
+      "100% analyzed",
+      "Batch processing: Done!"
+    );
+  }
+
   @Timeout(3)
   @Test
   void test_unknown_total_work() throws Exception {
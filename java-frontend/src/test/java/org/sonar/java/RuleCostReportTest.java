@@ -0,0 +1,171 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.utils.log.LogTesterJUnit5;
+import org.sonar.api.utils.log.LoggerLevel;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleCostReportTest {
+
+  private static final String NL = System.lineSeparator();
+
+  @RegisterExtension
+  public LogTesterJUnit5 logTester = new LogTesterJUnit5();
+
+  @TempDir
+  public File temp;
+
+  private long cpuTimeNanos = 0;
+  private long allocatedBytes = 0;
+  private final RuleCostReport report = new RuleCostReport(() -> cpuTimeNanos, () -> allocatedBytes);
+
+  void simulateScan(RuleCostReport.FileCost fileCost, String file, long timeMs, long bytes) {
+    fileCost.start();
+    cpuTimeNanos += timeMs * 1_000_000;
+    allocatedBytes += bytes;
+    fileCost.stop();
+    fileCost.flush(file);
+  }
+
+  @Test
+  void no_log_when_each_rule_is_fast() {
+    RuleCostReport.FileCost s1 = report.newFileCost("S1");
+    for (int i = 0; i < 9; i++) {
+      simulateScan(s1, "f" + i, 100, 10);
+    }
+    report.report();
+    assertThat(logTester.logs(LoggerLevel.INFO)).isEmpty();
+    assertThat(report).hasToString("    S1 (900ms, 90B allocated, 9 invocations), slowest on f0 (100ms)");
+  }
+
+  @Test
+  void log_the_slowest_rules() {
+    for (int i = 1; i <= 12; i++) {
+      RuleCostReport.FileCost fileCost = report.newFileCost("S" + i);
+      simulateScan(fileCost, "f1", 500 * i, i);
+      simulateScan(fileCost, "f2", 500 * i + 1, i);
+    }
+    report.report();
+    assertThat(logTester.logs(LoggerLevel.INFO)).containsExactly("Slowest rules:" + NL +
+      "    S12 (12001ms, 24B allocated, 2 invocations), slowest on f2 (6001ms)" + NL +
+      "    S11 (11001ms, 22B allocated, 2 invocations), slowest on f2 (5501ms)" + NL +
+      "    S10 (10001ms, 20B allocated, 2 invocations), slowest on f2 (5001ms)" + NL +
+      "    S9 (9001ms, 18B allocated, 2 invocations), slowest on f2 (4501ms)" + NL +
+      "    S8 (8001ms, 16B allocated, 2 invocations), slowest on f2 (4001ms)" + NL +
+      "    S7 (7001ms, 14B allocated, 2 invocations), slowest on f2 (3501ms)" + NL +
+      "    S6 (6001ms, 12B allocated, 2 invocations), slowest on f2 (3001ms)" + NL +
+      "    S5 (5001ms, 10B allocated, 2 invocations), slowest on f2 (2501ms)" + NL +
+      "    S4 (4001ms, 8B allocated, 2 invocations), slowest on f2 (2001ms)" + NL +
+      "    S3 (3001ms, 6B allocated, 2 invocations), slowest on f2 (1501ms)");
+  }
+
+  @Test
+  void costs_of_a_rule_are_shared_by_its_accumulators() {
+    RuleCostReport.FileCost worker1 = report.newFileCost("S1");
+    RuleCostReport.FileCost worker2 = report.newFileCost("S1");
+    simulateScan(worker1, "f1", 700, 1);
+    simulateScan(worker2, "f2", 800, 2);
+    report.report();
+    assertThat(logTester.logs(LoggerLevel.INFO)).containsExactly("Slowest rules:" + NL +
+      "    S1 (1500ms, 3B allocated, 2 invocations), slowest on f2 (800ms)");
+  }
+
+  @Test
+  void costs_of_unmeasured_invocations_are_estimated() {
+    RuleCostReport.FileCost fileCost = report.newFileCost("S1");
+    fileCost.start();
+    cpuTimeNanos += 2_000_000;
+    allocatedBytes += 3;
+    fileCost.stop();
+    for (int i = 0; i < 63; i++) {
+      fileCost.countUnmeasured();
+    }
+    fileCost.start();
+    cpuTimeNanos += 1_000_000;
+    fileCost.stop();
+    fileCost.flush("f1");
+    // nothing more to record
+    fileCost.flush("f2");
+    // no measured invocation to estimate the cost from
+    fileCost.countUnmeasured();
+    fileCost.flush("f3");
+    // 66 invocations, 2 of them measured on f1: the cost of the rule on f3 is estimated from them, not ignored
+    assertThat(report).hasToString("    S1 (~99ms, ~99B allocated, 66 invocations), slowest on f1 (~97ms)");
+  }
+
+  @Test
+  void write_the_costs_of_all_the_rules() throws IOException {
+    RuleCostReport.FileCost s1 = report.newFileCost("S1");
+    for (int i = 1; i <= 7; i++) {
+      simulateScan(s1, "f" + i, i, 10);
+    }
+    simulateScan(report.newFileCost("S2"), "f1", 100, 20);
+    Path path = temp.toPath().resolve("sub").resolve(RuleCostReport.DESTINATION_FILE);
+    report.write(path);
+
+    assertThat(new String(Files.readAllBytes(path), StandardCharsets.UTF_8).replaceAll("\\s", "")).isEqualTo("{" +
+      "\"cpuTimeMeasured\":true," +
+      "\"allocatedBytesMeasured\":true," +
+      "\"rules\":[" +
+      "{\"key\":\"S2\",\"invocations\":1,\"cpuTimeMs\":100.0,\"allocatedBytes\":20,\"estimated\":false,\"slowestFiles\":[" +
+      "{\"file\":\"f1\",\"invocations\":1,\"cpuTimeMs\":100.0,\"allocatedBytes\":20,\"estimated\":false}]}," +
+      "{\"key\":\"S1\",\"invocations\":7,\"cpuTimeMs\":28.0,\"allocatedBytes\":70,\"estimated\":false,\"slowestFiles\":[" +
+      "{\"file\":\"f7\",\"invocations\":1,\"cpuTimeMs\":7.0,\"allocatedBytes\":10,\"estimated\":false}," +
+      "{\"file\":\"f6\",\"invocations\":1,\"cpuTimeMs\":6.0,\"allocatedBytes\":10,\"estimated\":false}," +
+      "{\"file\":\"f5\",\"invocations\":1,\"cpuTimeMs\":5.0,\"allocatedBytes\":10,\"estimated\":false}," +
+      "{\"file\":\"f4\",\"invocations\":1,\"cpuTimeMs\":4.0,\"allocatedBytes\":10,\"estimated\":false}," +
+      "{\"file\":\"f3\",\"invocations\":1,\"cpuTimeMs\":3.0,\"allocatedBytes\":10,\"estimated\":false}]}]}");
+  }
+
+  @Test
+  void failure_to_write_is_logged() throws IOException {
+    File notADirectory = new File(temp, "file");
+    assertThat(notADirectory.createNewFile()).isTrue();
+    Path path = notADirectory.toPath().resolve(RuleCostReport.DESTINATION_FILE);
+    report.write(path);
+    assertThat(logTester.logs(LoggerLevel.WARN)).containsExactly("Unable to write the rule cost report in '" + path + "'.");
+  }
+
+  @Test
+  void measures_the_current_thread() {
+    RuleCostReport threadReport = new RuleCostReport();
+    RuleCostReport.FileCost fileCost = threadReport.newFileCost("S1");
+    fileCost.start();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append(i);
+    }
+    fileCost.stop();
+    fileCost.flush("f1");
+    assertThat(sb).isNotEmpty();
+    assertThat(threadReport.toString()).startsWith("    S1 (").contains("1 invocations), slowest on f1 (");
+  }
+
+}
@@ -276,6 +276,157 @@ class SonarComponentsTest {
     postTestExecutionChecks();
   }
 
+  @Test
+  void main_checks_can_be_created_again() {
+    CheckRegistrar expectedRegistrar = registrarContext -> registrarContext.registerClassesForRepository(
+      REPOSITORY_NAME,
+      Collections.singletonList(CustomCheck.class),
+      Collections.emptyList());
+    JavaCheck firstInstance = new CustomCheck();
+    JavaCheck secondInstance = new CustomCheck();
+    when(this.checks.all())
+      .thenReturn(Collections.singletonList(firstInstance))
+      .thenReturn(new ArrayList<>())
+      .thenReturn(Collections.singletonList(secondInstance));
+    SonarComponents sonarComponents = new SonarComponents(fileLinesContextFactory, null, null,
+      null, checkFactory, new CheckRegistrar[] {expectedRegistrar});
+    sonarComponents.setSensorContext(context);
+
+    assertThat(sonarComponents.mainChecks()).containsExactly(firstInstance);
+    assertThat(sonarComponents.createMainChecks()).containsExactly(secondInstance);
+    assertThat(sonarComponents.mainChecks()).containsExactly(firstInstance);
+    assertThat(sonarComponents.testChecks()).isEmpty();
+  }
+
+  @Test
+  void batch_mode_partition_size() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.batchModePartitionSize()).isZero();
+
+    context.settings().setProperty("sonar.java.internal.batchMode.partitionSize", "500");
+    assertThat(sonarComponents.batchModePartitionSize()).isEqualTo(500);
+
+    context.settings().setProperty("sonar.java.internal.batchMode.partitionSize", "-1");
+    assertThat(sonarComponents.batchModePartitionSize()).isZero();
+  }
+
+  @Test
+  void parallel_mode_configuration() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.isParallelModeEnabled()).isFalse();
+    assertThat(sonarComponents.parallelModeThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+
+    context.settings().setProperty("sonar.java.internal.parallelMode", "true");
+    context.settings().setProperty("sonar.java.internal.parallelMode.threads", "3");
+    assertThat(sonarComponents.isParallelModeEnabled()).isTrue();
+    assertThat(sonarComponents.parallelModeThreads()).isEqualTo(3);
+
+    context.settings().setProperty("sonar.java.internal.parallelMode.threads", "0");
+    assertThat(sonarComponents.parallelModeThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+  }
+
+  @Test
+  void pipeline_mode_configuration() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.isPipelineModeEnabled()).isFalse();
+    assertThat(sonarComponents.pipelineModeThreads()).isEqualTo(1);
+    assertThat(sonarComponents.pipelineModeQueueSize()).isEqualTo(2);
+
+    context.settings().setProperty("sonar.java.internal.pipelineMode", "true");
+    context.settings().setProperty("sonar.java.internal.pipelineMode.threads", "3");
+    assertThat(sonarComponents.isPipelineModeEnabled()).isTrue();
+    assertThat(sonarComponents.pipelineModeThreads()).isEqualTo(3);
+    assertThat(sonarComponents.pipelineModeQueueSize()).isEqualTo(6);
+
+    context.settings().setProperty("sonar.java.internal.pipelineMode.queueSize", "10");
+    assertThat(sonarComponents.pipelineModeQueueSize()).isEqualTo(10);
+
+    context.settings().setProperty("sonar.java.internal.pipelineMode.threads", "0");
+    context.settings().setProperty("sonar.java.internal.pipelineMode.queueSize", "0");
+    assertThat(sonarComponents.pipelineModeThreads()).isEqualTo(1);
+    assertThat(sonarComponents.pipelineModeQueueSize()).isEqualTo(2);
+  }
+
+  @Test
+  void cross_file_behaviors_configuration() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.isCrossFileBehaviorsEnabled()).isFalse();
+    assertThat(sonarComponents.crossFileBehaviorsMaxSize()).isEqualTo(10_000);
+
+    context.settings().setProperty("sonar.java.internal.crossFileBehaviors", "true");
+    context.settings().setProperty("sonar.java.internal.crossFileBehaviors.maxSize", "42");
+    assertThat(sonarComponents.isCrossFileBehaviorsEnabled()).isTrue();
+    assertThat(sonarComponents.crossFileBehaviorsMaxSize()).isEqualTo(42);
+
+    context.settings().setProperty("sonar.java.internal.crossFileBehaviors.maxSize", "-1");
+    assertThat(sonarComponents.crossFileBehaviorsMaxSize()).isEqualTo(10_000);
+  }
+
+  @Test
+  void cross_file_behaviors_persistence_configuration() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    context.settings().setProperty("sonar.java.internal.crossFileBehaviors.persist", "true");
+    assertThat(sonarComponents.isCrossFileBehaviorsPersistenceEnabled()).isFalse();
+
+    context.settings().setProperty("sonar.java.internal.crossFileBehaviors", "true");
+    assertThat(sonarComponents.isCrossFileBehaviorsPersistenceEnabled()).isTrue();
+
+    context.setRuntime(SonarRuntimeImpl.forSonarLint(V8_9));
+    assertThat(sonarComponents.isCrossFileBehaviorsPersistenceEnabled()).isFalse();
+  }
+
+  @Test
+  void analysis_cache_configuration() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.isAnalysisCacheEnabled()).isFalse();
+
+    context.settings().setProperty("sonar.java.internal.analysisCache", "true");
+    assertThat(sonarComponents.isAnalysisCacheEnabled()).isTrue();
+
+    context.setRuntime(SonarRuntimeImpl.forSonarLint(V8_9));
+    assertThat(sonarComponents.isAnalysisCacheEnabled()).isFalse();
+  }
+
+  @Test
+  void rule_cost_report_configuration() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.isRuleCostReportEnabled()).isTrue();
+
+    context.settings().setProperty("sonar.java.internal.ruleCostReport", "false");
+    assertThat(sonarComponents.isRuleCostReportEnabled()).isFalse();
+
+    context.settings().setProperty("sonar.java.internal.ruleCostReport", "true");
+    assertThat(sonarComponents.isRuleCostReportEnabled()).isTrue();
+
+    context.setRuntime(SonarRuntimeImpl.forSonarLint(V8_9));
+    assertThat(sonarComponents.isRuleCostReportEnabled()).isFalse();
+  }
+
+  @Test
+  void performance_measure_configuration() {
+    SonarComponents sonarComponents = new SonarComponents(null, null, null, null, null);
+    SensorContextTester context = SensorContextTester.create(new File(""));
+    sonarComponents.setSensorContext(context);
+    assertThat(sonarComponents.isPerformanceMeasureEnabled()).isFalse();
+
+    context.settings().setProperty("sonar.java.performance.measure", "true");
+    assertThat(sonarComponents.isPerformanceMeasureEnabled()).isTrue();
+  }
+
   @Test
   void no_issue_when_check_not_found() throws Exception {
     JavaCheck expectedCheck = new CustomCheck();
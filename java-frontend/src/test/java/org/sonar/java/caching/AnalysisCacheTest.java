@@ -0,0 +1,283 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.caching;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.ToolProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.rule.ActiveRules;
+import org.sonar.api.batch.rule.CheckFactory;
+import org.sonar.api.batch.rule.internal.ActiveRulesBuilder;
+import org.sonar.api.batch.rule.internal.NewActiveRule;
+import org.sonar.api.batch.sensor.highlighting.TypeOfText;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.api.batch.sensor.issue.Issue;
+import org.sonar.api.issue.NoSonarFilter;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.FileLinesContext;
+import org.sonar.api.measures.FileLinesContextFactory;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.LogTesterJUnit5;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.check.Rule;
+import org.sonar.java.DefaultJavaResourceLocator;
+import org.sonar.java.EndOfAnalysisCheck;
+import org.sonar.java.JavaFrontend;
+import org.sonar.java.Measurer;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.classpath.ClasspathForMain;
+import org.sonar.java.classpath.ClasspathForTest;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.plugins.java.api.IssuableSubscriptionVisitor;
+import org.sonar.plugins.java.api.JavaCheck;
+import org.sonar.plugins.java.api.JavaFileScanner;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnalysisCacheTest {
+
+  private static final String REPOSITORY_KEY = "test";
+
+  @RegisterExtension
+  public LogTesterJUnit5 logTester = new LogTesterJUnit5();
+
+  @TempDir
+  File tempDir;
+
+  private File baseDir;
+  private File workDir;
+  private File classesDir;
+
+  private SensorContextTester context;
+  private SonarComponents sonarComponents;
+  private DefaultJavaResourceLocator resourceLocator;
+
+  private InputFile fileA;
+  private InputFile fileB;
+  private InputFile fileC;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    baseDir = Files.createDirectory(tempDir.toPath().resolve("src")).toFile();
+    workDir = Files.createDirectory(tempDir.toPath().resolve("work")).toFile();
+    classesDir = Files.createDirectory(tempDir.toPath().resolve("classes")).toFile();
+    fileA = inputFile("A.java", "class A {\n  int foo() { return 42; }\n}\n");
+    fileB = inputFile("B.java", "class B extends A {\n  int bar() { return foo(); }\n}\n");
+    fileC = inputFile("C.java", "/** Doc */\nclass C {\n  int baz() { int i = 0; return i; } // NOSONAR\n}\n");
+    // types declared by the analyzed files are resolved from their class files, as in real projects
+    int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-d", classesDir.getAbsolutePath(), fileA.absolutePath());
+    assertThat(result).isZero();
+  }
+
+  @Test
+  void unchanged_files_are_replayed() {
+    analyze(activeRules("MINOR"), fileA, fileB, fileC);
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .contains("No analysis cache found, all the source files will be analyzed.")
+      .contains("0/3 source files have been replayed from the analysis cache, 3 changed and 0 depend on changed types.");
+    List<String> issues = issues();
+    assertThat(issues).hasSize(3);
+    assertThat(endOfAnalysisCheck().scannedFiles).containsExactlyInAnyOrder("A.java", "B.java", "C.java");
+    SensorContextTester firstContext = context;
+
+    logTester.clear();
+    analyze(activeRules("MINOR"), fileA, fileB, fileC);
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .contains("3/3 source files have been replayed from the analysis cache, 0 changed and 0 depend on changed types.");
+    assertThat(issues()).containsExactlyInAnyOrderElementsOf(issues);
+    // checks reporting issues at the end of the analysis still see all the files
+    assertThat(endOfAnalysisCheck().scannedFiles).containsExactlyInAnyOrder("A.java", "B.java", "C.java");
+    assertThat(endOfAnalysisCheck().endOfAnalysisCount).isEqualTo(1);
+
+    for (InputFile inputFile : Arrays.asList(fileA, fileB, fileC)) {
+      assertThat(context.measure(inputFile.key(), CoreMetrics.NCLOC).value())
+        .isEqualTo(firstContext.measure(inputFile.key(), CoreMetrics.NCLOC).value());
+      assertThat(context.measure(inputFile.key(), CoreMetrics.COMPLEXITY).value())
+        .isEqualTo(firstContext.measure(inputFile.key(), CoreMetrics.COMPLEXITY).value());
+    }
+    assertThat(context.highlightingTypeAt(fileC.key(), 1, 0)).containsExactly(TypeOfText.STRUCTURED_COMMENT);
+    assertThat(context.highlightingTypeAt(fileC.key(), 2, 0)).containsExactly(TypeOfText.KEYWORD);
+    assertThat(context.referencesForSymbolAt(fileC.key(), 3, 18))
+      .isEqualTo(firstContext.referencesForSymbolAt(fileC.key(), 3, 18))
+      .hasSize(1);
+    assertThat(resourceLocator.findResourceByClassName("C")).isSameAs(fileC);
+  }
+
+  @Test
+  void files_depending_on_changed_types_are_analyzed_again() throws IOException {
+    analyze(activeRules("MINOR"), fileA, fileB, fileC);
+
+    logTester.clear();
+    fileA = inputFile("A.java", "class A {\n  int foo() { return 0; }\n}\n");
+    analyze(activeRules("MINOR"), fileA, fileB, fileC);
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .contains("1/3 source files have been replayed from the analysis cache, 1 changed and 1 depend on changed types.");
+    assertThat(issues()).hasSize(3);
+
+    logTester.clear();
+    Files.delete(classesDir.toPath().resolve("A.class"));
+    analyze(activeRules("MINOR"), fileB, fileC);
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .contains("1/2 source files have been replayed from the analysis cache, 0 changed and 1 depend on changed types.");
+    assertThat(issues()).hasSize(2);
+  }
+
+  @Test
+  void cache_is_discarded_when_configuration_changes() {
+    analyze(activeRules("MINOR"), fileA, fileB, fileC);
+
+    logTester.clear();
+    analyze(activeRules("MAJOR"), fileA, fileB, fileC);
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .contains("The analysis configuration changed, all the source files will be analyzed.")
+      .contains("0/3 source files have been replayed from the analysis cache, 3 changed and 0 depend on changed types.");
+  }
+
+  @Test
+  void files_with_unknown_types_are_not_replayed() throws IOException {
+    InputFile fileD = inputFile("D.java", "class D extends Unknown {}\n");
+    analyze(activeRules("MINOR"), fileC, fileD);
+
+    logTester.clear();
+    analyze(activeRules("MINOR"), fileC, fileD);
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .contains("1/2 source files have been replayed from the analysis cache, 1 changed and 0 depend on changed types.");
+  }
+
+  @Test
+  void corrupted_cache_is_ignored() throws IOException {
+    analyze(activeRules("MINOR"), fileA, fileB, fileC);
+    List<File> cacheFiles;
+    try (Stream<java.nio.file.Path> files = Files.walk(workDir.toPath().resolve(AnalysisCache.CACHE_DIRECTORY))) {
+      cacheFiles = files.map(java.nio.file.Path::toFile).filter(File::isFile).collect(Collectors.toList());
+    }
+    assertThat(cacheFiles).hasSize(1);
+    byte[] content = Files.readAllBytes(cacheFiles.get(0).toPath());
+    Files.write(cacheFiles.get(0).toPath(), Arrays.copyOf(content, content.length / 2));
+
+    logTester.clear();
+    analyze(activeRules("MINOR"), fileA, fileB, fileC);
+    assertThat(logTester.logs(LoggerLevel.WARN)).anyMatch(log -> log.startsWith("Unable to read the analysis cache"));
+    assertThat(logTester.logs(LoggerLevel.INFO))
+      .contains("0/3 source files have been replayed from the analysis cache, 3 changed and 0 depend on changed types.");
+    assertThat(issues()).hasSize(3);
+  }
+
+  private void analyze(ActiveRules activeRules, InputFile... inputFiles) {
+    context = SensorContextTester.create(baseDir);
+    context.fileSystem().setWorkDir(workDir.toPath());
+    context.setActiveRules(activeRules);
+    context.settings().setProperty(SonarComponents.SONAR_ANALYSIS_CACHE_KEY, "true");
+    Arrays.stream(inputFiles).forEach(context.fileSystem()::add);
+
+    ClasspathForMain classpath = mock(ClasspathForMain.class);
+    when(classpath.getElements()).thenReturn(Collections.singletonList(classesDir));
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
+
+    sonarComponents = new SonarComponents(fileLinesContextFactory, context.fileSystem(), classpath, mock(ClasspathForTest.class), new CheckFactory(activeRules));
+    sonarComponents.setSensorContext(context);
+    sonarComponents.registerMainCheckClasses(REPOSITORY_KEY, Arrays.asList(ClassCheck.class, FileCounterCheck.class));
+    resourceLocator = new DefaultJavaResourceLocator(classpath);
+    JavaFrontend frontend = new JavaFrontend(new JavaVersionImpl(), sonarComponents, new Measurer(context, mock(NoSonarFilter.class), sonarComponents),
+      resourceLocator, null, sonarComponents.mainChecks().toArray(new JavaCheck[0]));
+    frontend.scan(Arrays.asList(inputFiles), Collections.emptyList(), Collections.emptyList());
+  }
+
+  private List<String> issues() {
+    List<String> result = new ArrayList<>();
+    for (Issue issue : context.allIssues()) {
+      result.add(issue.ruleKey().rule() + " " + issue.primaryLocation().inputComponent().key() + " "
+        + issue.primaryLocation().textRange().start().line() + " " + issue.primaryLocation().message());
+    }
+    return result;
+  }
+
+  private FileCounterCheck endOfAnalysisCheck() {
+    return (FileCounterCheck) sonarComponents.mainChecks().stream().filter(FileCounterCheck.class::isInstance).findFirst().get();
+  }
+
+  private InputFile inputFile(String name, String code) throws IOException {
+    File file = new File(baseDir, name);
+    Files.write(file.toPath(), code.getBytes(StandardCharsets.UTF_8));
+    return TestInputFileBuilder.create("", baseDir, file)
+      .setContents(code)
+      .setCharset(StandardCharsets.UTF_8)
+      .setLanguage("java")
+      .setType(InputFile.Type.MAIN)
+      .build();
+  }
+
+  private static ActiveRules activeRules(String severity) {
+    return new ActiveRulesBuilder()
+      .addRule(new NewActiveRule.Builder().setRuleKey(RuleKey.of(REPOSITORY_KEY, "ClassCheck")).setSeverity(severity).build())
+      .addRule(new NewActiveRule.Builder().setRuleKey(RuleKey.of(REPOSITORY_KEY, "FileCounterCheck")).build())
+      .build();
+  }
+
+  @Rule(key = "ClassCheck")
+  public static class ClassCheck extends IssuableSubscriptionVisitor {
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Collections.singletonList(Tree.Kind.CLASS);
+    }
+
+    @Override
+    public void visitNode(Tree tree) {
+      reportIssue(((ClassTree) tree).simpleName(), "Class found");
+    }
+  }
+
+  @Rule(key = "FileCounterCheck")
+  public static class FileCounterCheck implements JavaFileScanner, EndOfAnalysisCheck {
+    final List<String> scannedFiles = new ArrayList<>();
+    int endOfAnalysisCount = 0;
+
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      scannedFiles.add(context.getInputFile().filename());
+    }
+
+    @Override
+    public void endOfAnalysis() {
+      endOfAnalysisCount++;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntHamtTest {
+
+  @Test
+  void put_get_remove() {
+    PLongIntMap empty = PCollections.emptyLongIntMap();
+    assertThat(empty.isEmpty()).isTrue();
+    assertThat(empty.get(42, -1)).isEqualTo(-1);
+    assertThat(empty.remove(42)).isSameAs(empty);
+    assertThat(empty).hasToString("{}");
+
+    PLongIntMap map = empty.put(42, 1);
+    assertThat(map.isEmpty()).isFalse();
+    assertThat(map.get(42, -1)).isEqualTo(1);
+    assertThat(map.get(43, -1)).isEqualTo(-1);
+    assertThat(map.put(42, 1)).isSameAs(map);
+    assertThat(map.put(42, 2).get(42, -1)).isEqualTo(2);
+    assertThat(map.get(42, -1)).isEqualTo(1);
+    assertThat(map.remove(43)).isSameAs(map);
+    assertThat(map.remove(42).isEmpty()).isTrue();
+    assertThat(map.put(-7, 3)).hasToString("{42=1, -7=3}");
+  }
+
+  @Test
+  void keys_differing_only_by_high_bits() {
+    PLongIntMap map = PCollections.emptyLongIntMap()
+      .put(1L, 1)
+      .put(1L | (1L << 32), 2)
+      .put(1L | (1L << 63), 3);
+    assertThat(map.get(1L, -1)).isEqualTo(1);
+    assertThat(map.get(1L | (1L << 32), -1)).isEqualTo(2);
+    assertThat(map.get(1L | (1L << 63), -1)).isEqualTo(3);
+    assertThat(map.remove(1L | (1L << 32)).get(1L | (1L << 32), -1)).isEqualTo(-1);
+  }
+
+  @Test
+  void behaves_like_a_map() {
+    Random random = new Random(42);
+    for (long bound : new long[] {64, Integer.MAX_VALUE, Long.MAX_VALUE}) {
+      PLongIntMap map = PCollections.emptyLongIntMap();
+      Map<Long, Integer> expected = new HashMap<>();
+      List<PLongIntMap> snapshots = new ArrayList<>();
+      List<Map<Long, Integer>> expectedSnapshots = new ArrayList<>();
+      for (int i = 0; i < 5_000; i++) {
+        long key = (random.nextLong() >>> 1) % bound - bound / 2;
+        if (random.nextInt(3) == 0) {
+          map = map.remove(key);
+          expected.remove(key);
+        } else {
+          int value = random.nextInt(3);
+          map = map.put(key, value);
+          expected.put(key, value);
+        }
+        if (i % 500 == 0) {
+          snapshots.add(map);
+          expectedSnapshots.add(new HashMap<>(expected));
+        }
+        assertThat(map.isEmpty()).isEqualTo(expected.isEmpty());
+        assertThat(map.get(key, -1)).isEqualTo(expected.getOrDefault(key, -1));
+      }
+      for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+        assertThat(map.get(entry.getKey(), -1)).isEqualTo(entry.getValue());
+      }
+      // previous versions are not affected by the updates
+      for (int i = 0; i < snapshots.size(); i++) {
+        PLongIntMap snapshot = snapshots.get(i);
+        expectedSnapshots.get(i).forEach((key, value) -> assertThat(snapshot.get(key, -1)).isEqualTo(value));
+      }
+      for (Long key : expected.keySet()) {
+        map = map.remove(key);
+      }
+      assertThat(map.isEmpty()).isTrue();
+    }
+  }
+}
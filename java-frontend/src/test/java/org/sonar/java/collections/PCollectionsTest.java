@@ -33,6 +33,7 @@ class PCollectionsTest {
     assertThat(PCollections.emptySet()).isSameAs(AVLTree.create());
     assertThat(PCollections.emptyMap()).isSameAs(AVLTree.create());
     assertThat(PCollections.emptyStack()).isSameAs(SinglyLinkedList.EMPTY);
+    assertThat(PCollections.emptyLongIntMap()).isSameAs(LongIntHamt.EMPTY);
   }
 
   @Test
@@ -0,0 +1,160 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.assertj.core.api.Assertions;
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.eclipse.jdt.internal.compiler.env.NameEnvironmentAnswer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.TestUtils;
+import org.sonar.plugins.java.api.semantic.Type;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClasspathIndexTest {
+
+  private static final String ASSERTIONS_CLASS_FILE = "org/assertj/core/api/Assertions.class";
+
+  @Test
+  void jars_are_shared_between_files() throws Exception {
+    List<File> classpath = Arrays.asList(jarOf(Assertions.class), new File("target/classes"), new File("unknown.jar"));
+    try (ClasspathIndex classpathIndex = new ClasspathIndex(classpath, false)) {
+      assertThat(classpathIndex.indexedJars()).isEqualTo(1);
+      List<FileSystem.Classpath> entries = classpathIndex.entries();
+      List<FileSystem.Classpath> otherEntries = classpathIndex.entries();
+      // unknown jar is ignored later by ECJ, as it would be without index
+      assertThat(entries).hasSize(3);
+      assertThat(entries.get(0)).isInstanceOf(ClasspathIndex.SharedJar.class).isSameAs(otherEntries.get(0));
+      // directories are not shared
+      assertThat(entries.get(1)).isNotSameAs(otherEntries.get(1));
+    }
+  }
+
+  @Test
+  void running_vm_bootclasspath_is_included() throws Exception {
+    try (ClasspathIndex classpathIndex = new ClasspathIndex(new ArrayList<>(), true)) {
+      assertThat(classpathIndex.entries()).isNotEmpty();
+    }
+  }
+
+  @Test
+  void class_files_are_read_once() throws Exception {
+    ClasspathIndex.SharedJar jar = new ClasspathIndex.SharedJar(jarOf(Assertions.class));
+    jar.initialize();
+    NameEnvironmentAnswer answer = jar.findClass("Assertions".toCharArray(), "org/assertj/core/api", null, ASSERTIONS_CLASS_FILE, false);
+    // as done by ECJ once a file has been analyzed
+    jar.reset();
+    jar.initialize();
+    NameEnvironmentAnswer otherAnswer = jar.findClass("Assertions".toCharArray(), "org/assertj/core/api", null, ASSERTIONS_CLASS_FILE, false);
+
+    assertThat(answer.getBinaryType().getName()).isEqualTo(otherAnswer.getBinaryType().getName());
+    // ECJ completes class file readers while using them, they are not shared
+    assertThat(answer.getBinaryType()).isNotSameAs(otherAnswer.getBinaryType());
+
+    assertThat(jar.findClass("Unknown".toCharArray(), "org/assertj/core/api", null, "org/assertj/core/api/Unknown.class", false)).isNull();
+    assertThat(jar.findClass("Unknown".toCharArray(), "org/unknown", null, "org/unknown/Unknown.class", false)).isNull();
+    jar.close();
+  }
+
+  @Test
+  void least_recently_used_class_files_are_evicted() {
+    // keys of 2 chars weigh 4 bytes
+    ClasspathIndex.ClassFileCache cache = new ClasspathIndex.ClassFileCache(30);
+    cache.put("c1", new byte[10]);
+    cache.put("c2", new byte[10]);
+    assertThat(cache.bytes()).isEqualTo(28);
+    assertThat(cache.get("c1")).hasSize(10);
+    cache.put("c3", new byte[0]);
+    // c2 is the least recently used one
+    assertThat(cache.get("c2")).isNull();
+    assertThat(cache.get("c1")).hasSize(10);
+    assertThat(cache.get("c3")).isEmpty();
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.bytes()).isEqualTo(18);
+    cache.put("c3", new byte[5]);
+    assertThat(cache.bytes()).isEqualTo(23);
+    cache.put("c4", new byte[100]);
+    assertThat(cache.size()).isZero();
+    assertThat(cache.bytes()).isZero();
+    cache.put("c5", new byte[1]);
+    cache.clear();
+    assertThat(cache.size()).isZero();
+    assertThat(cache.bytes()).isZero();
+  }
+
+  @Test
+  void class_files_are_read_again_once_evicted() throws Exception {
+    ClasspathIndex.ClassFileCache cache = new ClasspathIndex.ClassFileCache(10);
+    ClasspathIndex.SharedJar jar = new ClasspathIndex.SharedJar(jarOf(Assertions.class), cache);
+    jar.initialize();
+    assertThat(jar.findClass("Assertions".toCharArray(), "org/assertj/core/api", null, ASSERTIONS_CLASS_FILE, false)).isNotNull();
+    // class file is bigger than the cache
+    assertThat(cache.size()).isZero();
+    assertThat(jar.findClass("Assertions".toCharArray(), "org/assertj/core/api", null, ASSERTIONS_CLASS_FILE, false)).isNotNull();
+    jar.close();
+  }
+
+  @Test
+  void files_parsed_one_by_one_resolve_types_from_shared_jars(@TempDir Path tempDir) throws Exception {
+    List<InputFile> inputFiles = Arrays.asList(
+      inputFile(tempDir.resolve("A.java"), "class A { org.assertj.core.api.Assertions field; }"),
+      inputFile(tempDir.resolve("B.java"), "class B { org.assertj.core.api.Assertions field; }"));
+    List<File> classpath = Arrays.asList(jarOf(Assertions.class));
+
+    List<String> fieldTypes = new ArrayList<>();
+    JParserConfig.Mode.FILE_BY_FILE.create(JParserConfig.MAXIMUM_SUPPORTED_JAVA_VERSION, classpath)
+      .parse(inputFiles, () -> false, (inputFile, result) -> {
+        try {
+          JavaTree.CompilationUnitTreeImpl tree = result.get();
+          VariableTree field = (VariableTree) ((ClassTree) tree.types().get(0)).members().get(0);
+          Type type = field.type().symbolType();
+          fieldTypes.add(type.isUnknown() ? "unknown" : type.fullyQualifiedName());
+          tree.sema.cleanupEnvironment();
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
+      });
+
+    assertThat(fieldTypes).containsExactly("org.assertj.core.api.Assertions", "org.assertj.core.api.Assertions");
+  }
+
+  private static File jarOf(Class<?> type) throws URISyntaxException {
+    return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+
+  private static InputFile inputFile(Path path, String content) throws IOException {
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    return TestUtils.inputFile(path.toFile());
+  }
+
+}
@@ -59,6 +59,8 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class DefaultJavaFileScannerContextTest {
@@ -106,6 +108,7 @@ class DefaultJavaFileScannerContextTest {
 
   @Test
   void get_file_content() {
+    ((JavaTree.CompilationUnitTreeImpl) compilationUnitTree).source = null;
     assertThat(context.getFileContent())
       .isEqualTo("content")
       .isSameAs(context.getFileContent());
@@ -113,6 +116,7 @@ class DefaultJavaFileScannerContextTest {
 
   @Test
   void get_file_lines() {
+    ((JavaTree.CompilationUnitTreeImpl) compilationUnitTree).source = null;
     List<String> lines = context.getFileLines();
     assertThat(lines)
       .hasSize(2)
@@ -122,6 +126,21 @@ class DefaultJavaFileScannerContextTest {
     assertThatThrownBy(() -> lines.add("new line")).isInstanceOf(UnsupportedOperationException.class);
   }
 
+  @Test
+  void get_file_content_and_lines_from_parsed_source() throws Exception {
+    // parsed from the content of the input file, as done by the analysis
+    CompilationUnitTree tree = JParserTestUtils.parse(JAVA_INPUT_FILE.contents());
+    context = new DefaultJavaFileScannerContext(tree, JAVA_INPUT_FILE, null, sonarComponents, new JavaVersionImpl(), true);
+    String parsedSource = ((JavaTree.CompilationUnitTreeImpl) tree).source.text();
+    assertThat(context.getFileContent())
+      .isEqualTo(JAVA_INPUT_FILE.contents())
+      .isSameAs(parsedSource);
+    assertThat(context.getFileLines())
+      .isEqualTo(new SonarComponents(null, null, null, null, null).fileLines(JAVA_INPUT_FILE));
+    verify(sonarComponents, never()).inputFileContents(any());
+    verify(sonarComponents, never()).fileLines(any());
+  }
+
   @Test
   void get_semantic_model() {
     assertThat(context.getSemanticModel()).isNull();
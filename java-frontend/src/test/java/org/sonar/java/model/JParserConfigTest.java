@@ -19,9 +19,31 @@
  */
 package org.sonar.java.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.TestUtils;
+import org.sonar.plugins.java.api.tree.ClassTree;
+import org.sonar.plugins.java.api.tree.VariableTree;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.sonar.java.model.JParserConfig.effectiveJavaVersion;
 
 class JParserConfigTest {
@@ -33,4 +55,103 @@ class JParserConfigTest {
     assertThat(effectiveJavaVersion(new JavaVersionImpl(10))).isEqualTo("10");
   }
 
+  @Test
+  void batch_in_partitions_resolves_types_from_sources_of_other_partitions(@TempDir Path tempDir) throws IOException {
+    Path packageDirectory = Files.createDirectories(tempDir.resolve("src").resolve("org").resolve("foo"));
+    Path otherDirectory = Files.createDirectories(tempDir.resolve("other"));
+    List<InputFile> inputFiles = Arrays.asList(
+      inputFile(packageDirectory.resolve("A.java"), "package org.foo;\nclass A {}"),
+      inputFile(packageDirectory.resolve("B.java"), "package org.foo;\nclass B { A a; }"),
+      // not stored according to its package, only visible to files of the same partition
+      inputFile(otherDirectory.resolve("C.java"), "package org.bar;\nclass C { }"),
+      inputFile(packageDirectory.resolve("D.java"), "package org.foo;\nclass D { org.bar.C c; }"));
+
+    Map<String, Boolean> unknownFieldTypes = new HashMap<>();
+    JParserConfig.batch("16", Collections.emptyList(), 1).parse(inputFiles, () -> false, (inputFile, result) -> {
+      ClassTree classTree;
+      try {
+        classTree = (ClassTree) result.get().types().get(0);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      classTree.members().stream()
+        .map(VariableTree.class::cast)
+        .forEach(field -> unknownFieldTypes.put(inputFile.filename(), field.type().symbolType().isUnknown()));
+    });
+
+    assertThat(unknownFieldTypes)
+      .containsEntry("B.java", false)
+      .containsEntry("D.java", true);
+  }
+
+  @Test
+  void source_directory_is_read_from_the_header_of_the_file(@TempDir Path tempDir) throws IOException {
+    Path packageDirectory = Files.createDirectories(tempDir.resolve("src").resolve("org").resolve("foo"));
+    InputFile inputFile = headerOnlyInputFile(packageDirectory.resolve("A.java"), "/*\n * Copyright; this class is licensed\n */\n" +
+      "package org.\n  foo;\n\nimport java.util.List;\nclass A { }");
+    assertThat(JParserConfig.sourceDirectory(inputFile)).isEqualTo(tempDir.resolve("src").toFile());
+    verify(inputFile, never()).contents();
+
+    InputFile defaultPackage = headerOnlyInputFile(packageDirectory.resolve("B.java"), "// package org.foo;\npublic class B { }\npackage org.foo;");
+    assertThat(JParserConfig.sourceDirectory(defaultPackage)).isEqualTo(packageDirectory.toFile());
+
+    InputFile otherPackage = headerOnlyInputFile(packageDirectory.resolve("C.java"), "package org.bar; class C { }");
+    assertThat(JParserConfig.sourceDirectory(otherPackage)).isNull();
+
+    InputFile notAFile = mock(InputFile.class);
+    when(notAFile.uri()).thenReturn(URI.create("jar:file:/lib.jar!/org/foo/D.java"));
+    assertThat(JParserConfig.sourceDirectory(notAFile)).isNull();
+  }
+
+  private static InputFile headerOnlyInputFile(Path path, String content) throws IOException {
+    InputFile inputFile = mock(InputFile.class);
+    when(inputFile.uri()).thenReturn(path.toUri());
+    when(inputFile.charset()).thenReturn(StandardCharsets.UTF_8);
+    when(inputFile.inputStream()).thenReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    return inputFile;
+  }
+
+  @Test
+  void pipelined_calls_action_on_calling_thread_in_order_of_files(@TempDir Path tempDir) throws IOException {
+    List<InputFile> inputFiles = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      inputFiles.add(inputFile(tempDir.resolve("A" + i + ".java"), "class A" + i + " {}"));
+    }
+    inputFiles.add(inputFile(tempDir.resolve("Error.java"), "class Error {"));
+
+    Thread callingThread = Thread.currentThread();
+    List<String> analyzedFiles = new ArrayList<>();
+    List<String> failedFiles = new ArrayList<>();
+    JParserConfig.pipelined("16", Collections.emptyList(), 3, 2).parse(inputFiles, () -> false, (inputFile, result) -> {
+      assertThat(Thread.currentThread()).isSameAs(callingThread);
+      analyzedFiles.add(inputFile.filename());
+      try {
+        assertThat(result.get().types()).hasSize(1);
+      } catch (Exception e) {
+        failedFiles.add(inputFile.filename());
+      }
+    });
+
+    assertThat(analyzedFiles).containsExactlyElementsOf(inputFiles.stream().map(InputFile::filename).collect(Collectors.toList()));
+    assertThat(failedFiles).containsExactly("Error.java");
+  }
+
+  @Test
+  void pipelined_stops_when_cancelled(@TempDir Path tempDir) throws IOException {
+    List<InputFile> inputFiles = Arrays.asList(
+      inputFile(tempDir.resolve("A.java"), "class A {}"),
+      inputFile(tempDir.resolve("B.java"), "class B {}"));
+
+    List<String> analyzedFiles = new ArrayList<>();
+    JParserConfig.pipelined("16", Collections.emptyList(), 1, 1)
+      .parse(inputFiles, () -> !analyzedFiles.isEmpty(), (inputFile, result) -> analyzedFiles.add(inputFile.filename()));
+
+    assertThat(analyzedFiles).containsExactly("A.java");
+  }
+
+  private static InputFile inputFile(Path path, String content) throws IOException {
+    Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    return TestUtils.inputFile(path.toFile());
+  }
+
 }
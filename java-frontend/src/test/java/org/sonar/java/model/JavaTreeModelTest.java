@@ -103,6 +103,19 @@ class JavaTreeModelTest {
     assertThat(((JavaTree) classTree.modifiers()).getLine()).isEqualTo(-1);
   }
 
+  @Test
+  void children_array_skips_null_children_and_is_computed_once() {
+    MethodTree method = (MethodTree) firstTypeMember("class T { void m() {} }");
+    JavaTree tree = (JavaTree) method;
+    Tree[] children = tree.getChildrenArray();
+    assertThat(children)
+      .isSameAs(tree.getChildrenArray())
+      .doesNotContainNull()
+      .contains(method.simpleName(), method.block());
+    assertThat(tree.getChildren()).containsExactly(children);
+    assertThat(((JavaTree) method.typeParameters()).getChildrenArray()).isEmpty();
+  }
+
   @Test
   void primitive_type() {
     PrimitiveTypeTree tree = (PrimitiveTypeTree) ((MethodTree) firstTypeMember("class T { int m() { return null; } }")).returnType();
@@ -0,0 +1,109 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.TestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SourceBufferTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void text_and_chars_are_shared() {
+    String text = "class A {}";
+    SourceBuffer source = SourceBuffer.of(text);
+    assertThat(source.text()).isSameAs(text);
+    assertThat(source.chars()).isSameAs(source.chars()).containsExactly("class A {}".toCharArray());
+    assertThat(source.length()).isEqualTo(10);
+  }
+
+  @Test
+  void lines() {
+    assertThat(SourceBuffer.of("").lines()).isEmpty();
+    assertThat(SourceBuffer.of("a\r\nb\rc\nd\n").lines()).containsExactly("a", "b", "c", "d");
+    assertThat(SourceBuffer.of("a\n\nb").lines()).containsExactly("a", "", "b");
+  }
+
+  @Test
+  void small_files_are_read_through_input_file() throws IOException {
+    InputFile inputFile = TestUtils.inputFile("src/test/files/api/JavaFileScannerContext.java");
+    SourceBuffer source = SourceBuffer.of(inputFile);
+    assertThat(source.text()).isEqualTo(inputFile.contents());
+    assertThat(source.length()).isEqualTo(inputFile.contents().length());
+  }
+
+  @Test
+  void large_files_are_memory_mapped() throws IOException {
+    StringBuilder code = new StringBuilder("class A {\n");
+    while (code.length() < SourceBuffer.MAPPED_FILE_MIN_SIZE) {
+      code.append("  String s").append(code.length()).append(" = \"été\";\n");
+    }
+    code.append("}\n");
+    File file = tempDir.resolve("A.java").toFile();
+    byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    byte[] content = code.toString().getBytes(StandardCharsets.UTF_8);
+    byte[] bytes = Arrays.copyOf(bom, bom.length + content.length);
+    System.arraycopy(content, 0, bytes, bom.length, content.length);
+    Files.write(file.toPath(), bytes);
+    InputFile inputFile = TestInputFileBuilder.create("", tempDir.toFile(), file)
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+
+    SourceBuffer source = SourceBuffer.of(inputFile);
+    assertThat(source.chars()).isSameAs(source.chars()).hasSize(code.length());
+    assertThat(source.text()).isEqualTo(code.toString()).isSameAs(source.text());
+    assertThat(source.lines())
+      .hasSize(code.toString().split("\n").length)
+      .isEqualTo(new SonarComponents(null, null, null, null, null).fileLines(inputFile));
+  }
+
+  @Test
+  void lines_are_the_ones_read_from_the_input_file_with_byte_order_mark() throws IOException {
+    File file = tempDir.resolve("B.java").toFile();
+    Files.write(file.toPath(), "\uFEFFclass B {\n}\n".getBytes(StandardCharsets.UTF_8));
+    InputFile inputFile = TestInputFileBuilder.create("", tempDir.toFile(), file)
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+
+    assertThat(SourceBuffer.of(inputFile).lines())
+      .containsExactly("class B {", "}")
+      .isEqualTo(new SonarComponents(null, null, null, null, null).fileLines(inputFile));
+  }
+
+  @Test
+  void file_lines_are_unchanged_for_empty_content() {
+    assertThat(SourceBuffer.of("\n").lines()).isEqualTo(Collections.emptyList());
+  }
+}
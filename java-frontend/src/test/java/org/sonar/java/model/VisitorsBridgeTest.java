@@ -20,6 +20,9 @@
 package org.sonar.java.model;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -29,15 +32,18 @@ import org.assertj.core.api.Fail;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.internal.SensorContextTester;
 import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.log.LogTesterJUnit5;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.check.Rule;
 import org.sonar.java.AnalysisException;
 import org.sonar.java.CheckFailureException;
 import org.sonar.java.EndOfAnalysisCheck;
 import org.sonar.java.JavaVersionAwareVisitor;
+import org.sonar.java.RuleCostReport;
 import org.sonar.java.SonarComponents;
 import org.sonar.java.TestUtils;
 import org.sonar.java.ast.visitors.SubscriptionVisitor;
@@ -50,12 +56,15 @@ import org.sonar.plugins.java.api.tree.SyntaxToken;
 import org.sonar.plugins.java.api.tree.SyntaxTrivia;
 import org.sonar.plugins.java.api.tree.Tree;
 import org.sonar.plugins.java.api.tree.Tree.Kind;
+import org.sonarsource.performance.measure.PerformanceMeasure;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class VisitorsBridgeTest {
 
@@ -111,6 +120,152 @@ class VisitorsBridgeTest {
     return result.substring(0, result.length() - 1);
   }
 
+  @Test
+  void subscription_visitors_are_called_in_order_of_tree_and_of_registration() {
+    List<String> trace = new ArrayList<>();
+    class TracingVisitor extends IssuableSubscriptionVisitor {
+      private final String name;
+      private final List<Tree.Kind> nodesToVisit;
+
+      TracingVisitor(String name, Tree.Kind... nodesToVisit) {
+        this.name = name;
+        this.nodesToVisit = Arrays.asList(nodesToVisit);
+      }
+
+      @Override
+      public List<Tree.Kind> nodesToVisit() {
+        return nodesToVisit;
+      }
+
+      @Override
+      public void visitNode(Tree tree) {
+        trace.add(name + " visit " + tree.kind());
+      }
+
+      @Override
+      public void leaveNode(Tree tree) {
+        trace.add(name + " leave " + tree.kind());
+      }
+
+      @Override
+      public void visitToken(SyntaxToken syntaxToken) {
+        trace.add(name + " token " + syntaxToken.text());
+      }
+
+      @Override
+      public void visitTrivia(SyntaxTrivia syntaxTrivia) {
+        trace.add(name + " trivia " + syntaxTrivia.comment());
+      }
+    }
+    VisitorsBridge visitorsBridge = new VisitorsBridge(Arrays.asList(
+      new TracingVisitor("V1", Tree.Kind.CLASS, Tree.Kind.METHOD),
+      new TracingVisitor("V2", Tree.Kind.METHOD, Tree.Kind.TRIVIA),
+      new TracingVisitor("V3", Tree.Kind.TOKEN)), new ArrayList<>(), null);
+
+    checkFile("A.java", "class A { /* c */ void m() {} }", visitorsBridge);
+
+    assertThat(trace).containsExactly(
+      "V1 visit CLASS",
+      "V3 token class",
+      "V3 token A",
+      "V3 token {",
+      "V1 visit METHOD",
+      "V2 visit METHOD",
+      "V3 token void",
+      "V2 trivia /* c */",
+      "V3 token m",
+      "V3 token (",
+      "V3 token )",
+      "V3 token {",
+      "V3 token }",
+      "V1 leave METHOD",
+      "V2 leave METHOD",
+      "V3 token }",
+      "V1 leave CLASS",
+      "V3 token ");
+  }
+
+  @Rule(key = "S1")
+  private static class RuleScanner implements JavaFileScanner {
+    @Override
+    public void scanFile(JavaFileScannerContext context) {
+      // no issue
+    }
+  }
+
+  @Rule(key = "S2")
+  private static class RuleSubscriptionVisitor extends IssuableSubscriptionVisitor {
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Collections.singletonList(Tree.Kind.COMPILATION_UNIT);
+    }
+  }
+
+  @Test
+  void rule_costs_are_recorded_by_rule_key() {
+    JavaFileScanner notARule = context -> {};
+    VisitorsBridge visitorsBridge = new VisitorsBridge(Arrays.asList(new RuleScanner(), new RuleSubscriptionVisitor(), notARule),
+      new ArrayList<>(), null);
+    RuleCostReport ruleCostReport = new RuleCostReport();
+    visitorsBridge.setRuleCostReport(ruleCostReport);
+
+    checkFile("A.java", "class A { }", visitorsBridge);
+
+    assertThat(ruleCostReport.toString().split(System.lineSeparator()))
+      .hasSize(3)
+      .anyMatch(line -> line.startsWith("    S1 (") && line.contains(", 1 invocations), slowest on A.java ("))
+      // setContext, and visitNode and leaveNode on the compilation unit, are measured as they are the first sampled calls, leaveFile
+      // is only counted
+      .anyMatch(line -> line.startsWith("    S2 (~") && line.contains(", 4 invocations), slowest on A.java (~"))
+      .anyMatch(line -> line.startsWith("    " + notARule.getClass().getName() + " (") && line.contains(", 1 invocations), slowest on A.java ("));
+  }
+
+  @Rule(key = "S3")
+  private static class MethodSubscriptionVisitor extends IssuableSubscriptionVisitor {
+    @Override
+    public List<Tree.Kind> nodesToVisit() {
+      return Collections.singletonList(Tree.Kind.METHOD);
+    }
+  }
+
+  @Test
+  void invocations_on_nodes_which_are_not_measured_are_counted() {
+    VisitorsBridge visitorsBridge = new VisitorsBridge(Collections.singletonList(new MethodSubscriptionVisitor()), new ArrayList<>(), null);
+    RuleCostReport ruleCostReport = new RuleCostReport();
+    visitorsBridge.setRuleCostReport(ruleCostReport);
+
+    checkFile("A.java", "class A { void m1() { } void m2() { } void m3() { } }", visitorsBridge);
+
+    // visitNode and leaveNode on the 3 methods, which are not sampled, on top of setContext and leaveFile
+    assertThat(ruleCostReport.toString()).startsWith("    S3 (~").contains(", 8 invocations), slowest on A.java (~");
+  }
+
+  @Test
+  void subscription_visitors_are_measured_on_every_node_when_performance_measure_is_activated(@TempDir Path tempDir) throws IOException {
+    assertThat(measuredCalls(tempDir, false)).contains("\"calls\": 2");
+    // visitNode and leaveNode on the method are measured on top of setContext and leaveFile
+    assertThat(measuredCalls(tempDir, true)).contains("\"calls\": 4");
+  }
+
+  private static String measuredCalls(Path tempDir, boolean performanceMeasureActivated) throws IOException {
+    SonarComponents sonarComponents = mock(SonarComponents.class);
+    when(sonarComponents.isSonarLintContext()).thenReturn(true);
+    when(sonarComponents.isPerformanceMeasureEnabled()).thenReturn(performanceMeasureActivated);
+    VisitorsBridge visitorsBridge = new VisitorsBridge(Collections.singletonList(new MethodSubscriptionVisitor()), new ArrayList<>(), sonarComponents);
+
+    Path performanceFile = tempDir.resolve("performance.measure." + performanceMeasureActivated + ".json");
+    PerformanceMeasure.Duration duration = PerformanceMeasure.reportBuilder()
+      .activate(true)
+      .toFile(performanceFile.toString())
+      .start("Test");
+    checkFile("A.java", "class A { void m() { } }", visitorsBridge);
+    duration.stop();
+
+    String performance = new String(Files.readAllBytes(performanceFile), UTF_8);
+    String visitorName = MethodSubscriptionVisitor.class.getSimpleName();
+    return performance.substring(performance.indexOf(visitorName));
+  }
+
   @Test
   void rethrow_exception_when_hidden_property_set_to_true_with_JavaFileScanner() {
     VisitorsBridge visitorsBridge = visitorsBridge(new JFS_ThrowingNPEJavaFileScanner(), true);
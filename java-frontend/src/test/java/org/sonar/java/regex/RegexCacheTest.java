@@ -20,6 +20,7 @@
 package org.sonar.java.regex;
 
 import java.util.List;
+import java.util.regex.Pattern;
 import org.junit.jupiter.api.Test;
 import org.sonar.java.model.JParserTestUtils;
 import org.sonar.plugins.java.api.tree.ClassTree;
@@ -83,4 +84,50 @@ class RegexCacheTest {
     assertThat(resultForS1S0).isSameAs(cache.getRegexForLiterals(new FlagSet(), s1, s0));
   }
 
+  @Test
+  void different_result_for_different_flags() {
+    CompilationUnitTree cut = JParserTestUtils.parse(
+      "class A {\n"
+        + "  String s0 = \"a b\";\n"
+        + "}");
+    ClassTree a = (ClassTree) cut.types().get(0);
+    LiteralTree s0 = (LiteralTree) ((VariableTree) a.members().get(0)).initializer();
+
+    RegexCache cache = new RegexCache();
+    RegexParseResult withoutFlags = cache.getRegexForLiterals(new FlagSet(), s0);
+    RegexParseResult withComments = cache.getRegexForLiterals(new FlagSet(Pattern.COMMENTS), s0);
+
+    assertThat(withComments).isNotSameAs(withoutFlags);
+    assertThat(withComments.getInitialFlags().contains(Pattern.COMMENTS)).isTrue();
+    assertThat(cache.getRegexForLiterals(new FlagSet(), s0)).isSameAs(withoutFlags);
+    assertThat(cache.getRegexForLiterals(new FlagSet(Pattern.COMMENTS), s0)).isSameAs(withComments);
+  }
+
+  @Test
+  void analyses_are_kept_by_regex_and_type() {
+    CompilationUnitTree cut = JParserTestUtils.parse(
+      "class A {\n"
+        + "  String s0 = \"abc\";\n"
+        + "  String s1 = \"abc\";\n"
+        + "}");
+    ClassTree a = (ClassTree) cut.types().get(0);
+    List<Tree> fields = a.members();
+    LiteralTree s0 = (LiteralTree) ((VariableTree) fields.get(0)).initializer();
+    LiteralTree s1 = (LiteralTree) ((VariableTree) fields.get(1)).initializer();
+
+    RegexCache cache = new RegexCache();
+    RegexParseResult resultForS0 = cache.getRegexForLiterals(new FlagSet(), s0);
+    RegexParseResult resultForS1 = cache.getRegexForLiterals(new FlagSet(), s1);
+    Object analysisOfS0 = cache.getAnalysis(resultForS0, Object.class, regex -> new Object());
+
+    assertThat(cache.getAnalysis(resultForS0, Object.class, regex -> new Object())).isSameAs(analysisOfS0);
+    assertThat(cache.getAnalysis(resultForS1, Object.class, regex -> new Object())).isNotSameAs(analysisOfS0);
+    assertThat(new RegexCache().getAnalysis(resultForS0, Object.class, regex -> new Object())).isNotSameAs(analysisOfS0);
+
+    StringBuilder otherAnalysisOfS0 = cache.getAnalysis(resultForS0, StringBuilder.class, regex -> new StringBuilder());
+    assertThat(otherAnalysisOfS0).isNotSameAs(analysisOfS0);
+    assertThat(cache.getAnalysis(resultForS0, StringBuilder.class, regex -> new StringBuilder())).isSameAs(otherAnalysisOfS0);
+    assertThat(cache.getAnalysis(resultForS0, Object.class, regex -> new Object())).isSameAs(analysisOfS0);
+  }
+
 }
@@ -96,6 +96,7 @@ class InternalJavaIssueBuilderTest {
     SonarComponents sonarComponents = mock(SonarComponents.class);
     sensorContextTester = SensorContextTester.create(new File(""));
     when(sonarComponents.context()).thenReturn(sensorContextTester);
+    when(sonarComponents.newIssue()).then(invocation -> sensorContextTester.newIssue());
     when(sonarComponents.getRuleKey(any())).thenReturn(Optional.of(RULE_KEY));
 
     inputFile = TestUtils.inputFile("src/test/files/api/JavaFileInternalJavaIssueBuilderTest.java");
@@ -373,6 +374,7 @@ class InternalJavaIssueBuilderTest {
 
       sc = mock(SonarComponents.class);
       when(sc.context()).thenReturn(sct);
+      when(sc.newIssue()).then(invocation -> sct.newIssue());
       when(sc.getRuleKey(any())).thenReturn(Optional.of(RULE_KEY));
 
       ipf = mock(SonarLintInputFile.class);
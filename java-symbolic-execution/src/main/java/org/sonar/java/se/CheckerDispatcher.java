@@ -19,8 +19,11 @@
  */
 package org.sonar.java.se;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
@@ -38,6 +41,7 @@ import org.sonarsource.performance.measure.PerformanceMeasure;
 public class CheckerDispatcher implements CheckerContext {
   private final ExplodedGraphWalker explodedGraphWalker;
   private final List<SECheck> checks;
+  private final ChecksByKind checksByKind;
   private int currentCheckerIndex = -1;
   private boolean transition = false;
   private Exception interruptionCause = null;
@@ -47,14 +51,20 @@ public class CheckerDispatcher implements CheckerContext {
   MethodYield methodYield = null;
 
   public CheckerDispatcher(ExplodedGraphWalker explodedGraphWalker, List<SECheck> checks) {
+    this(explodedGraphWalker, new ChecksByKind(checks));
+  }
+
+  CheckerDispatcher(ExplodedGraphWalker explodedGraphWalker, ChecksByKind checksByKind) {
     this.explodedGraphWalker = explodedGraphWalker;
-    this.checks = checks;
+    this.checks = checksByKind.checks;
+    this.checksByKind = checksByKind;
   }
 
   public boolean executeCheckPreStatement(Tree syntaxNode) {
     this.syntaxNode = syntaxNode;
     ProgramState ps;
-    for (SECheck checker : checks) {
+    Tree.Kind kind = syntaxNode.kind();
+    for (SECheck checker : kind == null ? checks : checksByKind.preStatementChecks(kind)) {
       PerformanceMeasure.Duration checkerDuration = PerformanceMeasure.start(checker);
       ps = checker.checkPreStatement(this, syntaxNode);
       checkerDuration.stop();
@@ -105,6 +115,18 @@ public class CheckerDispatcher implements CheckerContext {
 
   private void executePost() {
     this.transition = false;
+    Tree.Kind kind = syntaxNode.kind();
+    int skippedCheckers = 0;
+    while (currentCheckerIndex < checks.size() && kind != null && !checksByKind.postStatementKinds.get(currentCheckerIndex).contains(kind)) {
+      // the check would let the state unchanged
+      currentCheckerIndex++;
+      skippedCheckers++;
+    }
+    executePostOfCurrentChecker();
+    currentCheckerIndex -= skippedCheckers;
+  }
+
+  private void executePostOfCurrentChecker() {
     if (currentCheckerIndex < checks.size()) {
       explodedGraphWalker.programState = checks.get(currentCheckerIndex).checkPostStatement(this, syntaxNode);
     } else {
@@ -191,4 +213,29 @@ public class CheckerDispatcher implements CheckerContext {
   public MethodBehavior peekMethodBehavior(Symbol.MethodSymbol symbol) {
     return explodedGraphWalker.peekMethodBehavior(symbol);
   }
+
+  /**
+   * The checks to call, indexed by the kinds of the trees they react to. It only depends on the checks, so that it is computed once
+   * and shared by the walkers exploring the methods with these checks.
+   */
+  static final class ChecksByKind {
+    private final List<SECheck> checks;
+    // checks to call by kind of tree, so that checks not reacting to a tree are not called for each of its program points
+    private final Map<Tree.Kind, List<SECheck>> preStatementChecks = new EnumMap<>(Tree.Kind.class);
+    private final List<Set<Tree.Kind>> postStatementKinds = new ArrayList<>();
+
+    ChecksByKind(List<SECheck> checks) {
+      this.checks = checks;
+      for (SECheck check : checks) {
+        for (Tree.Kind kind : check.preStatementKinds()) {
+          preStatementChecks.computeIfAbsent(kind, k -> new ArrayList<>()).add(check);
+        }
+        postStatementKinds.add(check.postStatementKinds());
+      }
+    }
+
+    List<SECheck> preStatementChecks(Tree.Kind kind) {
+      return preStatementChecks.getOrDefault(kind, Collections.emptyList());
+    }
+  }
 }
@@ -19,8 +19,9 @@
  */
 package org.sonar.java.se;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import org.sonar.java.Preconditions;
 
@@ -35,30 +36,44 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public class ExplodedGraph {
 
-  private final Map<Node, Node> nodes = new HashMap<>();
+  // nodes by program point then by program state, so that looking a node up does not require to allocate one
+  private final Map<ProgramPoint, Map<ProgramState, Node>> nodes = new HashMap<>();
   private final Map<ProgramPoint, List<Node>> nodesByProgramPoint = new HashMap<>();
+  private int size = 0;
 
   /**
    * Returns node associated with given (programPoint,programState) pair. If no node for this pair exists, it is created.
    */
   public Node node(ProgramPoint programPoint, @Nullable ProgramState programState) {
-    Node result = new Node(programPoint, programState, this);
-    Node cached = nodes.get(result);
+    Map<ProgramState, Node> nodesByState = nodes.computeIfAbsent(programPoint, k -> new HashMap<>());
+    Node cached = nodesByState.get(programState);
     if (cached != null) {
       cached.isNew = false;
       return cached;
     }
+    Node result = new Node(programPoint, programState, this);
+    size++;
     result.isNew = true;
-    nodes.put(result, result);
-    nodesByProgramPoint.computeIfAbsent(programPoint, k -> new LinkedList<>()).add(result);
+    nodesByState.put(programState, result);
+    nodesByProgramPoint.computeIfAbsent(programPoint, k -> new ArrayList<>(2)).add(result);
     return result;
   }
 
-  public Map<Node, Node> nodes() {
-    return nodes;
+  /**
+   * @return the number of nodes of the graph
+   */
+  public int size() {
+    return size;
+  }
+
+  public Collection<Node> nodes() {
+    return nodes.values().stream()
+      .flatMap(nodesByState -> nodesByState.values().stream())
+      .collect(Collectors.toList());
   }
 
   public static final class Node {
@@ -67,7 +82,13 @@ public class ExplodedGraph {
     @Nullable
     public final ProgramState programState;
 
-    private final Map<Node, Edge> edges = new HashMap<>();
+    // most nodes have a single parent: edges are kept in insertion order in an array, and only indexed by parent when there are many
+    private static final Edge[] NO_EDGES = new Edge[0];
+    private static final int MAX_EDGES_WITHOUT_INDEX = 8;
+    private Edge[] edges = NO_EDGES;
+    private int edgeCount = 0;
+    @Nullable
+    private Map<Node, Edge> edgesByParent;
 
     private boolean isNew;
     boolean exitPath = false;
@@ -86,10 +107,43 @@ public class ExplodedGraph {
       if (parent == null) {
         return;
       }
-      Edge edge = edges.computeIfAbsent(parent, p -> new Edge(this, p));
+      Edge edge = edge(parent);
+      if (edge == null) {
+        edge = new Edge(this, parent);
+        addEdge(edge);
+      }
       if (methodYield != null) {
         Preconditions.checkState(parent.programPoint.syntaxTree().is(Tree.Kind.METHOD_INVOCATION), "Yield on edge where parent is not MIT");
-        edge.yields.add(methodYield);
+        edge.addYield(methodYield);
+      }
+    }
+
+    @Nullable
+    private Edge edge(Node parent) {
+      if (edgesByParent != null) {
+        return edgesByParent.get(parent);
+      }
+      for (int i = 0; i < edgeCount; i++) {
+        if (edges[i].parent.equals(parent)) {
+          return edges[i];
+        }
+      }
+      return null;
+    }
+
+    private void addEdge(Edge edge) {
+      if (edgeCount == edges.length) {
+        edges = Arrays.copyOf(edges, edgeCount == 0 ? 1 : (edgeCount * 2));
+      }
+      edges[edgeCount] = edge;
+      edgeCount++;
+      if (edgesByParent != null) {
+        edgesByParent.put(edge.parent, edge);
+      } else if (edgeCount > MAX_EDGES_WITHOUT_INDEX) {
+        edgesByParent = new HashMap<>();
+        for (int i = 0; i < edgeCount; i++) {
+          edgesByParent.put(edges[i].parent, edges[i]);
+        }
       }
     }
 
@@ -101,14 +155,18 @@ public class ExplodedGraph {
 
     @Nullable
     public Node parent() {
-      return parents().stream().findFirst().orElse(null);
+      return edgeCount == 0 ? null : edges[0].parent;
     }
 
     /**
      * @return the ordered (by insertion) sets of parents
      */
     public Set<Node> parents() {
-      return edges.keySet();
+      Set<Node> parents = new LinkedHashSet<>();
+      for (int i = 0; i < edgeCount; i++) {
+        parents.add(edges[i].parent);
+      }
+      return parents;
     }
 
     @Override
@@ -131,8 +189,11 @@ public class ExplodedGraph {
       return "B" + programPoint.block.id() + "." + programPoint.i + ": " + programState;
     }
 
+    /**
+     * @return the ordered (by insertion) edges to the parents of this node
+     */
     public Collection<Edge> edges() {
-      return edges.values();
+      return Collections.unmodifiableList(Arrays.asList(edges).subList(0, edgeCount));
     }
 
     public boolean isNew() {
@@ -147,7 +208,8 @@ public class ExplodedGraph {
 
     private Set<LearnedConstraint> lc;
     private Set<LearnedAssociation> la;
-    private final Set<MethodYield> yields = new LinkedHashSet<>();
+    // most edges do not come from a method invocation with yields
+    private Set<MethodYield> yields = Collections.emptySet();
 
     private Edge(Node child, Node parent) {
       Preconditions.checkState(!child.equals(parent));
@@ -182,6 +244,13 @@ public class ExplodedGraph {
       return yields;
     }
 
+    private void addYield(MethodYield methodYield) {
+      if (yields.isEmpty()) {
+        yields = new LinkedHashSet<>();
+      }
+      yields.add(methodYield);
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
@@ -19,15 +19,17 @@
  */
 package org.sonar.java.se;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -102,10 +104,6 @@ import static org.sonar.java.se.NullableAnnotationUtils.isGloballyAnnotatedParam
 
 public class ExplodedGraphWalker {
 
-  /**
-   * Arbitrary number to limit symbolic execution.
-   */
-  private static final int MAX_STEPS = 16_000;
   public static final int MAX_NESTED_BOOLEAN_STATES = 10_000;
   // would correspond to 10 parameters annotated with @Nullable
   private static final int MAX_STARTING_STATES = 1_024;
@@ -132,7 +130,8 @@ public class ExplodedGraphWalker {
   private final AlwaysTrueOrFalseExpressionCollector alwaysTrueOrFalseExpressionCollector;
   private MethodTree methodTree;
 
-  private ExplodedGraph explodedGraph;
+  @VisibleForTesting
+  ExplodedGraph explodedGraph;
 
   @VisibleForTesting
   Deque<ExplodedGraph.Node> workList;
@@ -148,6 +147,20 @@ public class ExplodedGraphWalker {
   private final BehaviorCache behaviorCache;
   @VisibleForTesting
   int steps;
+  int startingStates;
+  private int maxSteps = ExplorationBudget.DEFAULT_MAX_STEPS_PER_METHOD;
+  private WorklistStrategy strategy = WorklistStrategy.DEPTH_FIRST;
+  // ids of the blocks reached by the exploration, to favor the other ones with the coverage guided strategy
+  private BitSet exploredBlocks;
+  private boolean mergeStates = false;
+  // nodes enqueued at join points and not explored yet, in which the states reaching the same join point are merged
+  private Map<ProgramPoint, ExplodedGraph.Node> pendingJoinNodes;
+  // nodes merged into another one while in the work list, skipped when removed from it
+  private Set<ExplodedGraph.Node> supersededNodes;
+  // superseded nodes removed from the work list without being explored, to explore if a state reaches them again
+  private Set<ExplodedGraph.Node> discardedNodes;
+  @VisibleForTesting
+  int mergedStates;
 
   ConstraintManager constraintManager;
   private boolean cleanup = true;
@@ -155,6 +168,24 @@ public class ExplodedGraphWalker {
   MethodBehavior methodBehavior;
   private Set<ExplodedGraph.Node> endOfExecutionPath;
 
+  /**
+   * Order in which the nodes of the exploded graph are explored
+   */
+  public enum WorklistStrategy {
+    /**
+     * Explores a whole path before switching to another one
+     */
+    DEPTH_FIRST,
+    /**
+     * Explores all the paths step by step
+     */
+    BREADTH_FIRST,
+    /**
+     * Explores depth first the paths leading to blocks not explored yet, then the other paths in the order they were enqueued
+     */
+    COVERAGE_GUIDED
+  }
+
   public static class ExplodedGraphTooBigException extends RuntimeException {
 
     public ExplodedGraphTooBigException(String s) {
@@ -200,12 +231,33 @@ public class ExplodedGraphWalker {
 
   @VisibleForTesting
   protected ExplodedGraphWalker(List<SECheck> seChecks, BehaviorCache behaviorCache, Sema semanticModel) {
+    this(new CheckerDispatcher.ChecksByKind(seChecks), behaviorCache, semanticModel);
+  }
+
+  private ExplodedGraphWalker(CheckerDispatcher.ChecksByKind seChecks, BehaviorCache behaviorCache, Sema semanticModel) {
     this.alwaysTrueOrFalseExpressionCollector = new AlwaysTrueOrFalseExpressionCollector();
     this.checkerDispatcher = new CheckerDispatcher(this, seChecks);
     this.behaviorCache = behaviorCache;
     this.semanticModel = semanticModel;
   }
 
+  /**
+   * Limits the number of steps of the next explorations, and sets the order in which their nodes are explored
+   */
+  void limitExploration(int maxSteps, WorklistStrategy strategy) {
+    this.maxSteps = maxSteps;
+    this.strategy = strategy;
+  }
+
+  /**
+   * When enabled, a state reaching a join point of the CFG is merged with the state waiting to be explored at this point, if both
+   * states bind the same symbolic values: only their common constraints are kept, which over-approximates the explored paths.
+   * Symbolic values themselves are never merged, see {@link #mergeIntoPendingNode}.
+   */
+  void mergeStatesAtJoinPoints(boolean mergeStates) {
+    this.mergeStates = mergeStates;
+  }
+
   public MethodBehavior visitMethod(MethodTree tree) {
     return visitMethod(tree, null);
   }
@@ -235,22 +287,37 @@ public class ExplodedGraphWalker {
     explodedGraph = new ExplodedGraph();
     methodTree = tree;
     constraintManager = new ConstraintManager();
-    workList = new LinkedList<>();
+    workList = new ArrayDeque<>();
+    exploredBlocks = new BitSet();
+    pendingJoinNodes = new HashMap<>();
+    supersededNodes = new HashSet<>();
+    discardedNodes = new HashSet<>();
+    mergedStates = 0;
     // Linked hashSet is required to guarantee order of yields to be generated
     endOfExecutionPath = new LinkedHashSet<>();
     programState = ProgramState.EMPTY_STATE;
     steps = 0;
+    startingStates = 0;
     for (ProgramState startingState : startingStates(tree, programState)) {
+      startingStates++;
       enqueue(new ProgramPoint(cfg.entryBlock()), startingState);
     }
     while (!workList.isEmpty()) {
+      // LIFO, unless nodes were enqueued last:
+      ExplodedGraph.Node nextNode = workList.removeFirst();
+      if (supersededNodes.remove(nextNode)) {
+        // merged into another node
+        discardedNodes.add(nextNode);
+        continue;
+      }
+      pendingJoinNodes.remove(nextNode.programPoint, nextNode);
       steps++;
       if (steps > maxSteps()) {
         throwMaxSteps(tree);
       }
-      // LIFO:
-      setNode(workList.removeFirst());
+      setNode(nextNode);
       CFG.Block block = (CFG.Block) programPosition.block;
+      exploredBlocks.set(block.id());
       if (block.successors().isEmpty()) {
         endOfExecutionPath.add(node);
         continue;
@@ -291,6 +358,7 @@ public class ExplodedGraphWalker {
     endOfExecutionDuration.stop();
     // Cleanup:
     workList = null;
+    exploredBlocks = null;
     node = null;
     programState = null;
     constraintManager = null;
@@ -1193,15 +1261,86 @@ public class ExplodedGraphWalker {
     }
     checkExplodedGraphTooBig(programState);
     ProgramState ps = programState.visitedPoint(programPoint, nbOfExecution + 1);
+    if (mergeStates && isJoinPoint(programPoint) && mergeIntoPendingNode(programPoint, ps, exitPath, methodYield)) {
+      return;
+    }
     ExplodedGraph.Node cachedNode = explodedGraph.node(programPoint, ps);
-    if (!cachedNode.isNew() && exitPath == cachedNode.exitPath) {
+    boolean discarded = !discardedNodes.isEmpty() && discardedNodes.remove(cachedNode);
+    if (!cachedNode.isNew() && !discarded && exitPath == cachedNode.exitPath) {
       // has been enqueued earlier
       cachedNode.addParent(node, methodYield);
       return;
     }
     cachedNode.exitPath = exitPath;
     cachedNode.addParent(node, methodYield);
-    workList.addFirst(cachedNode);
+    if (mergeStates && isJoinPoint(programPoint)) {
+      pendingJoinNodes.put(programPoint, cachedNode);
+    }
+    addToWorkList(cachedNode);
+  }
+
+  private void addToWorkList(ExplodedGraph.Node newNode) {
+    if (strategy == WorklistStrategy.BREADTH_FIRST || (strategy == WorklistStrategy.COVERAGE_GUIDED && isReachingExploredBlock(newNode.programPoint))) {
+      workList.addLast(newNode);
+    } else {
+      workList.addFirst(newNode);
+    }
+  }
+
+  private static boolean isJoinPoint(ProgramPoint programPoint) {
+    return programPoint.i == 0 && ((CFG.Block) programPoint.block).predecessors().size() > 1;
+  }
+
+  /**
+   * Only states binding the same symbolic values, with the same stack, are merged. As the symbols which are not live anymore are
+   * cleaned up at the exit of each block, this requires the live symbols to be bound to the same values: states where they are bound to
+   * different values, for instance after assigning a new value in one branch, are explored separately.
+   *
+   * @return true when the state has been merged into the node pending at this join point, or its merge with it
+   */
+  private boolean mergeIntoPendingNode(ProgramPoint programPoint, ProgramState programState, boolean exitPath, @Nullable MethodYield methodYield) {
+    ExplodedGraph.Node pendingNode = pendingJoinNodes.get(programPoint);
+    if (pendingNode == null || pendingNode.exitPath != exitPath) {
+      return false;
+    }
+    ProgramState mergedState = pendingNode.programState.mergeConstraints(programState);
+    if (mergedState == null) {
+      return false;
+    }
+    ExplodedGraph.Node mergedNode = explodedGraph.node(programPoint, mergedState);
+    if (mergedNode != pendingNode) {
+      // a discarded node is not in the work list anymore, unlike a superseded one
+      boolean isNew = mergedNode.isNew() || discardedNodes.remove(mergedNode);
+      boolean toExplore = isNew || supersededNodes.remove(mergedNode);
+      if (!toExplore && mergedNode.exitPath != exitPath) {
+        return false;
+      }
+      // the merged node replaces the pending one, which will not be explored
+      for (ExplodedGraph.Edge edge : pendingNode.edges()) {
+        if (edge.yields().isEmpty()) {
+          mergedNode.addParent(edge.parent(), null);
+        } else {
+          edge.yields().forEach(edgeYield -> mergedNode.addParent(edge.parent(), edgeYield));
+        }
+      }
+      supersededNodes.add(pendingNode);
+      pendingJoinNodes.remove(programPoint);
+      if (toExplore) {
+        mergedNode.exitPath = exitPath;
+        pendingJoinNodes.put(programPoint, mergedNode);
+        if (isNew) {
+          addToWorkList(mergedNode);
+        }
+      }
+    }
+    mergedNode.addParent(node, methodYield);
+    mergedStates++;
+    return true;
+  }
+
+  private boolean isReachingExploredBlock(ProgramPoint programPoint) {
+    // the path being explored keeps going through its current block
+    return programPosition != null && programPoint.block != programPosition.block && exploredBlocks.get(programPoint.block.id());
   }
 
   private static boolean isRestartingForEachLoop(ProgramPoint programPoint) {
@@ -1217,9 +1356,16 @@ public class ExplodedGraphWalker {
     }
   }
 
+  /**
+   * @return the number of nodes of the exploded graph of the last explored method
+   */
+  int explodedGraphSize() {
+    return explodedGraph == null ? 0 : explodedGraph.size();
+  }
+
   @VisibleForTesting
   protected int maxSteps() {
-    return MAX_STEPS;
+    return maxSteps;
   }
 
   AlwaysTrueOrFalseExpressionCollector alwaysTrueOrFalseExpressionCollector() {
@@ -1235,6 +1381,7 @@ public class ExplodedGraphWalker {
 
     @VisibleForTesting
     final List<SECheck> seChecks = new ArrayList<>();
+    private final CheckerDispatcher.ChecksByKind checksByKind;
 
     public ExplodedGraphWalkerFactory(List<SECheck> activeSEChecks) {
       List<SECheck> checks = new ArrayList<>(activeSEChecks);
@@ -1251,10 +1398,11 @@ public class ExplodedGraphWalker {
       seChecks.add(removeOrDefault(checks, new RedundantAssignmentsCheck()));
 
       seChecks.addAll(checks);
+      checksByKind = new CheckerDispatcher.ChecksByKind(seChecks);
     }
 
     public ExplodedGraphWalker createWalker(BehaviorCache behaviorCache, Sema semanticModel) {
-      return new ExplodedGraphWalker(seChecks, behaviorCache, semanticModel);
+      return new ExplodedGraphWalker(checksByKind, behaviorCache, semanticModel);
     }
 
     @SuppressWarnings("unchecked")
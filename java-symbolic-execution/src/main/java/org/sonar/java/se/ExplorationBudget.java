@@ -0,0 +1,161 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.sonar.api.config.Configuration;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Limits the number of steps of the symbolic execution, per method, per file and per analysis. Steps are counted rather than time
+ * spent, so that the results of an analysis do not depend on the load of the machine.
+ * <p>
+ * Shared by all the symbolic execution visitors of an analysis: the state of the file being explored is kept by each visitor.
+ */
+public class ExplorationBudget {
+
+  private static final Logger LOG = Loggers.get(ExplorationBudget.class);
+
+  public static final String STRATEGY_KEY = "sonar.java.internal.symbolicExecution.strategy";
+  public static final String MAX_STEPS_PER_METHOD_KEY = "sonar.java.internal.symbolicExecution.maxStepsPerMethod";
+  public static final String MAX_STEPS_PER_FILE_KEY = "sonar.java.internal.symbolicExecution.maxStepsPerFile";
+  public static final String SHARE_LEFTOVER_STEPS_KEY = "sonar.java.internal.symbolicExecution.shareLeftoverSteps";
+  public static final String MAX_ANALYSIS_STEPS_KEY = "sonar.java.internal.symbolicExecution.maxAnalysisSteps";
+  public static final String MERGE_STATES_KEY = "sonar.java.internal.symbolicExecution.mergeStates";
+
+  /**
+   * Arbitrary number to limit symbolic execution.
+   */
+  public static final int DEFAULT_MAX_STEPS_PER_METHOD = 16_000;
+
+  public static final ExplorationBudget DEFAULT = new ExplorationBudget(ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST,
+    DEFAULT_MAX_STEPS_PER_METHOD, 0, false, 0, false);
+
+  private final ExplodedGraphWalker.WorklistStrategy strategy;
+  private final int maxStepsPerMethod;
+  private final long maxStepsPerFile;
+  private final boolean shareLeftoverSteps;
+  @Nullable
+  private final AtomicLong remainingAnalysisSteps;
+  private final boolean mergeStates;
+
+  /**
+   * @param maxStepsPerFile maximum number of steps for all the methods of a file, or 0 for no limit
+   * @param shareLeftoverSteps when true, the steps not used by the methods of a file are given to the next methods of the file,
+   *                           up to {@code maxStepsPerMethod} additional steps per method
+   * @param maxAnalysisSteps maximum number of steps for all the methods of the analysis, or 0 for no limit
+   * @param mergeStates when true, the states reaching a join point of the CFG are merged when they bind the same symbolic values,
+   *                    keeping only their common constraints: fewer steps are needed, but correlations between paths can be lost
+   */
+  public ExplorationBudget(ExplodedGraphWalker.WorklistStrategy strategy, int maxStepsPerMethod, long maxStepsPerFile,
+    boolean shareLeftoverSteps, long maxAnalysisSteps, boolean mergeStates) {
+    this.strategy = strategy;
+    this.maxStepsPerMethod = maxStepsPerMethod;
+    this.maxStepsPerFile = maxStepsPerFile;
+    this.shareLeftoverSteps = shareLeftoverSteps;
+    this.remainingAnalysisSteps = maxAnalysisSteps > 0 ? new AtomicLong(maxAnalysisSteps) : null;
+    this.mergeStates = mergeStates;
+  }
+
+  /**
+   * @return a budget for a new analysis, the default one when nothing is configured
+   */
+  public static ExplorationBudget fromConfiguration(Configuration config) {
+    ExplodedGraphWalker.WorklistStrategy strategy = config.get(STRATEGY_KEY)
+      .map(ExplorationBudget::strategy)
+      .orElse(ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST);
+    int maxStepsPerMethod = config.getInt(MAX_STEPS_PER_METHOD_KEY)
+      .filter(steps -> steps > 0)
+      .orElse(DEFAULT_MAX_STEPS_PER_METHOD);
+    return new ExplorationBudget(strategy, maxStepsPerMethod, config.getLong(MAX_STEPS_PER_FILE_KEY).orElse(0L),
+      config.getBoolean(SHARE_LEFTOVER_STEPS_KEY).orElse(false), config.getLong(MAX_ANALYSIS_STEPS_KEY).orElse(0L),
+      config.getBoolean(MERGE_STATES_KEY).orElse(false));
+  }
+
+  private static ExplodedGraphWalker.WorklistStrategy strategy(String value) {
+    try {
+      return ExplodedGraphWalker.WorklistStrategy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      LOG.warn(String.format("Unknown symbolic execution strategy '%s' for '%s', using %s instead.", value, STRATEGY_KEY,
+        ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST));
+      return ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST;
+    }
+  }
+
+  public ExplodedGraphWalker.WorklistStrategy strategy() {
+    return strategy;
+  }
+
+  public boolean mergeStates() {
+    return mergeStates;
+  }
+
+  FileBudget startFile() {
+    return new FileBudget();
+  }
+
+  /**
+   * Steps used by the methods of a file, explored by a single thread.
+   * <p>
+   * The steps given to a method are reserved until it is explored: methods explored while exploring another one, to compute
+   * their behavior, only get the steps left by the enclosing explorations, so that the budgets are never overshot.
+   */
+  class FileBudget {
+    private long usedSteps = 0;
+    private long leftoverSteps = 0;
+
+    /**
+     * @return the maximum number of steps of the next method to explore, 0 when the budget is exhausted. They are reserved
+     * until {@link #methodExplored(int, int)} is called for this method.
+     */
+    int reserveMethodSteps() {
+      long result = maxStepsPerMethod + leftoverSteps;
+      if (maxStepsPerFile > 0) {
+        result = Math.min(result, maxStepsPerFile - usedSteps);
+      }
+      if (remainingAnalysisSteps != null) {
+        result = Math.min(result, remainingAnalysisSteps.get());
+      }
+      int maxSteps = (int) Math.max(result, 0);
+      charge(maxSteps);
+      return maxSteps;
+    }
+
+    /**
+     * Gives back the reserved steps which were not used, the exploration stopping one step past its maximum when exhausted
+     */
+    void methodExplored(int maxSteps, int steps) {
+      charge((long) steps - maxSteps);
+      if (shareLeftoverSteps) {
+        leftoverSteps = Math.min(Math.max(maxSteps - steps, 0), maxStepsPerMethod);
+      }
+    }
+
+    private void charge(long steps) {
+      usedSteps += steps;
+      if (remainingAnalysisSteps != null) {
+        remainingAnalysisSteps.addAndGet(-steps);
+      }
+    }
+  }
+}
@@ -51,6 +51,13 @@ public class ProgramPoint {
     return new ProgramPoint(block, nextPP);
   }
 
+  /**
+   * @return a key identifying this program point among the ones of its CFG, without collision whatever the size of the blocks
+   */
+  long key() {
+    return ((long) block.id() << 32) | i;
+  }
+
   @Override
   public int hashCode() {
     return hashcode;
@@ -33,6 +33,7 @@ import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.java.collections.PCollections;
+import org.sonar.java.collections.PLongIntMap;
 import org.sonar.java.collections.PMap;
 import org.sonar.java.collections.PStack;
 import org.sonar.java.collections.SetUtils;
@@ -130,11 +131,11 @@ public class ProgramState {
       .put(SymbolicValue.NULL_LITERAL, ConstraintsByDomain.empty().put(ObjectConstraint.NULL))
       .put(SymbolicValue.TRUE_LITERAL, ConstraintsByDomain.empty().put(BooleanConstraint.TRUE).put(ObjectConstraint.NOT_NULL))
       .put(SymbolicValue.FALSE_LITERAL, ConstraintsByDomain.empty().put(BooleanConstraint.FALSE).put(ObjectConstraint.NOT_NULL)),
-        PCollections.emptyMap(),
+    PCollections.emptyLongIntMap(),
     PCollections.emptyStack(),
     null);
 
-  private final PMap<ProgramPoint, Integer> visitedPoints;
+  private final PLongIntMap visitedPoints;
   private final PStack<SymbolicValueSymbol> stack;
   private final PMap<SymbolicValue, Integer> references;
   private SymbolicValue exitSymbolicValue;
@@ -143,7 +144,7 @@ public class ProgramState {
   final PMap<SymbolicValue, ConstraintsByDomain> constraints;
 
   private ProgramState(PMap<Symbol, SymbolicValue> values,PMap<Integer, SymbolicValue> valuesByIndex, PMap<SymbolicValue, Integer> references,
-                       PMap<SymbolicValue, ConstraintsByDomain> constraints, PMap<ProgramPoint, Integer> visitedPoints,
+                       PMap<SymbolicValue, ConstraintsByDomain> constraints, PLongIntMap visitedPoints,
                        PStack<SymbolicValueSymbol> stack, SymbolicValue exitSymbolicValue) {
     this.values = values;
     this.valuesByIndex = valuesByIndex;
@@ -156,7 +157,7 @@ public class ProgramState {
   }
 
   private ProgramState(PMap<Symbol, SymbolicValue> values, PMap<SymbolicValue, Integer> references,
-                       PMap<SymbolicValue, ConstraintsByDomain> constraints, PMap<ProgramPoint, Integer> visitedPoints,
+                       PMap<SymbolicValue, ConstraintsByDomain> constraints, PLongIntMap visitedPoints,
                        PStack<SymbolicValueSymbol> stack, SymbolicValue exitSymbolicValue) {
     this.values = values;
     this.valuesByIndex = PCollections.emptyMap();
@@ -245,8 +246,7 @@ public class ProgramState {
   }
 
   public int numberOfTimeVisited(ProgramPoint programPoint) {
-    Integer count = visitedPoints.get(programPoint);
-    return count == null ? 0 : count;
+    return visitedPoints.get(programPoint.key(), 0);
   }
 
   @Override
@@ -258,7 +258,9 @@ public class ProgramState {
       return false;
     }
     ProgramState that = (ProgramState) o;
-    return Objects.equals(values, that.values) &&
+    // hash codes are cached: cheap way to tell apart most of the different states without comparing their content
+    return hashCode() == that.hashCode() &&
+      Objects.equals(values, that.values) &&
       Objects.equals(constraints, that.constraints) &&
       Objects.equals(exitSymbolicValue, that.exitSymbolicValue) &&
       Objects.equals(stack, that.stack);
@@ -472,7 +474,45 @@ public class ProgramState {
   }
 
   public ProgramState visitedPoint(ProgramPoint programPoint, int nbOfVisit) {
-    return new ProgramState(values, valuesByIndex, references, constraints, visitedPoints.put(programPoint, nbOfVisit), stack, exitSymbolicValue);
+    return new ProgramState(values, valuesByIndex, references, constraints, visitedPoints.put(programPoint.key(), nbOfVisit), stack, exitSymbolicValue);
+  }
+
+  /**
+   * @return a state keeping only the constraints shared with the other state, or null when the states bind symbols to different
+   * symbolic values, or have different stacks: such states describe different paths which can not be merged without losing track
+   * of the values flowing through them.
+   */
+  @CheckForNull
+  ProgramState mergeConstraints(ProgramState other) {
+    if (!values.equals(other.values) || !stack.equals(other.stack) || !Objects.equals(exitSymbolicValue, other.exitSymbolicValue)) {
+      return null;
+    }
+    class MergeAction implements BiConsumer<SymbolicValue, ConstraintsByDomain> {
+      PMap<SymbolicValue, ConstraintsByDomain> newConstraints = constraints;
+
+      @Override
+      public void accept(SymbolicValue symbolicValue, ConstraintsByDomain constraintsByDomain) {
+        ConstraintsByDomain otherConstraints = other.constraints.get(symbolicValue);
+        if (otherConstraints == null) {
+          newConstraints = newConstraints.remove(symbolicValue);
+          return;
+        }
+        ConstraintsByDomain common = constraintsByDomain;
+        for (Class<? extends Constraint> domain : constraintsByDomain.domains().collect(Collectors.toList())) {
+          if (!constraintsByDomain.get(domain).equals(otherConstraints.get(domain))) {
+            common = common.remove(domain);
+          }
+        }
+        if (common.isEmpty()) {
+          newConstraints = newConstraints.remove(symbolicValue);
+        } else if (common != constraintsByDomain) {
+          newConstraints = newConstraints.put(symbolicValue, common);
+        }
+      }
+    }
+    MergeAction mergeAction = new MergeAction();
+    constraints.forEach(mergeAction);
+    return mergeAction.newConstraints == constraints ? this : new ProgramState(this, mergeAction.newConstraints);
   }
 
   @Nullable
@@ -0,0 +1,169 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+
+/**
+ * Metrics of the symbolic execution of each method of an analysis, to find the methods on which symbolic execution is slow or
+ * incomplete, and to tune the exploration budget. Shared by the symbolic execution visitors of all the files.
+ * <p>
+ * The metrics of a method include the ones of the methods of the same file explored to compute its method behaviors.
+ */
+public class SymbolicExecutionMetrics {
+
+  private static final Logger LOG = Loggers.get(SymbolicExecutionMetrics.class);
+
+  public static final String ACTIVATION_KEY = "sonar.java.internal.symbolicExecution.metrics";
+  public static final String DESTINATION_FILE = "sonar.java.symbolicExecution.metrics.json";
+
+  /**
+   * Limit which interrupted the exploration of a method
+   */
+  public enum Limit {
+    MAX_STEPS,
+    EXPLODED_GRAPH_TOO_BIG,
+    MAX_STARTING_STATES
+  }
+
+  private final Queue<MethodMetrics> methods = new ConcurrentLinkedQueue<>();
+
+  void add(MethodMetrics methodMetrics) {
+    methods.add(methodMetrics);
+  }
+
+  public List<MethodMetrics> methods() {
+    return new ArrayList<>(methods);
+  }
+
+  /**
+   * Writes the metrics of all the explored methods, the slowest first
+   */
+  public void write(Path path) {
+    List<MethodMetrics> sortedMethods = methods();
+    sortedMethods.sort(Comparator.comparingLong((MethodMetrics m) -> m.durationNanos).reversed());
+    JsonArray jsonMethods = new JsonArray();
+    sortedMethods.forEach(methodMetrics -> jsonMethods.add(methodMetrics.toJson()));
+    JsonObject json = new JsonObject();
+    json.add("methods", jsonMethods);
+    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    try {
+      Files.createDirectories(path.toAbsolutePath().getParent());
+      try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+        gson.toJson(json, writer);
+      }
+    } catch (IOException e) {
+      LOG.warn(String.format("Unable to write the symbolic execution metrics in '%s'.", path), e);
+    }
+  }
+
+  public static final class MethodMetrics {
+    final String file;
+    final String method;
+    final int line;
+    final int steps;
+    final int maxSteps;
+    final int explodedGraphSize;
+    final int startingStates;
+    final long durationNanos;
+    @Nullable
+    final Limit limit;
+    final long behaviorCacheHits;
+    final long behaviorCacheMisses;
+
+    MethodMetrics(String file, String method, int line, int steps, int maxSteps, int explodedGraphSize, int startingStates,
+      long durationNanos, @Nullable Limit limit, long behaviorCacheHits, long behaviorCacheMisses) {
+      this.file = file;
+      this.method = method;
+      this.line = line;
+      this.steps = steps;
+      this.maxSteps = maxSteps;
+      this.explodedGraphSize = explodedGraphSize;
+      this.startingStates = startingStates;
+      this.durationNanos = durationNanos;
+      this.limit = limit;
+      this.behaviorCacheHits = behaviorCacheHits;
+      this.behaviorCacheMisses = behaviorCacheMisses;
+    }
+
+    public String method() {
+      return method;
+    }
+
+    public int steps() {
+      return steps;
+    }
+
+    public int explodedGraphSize() {
+      return explodedGraphSize;
+    }
+
+    public int startingStates() {
+      return startingStates;
+    }
+
+    @Nullable
+    public Limit limit() {
+      return limit;
+    }
+
+    public long behaviorCacheHits() {
+      return behaviorCacheHits;
+    }
+
+    public long behaviorCacheMisses() {
+      return behaviorCacheMisses;
+    }
+
+    JsonObject toJson() {
+      JsonObject json = new JsonObject();
+      json.addProperty("file", file);
+      json.addProperty("method", method);
+      json.addProperty("line", line);
+      json.addProperty("steps", steps);
+      json.addProperty("maxSteps", maxSteps);
+      json.addProperty("explodedGraphSize", explodedGraphSize);
+      json.addProperty("startingStates", startingStates);
+      json.addProperty("durationMs", durationNanos / 1_000_000.0);
+      if (limit != null) {
+        json.addProperty("limit", limit.name());
+      }
+      json.addProperty("behaviorCacheHits", behaviorCacheHits);
+      json.addProperty("behaviorCacheMisses", behaviorCacheMisses);
+      return json;
+    }
+  }
+}
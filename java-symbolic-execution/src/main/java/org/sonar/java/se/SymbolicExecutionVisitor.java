@@ -23,6 +23,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
+import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.annotations.VisibleForTesting;
@@ -32,6 +33,7 @@ import org.sonar.java.model.Sema;
 import org.sonar.java.se.checks.SECheck;
 import org.sonar.java.se.xproc.BehaviorCache;
 import org.sonar.java.se.xproc.MethodBehavior;
+import org.sonar.java.se.xproc.ProjectMethodBehaviors;
 import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.MethodTree;
@@ -43,17 +45,49 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
   @VisibleForTesting
   public final BehaviorCache behaviorCache;
   private final ExplodedGraphWalker.ExplodedGraphWalkerFactory egwFactory;
+  private final ExplorationBudget budget;
+  private ExplorationBudget.FileBudget fileBudget;
+  @Nullable
+  private final SymbolicExecutionMetrics metrics;
 
   public SymbolicExecutionVisitor(List<SECheck> seChecks) {
+    this(seChecks, null);
+  }
+
+  /**
+   * @param projectBehaviors store in which the behaviors of the methods explored in each file are kept for the next files
+   *                         (and the next analyses when persisted), or null
+   */
+  public SymbolicExecutionVisitor(List<SECheck> seChecks, @Nullable ProjectMethodBehaviors projectBehaviors) {
+    this(seChecks, projectBehaviors, ExplorationBudget.DEFAULT);
+  }
+
+  /**
+   * @param budget limits of the exploration, possibly shared with the visitors analyzing other files in parallel
+   */
+  public SymbolicExecutionVisitor(List<SECheck> seChecks, @Nullable ProjectMethodBehaviors projectBehaviors, ExplorationBudget budget) {
+    this(seChecks, projectBehaviors, budget, null);
+  }
+
+  /**
+   * @param metrics collector of the metrics of each explored method, or null when they are not collected
+   */
+  public SymbolicExecutionVisitor(List<SECheck> seChecks, @Nullable ProjectMethodBehaviors projectBehaviors, ExplorationBudget budget,
+    @Nullable SymbolicExecutionMetrics metrics) {
+    this.metrics = metrics;
     egwFactory = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(seChecks);
-    this.behaviorCache = new BehaviorCache();
+    this.behaviorCache = new BehaviorCache(projectBehaviors);
+    this.budget = budget;
+    this.fileBudget = budget.startFile();
   }
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
     behaviorCache.cleanup();
     behaviorCache.setFileContext(this);
+    fileBudget = budget.startFile();
     super.scanFile(context);
+    behaviorCache.fileScanned(context);
   }
 
   @Override
@@ -68,6 +102,13 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
 
   public void execute(MethodTree methodTree) {
     ExplodedGraphWalker walker = getWalker();
+    int maxSteps = fileBudget.reserveMethodSteps();
+    walker.limitExploration(maxSteps, budget.strategy());
+    walker.mergeStatesAtJoinPoints(budget.mergeStates());
+    long startTime = System.nanoTime();
+    long behaviorCacheHits = behaviorCache.hits();
+    long behaviorCacheMisses = behaviorCache.misses();
+    SymbolicExecutionMetrics.Limit limit = null;
     try {
       Symbol.MethodSymbol methodSymbol = methodTree.symbol();
       if (methodCanNotBeOverriden(methodSymbol)) {
@@ -82,6 +123,7 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
     } catch (ExplodedGraphWalker.MaximumStepsReachedException
       | ExplodedGraphWalker.ExplodedGraphTooBigException
       | ExplodedGraphWalker.MaximumStartingStatesException exception) {
+      limit = limit(exception);
       LOG.debug("Could not complete symbolic execution: {}", exception.getMessage());
       if (LOG.isTraceEnabled()) {
         StringWriter sw = new StringWriter();
@@ -91,7 +133,24 @@ public class SymbolicExecutionVisitor extends SubscriptionVisitor {
       if (walker.methodBehavior != null) {
         walker.methodBehavior.visited();
       }
+    } finally {
+      fileBudget.methodExplored(maxSteps, walker.steps);
+      if (metrics != null && (walker.explodedGraphSize() > 0 || limit != null)) {
+        metrics.add(new SymbolicExecutionMetrics.MethodMetrics(context.getInputFile().key(), methodTree.symbol().signature(),
+          methodTree.simpleName().identifierToken().line(), walker.steps, maxSteps, walker.explodedGraphSize(), walker.startingStates,
+          System.nanoTime() - startTime, limit, behaviorCache.hits() - behaviorCacheHits, behaviorCache.misses() - behaviorCacheMisses));
+      }
+    }
+  }
+
+  private static SymbolicExecutionMetrics.Limit limit(RuntimeException exception) {
+    if (exception instanceof ExplodedGraphWalker.MaximumStepsReachedException) {
+      return SymbolicExecutionMetrics.Limit.MAX_STEPS;
+    }
+    if (exception instanceof ExplodedGraphWalker.ExplodedGraphTooBigException) {
+      return SymbolicExecutionMetrics.Limit.EXPLODED_GRAPH_TOO_BIG;
     }
+    return SymbolicExecutionMetrics.Limit.MAX_STARTING_STATES;
   }
 
   @VisibleForTesting
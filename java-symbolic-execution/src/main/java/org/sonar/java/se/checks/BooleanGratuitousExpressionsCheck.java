@@ -19,6 +19,7 @@
  */
 package org.sonar.java.se.checks;
 
+import java.util.Collections;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.sonar.check.Rule;
@@ -31,6 +32,16 @@ import org.sonar.plugins.java.api.tree.Tree;
 @Rule(key = "S2589")
 public class BooleanGratuitousExpressionsCheck extends SECheck {
 
+  @Override
+  public Set<Tree.Kind> preStatementKinds() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public Set<Tree.Kind> postStatementKinds() {
+    return Collections.emptySet();
+  }
+
   @Override
   public void checkEndOfExecution(CheckerContext context) {
     AlwaysTrueOrFalseExpressionCollector atof = context.alwaysTrueOrFalseExpressions();
@@ -91,7 +91,7 @@ public class InvariantReturnCheck extends SECheck {
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
-    for (SEIssue seIssue : issues) {
+    for (SEIssue seIssue : issues.values()) {
       context.reportIssueWithFlow(this, seIssue.getTree(), seIssue.getMessage(), seIssue.getFlows(), seIssue.getFlows().iterator().next().size());
     }
     issues.clear();
@@ -21,6 +21,7 @@ package org.sonar.java.se.checks;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -82,6 +83,16 @@ public class MapComputeIfAbsentOrPresentCheck extends SECheck implements JavaVer
     closestIfStatements.clear();
   }
 
+  @Override
+  public Set<Tree.Kind> preStatementKinds() {
+    return EnumSet.of(Tree.Kind.METHOD_INVOCATION);
+  }
+
+  @Override
+  public Set<Tree.Kind> postStatementKinds() {
+    return EnumSet.of(Tree.Kind.METHOD_INVOCATION);
+  }
+
   @Override
   public ProgramState checkPostStatement(CheckerContext context, Tree syntaxNode) {
     if (syntaxNode.is(Tree.Kind.METHOD_INVOCATION)) {
@@ -20,6 +20,8 @@
 package org.sonar.java.se.checks;
 
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import org.sonar.check.Rule;
 import org.sonar.java.se.CheckerContext;
 import org.sonar.java.se.Flow;
@@ -51,6 +53,16 @@ public class ObjectOutputStreamCheck extends SECheck {
     }
   }
 
+  @Override
+  public Set<Tree.Kind> preStatementKinds() {
+    return EnumSet.of(Tree.Kind.NEW_CLASS);
+  }
+
+  @Override
+  public Set<Tree.Kind> postStatementKinds() {
+    return EnumSet.of(Tree.Kind.NEW_CLASS, Tree.Kind.METHOD_INVOCATION, Tree.Kind.MEMBER_SELECT, Tree.Kind.IDENTIFIER);
+  }
+
   @Override
   public ProgramState checkPostStatement(CheckerContext context, Tree syntaxNode) {
     ProgramState programState = context.getState();
@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -68,6 +69,16 @@ public class RedundantAssignmentsCheck extends SECheck {
     assignmentsByMethod.push(new HashMap<>());
   }
 
+  @Override
+  public Set<Tree.Kind> preStatementKinds() {
+    return Collections.emptySet();
+  }
+
+  @Override
+  public Set<Tree.Kind> postStatementKinds() {
+    return EnumSet.of(Tree.Kind.ASSIGNMENT);
+  }
+
   @Override
   public ProgramState checkPostStatement(CheckerContext context, Tree syntaxNode) {
     if (syntaxNode.is(Tree.Kind.ASSIGNMENT)) {
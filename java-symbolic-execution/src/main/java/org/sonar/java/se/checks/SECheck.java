@@ -30,19 +30,42 @@ import org.sonar.plugins.java.api.tree.MethodTree;
 import org.sonar.plugins.java.api.tree.Tree;
 
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public abstract class SECheck implements JavaFileScanner {
 
-  protected Set<SEIssue> issues = new HashSet<>();
+  private static final Set<Tree.Kind> ALL_KINDS = Collections.unmodifiableSet(EnumSet.allOf(Tree.Kind.class));
+
+  /**
+   * Issues of the current file, by tree on which they are reported, in the order they were first reported so that they are
+   * flushed in a deterministic order
+   */
+  protected final Map<Tree, SEIssue> issues = new LinkedHashMap<>();
 
   public void init(MethodTree methodTree, CFG cfg) {
 
   }
 
+  /**
+   * @return the kinds of the trees on which {@link #checkPreStatement(CheckerContext, Tree)} is called, all of them by default
+   */
+  public Set<Tree.Kind> preStatementKinds() {
+    return ALL_KINDS;
+  }
+
+  /**
+   * @return the kinds of the trees on which {@link #checkPostStatement(CheckerContext, Tree)} is called, all of them by default
+   */
+  public Set<Tree.Kind> postStatementKinds() {
+    return ALL_KINDS;
+  }
+
   public ProgramState checkPreStatement(CheckerContext context, Tree syntaxNode) {
     return context.getState();
   }
@@ -61,7 +84,7 @@ public abstract class SECheck implements JavaFileScanner {
 
   @Override
   public void scanFile(JavaFileScannerContext context) {
-    for (SEIssue seIssue : issues) {
+    for (SEIssue seIssue : issues.values()) {
       context.reportIssueWithFlow(this, seIssue.getTree(), seIssue.getMessage(), seIssue.getFlows(), null);
     }
     issues.clear();
@@ -72,14 +95,12 @@ public abstract class SECheck implements JavaFileScanner {
   }
 
   public void reportIssue(Tree tree, String message, Set<Flow> flows) {
-    issues.add(issues.stream()
-      .filter(seIssue -> seIssue.tree.equals(tree))
-      .findFirst()
-      .map(seIssue -> {
-        seIssue.flows.addAll(flows);
-        return seIssue;
-      })
-      .orElse(new SEIssue(tree, message, flows)));
+    SEIssue seIssue = issues.get(tree);
+    if (seIssue == null) {
+      issues.put(tree, new SEIssue(tree, message, flows));
+    } else {
+      seIssue.flows.addAll(flows);
+    }
   }
 
   public void interruptedExecution(CheckerContext context) {
@@ -94,7 +115,7 @@ public abstract class SECheck implements JavaFileScanner {
     public SEIssue(Tree tree, String message, Set<Flow> flows) {
       this.tree = tree;
       this.message = message;
-      this.flows = new HashSet<>(flows);
+      this.flows = new LinkedHashSet<>(flows);
     }
 
     public Tree getTree() {
@@ -106,12 +127,12 @@ public abstract class SECheck implements JavaFileScanner {
     }
 
     public Set<List<JavaFileScannerContext.Location>> getFlows() {
-      Set<List<JavaFileScannerContext.Location>> nonExceptionalFlows = flows.stream().filter(Flow::isNonExceptional).map(Flow::elements).collect(Collectors.toSet());
+      Set<List<JavaFileScannerContext.Location>> nonExceptionalFlows = flows.stream().filter(Flow::isNonExceptional).map(Flow::elements).collect(Collectors.toCollection(LinkedHashSet::new));
       if (!nonExceptionalFlows.isEmpty()) {
         // keep only the non-exceptional flows and ignore exceptional ones
         return nonExceptionalFlows;
       }
-      return flows.stream().map(Flow::elements).collect(Collectors.toSet());
+      return flows.stream().map(Flow::elements).collect(Collectors.toCollection(LinkedHashSet::new));
     }
   }
 }
@@ -27,19 +27,21 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.java.model.JUtils;
 import org.sonar.java.se.SymbolicExecutionVisitor;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
 import org.sonar.plugins.java.api.semantic.Symbol;
 import org.sonar.plugins.java.api.tree.MethodTree;
 
@@ -51,7 +53,25 @@ public class BehaviorCache {
 
   @VisibleForTesting
   public final Map<String, MethodBehavior> behaviors = new LinkedHashMap<>();
-  private Map<String, MethodBehavior> hardcodedBehaviors = null;
+  @Nullable
+  private final ProjectMethodBehaviors projectBehaviors;
+  // signatures of the behaviors of other files used while exploring the current file
+  private final Set<String> projectBehaviorsUsed = new HashSet<>();
+  // lookups answered with a known behavior, and lookups requiring to explore the method or without behavior
+  private long hits = 0;
+  private long misses = 0;
+
+  public BehaviorCache() {
+    this(null);
+  }
+
+  /**
+   * @param projectBehaviors behaviors of the methods explored in other files, looked up before the hardcoded ones, or null
+   *                         to only rely on the behaviors of the current file and the hardcoded ones
+   */
+  public BehaviorCache(@Nullable ProjectMethodBehaviors projectBehaviors) {
+    this.projectBehaviors = projectBehaviors;
+  }
 
   public void setFileContext(@Nullable SymbolicExecutionVisitor sev) {
     this.sev = sev;
@@ -59,15 +79,16 @@ public class BehaviorCache {
 
   public void cleanup() {
     behaviors.clear();
+    projectBehaviorsUsed.clear();
   }
 
-  @VisibleForTesting
-  Map<String, MethodBehavior> hardcodedBehaviors() {
-    if (hardcodedBehaviors == null) {
-      hardcodedBehaviors = HardcodedMethodBehaviors.load();
-      LOG.debug(String.format("[SE] Loaded %d hardcoded method behaviors.", hardcodedBehaviors.size()));
+  /**
+   * Keeps the behaviors computed in the file for the next files, if they are shared at project level
+   */
+  public void fileScanned(JavaFileScannerContext context) {
+    if (projectBehaviors != null) {
+      projectBehaviors.addFile(context, behaviors.values(), new HashSet<>(projectBehaviorsUsed));
     }
-    return hardcodedBehaviors;
   }
 
   public MethodBehavior methodBehaviorForSymbol(Symbol.MethodSymbol symbol) {
@@ -90,17 +111,33 @@ public class BehaviorCache {
   private MethodBehavior get(String signature, @Nullable Symbol.MethodSymbol symbol) {
     MethodBehavior mb = behaviors.get(signature);
     if(mb != null) {
+      hits++;
       return mb;
     }
     if (symbol != null) {
       MethodTree declaration = symbol.declaration();
       if (SymbolicExecutionVisitor.methodCanNotBeOverriden(symbol) && declaration != null) {
+        misses++;
         sev.execute(declaration);
         return behaviors.get(signature);
       }
     }
 
-    return hardcodedBehaviors().get(signature);
+    mb = projectOrHardcodedBehavior(signature);
+    if (mb != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return mb;
+  }
+
+  public long hits() {
+    return hits;
+  }
+
+  public long misses() {
+    return misses;
   }
 
   /**
@@ -116,8 +153,20 @@ public class BehaviorCache {
     if (mb != null) {
       return mb;
     }
-    // check for hardcoded signatures
-    return hardcodedBehaviors().get(signature);
+    // check for signatures explored in other files, then hardcoded signatures
+    return projectOrHardcodedBehavior(signature);
+  }
+
+  @CheckForNull
+  private MethodBehavior projectOrHardcodedBehavior(String signature) {
+    if (projectBehaviors != null) {
+      MethodBehavior mb = projectBehaviors.get(signature);
+      if (mb != null) {
+        projectBehaviorsUsed.add(signature);
+        return mb;
+      }
+    }
+    return HardcodedMethodBehaviors.get(signature);
   }
 
   static class HardcodedMethodBehaviors {
@@ -137,30 +186,55 @@ public class BehaviorCache {
 
     private static final Type LIST_OF_METHOD_BEHAVIORS_TYPE = new TypeToken<List<MethodBehavior>>() {}.getType();
 
-    private final Map<String, MethodBehavior> storedHardcodedMethodBehaviors;
+    private static final String RESOURCE_EXTENSION = ".json";
+
+    // behaviors of each resource, only loaded when a method of its package is looked up
+    private final Map<String, Map<String, MethodBehavior>> behaviorsByResource = new ConcurrentHashMap<>();
 
     private HardcodedMethodBehaviors() {
-      this.storedHardcodedMethodBehaviors = loadHardcodedBehaviors();
     }
 
     private static HardcodedMethodBehaviors uniqueInstance = null;
 
-    private static HardcodedMethodBehaviors uniqueInstance() {
+    private static synchronized HardcodedMethodBehaviors uniqueInstance() {
       if (uniqueInstance == null) {
         uniqueInstance = new HardcodedMethodBehaviors();
       }
       return uniqueInstance;
     }
 
-    public static Map<String, MethodBehavior> load() {
-      return uniqueInstance().storedHardcodedMethodBehaviors;
+    /**
+     * Only loads the resource of the package of the owner of the method, rather than all the hardcoded behaviors
+     */
+    @CheckForNull
+    static MethodBehavior get(String signature) {
+      String resource = resourceOf(signature);
+      if (resource == null) {
+        return null;
+      }
+      return uniqueInstance().behaviorsByResource
+        .computeIfAbsent(resource, r -> loadHardcodedBehaviors(() -> Collections.singletonList(BehaviorCache.class.getResourceAsStream(r))))
+        .get(signature);
     }
 
-    private static Map<String, MethodBehavior> loadHardcodedBehaviors() {
-      return loadHardcodedBehaviors(
-        () -> Arrays.stream(BEHAVIORS_RESOURCES)
-          .map(BehaviorCache.class::getResourceAsStream)
-          .collect(Collectors.toList()));
+    /**
+     * @return the resource whose name is the longest prefix of the package of the owner of the method, as resources of a package
+     * also hold the behaviors of the packages sharing its name as prefix (ex: "org.apache.commons.collections4")
+     */
+    @CheckForNull
+    @VisibleForTesting
+    static String resourceOf(String signature) {
+      int ownerEnd = signature.indexOf('#');
+      String owner = ownerEnd < 0 ? signature : signature.substring(0, ownerEnd);
+      String ownerPackage = owner.substring(0, Math.max(owner.lastIndexOf('.'), 0));
+      String result = null;
+      for (String resource : BEHAVIORS_RESOURCES) {
+        String resourcePackage = resource.substring(0, resource.length() - RESOURCE_EXTENSION.length());
+        if (ownerPackage.startsWith(resourcePackage) && (result == null || resource.length() > result.length())) {
+          result = resource;
+        }
+      }
+      return result;
     }
 
     @VisibleForTesting
@@ -179,6 +179,35 @@ public class MethodBehavior {
       .map(HappyPathYield.class::cast);
   }
 
+  /**
+   * Copy of this completed behavior which does not refer anymore to the exploded graph and to the symbolic values of the file
+   * it was computed from, like the hardcoded behaviors. Yields created by checks, only used to report issues, are not copied.
+   */
+  MethodBehavior detachedCopy() {
+    MethodBehavior copy = new MethodBehavior(signature, varArgs);
+    copy.declaredExceptions = declaredExceptions;
+    for (MethodYield methodYield : yields) {
+      MethodYield copiedYield;
+      if (methodYield instanceof ExceptionalCheckBasedYield) {
+        continue;
+      } else if (methodYield instanceof HappyPathYield) {
+        HappyPathYield happyPathYield = (HappyPathYield) methodYield;
+        HappyPathYield copiedHappyPathYield = new HappyPathYield(copy);
+        copiedHappyPathYield.setResult(happyPathYield.resultIndex(), happyPathYield.resultConstraint());
+        copiedYield = copiedHappyPathYield;
+      } else {
+        ExceptionalYield copiedExceptionalYield = new ExceptionalYield(copy);
+        copiedExceptionalYield.setExceptionType(((ExceptionalYield) methodYield).getExceptionType());
+        copiedYield = copiedExceptionalYield;
+      }
+      copiedYield.parametersConstraints.addAll(methodYield.parametersConstraints);
+      copy.yields.add(copiedYield);
+    }
+    copy.complete = true;
+    copy.visited = true;
+    return copy;
+  }
+
   public void addParameter(SymbolicValue sv) {
     parameters.add(sv);
   }
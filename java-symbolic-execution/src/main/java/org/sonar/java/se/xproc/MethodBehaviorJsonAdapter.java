@@ -88,7 +88,9 @@ public class MethodBehaviorJsonAdapter implements JsonSerializer<MethodBehavior>
     MethodYield result;
     if (methodYield.has(JSON_THROWN_EXCEPTION)) {
       ExceptionalYield exceptionalYield = new ExceptionalYield(behavior);
-      exceptionalYield.setExceptionType(methodYield.get(JSON_THROWN_EXCEPTION).getAsString());
+      JsonElement exceptionType = methodYield.get(JSON_THROWN_EXCEPTION);
+      // unknown exception types are serialized as null
+      exceptionalYield.setExceptionType(exceptionType.isJsonNull() ? null : exceptionType.getAsString());
       result = exceptionalYield;
     } else {
       HappyPathYield happyPathYield = new HappyPathYield(behavior);
@@ -0,0 +1,261 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.java.SonarComponents;
+import org.sonar.java.annotations.VisibleForTesting;
+import org.sonar.java.caching.AnalysisCache;
+import org.sonar.java.se.constraint.BooleanConstraint;
+import org.sonar.java.se.constraint.ConstraintsByDomain;
+import org.sonar.java.se.checks.SECheck;
+import org.sonar.java.se.constraint.ObjectConstraint;
+import org.sonar.plugins.java.api.JavaCheck;
+
+/**
+ * Method behaviors of the project, persisted under the working directory from one analysis to the next one.
+ * <p>
+ * The behaviors computed in a file are loaded when its content did not change and when all the behaviors of other files
+ * used to compute them are loaded as well. The whole store is discarded as soon as the configuration of the analysis changes:
+ * libraries of the project, java version or symbolic execution checks.
+ * Only the behaviors whose constraints can be serialized like the hardcoded ones are persisted.
+ */
+public class MethodBehaviorsStore {
+
+  private static final Logger LOG = Loggers.get(MethodBehaviorsStore.class);
+
+  private static final int FORMAT_VERSION = 1;
+  private static final String STORE_DIRECTORY = "java-se-behaviors";
+
+  private static final String JSON_VERSION = "version";
+  private static final String JSON_CONFIGURATION = "configuration";
+  private static final String JSON_FILES = "files";
+  private static final String JSON_CONTENT_HASH = "contentHash";
+  private static final String JSON_DEPENDENCIES = "dependencies";
+  private static final String JSON_BEHAVIORS = "behaviors";
+
+  private final File storeFile;
+  private final String configurationHash;
+  private final Gson gson = MethodBehaviorJsonAdapter.gson();
+
+  public MethodBehaviorsStore(SonarComponents sonarComponents, String javaVersion, Iterable<InputFile> sourceFiles) {
+    this(new File(new File(sonarComponents.workDir(), STORE_DIRECTORY),
+        Integer.toHexString(sonarComponents.context().fileSystem().baseDir().getAbsolutePath().hashCode()) + ".json"),
+      configurationHash(sonarComponents.getJavaClasspath(), javaVersion, seChecks(sonarComponents.mainChecks()), sourceFiles));
+  }
+
+  @VisibleForTesting
+  MethodBehaviorsStore(File storeFile, String configurationHash) {
+    this.storeFile = storeFile;
+    this.configurationHash = configurationHash;
+  }
+
+  /**
+   * Loads into the given project behaviors the ones of the previous analysis which are still valid, and starts tracking the files
+   * the next behaviors are computed in, to be able to save them.
+   */
+  public void load(ProjectMethodBehaviors projectBehaviors, Iterable<InputFile> inputFiles) {
+    projectBehaviors.trackFiles();
+    if (!storeFile.isFile()) {
+      LOG.debug("[SE] No method behaviors persisted by a previous analysis.");
+      return;
+    }
+    Map<String, ProjectMethodBehaviors.FileBehaviors> previousFiles = new HashMap<>();
+    Map<String, List<MethodBehavior>> previousBehaviors = new HashMap<>();
+    try (Reader reader = Files.newBufferedReader(storeFile.toPath(), StandardCharsets.UTF_8)) {
+      JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+      if (json.get(JSON_VERSION).getAsInt() != FORMAT_VERSION || !configurationHash.equals(json.get(JSON_CONFIGURATION).getAsString())) {
+        LOG.debug("[SE] The configuration changed, method behaviors persisted by the previous analysis are ignored.");
+        return;
+      }
+      for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject(JSON_FILES).entrySet()) {
+        readFile(entry.getKey(), entry.getValue().getAsJsonObject(), previousFiles, previousBehaviors);
+      }
+    } catch (IOException | RuntimeException e) {
+      LOG.warn(String.format("Unable to read the method behaviors persisted in '%s'.", storeFile), e);
+      return;
+    }
+    Set<String> validFiles = validFiles(previousFiles, inputFiles);
+    validFiles.forEach(fileKey -> projectBehaviors.addPreviousFile(fileKey, previousFiles.get(fileKey), previousBehaviors.get(fileKey)));
+    LOG.debug(String.format("[SE] Loaded method behaviors of %d/%d files persisted by the previous analysis.", validFiles.size(), previousFiles.size()));
+  }
+
+  private void readFile(String fileKey, JsonObject jsonFile, Map<String, ProjectMethodBehaviors.FileBehaviors> previousFiles,
+    Map<String, List<MethodBehavior>> previousBehaviors) {
+    List<MethodBehavior> behaviors = new ArrayList<>();
+    List<String> signatures = new ArrayList<>();
+    for (JsonElement jsonBehavior : jsonFile.getAsJsonArray(JSON_BEHAVIORS)) {
+      MethodBehavior behavior = gson.fromJson(jsonBehavior, MethodBehavior.class);
+      behaviors.add(behavior);
+      signatures.add(behavior.signature());
+    }
+    Set<String> dependencies = new HashSet<>();
+    jsonFile.getAsJsonArray(JSON_DEPENDENCIES).forEach(dependency -> dependencies.add(dependency.getAsString()));
+    previousFiles.put(fileKey, new ProjectMethodBehaviors.FileBehaviors(jsonFile.get(JSON_CONTENT_HASH).getAsString(), signatures, dependencies));
+    previousBehaviors.put(fileKey, behaviors);
+  }
+
+  /**
+   * @return the files whose content did not change and whose behaviors only depend on behaviors of such files
+   */
+  private static Set<String> validFiles(Map<String, ProjectMethodBehaviors.FileBehaviors> previousFiles, Iterable<InputFile> inputFiles) {
+    Set<String> result = new LinkedHashSet<>();
+    for (InputFile inputFile : inputFiles) {
+      ProjectMethodBehaviors.FileBehaviors previousFile = previousFiles.get(inputFile.key());
+      if (previousFile != null && previousFile.contentHash.equals(contentHash(inputFile))) {
+        result.add(inputFile.key());
+      }
+    }
+    Map<String, String> declaringFiles = new HashMap<>();
+    previousFiles.forEach((fileKey, file) -> file.signatures.forEach(signature -> declaringFiles.put(signature, fileKey)));
+    boolean changed = true;
+    while (changed) {
+      changed = result.removeIf(fileKey -> !previousFiles.get(fileKey).dependencies.stream()
+        .allMatch(dependency -> result.contains(declaringFiles.get(dependency))));
+    }
+    return result;
+  }
+
+  /**
+   * Saves the behaviors of the files analyzed with the given project behaviors as well as the ones loaded from the previous analysis,
+   * as long as they were not evicted from the project behaviors.
+   */
+  public void save(ProjectMethodBehaviors projectBehaviors) {
+    Map<String, ProjectMethodBehaviors.FileBehaviors> files = new HashMap<>();
+    Map<String, List<MethodBehavior>> behaviorsByFile = projectBehaviors.behaviorsByFile(files);
+    JsonObject jsonFiles = new JsonObject();
+    behaviorsByFile.forEach((fileKey, behaviors) -> {
+      ProjectMethodBehaviors.FileBehaviors file = files.get(fileKey);
+      JsonObject jsonFile = new JsonObject();
+      jsonFile.addProperty(JSON_CONTENT_HASH, file.contentHash);
+      JsonArray jsonDependencies = new JsonArray();
+      file.dependencies.forEach(jsonDependencies::add);
+      jsonFile.add(JSON_DEPENDENCIES, jsonDependencies);
+      JsonArray jsonBehaviors = new JsonArray();
+      behaviors.stream()
+        .filter(MethodBehaviorsStore::isPersistable)
+        .forEach(behavior -> jsonBehaviors.add(gson.toJsonTree(behavior, MethodBehavior.class)));
+      jsonFile.add(JSON_BEHAVIORS, jsonBehaviors);
+      jsonFiles.add(fileKey, jsonFile);
+    });
+    JsonObject json = new JsonObject();
+    json.addProperty(JSON_VERSION, FORMAT_VERSION);
+    json.addProperty(JSON_CONFIGURATION, configurationHash);
+    json.add(JSON_FILES, jsonFiles);
+    try {
+      Files.createDirectories(storeFile.getParentFile().toPath());
+      try (Writer writer = Files.newBufferedWriter(storeFile.toPath(), StandardCharsets.UTF_8)) {
+        gson.toJson(json, writer);
+      }
+    } catch (IOException e) {
+      LOG.warn(String.format("Unable to save the method behaviors in '%s'.", storeFile), e);
+    }
+  }
+
+  /**
+   * Like the hardcoded behaviors, only nullness and boolean constraints can be serialized
+   */
+  private static boolean isPersistable(MethodBehavior behavior) {
+    for (MethodYield methodYield : behavior.yields()) {
+      if (!methodYield.parametersConstraints.stream().allMatch(MethodBehaviorsStore::isPersistable)) {
+        return false;
+      }
+      if (methodYield instanceof HappyPathYield && !isPersistable(((HappyPathYield) methodYield).resultConstraint())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isPersistable(@Nullable ConstraintsByDomain constraints) {
+    return constraints == null || constraints.stream().allMatch(constraint -> constraint instanceof ObjectConstraint || constraint instanceof BooleanConstraint);
+  }
+
+  /**
+   * Behaviors depend on the libraries, including the class files of the project which are not compiled from the given sources,
+   * on the java version, and on the symbolic execution checks which add their own constraints.
+   */
+  @VisibleForTesting
+  static String configurationHash(List<File> classpath, String javaVersion, Collection<String> seChecks, Iterable<InputFile> sourceFiles) {
+    MessageDigest digest = sha256();
+    update(digest, Integer.toString(FORMAT_VERSION));
+    update(digest, String.valueOf(MethodBehaviorsStore.class.getPackage().getImplementationVersion()));
+    update(digest, javaVersion);
+    new TreeSet<>(seChecks).forEach(seCheck -> update(digest, seCheck));
+    AnalysisCache.updateWithClasspath(digest, classpath, sourceFiles);
+    return Base64.getEncoder().encodeToString(digest.digest());
+  }
+
+  private static Set<String> seChecks(List<JavaCheck> checks) {
+    return checks.stream()
+      .filter(SECheck.class::isInstance)
+      .map(check -> check.getClass().getName())
+      .collect(Collectors.toSet());
+  }
+
+  private static String contentHash(InputFile inputFile) {
+    try {
+      return ProjectMethodBehaviors.contentHash(inputFile.contents());
+    } catch (IOException e) {
+      LOG.debug(String.format("[SE] Unable to read file '%s'", inputFile), e);
+      return "";
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
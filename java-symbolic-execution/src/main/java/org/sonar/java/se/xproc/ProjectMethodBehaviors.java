@@ -0,0 +1,162 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+
+/**
+ * Method behaviors computed from the sources of the project, shared by all the files analyzed (and all the threads analyzing them).
+ * Only the least recently used behaviors are kept when more than {@code maxSize} methods have been explored.
+ */
+public class ProjectMethodBehaviors {
+
+  private final Map<String, MethodBehavior> behaviors;
+  // files in which the behaviors have been computed, only tracked when behaviors are persisted from one analysis to the next one
+  @Nullable
+  private Map<String, FileBehaviors> files = null;
+
+  public ProjectMethodBehaviors(int maxSize) {
+    this.behaviors = new LinkedHashMap<String, MethodBehavior>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, MethodBehavior> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Keeps a copy of the complete behaviors computed in a file, which does not refer to the file anymore
+   *
+   * @param dependencies signatures of the behaviors of other files used to compute them
+   */
+  public void addFile(JavaFileScannerContext context, Collection<MethodBehavior> fileBehaviors, Set<String> dependencies) {
+    List<MethodBehavior> copies = fileBehaviors.stream()
+      .filter(MethodBehavior::isComplete)
+      .map(MethodBehavior::detachedCopy)
+      .collect(Collectors.toList());
+    FileBehaviors file = isTrackingFiles()
+      ? new FileBehaviors(contentHash(context.getFileContent()), copies.stream().map(MethodBehavior::signature).collect(Collectors.toList()), dependencies)
+      : null;
+    synchronized (behaviors) {
+      copies.forEach(copy -> behaviors.put(copy.signature(), copy));
+      if (file != null) {
+        files.put(context.getInputFile().key(), file);
+      }
+    }
+  }
+
+  @CheckForNull
+  public MethodBehavior get(String signature) {
+    synchronized (behaviors) {
+      return behaviors.get(signature);
+    }
+  }
+
+  public int size() {
+    synchronized (behaviors) {
+      return behaviors.size();
+    }
+  }
+
+  void trackFiles() {
+    synchronized (behaviors) {
+      files = new HashMap<>();
+    }
+  }
+
+  private boolean isTrackingFiles() {
+    synchronized (behaviors) {
+      return files != null;
+    }
+  }
+
+  /**
+   * Adds the behaviors of a file analyzed previously, which did not change since
+   */
+  void addPreviousFile(String fileKey, FileBehaviors file, Collection<MethodBehavior> fileBehaviors) {
+    synchronized (behaviors) {
+      fileBehaviors.forEach(behavior -> behaviors.put(behavior.signature(), behavior));
+      if (files != null) {
+        files.put(fileKey, file);
+      }
+    }
+  }
+
+  /**
+   * @return for each tracked file, its behaviors still kept in memory
+   */
+  Map<String, List<MethodBehavior>> behaviorsByFile(Map<String, FileBehaviors> trackedFiles) {
+    Map<String, List<MethodBehavior>> result = new LinkedHashMap<>();
+    synchronized (behaviors) {
+      if (files == null) {
+        return result;
+      }
+      trackedFiles.putAll(files);
+      // iterating rather than looking up, not to change the order of the least recently used behaviors
+      Map<String, MethodBehavior> kept = new HashMap<>(behaviors);
+      files.forEach((fileKey, file) -> {
+        List<MethodBehavior> fileBehaviors = new ArrayList<>();
+        for (String signature : file.signatures) {
+          MethodBehavior behavior = kept.get(signature);
+          if (behavior != null) {
+            fileBehaviors.add(behavior);
+          }
+        }
+        result.put(fileKey, fileBehaviors);
+      });
+    }
+    return result;
+  }
+
+  static String contentHash(String content) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      return Base64.getEncoder().encodeToString(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static class FileBehaviors {
+    final String contentHash;
+    final List<String> signatures;
+    final Set<String> dependencies;
+
+    FileBehaviors(String contentHash, List<String> signatures, Set<String> dependencies) {
+      this.contentHash = contentHash;
+      this.signatures = signatures;
+      this.dependencies = dependencies;
+    }
+  }
+}
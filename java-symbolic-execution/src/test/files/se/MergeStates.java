@@ -0,0 +1,48 @@
+class MergeStates {
+
+  void either_condition(boolean a, boolean b, Object o) {
+    if (a || b) {
+      o = null;
+    }
+    if (a == b) {
+      o.toString(); // Noncompliant
+    }
+  }
+
+  void successive_conditions(boolean a, boolean b, boolean c, Object o) {
+    if (a || b) {
+      o = null;
+    }
+    if (b || c) {
+      o.toString(); // Noncompliant
+    }
+    if (a || c) {
+      o.hashCode(); // Noncompliant
+    }
+  }
+
+  void nested_conditions(boolean a, boolean b, boolean c, Object o) {
+    if (a || (b && c) || (c && !a)) {
+      o = null;
+    }
+    if (a == c || b) {
+      o.toString(); // Noncompliant
+    }
+  }
+
+  void paths_of_different_lengths(boolean a, boolean b, boolean c, Object o) {
+    if (a) {
+      if (b || c) {
+        o = null;
+      }
+    } else if (b && c) {
+      o = null;
+    }
+    if (a || b || c) {
+      o.toString(); // Noncompliant
+    }
+    if (a == b || b == c) {
+      o.hashCode();
+    }
+  }
+}
@@ -0,0 +1,25 @@
+class MergeStatesReachedAgain {
+
+  void paths_of_different_lengths(boolean a, boolean b, boolean c, Object o) {
+    int i;
+    if (a) {
+      if (b) {
+        i = 1;
+      } else if (c) {
+        i = 2;
+      } else {
+        i = 3;
+        i = 4;
+      }
+    } else if (b) {
+      i = 5;
+    }
+    if (c) {
+      i = 6;
+    }
+    if (o == null) {
+      i = 7;
+    }
+    i = 8;
+  }
+}
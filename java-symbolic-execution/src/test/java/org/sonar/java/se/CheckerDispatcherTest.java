@@ -20,16 +20,21 @@
 package org.sonar.java.se;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 import org.sonar.java.cfg.CFG;
 import org.sonar.java.se.checks.NullDereferenceCheck;
 import org.sonar.java.se.checks.SECheck;
+import org.sonar.java.se.xproc.BehaviorCache;
 import org.sonar.plugins.java.api.tree.Tree;
 
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class CheckerDispatcherTest {
 
@@ -45,6 +50,42 @@ class CheckerDispatcherTest {
     }
   }
 
+  @Test
+  void test_checks_only_called_on_their_tree_kinds() {
+    CheckTest allKinds = new CheckTest();
+    CheckTest identifiers = new KindsCheckTest(EnumSet.of(Tree.Kind.IDENTIFIER));
+    CheckTest invocations = new KindsCheckTest(EnumSet.of(Tree.Kind.METHOD_INVOCATION));
+    CheckerDispatcher checkerDispatcher = new CheckerDispatcher(mockExplodedGraphWalker(), Arrays.asList(allKinds, identifiers, invocations));
+    Tree identifier = mock(Tree.class);
+    when(identifier.kind()).thenReturn(Tree.Kind.IDENTIFIER);
+
+    assertThat(checkerDispatcher.executeCheckPreStatement(identifier)).isTrue();
+    checkerDispatcher.executeCheckPostStatement(identifier);
+    assertThat(allKinds.preStatementExecution).isEqualTo(1);
+    assertThat(allKinds.postStatementExecution).isEqualTo(1);
+    assertThat(identifiers.preStatementExecution).isEqualTo(1);
+    assertThat(identifiers.postStatementExecution).isEqualTo(1);
+    assertThat(invocations.preStatementExecution).isZero();
+    assertThat(invocations.postStatementExecution).isZero();
+
+    // trees without kind are given to all the checks
+    checkerDispatcher.executeCheckPostStatement(mock(Tree.class));
+    assertThat(invocations.postStatementExecution).isEqualTo(1);
+  }
+
+  @Test
+  void test_check_kinds_are_read_once_for_all_the_walkers() {
+    KindsCheckTest identifiers = new KindsCheckTest(EnumSet.of(Tree.Kind.IDENTIFIER));
+    ExplodedGraphWalker.ExplodedGraphWalkerFactory factory = new ExplodedGraphWalker.ExplodedGraphWalkerFactory(Collections.singletonList(identifiers));
+    // pre and post statement kinds
+    assertThat(identifiers.kindsRequests).isEqualTo(2);
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(factory.createWalker(mock(BehaviorCache.class), null).checkerDispatcher).isNotNull();
+    }
+    assertThat(identifiers.kindsRequests).isEqualTo(2);
+  }
+
   private static ExplodedGraphWalker mockExplodedGraphWalker() {
     ExplodedGraphWalker explodedGraphWalker = mock(ExplodedGraphWalker.class);
     explodedGraphWalker.programPosition = new ProgramPoint(new CFG.Block(1));
@@ -54,12 +95,40 @@ class CheckerDispatcherTest {
   }
 
   private static class CheckTest extends SECheck {
+    int preStatementExecution = 0;
     int postStatementExecution = 0;
 
+    @Override
+    public ProgramState checkPreStatement(CheckerContext context, Tree syntaxNode) {
+      preStatementExecution++;
+      return context.getState();
+    }
+
     @Override
     public ProgramState checkPostStatement(CheckerContext context, Tree syntaxNode) {
       postStatementExecution++;
       return mock(ProgramState.class);
     }
   }
+
+  private static class KindsCheckTest extends CheckTest {
+    private final Set<Tree.Kind> kinds;
+    int kindsRequests = 0;
+
+    KindsCheckTest(Set<Tree.Kind> kinds) {
+      this.kinds = kinds;
+    }
+
+    @Override
+    public Set<Tree.Kind> preStatementKinds() {
+      kindsRequests++;
+      return kinds;
+    }
+
+    @Override
+    public Set<Tree.Kind> postStatementKinds() {
+      kindsRequests++;
+      return kinds;
+    }
+  }
 }
@@ -19,6 +19,8 @@
  */
 package org.sonar.java.se;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -54,6 +56,45 @@ class ExplodedGraphTest {
     assertThat(child.parents()).hasSize(2);
   }
 
+  @Test
+  void test_many_parents() {
+    ExplodedGraph eg = new ExplodedGraph();
+    ExplodedGraph.Node child = eg.node(mockProgramPoint("child"), null);
+    List<ExplodedGraph.Node> parents = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      ExplodedGraph.Node parent = eg.node(mockProgramPoint("parent" + i), null);
+      parents.add(parent);
+      child.addParent(parent, null);
+      child.addParent(parent, null);
+    }
+    assertThat(child.edges()).hasSize(20);
+    assertThat(child.edges()).extracting("parent").containsExactlyElementsOf(parents);
+    assertThat(child.parents()).containsExactlyElementsOf(parents);
+    assertThat(child.parent()).isSameAs(parents.get(0));
+    assertThat(child.edges()).allMatch(edge -> edge.yields().isEmpty());
+  }
+
+  @Test
+  void test_node_lookup() {
+    ExplodedGraph eg = new ExplodedGraph();
+    ProgramPoint programPoint = mockProgramPoint("point");
+    ExplodedGraph.Node node = eg.node(programPoint, ProgramState.EMPTY_STATE);
+    assertThat(node.isNew()).isTrue();
+
+    ExplodedGraph.Node sameNode = eg.node(programPoint, ProgramState.EMPTY_STATE);
+    assertThat(sameNode).isSameAs(node);
+    assertThat(sameNode.isNew()).isFalse();
+
+    ExplodedGraph.Node nullStateNode = eg.node(programPoint, null);
+    assertThat(nullStateNode).isNotSameAs(node);
+    assertThat(nullStateNode.isNew()).isTrue();
+    assertThat(eg.node(programPoint, null)).isSameAs(nullStateNode);
+
+    ExplodedGraph.Node otherPointNode = eg.node(mockProgramPoint("other point"), ProgramState.EMPTY_STATE);
+    assertThat(otherPointNode).isNotSameAs(node);
+    assertThat(eg.nodes()).containsExactlyInAnyOrder(node, nullStateNode, otherPointNode);
+  }
+
   private ProgramPoint mockProgramPoint(String toString) {
     ProgramPoint mock = mock(ProgramPoint.class);
     when(mock.toString()).thenReturn(toString);
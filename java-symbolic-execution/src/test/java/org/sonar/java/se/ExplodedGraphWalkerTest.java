@@ -22,14 +22,18 @@ package org.sonar.java.se;
 import com.google.common.reflect.ClassPath;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.sonar.java.cfg.CFG;
+import org.sonar.java.checks.verifier.CheckVerifier;
 import org.sonar.java.checks.verifier.TestUtils;
 import org.sonar.java.model.JUtils;
 import org.sonar.java.model.Sema;
@@ -742,6 +746,75 @@ class ExplodedGraphWalkerTest {
     assertThat(happyPathYields.get(0).resultConstraint()).isNull();
   }
 
+  @Test
+  void merging_states_at_join_points_reduces_steps_without_changing_issues() {
+    for (ExplodedGraphWalker.WorklistStrategy strategy : ExplodedGraphWalker.WorklistStrategy.values()) {
+      List<ExplodedGraphWalker> walkers = verifyMergeStates(strategy, false);
+      List<ExplodedGraphWalker> mergingWalkers = verifyMergeStates(strategy, true);
+      assertThat(walkers).extracting(walker -> walker.mergedStates).containsOnly(0);
+      assertThat(mergingWalkers.stream().mapToInt(walker -> walker.mergedStates).sum()).as(strategy.name()).isPositive();
+      assertThat(mergingWalkers.stream().mapToInt(walker -> walker.steps).sum()).as(strategy.name())
+        .isLessThan(walkers.stream().mapToInt(walker -> walker.steps).sum());
+    }
+  }
+
+  @Test
+  void nodes_reached_again_after_being_merged_are_explored() {
+    for (ExplodedGraphWalker.WorklistStrategy strategy : ExplodedGraphWalker.WorklistStrategy.values()) {
+      for (ExplodedGraphWalker walker : walkMergeStates("src/test/files/se/MergeStatesReachedAgain.java", strategy)) {
+        Collection<ExplodedGraph.Node> nodes = walker.explodedGraph.nodes();
+        Set<ExplodedGraph.Node> exploredNodes = nodes.stream().flatMap(node -> node.parents().stream()).collect(Collectors.toSet());
+        Map<ProgramPoint, Set<ExplodedGraph.Node>> parentsOfExploredNodes = new HashMap<>();
+        nodes.stream().filter(exploredNodes::contains)
+          .forEach(node -> parentsOfExploredNodes.computeIfAbsent(node.programPoint, k -> new HashSet<>()).addAll(node.parents()));
+        // a node merged into another one is not explored, but the paths reaching it keep going through the other one
+        nodes.stream()
+          .filter(node -> !exploredNodes.contains(node) && !node.programPoint.block.successors().isEmpty())
+          .forEach(node -> assertThat(parentsOfExploredNodes.getOrDefault(node.programPoint, Collections.emptySet()))
+            .as(strategy.name())
+            .containsAll(node.parents()));
+      }
+    }
+  }
+
+  /**
+   * Verifies the issues of the file, the same whether states are merged or not
+   */
+  private static List<ExplodedGraphWalker> verifyMergeStates(ExplodedGraphWalker.WorklistStrategy strategy, boolean mergeStates) {
+    List<ExplodedGraphWalker> walkers = new ArrayList<>();
+    NullDereferenceCheck check = new NullDereferenceCheck();
+    CheckVerifier.newVerifier()
+      .onFile("src/test/files/se/MergeStates.java")
+      .withChecks(recordingWalkers(check, strategy, mergeStates, walkers), check)
+      .withClassPath(SETestUtils.CLASS_PATH)
+      .verifyIssues();
+    return walkers;
+  }
+
+  private static List<ExplodedGraphWalker> walkMergeStates(String fileName, ExplodedGraphWalker.WorklistStrategy strategy) {
+    List<ExplodedGraphWalker> walkers = new ArrayList<>();
+    NullDereferenceCheck check = new NullDereferenceCheck();
+    CheckVerifier.newVerifier()
+      .onFile(fileName)
+      .withChecks(recordingWalkers(check, strategy, true, walkers), check)
+      .withClassPath(SETestUtils.CLASS_PATH)
+      .verifyNoIssues();
+    return walkers;
+  }
+
+  private static SymbolicExecutionVisitor recordingWalkers(SECheck check, ExplodedGraphWalker.WorklistStrategy strategy, boolean mergeStates,
+    List<ExplodedGraphWalker> walkers) {
+    ExplorationBudget budget = new ExplorationBudget(strategy, ExplorationBudget.DEFAULT_MAX_STEPS_PER_METHOD, 0, false, 0, mergeStates);
+    return new SymbolicExecutionVisitor(Collections.singletonList(check), null, budget) {
+      @Override
+      protected ExplodedGraphWalker getWalker() {
+        ExplodedGraphWalker walker = super.getWalker();
+        walkers.add(walker);
+        return walker;
+      }
+    };
+  }
+
   private static JavaFileScanner[] seChecks() {
     return new SECheck[]{
       new NullDereferenceCheck(),
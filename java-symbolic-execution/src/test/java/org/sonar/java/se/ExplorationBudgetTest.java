@@ -0,0 +1,156 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.api.utils.log.LogTesterJUnit5;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree.CompilationUnitTreeImpl;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.utils.JParserTestUtils;
+import org.sonar.java.se.utils.SETestUtils;
+import org.sonar.java.se.xproc.MethodBehavior;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExplorationBudgetTest {
+
+  @RegisterExtension
+  LogTesterJUnit5 logTester = new LogTesterJUnit5();
+
+  @Test
+  void default_configuration() {
+    ExplorationBudget budget = ExplorationBudget.fromConfiguration(new MapSettings().asConfig());
+    assertThat(budget.strategy()).isEqualTo(ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST);
+    assertThat(budget.mergeStates()).isFalse();
+    ExplorationBudget.FileBudget fileBudget = budget.startFile();
+    assertThat(fileBudget.reserveMethodSteps()).isEqualTo(16_000);
+    fileBudget.methodExplored(16_000, 10);
+    assertThat(fileBudget.reserveMethodSteps()).isEqualTo(16_000);
+  }
+
+  @Test
+  void configured_budget() {
+    MapSettings settings = new MapSettings()
+      .setProperty("sonar.java.internal.symbolicExecution.strategy", "coverage_guided")
+      .setProperty("sonar.java.internal.symbolicExecution.maxStepsPerMethod", "100")
+      .setProperty("sonar.java.internal.symbolicExecution.maxStepsPerFile", "250")
+      .setProperty("sonar.java.internal.symbolicExecution.shareLeftoverSteps", "true")
+      .setProperty("sonar.java.internal.symbolicExecution.maxAnalysisSteps", "400")
+      .setProperty("sonar.java.internal.symbolicExecution.mergeStates", "true");
+    ExplorationBudget budget = ExplorationBudget.fromConfiguration(settings.asConfig());
+    assertThat(budget.strategy()).isEqualTo(ExplodedGraphWalker.WorklistStrategy.COVERAGE_GUIDED);
+    assertThat(budget.mergeStates()).isTrue();
+
+    ExplorationBudget.FileBudget fileBudget = budget.startFile();
+    assertThat(fileBudget.reserveMethodSteps()).isEqualTo(100);
+    fileBudget.methodExplored(100, 40);
+    // leftover steps of the previous method
+    assertThat(fileBudget.reserveMethodSteps()).isEqualTo(160);
+    fileBudget.methodExplored(160, 161);
+    assertThat(fileBudget.reserveMethodSteps()).isEqualTo(49);
+    fileBudget.methodExplored(49, 49);
+    // budget of the file exhausted
+    assertThat(fileBudget.reserveMethodSteps()).isZero();
+
+    // budget of the analysis is shared by all the files
+    ExplorationBudget.FileBudget nextFileBudget = budget.startFile();
+    assertThat(nextFileBudget.reserveMethodSteps()).isEqualTo(100);
+    nextFileBudget.methodExplored(100, 100);
+    assertThat(nextFileBudget.reserveMethodSteps()).isEqualTo(50);
+    nextFileBudget.methodExplored(50, 51);
+    assertThat(nextFileBudget.reserveMethodSteps()).isZero();
+  }
+
+  @Test
+  void unknown_strategy_falls_back_to_depth_first() {
+    MapSettings settings = new MapSettings().setProperty("sonar.java.internal.symbolicExecution.strategy", "coverage-guided");
+    ExplorationBudget budget = ExplorationBudget.fromConfiguration(settings.asConfig());
+    assertThat(budget.strategy()).isEqualTo(ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST);
+    assertThat(logTester.logs(LoggerLevel.WARN))
+      .containsExactly("Unknown symbolic execution strategy 'coverage-guided' for 'sonar.java.internal.symbolicExecution.strategy', using DEPTH_FIRST instead.");
+  }
+
+  @Test
+  void nested_explorations_only_get_the_steps_left_by_enclosing_ones() {
+    ExplorationBudget budget = new ExplorationBudget(ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST, 100, 150, false, 400, false);
+    ExplorationBudget.FileBudget fileBudget = budget.startFile();
+    assertThat(fileBudget.reserveMethodSteps()).isEqualTo(100);
+    // method explored while exploring the first one
+    assertThat(fileBudget.reserveMethodSteps()).isEqualTo(50);
+    assertThat(fileBudget.reserveMethodSteps()).isZero();
+    fileBudget.methodExplored(0, 0);
+    fileBudget.methodExplored(50, 20);
+    fileBudget.methodExplored(100, 30);
+    // steps not used by the three explorations are given back
+    assertThat(fileBudget.reserveMethodSteps()).isEqualTo(100);
+    fileBudget.methodExplored(100, 100);
+    assertThat(fileBudget.reserveMethodSteps()).isZero();
+
+    // the analysis was only charged the 150 used steps
+    for (int i = 0; i < 2; i++) {
+      ExplorationBudget.FileBudget nextFileBudget = budget.startFile();
+      assertThat(nextFileBudget.reserveMethodSteps()).isEqualTo(100);
+      nextFileBudget.methodExplored(100, 100);
+    }
+    assertThat(budget.startFile().reserveMethodSteps()).isEqualTo(50);
+  }
+
+  @Test
+  void all_strategies_explore_methods() {
+    for (ExplodedGraphWalker.WorklistStrategy strategy : ExplodedGraphWalker.WorklistStrategy.values()) {
+      SymbolicExecutionVisitor sev = scan(new ExplorationBudget(strategy, ExplorationBudget.DEFAULT_MAX_STEPS_PER_METHOD, 0, false, 0, false));
+      assertThat(sev.behaviorCache.behaviors.values())
+        .hasSize(4)
+        .allMatch(MethodBehavior::isComplete);
+    }
+  }
+
+  @Test
+  void merging_states_explores_methods() {
+    SymbolicExecutionVisitor sev = scan(new ExplorationBudget(ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST,
+      ExplorationBudget.DEFAULT_MAX_STEPS_PER_METHOD, 0, false, 0, true));
+    assertThat(sev.behaviorCache.behaviors.values())
+      .hasSize(4)
+      .allMatch(MethodBehavior::isComplete);
+  }
+
+  @Test
+  void exhausted_budget_stops_exploration() {
+    SymbolicExecutionVisitor sev = scan(new ExplorationBudget(ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST, 1, 0, false, 0, false));
+    MethodBehavior topMethod = sev.behaviorCache.behaviors.get("MethodBehavior#topMethod(Z)Z");
+    assertThat(topMethod.isVisited()).isTrue();
+    assertThat(topMethod.isComplete()).isFalse();
+  }
+
+  private static SymbolicExecutionVisitor scan(ExplorationBudget budget) {
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(Collections.singletonList(new NullDereferenceCheck()), null, budget);
+    InputFile inputFile = SETestUtils.inputFile("src/test/resources/se/MethodBehavior.java");
+    CompilationUnitTreeImpl cut = (CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true));
+    return sev;
+  }
+}
@@ -19,11 +19,14 @@
  */
 package org.sonar.java.se;
 
+import java.util.Collections;
 import org.junit.jupiter.api.Test;
 import org.sonar.java.cfg.CFG;
 import org.sonar.java.se.utils.CFGTestUtils;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class ProgramPointTest {
   @Test
@@ -36,4 +39,24 @@ class ProgramPointTest {
     assertThat(pp).hasToString("B1.2  ");
   }
 
+  @Test
+  void keys_of_large_blocks_do_not_collide() {
+    CFG.IBlock<Object> block0 = block(0, 70_000);
+    CFG.IBlock<Object> block1 = block(1, 1);
+    ProgramPoint pp = new ProgramPoint(block0);
+    for (int i = 0; i < (1 << 16); i++) {
+      pp = pp.next();
+    }
+    // both were packed into the same int key
+    assertThat(pp.key()).isNotEqualTo(new ProgramPoint(block1).key());
+  }
+
+  private static CFG.IBlock<Object> block(int id, int size) {
+    @SuppressWarnings("unchecked")
+    CFG.IBlock<Object> block = mock(CFG.IBlock.class);
+    when(block.id()).thenReturn(id);
+    when(block.elements()).thenReturn(Collections.nCopies(size, null));
+    return block;
+  }
+
 }
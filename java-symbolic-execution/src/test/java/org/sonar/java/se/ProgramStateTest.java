@@ -241,4 +241,31 @@ class ProgramStateTest {
     assertThat(ps.getConstraint(sv2, constraint.getClass())).isEqualTo(constraint);
   }
 
+  @Test
+  void test_merge_constraints() {
+    Symbol symbol = variable("symbol");
+    SymbolicValue sv1 = new SymbolicValue();
+    SymbolicValue sv2 = new SymbolicValue();
+    SymbolicValue sv3 = new SymbolicValue();
+    ProgramState ps = ProgramState.EMPTY_STATE.put(symbol, sv1)
+      .addConstraint(sv1, ObjectConstraint.NOT_NULL)
+      .addConstraint(sv2, ObjectConstraint.NOT_NULL);
+    ProgramState ps1 = ps.addConstraint(sv1, BooleanConstraint.TRUE).addConstraint(sv3, ObjectConstraint.NULL);
+    ProgramState ps2 = ps.addConstraint(sv1, BooleanConstraint.FALSE);
+
+    ProgramState merged = ps1.mergeConstraints(ps2);
+    assertThat(merged).isEqualTo(ps);
+    assertThat(merged.getValue(symbol)).isSameAs(sv1);
+    assertThat(merged.getConstraint(sv1, BooleanConstraint.class)).isNull();
+    assertThat(merged.getConstraint(sv1, ObjectConstraint.class)).isEqualTo(ObjectConstraint.NOT_NULL);
+    assertThat(merged.getConstraints(sv3)).isNull();
+
+    // constraints of the other state are all kept
+    assertThat(ps.mergeConstraints(ps1)).isSameAs(ps);
+
+    // symbols bound to different values, or different stacks
+    assertThat(ps.mergeConstraints(ps.put(symbol, sv2))).isNull();
+    assertThat(ps.mergeConstraints(ps.stackValue(sv2))).isNull();
+  }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree.CompilationUnitTreeImpl;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.utils.JParserTestUtils;
+import org.sonar.java.se.utils.SETestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SymbolicExecutionMetricsTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void metrics_of_explored_methods() throws IOException {
+    SymbolicExecutionMetrics metrics = new SymbolicExecutionMetrics();
+    scan(ExplorationBudget.DEFAULT, metrics);
+
+    Map<String, SymbolicExecutionMetrics.MethodMetrics> methods = metrics.methods().stream()
+      .collect(Collectors.toMap(SymbolicExecutionMetrics.MethodMetrics::method, Function.identity()));
+    // methods without body, and methods already explored to compute their behavior, are not reported again
+    assertThat(methods).containsOnlyKeys(
+      "MethodBehavior#topMethod(Z)Z",
+      "MethodBehavior#foo(Z)Z",
+      "MethodBehavior#bar(Z)Z",
+      "MethodBehavior#independent()V",
+      "MethodBehavior#publicMethod()V");
+    assertThat(methods.values()).allMatch(m -> m.steps() > 0 && m.explodedGraphSize() > 0 && m.limit() == null);
+
+    SymbolicExecutionMetrics.MethodMetrics topMethod = methods.get("MethodBehavior#topMethod(Z)Z");
+    assertThat(topMethod.startingStates()).isEqualTo(1);
+    // foo and bar are explored to compute their behaviors, abstractMethod has no behavior
+    assertThat(topMethod.behaviorCacheMisses()).isGreaterThanOrEqualTo(3);
+    // behaviors of foo and bar are known
+    assertThat(methods.get("MethodBehavior#publicMethod()V").behaviorCacheHits()).isGreaterThanOrEqualTo(2);
+
+    Path report = tempDir.resolve("reports").resolve(SymbolicExecutionMetrics.DESTINATION_FILE);
+    metrics.write(report);
+    JsonObject json = JsonParser.parseString(new String(Files.readAllBytes(report), StandardCharsets.UTF_8)).getAsJsonObject();
+    JsonArray jsonMethods = json.getAsJsonArray("methods");
+    assertThat(jsonMethods).hasSize(5);
+    JsonObject jsonMethod = jsonMethods.get(0).getAsJsonObject();
+    assertThat(jsonMethod.keySet()).containsExactly("file", "method", "line", "steps", "maxSteps", "explodedGraphSize", "startingStates",
+      "durationMs", "behaviorCacheHits", "behaviorCacheMisses");
+  }
+
+  @Test
+  void limit_hit_by_method() {
+    SymbolicExecutionMetrics metrics = new SymbolicExecutionMetrics();
+    scan(new ExplorationBudget(ExplodedGraphWalker.WorklistStrategy.DEPTH_FIRST, 1, 0, false, 0, false), metrics);
+    assertThat(metrics.methods())
+      .filteredOn(m -> m.method().equals("MethodBehavior#topMethod(Z)Z"))
+      .extracting(SymbolicExecutionMetrics.MethodMetrics::limit)
+      .containsExactly(SymbolicExecutionMetrics.Limit.MAX_STEPS);
+  }
+
+  private static void scan(ExplorationBudget budget, SymbolicExecutionMetrics metrics) {
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(Collections.singletonList(new NullDereferenceCheck()), null, budget, metrics);
+    InputFile inputFile = SETestUtils.inputFile("src/test/resources/se/MethodBehavior.java");
+    CompilationUnitTreeImpl cut = (CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.checks;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.sonar.plugins.java.api.JavaFileScannerContext;
+import org.sonar.plugins.java.api.tree.Tree;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class SECheckTest {
+
+  @Test
+  void issues_are_merged_by_tree_and_reported_in_order() {
+    SECheck check = new SECheck() {
+    };
+    List<Tree> trees = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      trees.add(mock(Tree.class));
+    }
+    trees.forEach(tree -> check.reportIssue(tree, "message"));
+    check.reportIssue(trees.get(0), "other message");
+
+    JavaFileScannerContext context = mock(JavaFileScannerContext.class);
+    List<Tree> reported = new ArrayList<>();
+    doAnswer(invocation -> reported.add(invocation.getArgument(1)))
+      .when(context).reportIssueWithFlow(any(), any(Tree.class), anyString(), anySet(), isNull());
+    check.scanFile(context);
+
+    assertThat(reported).containsExactlyElementsOf(trees);
+    assertThat(check.issues).isEmpty();
+  }
+}
@@ -142,6 +142,54 @@ class BehaviorCacheTest {
     assertThat(exceptionalYields.stream().filter(y -> y.exceptionType(semanticModel).isUnknown())).hasSize(1);
   }
 
+  @Test
+  void behaviors_of_a_file_are_kept_for_next_files() throws Exception {
+    ProjectMethodBehaviors projectBehaviors = new ProjectMethodBehaviors(100);
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(Collections.singletonList(new NullDereferenceCheck()), projectBehaviors);
+    InputFile inputFile = SETestUtils.inputFile("src/test/resources/se/MethodBehavior.java");
+    CompilationUnitTreeImpl cut = (CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.file(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true));
+    MethodBehavior foo = sev.behaviorCache.behaviors.get("MethodBehavior#foo(Z)Z");
+    assertThat(projectBehaviors.size()).isEqualTo(4);
+
+    sev.behaviorCache.cleanup();
+
+    assertThat(sev.behaviorCache.behaviors).isEmpty();
+    assertThat(projectBehaviors.size()).isEqualTo(4);
+    BehaviorCache nextFileBehaviorCache = new BehaviorCache(projectBehaviors);
+    MethodBehavior reusedFoo = nextFileBehaviorCache.peek("MethodBehavior#foo(Z)Z");
+    assertThat(reusedFoo).isNotNull().isNotSameAs(foo);
+    assertThat(reusedFoo.isComplete()).isTrue();
+    assertThat(reusedFoo.parameters()).isEmpty();
+    assertThat(reusedFoo.yields()).hasSameSizeAs(foo.yields()).allMatch(y -> y.node == null);
+    assertThat(nextFileBehaviorCache.get("MethodBehavior#foo(Z)Z")).isSameAs(reusedFoo);
+
+    // hardcoded behaviors are still used for methods not explored in the project
+    assertThat(nextFileBehaviorCache.peek("org.apache.commons.lang.Validate#notNull(Ljava/lang/Object;)V")).isNotNull();
+  }
+
+  @Test
+  void project_behaviors_keep_only_recently_used_complete_behaviors() {
+    ProjectMethodBehaviors projectBehaviors = new ProjectMethodBehaviors(2);
+    JavaFileScannerContext context = mock(JavaFileScannerContext.class);
+    MethodBehavior incomplete = new MethodBehavior("A#incomplete()V", false);
+    projectBehaviors.addFile(context, Collections.singletonList(incomplete), Collections.emptySet());
+    assertThat(projectBehaviors.size()).isZero();
+
+    for (String signature : Arrays.asList("A#a()V", "A#b()V", "A#c()V")) {
+      MethodBehavior behavior = new MethodBehavior(signature, false);
+      behavior.completed();
+      projectBehaviors.addFile(context, Collections.singletonList(behavior), Collections.emptySet());
+      // "a" is the most recently used when "c" is added
+      projectBehaviors.get("A#a()V");
+    }
+
+    assertThat(projectBehaviors.size()).isEqualTo(2);
+    assertThat(projectBehaviors.get("A#a()V")).isNotNull();
+    assertThat(projectBehaviors.get("A#b()V")).isNull();
+    assertThat(projectBehaviors.get("A#c()V")).isNotNull();
+  }
+
   @Test
   void hardcoded_behaviors() throws Exception {
     BehaviorCache behaviorCache = new BehaviorCache();
@@ -172,8 +220,7 @@ class BehaviorCacheTest {
     }
 
     assertThat(behaviorCache.behaviors).isEmpty();
-    assertThat(behaviorCache.hardcodedBehaviors()).hasSize(179);
-    assertThat(logTester.logs(LoggerLevel.DEBUG)).containsOnly("[SE] Loaded 179 hardcoded method behaviors.");
+    assertThat(logTester.logs(LoggerLevel.DEBUG)).doesNotContain("[SE] Unable to load hardcoded method behaviors. Defaulting to no hardcoded method behaviors.");
   }
 
   @Test
@@ -298,6 +345,39 @@ class BehaviorCacheTest {
     assertThat(testedPost).containsOnly("foo", "bar", "isBlank");
   }
 
+  @Test
+  void hardcoded_behaviors_are_loaded_by_package() {
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.resourceOf("org.apache.commons.lang.StringUtils#isEmpty(Ljava/lang/String;)Z"))
+      .isEqualTo("org.apache.commons.lang.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.resourceOf("org.apache.commons.lang3.StringUtils#isEmpty(Ljava/lang/CharSequence;)Z"))
+      .isEqualTo("org.apache.commons.lang3.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.resourceOf("org.apache.commons.collections4.CollectionUtils#isEmpty(Ljava/util/Collection;)Z"))
+      .isEqualTo("org.apache.commons.collections.json");
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.resourceOf("org.foo.A#foo()Z")).isNull();
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.resourceOf("A#foo()Z")).isNull();
+
+    int behaviorsCount = 0;
+    for (String resource : Arrays.asList("java.lang.json", "java.util.json", "com.google.common.base.json", "org.apache.commons.collections.json",
+      "org.apache.commons.lang.json", "org.apache.commons.lang3.json", "org.apache.logging.log4j.core.util.json", "org.eclipse.core.runtime.json",
+      "org.springframework.util.json")) {
+      Map<String, MethodBehavior> resourceBehaviors = BehaviorCache.HardcodedMethodBehaviors
+        .loadHardcodedBehaviors(() -> Collections.singletonList(BehaviorCache.class.getResourceAsStream(resource)));
+      assertThat(resourceBehaviors).as(resource).isNotEmpty();
+      resourceBehaviors.forEach((signature, behavior) -> {
+        assertThat(BehaviorCache.HardcodedMethodBehaviors.resourceOf(signature)).isEqualTo(resource);
+        assertThat(BehaviorCache.HardcodedMethodBehaviors.get(signature))
+          .as(signature)
+          .isNotNull()
+          .extracting(MethodBehavior::yields)
+          .asList()
+          .hasSameSizeAs(behavior.yields());
+      });
+      behaviorsCount += resourceBehaviors.size();
+    }
+    assertThat(behaviorsCount).isEqualTo(179);
+    assertThat(BehaviorCache.HardcodedMethodBehaviors.get("java.lang.Unknown#foo()Z")).isNull();
+  }
+
   @Test
   void log_when_unable_to_load_resources_with_method_behavior() throws Exception {
     Map<String, MethodBehavior> result = BehaviorCache.HardcodedMethodBehaviors
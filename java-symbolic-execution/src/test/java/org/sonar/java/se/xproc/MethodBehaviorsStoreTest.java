@@ -0,0 +1,133 @@
+/*
+ * SonarQube Java
+ * Copyright (C) 2012-2021 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.java.se.xproc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.java.model.DefaultJavaFileScannerContext;
+import org.sonar.java.model.JavaTree.CompilationUnitTreeImpl;
+import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.SymbolicExecutionVisitor;
+import org.sonar.java.se.checks.NullDereferenceCheck;
+import org.sonar.java.se.utils.JParserTestUtils;
+import org.sonar.java.se.utils.SETestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MethodBehaviorsStoreTest {
+
+  private static final String FOO = "MethodBehavior#foo(Z)Z";
+  private static final List<String> SE_CHECKS = Collections.singletonList(NullDereferenceCheck.class.getName());
+
+  @TempDir
+  Path workDir;
+
+  @Test
+  void behaviors_of_unchanged_files_are_loaded_by_next_analysis() throws Exception {
+    File storeFile = workDir.resolve("behaviors.json").toFile();
+    InputFile inputFile = SETestUtils.inputFile("src/test/resources/se/MethodBehavior.java");
+
+    ProjectMethodBehaviors projectBehaviors = analyze(storeFile, inputFile);
+    assertThat(projectBehaviors.get(FOO)).isNotNull();
+    // not the store which loaded the behaviors
+    store(storeFile, inputFile).save(projectBehaviors);
+    assertThat(storeFile).isFile();
+
+    ProjectMethodBehaviors nextBehaviors = new ProjectMethodBehaviors(100);
+    store(storeFile, inputFile).load(nextBehaviors, Collections.singletonList(inputFile));
+    MethodBehavior foo = nextBehaviors.get(FOO);
+    assertThat(foo).isNotNull();
+    assertThat(foo.isComplete()).isTrue();
+    assertThat(foo.yields()).hasSameSizeAs(projectBehaviors.get(FOO).yields());
+
+    // behaviors of a changed file are discarded
+    InputFile changedFile = new TestInputFileBuilder("", inputFile.relativePath())
+      .setContents(inputFile.contents() + "\n")
+      .setCharset(StandardCharsets.UTF_8)
+      .build();
+    ProjectMethodBehaviors changedBehaviors = new ProjectMethodBehaviors(100);
+    store(storeFile, changedFile).load(changedBehaviors, Collections.singletonList(changedFile));
+    assertThat(changedBehaviors.size()).isZero();
+
+    // whole store is discarded when the configuration changes
+    String otherClasspathHash = MethodBehaviorsStore.configurationHash(Collections.emptyList(), "8", SE_CHECKS, Collections.singletonList(inputFile));
+    ProjectMethodBehaviors otherClasspathBehaviors = new ProjectMethodBehaviors(100);
+    new MethodBehaviorsStore(storeFile, otherClasspathHash).load(otherClasspathBehaviors, Collections.singletonList(inputFile));
+    assertThat(otherClasspathBehaviors.size()).isZero();
+  }
+
+  @Test
+  void configuration_hash_depends_on_java_version_checks_and_class_files() throws Exception {
+    Path classes = workDir.resolve("classes");
+    Path classFile = classes.resolve("org/foo/Library.class");
+    Path sourceClassFile = classes.resolve("org/foo/Source.class");
+    Files.createDirectories(classFile.getParent());
+    Files.write(classFile, new byte[] {1});
+    Files.write(sourceClassFile, new byte[] {1});
+    List<File> classpath = Collections.singletonList(classes.toFile());
+    List<InputFile> sourceFiles = Collections.singletonList(new TestInputFileBuilder("", "src/org/foo/Source.java").setContents("").build());
+
+    String hash = MethodBehaviorsStore.configurationHash(classpath, "8", SE_CHECKS, sourceFiles);
+    assertThat(MethodBehaviorsStore.configurationHash(classpath, "8", SE_CHECKS, sourceFiles)).isEqualTo(hash);
+    assertThat(MethodBehaviorsStore.configurationHash(classpath, "11", SE_CHECKS, sourceFiles)).isNotEqualTo(hash);
+    assertThat(MethodBehaviorsStore.configurationHash(classpath, "8", Collections.emptyList(), sourceFiles)).isNotEqualTo(hash);
+
+    // class files of the analyzed sources change along with the sources, which are tracked file by file
+    Files.write(sourceClassFile, new byte[] {2});
+    assertThat(MethodBehaviorsStore.configurationHash(classpath, "8", SE_CHECKS, sourceFiles)).isEqualTo(hash);
+    Files.write(classFile, new byte[] {2});
+    assertThat(MethodBehaviorsStore.configurationHash(classpath, "8", SE_CHECKS, sourceFiles)).isNotEqualTo(hash);
+  }
+
+  @Test
+  void unreadable_store_is_ignored() throws Exception {
+    File storeFile = workDir.resolve("behaviors.json").toFile();
+    Files.write(storeFile.toPath(), "not json".getBytes(StandardCharsets.UTF_8));
+    InputFile inputFile = SETestUtils.inputFile("src/test/resources/se/MethodBehavior.java");
+
+    ProjectMethodBehaviors projectBehaviors = new ProjectMethodBehaviors(100);
+    store(storeFile, inputFile).load(projectBehaviors, Collections.singletonList(inputFile));
+
+    assertThat(projectBehaviors.size()).isZero();
+  }
+
+  private static ProjectMethodBehaviors analyze(File storeFile, InputFile inputFile) throws IOException {
+    ProjectMethodBehaviors projectBehaviors = new ProjectMethodBehaviors(100);
+    store(storeFile, inputFile).load(projectBehaviors, Collections.singletonList(inputFile));
+    SymbolicExecutionVisitor sev = new SymbolicExecutionVisitor(Collections.singletonList(new NullDereferenceCheck()), projectBehaviors);
+    CompilationUnitTreeImpl cut = (CompilationUnitTreeImpl) JParserTestUtils.parse(inputFile.filename(), inputFile.contents(), SETestUtils.CLASS_PATH);
+    sev.scanFile(new DefaultJavaFileScannerContext(cut, inputFile, cut.sema, null, new JavaVersionImpl(8), true));
+    return projectBehaviors;
+  }
+
+  private static MethodBehaviorsStore store(File storeFile, InputFile inputFile) {
+    return new MethodBehaviorsStore(storeFile,
+      MethodBehaviorsStore.configurationHash(SETestUtils.CLASS_PATH, "8", SE_CHECKS, Collections.singletonList(inputFile)));
+  }
+}
@@ -20,12 +20,15 @@
 package org.sonar.plugins.java;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.batch.Phase;
 import org.sonar.api.batch.fs.FileSystem;
@@ -45,9 +48,14 @@ import org.sonar.java.checks.CheckList;
 import org.sonar.java.filters.PostAnalysisIssueFilter;
 import org.sonar.java.jsp.Jasper;
 import org.sonar.java.model.GeneratedFile;
+import org.sonar.java.model.JParserConfig;
 import org.sonar.java.model.JavaVersionImpl;
+import org.sonar.java.se.ExplorationBudget;
+import org.sonar.java.se.SymbolicExecutionMetrics;
 import org.sonar.java.se.SymbolicExecutionVisitor;
 import org.sonar.java.se.checks.SECheck;
+import org.sonar.java.se.xproc.MethodBehaviorsStore;
+import org.sonar.java.se.xproc.ProjectMethodBehaviors;
 import org.sonar.plugins.java.api.JavaCheck;
 import org.sonar.plugins.java.api.JavaResourceLocator;
 import org.sonar.plugins.java.api.JavaVersion;
@@ -102,11 +110,34 @@ public class JavaSensor implements Sensor {
     sonarComponents.registerMainCheckClasses(CheckList.REPOSITORY_KEY, CheckList.getJavaChecks());
     sonarComponents.registerTestCheckClasses(CheckList.REPOSITORY_KEY, CheckList.getJavaTestChecks());
 
-    Measurer measurer = new Measurer(context, noSonarFilter);
-
-    JavaFrontend frontend = new JavaFrontend(getJavaVersion(), sonarComponents, measurer, javaResourceLocator, postAnalysisIssueFilter,
-      insertSymbolicExecutionVisitor(sonarComponents.mainChecks()));
-    frontend.scan(getSourceFiles(), getTestFiles(), runJasper(context));
+    Measurer measurer = new Measurer(context, noSonarFilter, sonarComponents);
+
+    // shared by the symbolic execution of all the files, including the ones analyzed by the workers of the parallel mode
+    ProjectMethodBehaviors projectBehaviors = sonarComponents.isCrossFileBehaviorsEnabled()
+      ? new ProjectMethodBehaviors(sonarComponents.crossFileBehaviorsMaxSize())
+      : null;
+    ExplorationBudget explorationBudget = ExplorationBudget.fromConfiguration(context.config());
+    Path seMetricsFile = symbolicExecutionMetricsFile(context);
+    SymbolicExecutionMetrics seMetrics = seMetricsFile != null ? new SymbolicExecutionMetrics() : null;
+    JavaVersion javaVersion = getJavaVersion();
+    JavaFrontend frontend = new JavaFrontend(javaVersion, sonarComponents, measurer, javaResourceLocator, postAnalysisIssueFilter,
+      insertSymbolicExecutionVisitor(sonarComponents.mainChecks(), projectBehaviors, explorationBudget, seMetrics));
+    frontend.setParallelModeChecksFactory(() -> insertSymbolicExecutionVisitor(sonarComponents.createMainChecks(), projectBehaviors, explorationBudget,
+      seMetrics));
+    List<InputFile> sourceFiles = getSourceFiles();
+    MethodBehaviorsStore behaviorsStore = projectBehaviors != null && sonarComponents.isCrossFileBehaviorsPersistenceEnabled()
+      ? new MethodBehaviorsStore(sonarComponents, JParserConfig.effectiveJavaVersion(javaVersion), sourceFiles)
+      : null;
+    if (behaviorsStore != null) {
+      behaviorsStore.load(projectBehaviors, sourceFiles);
+    }
+    frontend.scan(sourceFiles, getTestFiles(), runJasper(context));
+    if (behaviorsStore != null) {
+      behaviorsStore.save(projectBehaviors);
+    }
+    if (seMetrics != null) {
+      seMetrics.write(seMetricsFile);
+    }
 
     sensorDuration.stop();
   }
@@ -124,8 +155,30 @@ public class JavaSensor implements Sensor {
       .start("JavaSensor");
   }
 
+  /**
+   * @return the file in which to write the symbolic execution metrics, next to the performance measure report, or null when they are
+   * not activated
+   */
+  @CheckForNull
+  private static Path symbolicExecutionMetricsFile(SensorContext context) {
+    if (!context.config().getBoolean(SymbolicExecutionMetrics.ACTIVATION_KEY).orElse(false)) {
+      return null;
+    }
+    return context.config().get(PERFORMANCE_MEASURE_FILE_PATH_PROPERTY)
+      .filter(path -> !path.isEmpty())
+      .map(path -> Paths.get(path).toAbsolutePath().resolveSibling(SymbolicExecutionMetrics.DESTINATION_FILE))
+      .orElseGet(() -> Optional.ofNullable(context.fileSystem().workDir())
+        .map(file -> file.toPath().resolve(SymbolicExecutionMetrics.DESTINATION_FILE))
+        .orElse(null));
+  }
+
   @VisibleForTesting
   static JavaCheck[] insertSymbolicExecutionVisitor(List<JavaCheck> checks) {
+    return insertSymbolicExecutionVisitor(checks, null, ExplorationBudget.DEFAULT, null);
+  }
+
+  private static JavaCheck[] insertSymbolicExecutionVisitor(List<JavaCheck> checks, @Nullable ProjectMethodBehaviors projectBehaviors,
+    ExplorationBudget explorationBudget, @Nullable SymbolicExecutionMetrics seMetrics) {
     List<SECheck> seChecks = checks.stream()
       .filter(SECheck.class::isInstance)
       .map(SECheck.class::cast)
@@ -135,7 +188,7 @@ public class JavaSensor implements Sensor {
     }
     List<JavaCheck> newList = new ArrayList<>(checks);
     // insert an instance of SymbolicExecutionVisitor before the first SECheck
-    newList.add(newList.indexOf(seChecks.get(0)), new SymbolicExecutionVisitor(seChecks));
+    newList.add(newList.indexOf(seChecks.get(0)), new SymbolicExecutionVisitor(seChecks, projectBehaviors, explorationBudget, seMetrics));
     return newList.toArray(new JavaCheck[0]);
   }
 
@@ -147,8 +200,11 @@ public class JavaSensor implements Sensor {
     return jasper != null ? jasper.generateFiles(context, sonarComponents.getJavaClasspath()) : Collections.emptyList();
   }
 
-  private Iterable<InputFile> getSourceFiles() {
-    return javaFiles(InputFile.Type.MAIN);
+  private List<InputFile> getSourceFiles() {
+    // the file system filters all its files on each iteration, and the main files are iterated up to three times
+    List<InputFile> sourceFiles = new ArrayList<>();
+    javaFiles(InputFile.Type.MAIN).forEach(sourceFiles::add);
+    return sourceFiles;
   }
 
   private Iterable<InputFile> getTestFiles() {
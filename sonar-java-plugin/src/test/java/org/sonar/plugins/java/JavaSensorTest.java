@@ -106,7 +106,7 @@ class JavaSensorTest {
 
   @Test
   void test_issues_creation_on_main_file() throws IOException {
-    testIssueCreation(InputFile.Type.MAIN, 11);
+    testIssueCreation(InputFile.Type.MAIN, 13);
   }
 
   @Test
@@ -309,6 +309,23 @@ class JavaSensorTest {
     assertThat(new String(Files.readAllBytes(defaultPerformanceFile), UTF_8)).contains("\"JavaSensor\"");
   }
 
+  @Test
+  void symbolic_execution_metrics_are_written_next_to_the_performance_measure_report() throws IOException {
+    MapSettings settings = new MapSettings();
+    settings.setProperty("sonar.java.internal.symbolicExecution.metrics", "true");
+    Path workDir = tmp.newFolder().toPath();
+    executeJavaSensorForPerformanceMeasure(settings, workDir);
+    assertThat(workDir.resolve("sonar.java.symbolicExecution.metrics.json")).exists();
+
+    Path reportDir = tmp.newFolder().toPath().resolve("reports");
+    settings.setProperty("sonar.java.performance.measure", "true");
+    settings.setProperty("sonar.java.performance.measure.path", reportDir.resolve("custom.performance.measure.json").toString());
+    workDir = tmp.newFolder().toPath();
+    executeJavaSensorForPerformanceMeasure(settings, workDir);
+    assertThat(reportDir.resolve("sonar.java.symbolicExecution.metrics.json")).exists();
+    assertThat(workDir.resolve("sonar.java.symbolicExecution.metrics.json")).doesNotExist();
+  }
+
   private void executeJavaSensorForPerformanceMeasure(MapSettings settings, Path workDir) throws IOException {
     Configuration configuration = settings.asConfig();
     SensorContextTester context = createContext(InputFile.Type.MAIN)
@@ -322,6 +339,22 @@ class JavaSensorTest {
     jss.execute(context);
   }
 
+  @Test
+  void test_issues_creation_on_main_file_in_parallel_mode() throws IOException {
+    SensorContextTester context = createContext(InputFile.Type.MAIN).setRuntime(SonarRuntimeImpl.forSonarLint(Version.create(6, 7)));
+    context.settings().setProperty("sonar.java.internal.parallelMode", "true");
+    DefaultFileSystem fs = context.fileSystem();
+    fs.setWorkDir(tmp.newFolder().toPath());
+    SonarComponents sonarComponents = createSonarComponentsMock(context);
+    when(sonarComponents.createMainChecks()).thenAnswer(invocation -> Collections.singletonList(new BadMethodNameCheck()));
+    DefaultJavaResourceLocator javaResourceLocator = new DefaultJavaResourceLocator(new ClasspathForMain(context.config(), fs));
+    JavaSensor jss = new JavaSensor(sonarComponents, fs, javaResourceLocator, context.config(), mock(NoSonarFilter.class), null);
+
+    jss.execute(context);
+    verify(sonarComponents, times(1)).createMainChecks();
+    verify(sonarComponents, times(13)).reportIssue(any(AnalyzerMessage.class));
+  }
+
   interface JspCodeScanner extends JavaFileScanner, JspCodeVisitor {
   }
 }